@@ -16,8 +16,9 @@ public class SessionController {
     private ActivityService activityService;
 
     @PostMapping
-    public ResponseEntity<Session> createSession(@RequestBody Session session) {
-        return ResponseEntity.ok(activityService.createSession(session));
+    public ResponseEntity<Session> createSession(@RequestHeader("X-User-Id") Long userId,
+                                                 @RequestBody Session session) {
+        return ResponseEntity.ok(activityService.createSession(userId, session));
     }
 
     @GetMapping
@@ -26,18 +27,21 @@ public class SessionController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Session> getSessionById(@PathVariable Long id) {
-        return ResponseEntity.ok(activityService.getSessionById(id));
+    public ResponseEntity<Session> getSessionById(@RequestHeader("X-User-Id") Long userId,
+                                                  @PathVariable Long id) {
+        return ResponseEntity.ok(activityService.getSessionById(userId, id));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Session> updateSession(@PathVariable Long id, @RequestBody Session session) {
-        return ResponseEntity.ok(activityService.updateSession(id, session));
+    public ResponseEntity<Session> updateSession(@RequestHeader("X-User-Id") Long userId,
+                                                 @PathVariable Long id, @RequestBody Session session) {
+        return ResponseEntity.ok(activityService.updateSession(userId, id, session));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteSession(@PathVariable Long id) {
-        activityService.deleteSession(id);
+    public ResponseEntity<Void> deleteSession(@RequestHeader("X-User-Id") Long userId,
+                                              @PathVariable Long id) {
+        activityService.deleteSession(userId, id);
         return ResponseEntity.ok().build();
     }
 
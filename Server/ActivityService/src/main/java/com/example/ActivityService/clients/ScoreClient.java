@@ -1,8 +1,16 @@
 package com.example.ActivityService.clients;
 
+import com.example.ActivityService.response.ApiResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 
-@FeignClient(name = "score-service", url = "http://localhost:8083")
+@FeignClient(name = "score-service", url = "${clients.score-service.url:http://localhost:8083}")
 public interface ScoreClient {
 
+    // data is null when the user has no score for the session yet
+    @GetMapping("/score/session/{sessionId}")
+    ApiResponse<ScoreDto> getScoreBySessionId(@RequestHeader("X-User-Id") Long userId,
+                                              @PathVariable("sessionId") Long sessionId);
 }
@@ -0,0 +1,24 @@
+package com.example.ActivityService.clients;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Score as returned by ScoreService
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreDto {
+    private Long id;
+    private Long sessionId;
+    private Integer score;
+    private int distanceCovered;
+    private int distanceAssigned;
+    private String duration;
+    private int stepsTaken;
+    private int caloriesBurnt;
+    private int treasuresCollected;
+    private int treasuresAssigned;
+}
@@ -2,7 +2,10 @@ package com.example.ActivityService.controller;
 
 import com.example.ActivityService.entity.Session;
 import com.example.ActivityService.response.ApiResponse;
+import com.example.ActivityService.response.SessionDetail;
 import com.example.ActivityService.service.ActivityService;
+import com.example.ActivityService.service.SessionDetailService;
+import com.example.common.sync.SyncPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,14 +15,28 @@ import java.util.List;
 @RestController
 @RequestMapping("/session")
 public class SessionController {
+
+    // Set by the gateway from the caller's token; clients cannot supply it
+    static final String USER_ID_HEADER = "X-User-Id";
     
     @Autowired
     private ActivityService activityService;
 
+    @Autowired
+    private SessionDetailService sessionDetailService;
+
     @PostMapping
-    public ApiResponse<Session> createSession(@RequestBody Session session) {
+    public ApiResponse<Session> createSession(@RequestHeader(USER_ID_HEADER) Long userId,
+                                              @RequestBody Session session) {
         return ApiResponse.onSuccess("Session created successfully!!!",
-                activityService.createSession(session));
+                activityService.createSession(userId, session));
+    }
+
+    @PostMapping("/batch")
+    public ApiResponse<List<Session>> createSessions(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                     @RequestBody List<Session> sessions) {
+        return ApiResponse.onSuccess("Sessions created successfully!!!",
+                activityService.createSessions(userId, sessions));
     }
 
     @GetMapping
@@ -28,21 +45,41 @@ public class SessionController {
                 activityService.getAllSessions());
     }
 
+    @GetMapping("/sync")
+    public ApiResponse<SyncPage<Session>> syncSessions(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                       @RequestParam(required = false) String since,
+                                                       @RequestParam(defaultValue = "200") int limit) {
+        return ApiResponse.onSuccess("Sessions synced successfully!!!",
+                activityService.getSessionsChangedSince(userId, since, limit));
+    }
+
+    // By-id endpoints only see the caller's sessions; anyone else's id answers 404
+
     @GetMapping("/{id}")
-    public ApiResponse<Session> getSessionById(@PathVariable Long id) {
+    public ApiResponse<Session> getSessionById(@RequestHeader(USER_ID_HEADER) Long userId,
+                                               @PathVariable Long id) {
         return ApiResponse.onSuccess("Session retrieved successfully!!!",
-                activityService.getSessionById(id));
+                activityService.getSessionById(userId, id));
+    }
+
+    @GetMapping("/{id}/detail")
+    public ApiResponse<SessionDetail> getSessionDetail(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                       @PathVariable Long id) {
+        return ApiResponse.onSuccess("Session detail retrieved successfully!!!",
+                sessionDetailService.getSessionDetail(userId, id));
     }
 
     @PutMapping("/{id}")
-    public ApiResponse<Session> updateSession(@PathVariable Long id, @RequestBody Session session) {
+    public ApiResponse<Session> updateSession(@RequestHeader(USER_ID_HEADER) Long userId,
+                                              @PathVariable Long id, @RequestBody Session session) {
         return ApiResponse.onSuccess("Session updated successfully!!!",
-                activityService.updateSession(id, session));
+                activityService.updateSession(userId, id, session));
     }
 
     @DeleteMapping("/{id}")
-    public ApiResponse<Void> deleteSession(@PathVariable Long id) {
-        activityService.deleteSession(id);
+    public ApiResponse<Void> deleteSession(@RequestHeader(USER_ID_HEADER) Long userId,
+                                           @PathVariable Long id) {
+        activityService.deleteSession(userId, id);
         return ApiResponse.onSuccess("Session deleted successfully!!!", null);
     }
 }
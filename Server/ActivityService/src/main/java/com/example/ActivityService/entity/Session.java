@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "sessions")
+@Table(name = "sessions", indexes = @Index(name = "idx_sessions_user_updated", columnList = "user_id, updated_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,6 +19,10 @@ public class Session {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Device-side session id, used to make uploads from the app idempotent
+    @Column(name = "client_id", unique = true)
+    private String clientId;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     private Long userId;
@@ -29,9 +33,27 @@ public class Session {
     private String prompt;
 
 
+    // Change tracking for delta sync; existing rows are stamped when the columns are added
+    @Column(name = "updated_at", columnDefinition = "datetime(6) default current_timestamp(6)")
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Deleted rows are kept as tombstones so clients can sync the removal
+    @Column(nullable = false)
+    private boolean deleted;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
     }
     public enum SessionType {
         RUNNING,
@@ -2,7 +2,9 @@ package com.example.ActivityService.exception;
 
 
 import com.example.ActivityService.response.ApiResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -18,6 +20,29 @@ public class GlobalExceptionHandler {
         return ApiResponse.onError(e.getMessage());
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiResponse<Object> handleBadRequest(IllegalArgumentException e) {
+        return ApiResponse.onError(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    // The client edited an older version than the stored one
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiResponse<Object> handleConflict(OptimisticLockingFailureException e) {
+        return ApiResponse.onError(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    // X-User-Id is only missing when the service is called around the gateway
+    @ExceptionHandler(MissingRequestHeaderException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiResponse<Object> handleMissingHeader(MissingRequestHeaderException e) {
+        return ApiResponse.onError(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseBody
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1,11 +1,34 @@
 package com.example.ActivityService.repositories;
 
 import com.example.ActivityService.entity.Session;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ActivityRepo extends JpaRepository<Session, Long> {
 
+    Optional<Session> findByClientId(String clientId);
+
+    List<Session> findByDeletedFalse();
+
+    // By id, but only for the owner, so another user's id looks like a missing one
+    Optional<Session> findByIdAndUserId(Long id, Long userId);
+
+    // The user's rows changed after the cursor position, oldest first; ties on updatedAt are ordered by id
+    @Query("SELECT s FROM Session s WHERE s.userId = :userId " +
+           "AND (s.updatedAt > :after OR (s.updatedAt = :after AND s.id > :afterId)) " +
+           "AND s.updatedAt <= :settled ORDER BY s.updatedAt ASC, s.id ASC")
+    List<Session> findChangedSince(@Param("userId") Long userId,
+                                   @Param("after") LocalDateTime after,
+                                   @Param("afterId") long afterId,
+                                   @Param("settled") LocalDateTime settled,
+                                   Pageable page);
 
 }
@@ -0,0 +1,29 @@
+package com.example.ActivityService.response;
+
+import com.example.ActivityService.clients.ScoreDto;
+import com.example.ActivityService.entity.Session;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A session with its score. When ScoreService is slow or down the score is null and
+ * named in unavailable, and the session is still returned.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionDetail {
+    private Session session;
+    private ScoreDto score;
+    private List<String> unavailable;
+
+    // Derived from unavailable; not part of the response
+    @JsonIgnore
+    public boolean isPartial() {
+        return unavailable != null && !unavailable.isEmpty();
+    }
+}
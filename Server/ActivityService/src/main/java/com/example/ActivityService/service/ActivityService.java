@@ -2,10 +2,19 @@ package com.example.ActivityService.service;
 
 import com.example.ActivityService.repositories.ActivityRepo;
 import com.example.ActivityService.entity.Session;
+import com.example.ActivityService.exception.SessionNotFoundException;
+import com.example.common.sync.SyncCursor;
+import com.example.common.sync.SyncPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class ActivityService {
@@ -13,25 +22,131 @@ public class ActivityService {
     @Autowired
     private ActivityRepo activityRepo;
 
+    @Autowired
+    private SessionDetailService sessionDetailService;
+
+    // Writes newer than this are left for the next sync so a slow transaction that
+    // commits an older updatedAt cannot be skipped by a cursor that already passed it
+    private static final long SYNC_SETTLE_SECONDS = 5;
+    private static final int MAX_SYNC_PAGE = 500;
+
     public List<Session> getAllSessions() {
-        return activityRepo.findAll();
+        return activityRepo.findByDeletedFalse();
+    }
+
+    /**
+     * The user's session; another user's session is reported as not found
+     */
+    public Session getSessionById(Long userId, Long id) {
+        return activityRepo.findByIdAndUserId(id, userId)
+                .filter(session -> !session.isDeleted())
+                .orElseThrow(() -> new SessionNotFoundException("Session not found: " + id));
+    }
+
+    public Session createSession(Long userId, Session session) {
+        return activityRepo.save(fromClient(session, userId));
+    }
+
+    /**
+     * Saves sessions uploaded by the app in one go for the given user. A session
+     * whose clientId is already stored is returned as is, so the app can resend a
+     * batch safely; a clientId stored for another user is refused.
+     */
+    @Transactional
+    public List<Session> createSessions(Long userId, List<Session> sessions) {
+        List<Session> saved = new ArrayList<>(sessions.size());
+        for (Session request : sessions) {
+            Session session = fromClient(request, userId);
+            if (session.getClientId() == null) {
+                saved.add(activityRepo.save(session));
+                continue;
+            }
+            Session stored = activityRepo.findByClientId(session.getClientId())
+                    .orElseGet(() -> activityRepo.save(session));
+            if (!userId.equals(stored.getUserId())) {
+                throw new IllegalArgumentException("clientId " + session.getClientId() + " belongs to another user");
+            }
+            saved.add(stored);
+        }
+        return saved;
     }
 
-    public Session getSessionById(Long id) {
-        return activityRepo.findById(id).orElseThrow();
+    /**
+     * Applies the client's changes if it edited the current version of the session;
+     * a stale version fails with a conflict instead of overwriting newer data
+     */
+    public Session updateSession(Long userId, Long id, Session session) {
+        if (session.getVersion() == null) {
+            throw new IllegalArgumentException("version is required");
+        }
+        Session existing = getSessionById(userId, id);
+        if (!Objects.equals(existing.getVersion(), session.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Session.class, id);
+        }
+        // Only client-owned fields change; @Version still catches a write that lands in between
+        existing.setType(session.getType());
+        existing.setPrompt(session.getPrompt());
+        sessionDetailService.evict(id);
+        return activityRepo.save(existing);
     }
 
-    public Session createSession(Session session) {
-        return activityRepo.save(session);
+    /**
+     * Tombstones the user's session; deleting it again is a no-op, so the tombstone
+     * does not move forward in the change feed
+     */
+    public void deleteSession(Long userId, Long id) {
+        Session session = activityRepo.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> new SessionNotFoundException("Session not found: " + id));
+        if (!session.isDeleted()) {
+            session.setDeleted(true);
+            activityRepo.save(session);
+            sessionDetailService.evict(id);
+        }
     }
 
-    public Session updateSession(Long id, Session session) {
-        session.setId(id);
-        return activityRepo.save(session);
+    // Only client-owned fields are taken from a request; id, version, timestamps and deleted stay server-managed
+    private static Session fromClient(Session request, Long userId) {
+        Session session = new Session();
+        session.setClientId(request.getClientId());
+        session.setUserId(userId);
+        session.setType(request.getType());
+        session.setPrompt(request.getPrompt());
+        return session;
     }
 
-    public void deleteSession(Long id) {
-        activityRepo.deleteById(id);
+    /**
+     * Changes to the user's sessions after the given cursor, including tombstones
+     * for deleted sessions. An empty cursor starts from the beginning.
+     */
+    public SyncPage<Session> getSessionsChangedSince(Long userId, String since, int limit) {
+        SyncCursor cursor = SyncCursor.parse(since);
+        int pageSize = Math.max(1, Math.min(limit, MAX_SYNC_PAGE));
+        LocalDateTime settled = LocalDateTime.now().minusSeconds(SYNC_SETTLE_SECONDS);
+
+        // One extra row tells whether another page follows
+        List<Session> rows = activityRepo.findChangedSince(userId, cursor.getUpdatedAt(), cursor.getId(), settled,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Session> changes = new ArrayList<>();
+        List<SyncPage.Tombstone> deleted = new ArrayList<>();
+        for (Session session : rows) {
+            if (session.isDeleted()) {
+                deleted.add(new SyncPage.Tombstone(session.getId(), session.getClientId(), session.getVersion()));
+            } else {
+                changes.add(session);
+            }
+        }
+
+        SyncCursor next = cursor;
+        if (!rows.isEmpty()) {
+            Session last = rows.get(rows.size() - 1);
+            next = new SyncCursor(last.getUpdatedAt(), last.getId());
+        }
+        return new SyncPage<>(changes, deleted, next.toString(), hasMore);
     }
 
 }
@@ -0,0 +1,131 @@
+package com.example.ActivityService.service;
+
+import com.example.ActivityService.clients.ScoreClient;
+import com.example.ActivityService.clients.ScoreDto;
+import com.example.ActivityService.entity.Session;
+import com.example.ActivityService.exception.SessionNotFoundException;
+import com.example.ActivityService.repositories.ActivityRepo;
+import com.example.ActivityService.response.ApiResponse;
+import com.example.ActivityService.response.SessionDetail;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Assembles session details from this service and ScoreService.
+ *
+ * The score is fetched on a virtual thread while the session is loaded, so a
+ * detail costs the slower of the two rather than their sum. The score call has
+ * its own deadline; a late or failed score is left out instead of failing the
+ * request. Complete details are cached for a short time, partial ones only
+ * briefly. Tracks are not part of the detail: TrackService has no endpoints or
+ * track storage, so a track call could only ever time out. Add it as a second
+ * future next to the score once TrackService serves tracks.
+ */
+@Service
+public class SessionDetailService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionDetailService.class);
+
+    private static final int MAX_CACHED_DETAILS = 1000;
+
+    @Autowired
+    private ActivityRepo activityRepo;
+
+    @Autowired
+    private ScoreClient scoreClient;
+
+    @Value("${session.detail.timeout-ms:800}")
+    private long timeoutMs;
+
+    @Value("${session.detail.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    @Value("${session.detail.partial-cache-ttl-ms:5000}")
+    private long partialCacheTtlMs;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Least recently used details are dropped once the cache is full
+    private final Map<Long, CachedDetail> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedDetail> eldest) {
+                    return size() > MAX_CACHED_DETAILS;
+                }
+            });
+
+    private record CachedDetail(SessionDetail detail, long expiresAt) {
+    }
+
+    /**
+     * Detail of the user's session; another user's session is reported as not found
+     */
+    public SessionDetail getSessionDetail(Long userId, Long sessionId) {
+        CachedDetail cached = cache.get(sessionId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()
+                && userId.equals(cached.detail().getSession().getUserId())) {
+            return cached.detail();
+        }
+
+        // Start the remote call before the local lookup so the two overlap
+        CompletableFuture<ScoreDto> score = fetch(() -> scoreClient.getScoreBySessionId(userId, sessionId));
+        Session session = activityRepo.findByIdAndUserId(sessionId, userId)
+                .filter(s -> !s.isDeleted())
+                .orElse(null);
+        if (session == null) {
+            score.cancel(true);
+            throw new SessionNotFoundException("Session not found: " + sessionId);
+        }
+
+        List<String> unavailable = new ArrayList<>(1);
+        SessionDetail detail = new SessionDetail(session, await(score, "score", unavailable), unavailable);
+
+        long ttl = detail.isPartial() ? partialCacheTtlMs : cacheTtlMs;
+        cache.put(sessionId, new CachedDetail(detail, System.currentTimeMillis() + ttl));
+        return detail;
+    }
+
+    /**
+     * Drop the cached detail after the session changes
+     */
+    public void evict(Long sessionId) {
+        cache.remove(sessionId);
+    }
+
+    private <T> CompletableFuture<T> fetch(Supplier<ApiResponse<T>> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            ApiResponse<T> response = call.get();
+            return response != null ? response.getData() : null;
+        }, executor).orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String part, List<String> unavailable) {
+        try {
+            return future.join();
+        } catch (RuntimeException e) {
+            log.warn("Session detail without {}: {}", part, e.getCause() != null ? e.getCause().toString() : e.toString());
+            unavailable.add(part);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
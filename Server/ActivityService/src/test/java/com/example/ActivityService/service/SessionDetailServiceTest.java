@@ -0,0 +1,180 @@
+package com.example.ActivityService.service;
+
+import com.example.ActivityService.clients.ScoreClient;
+import com.example.ActivityService.clients.ScoreDto;
+import com.example.ActivityService.entity.Session;
+import com.example.ActivityService.exception.SessionNotFoundException;
+import com.example.ActivityService.repositories.ActivityRepo;
+import com.example.ActivityService.response.ApiResponse;
+import com.example.ActivityService.response.SessionDetail;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SessionDetailServiceTest {
+
+    private static final long USER = 5L;
+    private static final long OTHER_USER = 6L;
+
+    private ActivityRepo activityRepo;
+    private ScoreClient scoreClient;
+    private SessionDetailService service;
+
+    @BeforeEach
+    void setUp() {
+        activityRepo = mock(ActivityRepo.class);
+        scoreClient = mock(ScoreClient.class);
+        service = new SessionDetailService();
+        ReflectionTestUtils.setField(service, "activityRepo", activityRepo);
+        ReflectionTestUtils.setField(service, "scoreClient", scoreClient);
+        ReflectionTestUtils.setField(service, "timeoutMs", 800L);
+        ReflectionTestUtils.setField(service, "cacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "partialCacheTtlMs", 5_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static Session session(long id) {
+        Session session = new Session();
+        session.setId(id);
+        session.setUserId(USER);
+        return session;
+    }
+
+    private static ScoreDto score(long sessionId) {
+        ScoreDto score = new ScoreDto();
+        score.setSessionId(sessionId);
+        score.setScore(42);
+        return score;
+    }
+
+    private static <T> T sleepThen(long millis, T value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    void returnsSessionWithScore() {
+        when(activityRepo.findByIdAndUserId(1L, USER)).thenReturn(Optional.of(session(1)));
+        when(scoreClient.getScoreBySessionId(USER, 1L)).thenReturn(ApiResponse.onSuccess("ok", score(1)));
+
+        SessionDetail detail = service.getSessionDetail(USER, 1L);
+
+        assertEquals(1L, detail.getSession().getId());
+        assertEquals(42, detail.getScore().getScore());
+        assertFalse(detail.isPartial());
+    }
+
+    @Test
+    void failingScoreGivesPartialDetail() {
+        when(activityRepo.findByIdAndUserId(1L, USER)).thenReturn(Optional.of(session(1)));
+        when(scoreClient.getScoreBySessionId(USER, 1L)).thenThrow(new IllegalStateException("score-service down"));
+
+        SessionDetail detail = service.getSessionDetail(USER, 1L);
+
+        assertNotNull(detail.getSession());
+        assertNull(detail.getScore());
+        assertEquals(List.of("score"), detail.getUnavailable());
+        assertTrue(detail.isPartial());
+    }
+
+    @Test
+    void lateScoreIsDroppedAtTheDeadline() {
+        ReflectionTestUtils.setField(service, "timeoutMs", 100L);
+        when(activityRepo.findByIdAndUserId(1L, USER)).thenReturn(Optional.of(session(1)));
+        when(scoreClient.getScoreBySessionId(USER, 1L))
+                .thenAnswer(invocation -> sleepThen(2_000, ApiResponse.onSuccess("ok", score(1))));
+
+        long start = System.nanoTime();
+        SessionDetail detail = service.getSessionDetail(USER, 1L);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(detail.isPartial());
+        assertTrue(elapsedMs < 1_000, "waited " + elapsedMs + " ms for a 100 ms deadline");
+    }
+
+    @Test
+    void missingSessionThrows() {
+        when(activityRepo.findByIdAndUserId(anyLong(), eq(USER))).thenReturn(Optional.empty());
+        assertThrows(SessionNotFoundException.class, () -> service.getSessionDetail(USER, 7L));
+    }
+
+    @Test
+    void anotherUsersSessionIsNotFound() {
+        when(activityRepo.findByIdAndUserId(1L, OTHER_USER)).thenReturn(Optional.empty());
+        assertThrows(SessionNotFoundException.class, () -> service.getSessionDetail(OTHER_USER, 1L));
+    }
+
+    @Test
+    void cachedDetailIsNotServedToAnotherUser() {
+        when(activityRepo.findByIdAndUserId(1L, USER)).thenReturn(Optional.of(session(1)));
+        when(scoreClient.getScoreBySessionId(USER, 1L)).thenReturn(ApiResponse.onSuccess("ok", score(1)));
+        service.getSessionDetail(USER, 1L);
+
+        when(activityRepo.findByIdAndUserId(1L, OTHER_USER)).thenReturn(Optional.empty());
+        assertThrows(SessionNotFoundException.class, () -> service.getSessionDetail(OTHER_USER, 1L));
+    }
+
+    @Test
+    void cachesCompleteDetailsUntilEvicted() {
+        when(activityRepo.findByIdAndUserId(1L, USER)).thenReturn(Optional.of(session(1)));
+        when(scoreClient.getScoreBySessionId(USER, 1L)).thenReturn(ApiResponse.onSuccess("ok", score(1)));
+
+        SessionDetail first = service.getSessionDetail(USER, 1L);
+        assertSame(first, service.getSessionDetail(USER, 1L));
+        verify(scoreClient, times(1)).getScoreBySessionId(USER, 1L);
+
+        service.evict(1L);
+        service.getSessionDetail(USER, 1L);
+        verify(scoreClient, times(2)).getScoreBySessionId(USER, 1L);
+    }
+
+    @Test
+    void partialFlagIsNotSerialized() throws Exception {
+        SessionDetail detail = new SessionDetail(session(1), null, List.of("score"));
+        String json = new ObjectMapper().findAndRegisterModules().writeValueAsString(detail);
+        assertFalse(json.contains("\"partial\""), json);
+        assertTrue(json.contains("\"unavailable\":[\"score\"]"), json);
+    }
+
+    /**
+     * Latency comparison: the score call overlaps the session lookup, so a detail costs about
+     * the slower of the two. Prints the measurement next to the sequential sum.
+     */
+    @Test
+    void overlapsScoreCallWithSessionLookup() {
+        long lookupMs = 100;
+        long scoreMs = 150;
+        when(activityRepo.findByIdAndUserId(anyLong(), eq(USER))).thenAnswer(invocation -> sleepThen(lookupMs, Optional.of(session(1))));
+        when(scoreClient.getScoreBySessionId(anyLong(), anyLong()))
+                .thenAnswer(invocation -> sleepThen(scoreMs, ApiResponse.onSuccess("ok", score(1))));
+
+        int runs = 5;
+        long start = System.nanoTime();
+        for (long id = 1; id <= runs; id++) {
+            assertFalse(service.getSessionDetail(USER, id).isPartial());
+        }
+        long averageMs = (System.nanoTime() - start) / 1_000_000 / runs;
+
+        System.out.printf("Session detail: %d ms per detail, sequential would be %d ms%n",
+                          averageMs, lookupMs + scoreMs);
+        assertTrue(averageMs < lookupMs + scoreMs, "took " + averageMs + " ms");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.Gateway.controller;
+
+import com.example.Gateway.jwtFIles.JWTUtil;
+import com.example.Gateway.user.User;
+import com.example.Gateway.user.UserRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues the tokens the gateway itself accepts, for clients calling the routed services
+ */
+@RestController
+@RequestMapping("/public")
+public class TokenController {
+
+    @Autowired
+    private UserRepo userRepo;
+    @Autowired
+    private AuthenticationManager authenticationManager;
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @PostMapping("/token")
+    public ResponseEntity<Map<String, Object>> token(@RequestBody Map<String, String> credentials)
+    {
+        Optional<User> user = userRepo.findByEmail(credentials.getOrDefault("email", ""));
+        if (user.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                    user.get().getUsername(), credentials.getOrDefault("password", "")));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String token = jwtUtil.createJWTFromUsername(user.get().getUsername());
+        return ResponseEntity.ok(Map.of("token", token, "userId", user.get().getId()));
+    }
+}
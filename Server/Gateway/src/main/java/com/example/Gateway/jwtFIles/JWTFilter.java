@@ -3,6 +3,7 @@ package com.example.Gateway.jwtFIles;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -12,10 +13,21 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 
+/**
+ * Authenticates requests carrying a gateway token and tells the routed services
+ * who the caller is through the X-User-Id header. A client-supplied X-User-Id is
+ * always dropped, so the services can trust the header.
+ */
 @Component
 public class JWTFilter extends OncePerRequestFilter {
+    public static final String USER_ID_HEADER = "X-User-Id";
+
     @Autowired
     JWTUtil jwtUtil;
     @Autowired
@@ -27,6 +39,7 @@ public class JWTFilter extends OncePerRequestFilter {
             throws ServletException, IOException
     {
         String jwt = jwtUtil.getTokenFromRequest(request);
+        Long userId = null;
         try{
             if(jwt != null && jwtUtil.validateToken(jwt))
             {
@@ -38,13 +51,56 @@ public class JWTFilter extends OncePerRequestFilter {
                                 ,null,userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                userId = userDetails.getUserId();
             }
         }catch(Exception e)
         {
             e.printStackTrace();
         }
-        filterChain.doFilter(request, response);
+        filterChain.doFilter(new UserIdRequest(request, userId), response);
+
+
+    }
 
+    private static class UserIdRequest extends HttpServletRequestWrapper {
+        private final String userId;
 
+        UserIdRequest(HttpServletRequest request, Long userId) {
+            super(request);
+            this.userId = userId != null ? String.valueOf(userId) : null;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (USER_ID_HEADER.equalsIgnoreCase(name)) {
+                return userId;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (USER_ID_HEADER.equalsIgnoreCase(name)) {
+                return userId != null
+                        ? Collections.enumeration(Collections.singletonList(userId))
+                        : Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            Set<String> names = new LinkedHashSet<>();
+            for (Enumeration<String> e = super.getHeaderNames(); e.hasMoreElements(); ) {
+                String name = e.nextElement();
+                if (!USER_ID_HEADER.equalsIgnoreCase(name)) {
+                    names.add(name);
+                }
+            }
+            if (userId != null) {
+                names.add(USER_ID_HEADER);
+            }
+            return Collections.enumeration(names);
+        }
     }
 }
@@ -17,6 +17,11 @@ public class MyUserDetails implements UserDetails {
         this.user = user;
     }
 
+    public Long getUserId()
+    {
+        return user.getId();
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singleton(new SimpleGrantedAuthority("USER"));
@@ -3,6 +3,7 @@ package com.example.ScoreService.controller;
 import com.example.ScoreService.service.ScoreService;
 import com.example.ScoreService.entity.Score;
 import com.example.ScoreService.response.ApiResponse;
+import com.example.common.sync.SyncPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,13 +13,24 @@ import java.util.List;
 @RequestMapping("/score")
 public class ScoreController {
 
+    // Set by the gateway from the caller's token; clients cannot supply it
+    static final String USER_ID_HEADER = "X-User-Id";
+
     @Autowired
     private ScoreService scoreService;
 
     @PostMapping
-    public ApiResponse<Score> createScore(@RequestBody Score score) {
+    public ApiResponse<Score> createScore(@RequestHeader(USER_ID_HEADER) Long userId,
+                                          @RequestBody Score score) {
         return ApiResponse.onSuccess("Score created successfully!!!",
-                scoreService.createScore(score));
+                scoreService.createScore(userId, score));
+    }
+
+    @PostMapping("/batch")
+    public ApiResponse<List<Score>> createScores(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                 @RequestBody List<Score> scores) {
+        return ApiResponse.onSuccess("Scores created successfully!!!",
+                scoreService.createScores(userId, scores));
     }
 
     @GetMapping
@@ -27,21 +39,41 @@ public class ScoreController {
                 scoreService.getAllScores());
     }
 
+    @GetMapping("/sync")
+    public ApiResponse<SyncPage<Score>> syncScores(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                   @RequestParam(required = false) String since,
+                                                   @RequestParam(defaultValue = "200") int limit) {
+        return ApiResponse.onSuccess("Scores synced successfully!!!",
+                scoreService.getScoresChangedSince(userId, since, limit));
+    }
+
+    // By-id endpoints only see the caller's scores; anyone else's id answers 404
+
+    @GetMapping("/session/{sessionId}")
+    public ApiResponse<Score> getScoreBySessionId(@RequestHeader(USER_ID_HEADER) Long userId,
+                                                  @PathVariable Long sessionId) {
+        return ApiResponse.onSuccess("Score retrieved successfully!!!",
+                scoreService.getScoreBySessionId(userId, sessionId));
+    }
+
     @GetMapping("/{id}")
-    public ApiResponse<Score> getScoreById(@PathVariable Long id) {
+    public ApiResponse<Score> getScoreById(@RequestHeader(USER_ID_HEADER) Long userId,
+                                           @PathVariable Long id) {
         return ApiResponse.onSuccess("Score retrieved successfully!!!",
-                scoreService.getScoreById(id));
+                scoreService.getScoreById(userId, id));
     }
 
     @PutMapping("/{id}")
-    public ApiResponse<Score> updateScore(@PathVariable Long id, @RequestBody Score score) {
+    public ApiResponse<Score> updateScore(@RequestHeader(USER_ID_HEADER) Long userId,
+                                          @PathVariable Long id, @RequestBody Score score) {
         return ApiResponse.onSuccess("Score updated successfully!!!",
-                scoreService.updateScore(id, score));
+                scoreService.updateScore(userId, id, score));
     }
 
     @DeleteMapping("/{id}")
-    public ApiResponse<Void> deleteScore(@PathVariable Long id) {
-        scoreService.deleteScore(id);
+    public ApiResponse<Void> deleteScore(@RequestHeader(USER_ID_HEADER) Long userId,
+                                         @PathVariable Long id) {
+        scoreService.deleteScore(userId, id);
         return ApiResponse.onSuccess("Score deleted successfully!!!", null);
     }
 
@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "scores")
+@Table(name = "scores", indexes = @Index(name = "idx_scores_user_updated", columnList = "user_id, updated_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,8 +17,15 @@ public class Score {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Device-side session id, used to make uploads from the app idempotent
+    @Column(name = "client_id", unique = true)
+    private String clientId;
+
     private Long sessionId;
 
+    // Owner, stamped from the gateway's X-User-Id on upload
+    private Long userId;
+
     @Column(nullable = false)
     private Integer score;
 
@@ -33,8 +40,26 @@ public class Score {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Change tracking for delta sync; existing rows are stamped when the columns are added
+    @Column(name = "updated_at", columnDefinition = "datetime(6) default current_timestamp(6)")
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Deleted rows are kept as tombstones so clients can sync the removal
+    @Column(nullable = false)
+    private boolean deleted;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
     }
 }
@@ -1,7 +1,33 @@
 package com.example.ScoreService.repo;
 
 import com.example.ScoreService.entity.Score;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface ScoreRepo extends JpaRepository<Score, Long>{
+
+    Optional<Score> findByClientId(String clientId);
+
+    List<Score> findByDeletedFalse();
+
+    // By id, but only for the owner, so another user's id looks like a missing one
+    Optional<Score> findByIdAndUserId(Long id, Long userId);
+
+    Optional<Score> findFirstBySessionIdAndUserIdAndDeletedFalseOrderByIdDesc(Long sessionId, Long userId);
+
+    // The user's rows changed after the cursor position, oldest first; ties on updatedAt are ordered by id
+    @Query("SELECT s FROM Score s WHERE s.userId = :userId " +
+           "AND (s.updatedAt > :after OR (s.updatedAt = :after AND s.id > :afterId)) " +
+           "AND s.updatedAt <= :settled ORDER BY s.updatedAt ASC, s.id ASC")
+    List<Score> findChangedSince(@Param("userId") Long userId,
+                                 @Param("after") LocalDateTime after,
+                                 @Param("afterId") long afterId,
+                                 @Param("settled") LocalDateTime settled,
+                                 Pageable page);
 }
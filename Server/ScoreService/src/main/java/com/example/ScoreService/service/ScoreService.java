@@ -2,10 +2,19 @@ package com.example.ScoreService.service;
 
 import com.example.ScoreService.repo.ScoreRepo;
 import com.example.ScoreService.entity.Score;
+import com.example.ScoreService.exception.ScoreNotFoundException;
+import com.example.common.sync.SyncCursor;
+import com.example.common.sync.SyncPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class ScoreService {
@@ -13,25 +22,143 @@ public class ScoreService {
     @Autowired
     private ScoreRepo scoreRepo;
 
+    // Writes newer than this are left for the next sync so a slow transaction that
+    // commits an older updatedAt cannot be skipped by a cursor that already passed it
+    private static final long SYNC_SETTLE_SECONDS = 5;
+    private static final int MAX_SYNC_PAGE = 500;
+
     public List<Score> getAllScores() {
-        return scoreRepo.findAll();
+        return scoreRepo.findByDeletedFalse();
+    }
+
+    /**
+     * The user's score; another user's score is reported as not found
+     */
+    public Score getScoreById(Long userId, Long id) {
+        return scoreRepo.findByIdAndUserId(id, userId)
+                .filter(score -> !score.isDeleted())
+                .orElseThrow(() -> new ScoreNotFoundException("Score not found: " + id));
+    }
+
+    /**
+     * Latest score the user has for a session, or null if there is none yet
+     */
+    public Score getScoreBySessionId(Long userId, Long sessionId) {
+        return scoreRepo.findFirstBySessionIdAndUserIdAndDeletedFalseOrderByIdDesc(sessionId, userId).orElse(null);
+    }
+
+    public Score createScore(Long userId, Score score) {
+        return scoreRepo.save(fromClient(score, userId));
     }
 
-    public Score getScoreById(Long id) {
-        return scoreRepo.findById(id).orElseThrow();
+    /**
+     * Saves scores uploaded by the app in one go for the given user. A score whose
+     * clientId is already stored is returned as is, so the app can resend a batch
+     * safely; a clientId stored for another user is refused.
+     */
+    @Transactional
+    public List<Score> createScores(Long userId, List<Score> scores) {
+        List<Score> saved = new ArrayList<>(scores.size());
+        for (Score request : scores) {
+            Score score = fromClient(request, userId);
+            if (score.getClientId() == null) {
+                saved.add(scoreRepo.save(score));
+                continue;
+            }
+            Score stored = scoreRepo.findByClientId(score.getClientId())
+                    .orElseGet(() -> scoreRepo.save(score));
+            if (!userId.equals(stored.getUserId())) {
+                throw new IllegalArgumentException("clientId " + score.getClientId() + " belongs to another user");
+            }
+            saved.add(stored);
+        }
+        return saved;
     }
 
-    public Score createScore(Score score) {
-        return scoreRepo.save(score);
+    /**
+     * Applies the client's changes if it edited the current version of the score;
+     * a stale version fails with a conflict instead of overwriting newer data
+     */
+    public Score updateScore(Long userId, Long id, Score score) {
+        if (score.getVersion() == null) {
+            throw new IllegalArgumentException("version is required");
+        }
+        Score existing = getScoreById(userId, id);
+        if (!Objects.equals(existing.getVersion(), score.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Score.class, id);
+        }
+        // Only client-owned fields change; @Version still catches a write that lands in between
+        copyClientFields(score, existing);
+        return scoreRepo.save(existing);
     }
 
-    public Score updateScore(Long id, Score score) {
-        score.setId(id);
-        return scoreRepo.save(score);
+    /**
+     * Tombstones the user's score; deleting it again is a no-op, so the tombstone
+     * does not move forward in the change feed
+     */
+    public void deleteScore(Long userId, Long id) {
+        Score score = scoreRepo.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> new ScoreNotFoundException("Score not found: " + id));
+        if (!score.isDeleted()) {
+            score.setDeleted(true);
+            scoreRepo.save(score);
+        }
     }
 
-    public void deleteScore(Long id) {
-        scoreRepo.deleteById(id);
+    // Only client-owned fields are taken from a request; id, version, timestamps and deleted stay server-managed
+    private static Score fromClient(Score request, Long userId) {
+        Score score = new Score();
+        score.setClientId(request.getClientId());
+        score.setUserId(userId);
+        copyClientFields(request, score);
+        return score;
+    }
+
+    private static void copyClientFields(Score from, Score to) {
+        to.setSessionId(from.getSessionId());
+        to.setScore(from.getScore());
+        to.setDistanceCovered(from.getDistanceCovered());
+        to.setDistanceAssigned(from.getDistanceAssigned());
+        to.setDuration(from.getDuration());
+        to.setStepsTaken(from.getStepsTaken());
+        to.setCaloriesBurnt(from.getCaloriesBurnt());
+        to.setTreasuresCollected(from.getTreasuresCollected());
+        to.setTreasuresAssigned(from.getTreasuresAssigned());
+    }
+
+    /**
+     * Changes to the user's scores after the given cursor, including tombstones
+     * for deleted scores. An empty cursor starts from the beginning.
+     */
+    public SyncPage<Score> getScoresChangedSince(Long userId, String since, int limit) {
+        SyncCursor cursor = SyncCursor.parse(since);
+        int pageSize = Math.max(1, Math.min(limit, MAX_SYNC_PAGE));
+        LocalDateTime settled = LocalDateTime.now().minusSeconds(SYNC_SETTLE_SECONDS);
+
+        // One extra row tells whether another page follows
+        List<Score> rows = scoreRepo.findChangedSince(userId, cursor.getUpdatedAt(), cursor.getId(), settled,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Score> changes = new ArrayList<>();
+        List<SyncPage.Tombstone> deleted = new ArrayList<>();
+        for (Score score : rows) {
+            if (score.isDeleted()) {
+                deleted.add(new SyncPage.Tombstone(score.getId(), score.getClientId(), score.getVersion()));
+            } else {
+                changes.add(score);
+            }
+        }
+
+        SyncCursor next = cursor;
+        if (!rows.isEmpty()) {
+            Score last = rows.get(rows.size() - 1);
+            next = new SyncCursor(last.getUpdatedAt(), last.getId());
+        }
+        return new SyncPage<>(changes, deleted, next.toString(), hasMore);
     }
 
 }
@@ -0,0 +1,201 @@
+package com.example.common.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates request bodies sent with Content-Encoding: gzip (batch uploads from the app).
+ *
+ * The body is inflated up front and refused with 413 once it grows past
+ * gzip.max-inflated-bytes, so a small compressed request cannot expand into
+ * gigabytes. Registered by GzipRequestAutoConfiguration in every service that
+ * depends on this module (ActivityService and ScoreService).
+ */
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    @Value("${gzip.max-inflated-bytes:4194304}")
+    private int maxInflatedBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        return encoding == null || !encoding.toLowerCase().contains("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        byte[] body;
+        try {
+            body = inflate(request.getInputStream(), maxInflatedBytes);
+        } catch (ZipException | EOFException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed gzip body");
+            return;
+        }
+        if (body == null) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Inflated body exceeds " + maxInflatedBytes + " bytes");
+            return;
+        }
+        filterChain.doFilter(new GzipRequest(request, body), response);
+    }
+
+    /**
+     * @return Inflated bytes, or null once more than limit bytes come out
+     */
+    static byte[] inflate(InputStream compressed, int limit) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(compressed)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > limit) {
+                    return null;
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static class GzipRequest extends HttpServletRequestWrapper {
+        private final byte[] bytes;
+        private final BodyInputStream body;
+
+        GzipRequest(HttpServletRequest request, byte[] bytes) {
+            super(request);
+            this.bytes = bytes;
+            this.body = new BodyInputStream(bytes);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        // The body is already inflated; report its real length and drop the encoding
+        @Override
+        public int getContentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return bytes.length;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return null;
+            }
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return String.valueOf(bytes.length);
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return Collections.emptyEnumeration();
+            }
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return Collections.enumeration(Collections.singletonList(String.valueOf(bytes.length)));
+            }
+            return super.getHeaders(name);
+        }
+    }
+
+    /**
+     * The inflated body. All of it is in memory, so the stream is always ready and a
+     * ReadListener is driven synchronously from setReadListener: onDataAvailable, then
+     * onAllDataRead once the listener has consumed the body.
+     */
+    static class BodyInputStream extends ServletInputStream {
+        private final ByteArrayInputStream body;
+        private ReadListener readListener;
+
+        BodyInputStream(byte[] bytes) {
+            this.body = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return body.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return body.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return body.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (readListener == null) {
+                throw new NullPointerException("readListener");
+            }
+            if (this.readListener != null) {
+                throw new IllegalStateException("ReadListener already set");
+            }
+            this.readListener = readListener;
+            try {
+                // Like a container, call again while data remains and the listener keeps reading
+                int remaining = body.available();
+                while (remaining > 0) {
+                    readListener.onDataAvailable();
+                    int left = body.available();
+                    if (left == remaining) {
+                        break;
+                    }
+                    remaining = left;
+                }
+                if (isFinished()) {
+                    readListener.onAllDataRead();
+                }
+            } catch (IOException | RuntimeException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
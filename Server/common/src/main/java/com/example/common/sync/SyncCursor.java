@@ -0,0 +1,55 @@
+package com.example.common.sync;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Position in the change feed: the updatedAt and id of the last row a client has seen.
+ * Encoded as "<epoch micros>-<id>" so it stays opaque and URL safe.
+ */
+public class SyncCursor {
+
+    public static final SyncCursor START = new SyncCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    private final LocalDateTime updatedAt;
+    private final long id;
+
+    public SyncCursor(LocalDateTime updatedAt, long id) {
+        this.updatedAt = updatedAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public static SyncCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        int separator = cursor.indexOf('-');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid sync cursor: " + cursor);
+        }
+        try {
+            long micros = Long.parseLong(cursor.substring(0, separator));
+            long id = Long.parseLong(cursor.substring(separator + 1));
+            LocalDateTime updatedAt = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+            return new SyncCursor(updatedAt, id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sync cursor: " + cursor, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        long micros = ChronoUnit.MICROS.between(START.updatedAt, updatedAt);
+        return micros + "-" + id;
+    }
+}
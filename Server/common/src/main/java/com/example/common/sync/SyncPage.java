@@ -0,0 +1,30 @@
+package com.example.common.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of changes for delta sync. Pass nextCursor as since= on the next call;
+ * keep paging while hasMore is true.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncPage<T> {
+    private List<T> changes;
+    private List<Tombstone> deleted;
+    private String nextCursor;
+    private boolean hasMore;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Tombstone {
+        private Long id;
+        private String clientId;
+        private Long version;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.common.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipRequestFilterTest {
+
+    private static final String BODY = "[{\"sessionId\":\"a\",\"steps\":1200},{\"sessionId\":\"b\",\"steps\":800}]";
+
+    private GzipRequestFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new GzipRequestFilter();
+        ReflectionTestUtils.setField(filter, "maxInflatedBytes", 1024);
+    }
+
+    @Test
+    void gzipBody_reachesTheChainInflated() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(gzipRequest(BODY), new MockHttpServletResponse(), chain);
+
+        var forwarded = (jakarta.servlet.http.HttpServletRequest) chain.getRequest();
+        assertNull(forwarded.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY.length(), forwarded.getContentLength());
+        assertEquals(BODY, new String(forwarded.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void oversizedBody_isRefused() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(gzipRequest("x".repeat(2048)), response, chain);
+
+        assertEquals(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void malformedBody_isRefused() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/sessions/batch");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+
+    @Test
+    void readListener_readsTheBodyThenHearsAllDataRead() throws IOException {
+        ServletInputStream in = new GzipRequestFilter.BodyInputStream(BODY.getBytes(StandardCharsets.UTF_8));
+        RecordingListener listener = new RecordingListener(in, Integer.MAX_VALUE);
+        in.setReadListener(listener);
+
+        assertEquals(List.of("data", "allDataRead"), listener.events);
+        assertEquals(BODY, listener.received.toString(StandardCharsets.UTF_8));
+        assertTrue(in.isFinished());
+    }
+
+    @Test
+    void readListener_isCalledAgainWhileItKeepsReading() throws IOException {
+        ServletInputStream in = new GzipRequestFilter.BodyInputStream(BODY.getBytes(StandardCharsets.UTF_8));
+        RecordingListener listener = new RecordingListener(in, 16);
+        in.setReadListener(listener);
+
+        assertEquals("allDataRead", listener.events.get(listener.events.size() - 1));
+        assertEquals(BODY, listener.received.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readListener_onEmptyBodyOnlyHearsAllDataRead() {
+        ServletInputStream in = new GzipRequestFilter.BodyInputStream(new byte[0]);
+        RecordingListener listener = new RecordingListener(in, Integer.MAX_VALUE);
+        in.setReadListener(listener);
+
+        assertEquals(List.of("allDataRead"), listener.events);
+    }
+
+    @Test
+    void readListener_errorsAreReportedToTheListener() {
+        ServletInputStream in = new GzipRequestFilter.BodyInputStream(BODY.getBytes(StandardCharsets.UTF_8));
+        RecordingListener listener = new RecordingListener(in, Integer.MAX_VALUE) {
+            @Override
+            public void onDataAvailable() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        in.setReadListener(listener);
+
+        assertEquals(List.of("error"), listener.events);
+    }
+
+    @Test
+    void readListener_canOnlyBeSetOnce() {
+        ServletInputStream in = new GzipRequestFilter.BodyInputStream(new byte[0]);
+        in.setReadListener(new RecordingListener(in, 1));
+        assertThrows(IllegalStateException.class, () -> in.setReadListener(new RecordingListener(in, 1)));
+    }
+
+    private static MockHttpServletRequest gzipRequest(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/sessions/batch");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(compressed.toByteArray());
+        return request;
+    }
+
+    /**
+     * Reads at most chunk bytes per onDataAvailable, the way a non-blocking reader would
+     */
+    private static class RecordingListener implements ReadListener {
+        final List<String> events = new ArrayList<>();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final ServletInputStream in;
+        private final int chunk;
+
+        RecordingListener(ServletInputStream in, int chunk) {
+            this.in = in;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            events.add("data");
+            byte[] buffer = new byte[Math.min(chunk, 8192)];
+            int total = 0;
+            int read;
+            while (total < chunk && in.isReady() && !in.isFinished()
+                    && (read = in.read(buffer, 0, Math.min(buffer.length, chunk - total))) != -1) {
+                received.write(buffer, 0, read);
+                total += read;
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            events.add("allDataRead");
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            events.add("error");
+        }
+    }
+}
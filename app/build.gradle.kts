@@ -17,6 +17,18 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // API gateway in front of the Spring services (Server/Gateway, port 8090); the agent keeps 8080
+        buildConfigField("String", "BACKEND_BASE_URL", "\"http://10.0.2.2:8090/\"")
+        // Overpass API endpoint for street graph tiles when no graph is installed. Off by default:
+        // a download sends the area around the session start to that server. Opt in with
+        // -PstreetGraphUrl=... (or in gradle.properties), preferably a self-hosted instance
+        val streetGraphUrl = (project.findProperty("streetGraphUrl") as String?) ?: ""
+        buildConfigField("String", "STREET_GRAPH_URL", "\"$streetGraphUrl\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -32,6 +44,14 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // Micro-benchmarks are opt-in so the unit test run stays fast and quiet:
+    // ./gradlew testDebugUnitTest -Pbenchmarks --tests '*Benchmark'
+    sourceSets {
+        if (project.hasProperty("benchmarks")) {
+            getByName("test").java.srcDir("src/benchmark/java")
+        }
+    }
 }
 
 dependencies {
@@ -80,6 +100,9 @@ dependencies {
     implementation(libs.retrofit2.converter.gson)
     implementation(libs.okhttp)
     implementation(libs.logging.interceptor)
+    
+    // WorkManager (background upload of finished sessions)
+    implementation(libs.work.runtime)
 
 
     testImplementation(libs.junit)
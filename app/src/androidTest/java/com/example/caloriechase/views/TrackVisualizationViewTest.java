@@ -0,0 +1,134 @@
+package com.example.caloriechase.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test for the cached track rendering, with allocation and frame-time measurements
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackVisualizationViewTest {
+
+    private static final String TAG = "TrackVisualizationTest";
+    private static final int SIZE = 800;
+    private static final int FRAMES = 200;
+
+    private TrackVisualizationView view;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            view = new TrackVisualizationView(context);
+            view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                         View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, SIZE, SIZE);
+            view.setDistance(3.0f);
+        });
+    }
+
+    private Bitmap render() {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> view.draw(new Canvas(bitmap)));
+        return bitmap;
+    }
+
+    @Test
+    public void drawsTheTrack() {
+        Bitmap frame = render();
+        boolean painted = false;
+        for (int y = 0; y < SIZE && !painted; y += 8) {
+            for (int x = 0; x < SIZE && !painted; x += 8) {
+                painted = frame.getPixel(x, y) != Color.TRANSPARENT;
+            }
+        }
+        assertTrue(painted);
+    }
+
+    @Test
+    public void cachedFramesMatchTheFirstFrame() {
+        Bitmap first = render();
+        assertTrue(first.sameAs(render()));
+    }
+
+    @Test
+    public void setDistanceRebuildsTheLayers() {
+        Bitmap shortTrack = render();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> view.setDistance(15.0f));
+        assertFalse(shortTrack.sameAs(render()));
+    }
+
+    /**
+     * Once the layer cache is built, redrawing the view must not allocate: every frame would
+     * otherwise feed the GC while the session screen animates
+     */
+    @Test
+    @SuppressWarnings("deprecation") // Debug alloc counting is the only per-thread counter on device
+    public void cachedFramesDoNotAllocate() {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        int[] allocations = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < FRAMES; i++) {
+                view.draw(canvas); // Warm up, builds the layer cache
+            }
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            try {
+                for (int i = 0; i < FRAMES; i++) {
+                    view.draw(canvas);
+                }
+            } finally {
+                Debug.stopAllocCounting();
+            }
+            allocations[0] = Debug.getThreadAllocCount();
+        });
+        Log.i(TAG, "Allocations over " + FRAMES + " cached frames: " + allocations[0]);
+        assertEquals(0, allocations[0]);
+    }
+
+    /**
+     * Frame time with the cached layers against frames that rebuild geometry and layers, as
+     * every frame did before caching; logged, not asserted
+     */
+    @Test
+    public void benchmark_frameTime() {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        long[] nanos = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < FRAMES; i++) {
+                view.draw(canvas); // Warm up
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                view.draw(canvas);
+            }
+            nanos[0] = (System.nanoTime() - start) / FRAMES;
+
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                view.setDistance(i % 2 == 0 ? 3.0f : 3.5f);
+                view.draw(canvas);
+            }
+            nanos[1] = (System.nanoTime() - start) / FRAMES;
+        });
+        Log.i(TAG, String.format("Frame at %dx%d: cached %d us, rebuilt %d us",
+                                 SIZE, SIZE, nanos[0] / 1000, nanos[1] / 1000));
+        assertTrue(nanos[0] > 0 && nanos[1] > 0);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.caloriechase.data;
+
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static com.example.caloriechase.data.ConvertersTest.GSON;
+import static com.example.caloriechase.data.ConvertersTest.track;
+import static org.junit.Assert.*;
+
+/**
+ * Converters' binary form against Gson JSON for a 2000 point track; prints the time and bytes
+ * allocated per call, and the stored size
+ */
+public class ConvertersBenchmark {
+
+    private static final int ITERATIONS = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private long sink;
+
+    @Test
+    public void locationUpdateList() {
+        assertTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        List<LocationUpdate> updates = track(2000);
+        byte[] blob = Converters.fromLocationUpdateList(updates);
+        String json = GSON.toJson(updates);
+        java.lang.reflect.Type type = new TypeToken<List<LocationUpdate>>() {}.getType();
+
+        IntSupplier binaryWrite = () -> Converters.fromLocationUpdateList(updates).length;
+        IntSupplier gsonWrite = () -> GSON.toJson(updates).length();
+        IntSupplier binaryRead = () -> Converters.toLocationUpdateList(blob).size();
+        IntSupplier gsonRead = () -> GSON.<List<LocationUpdate>>fromJson(json, type).size();
+
+        for (int i = 0; i < ITERATIONS; i++) { // Warm up both paths
+            sink += binaryWrite.getAsInt() + gsonWrite.getAsInt() + binaryRead.getAsInt() + gsonRead.getAsInt();
+        }
+
+        long[] write = measure(binaryWrite);
+        long[] gsonWriteCost = measure(gsonWrite);
+        long[] read = measure(binaryRead);
+        long[] gsonReadCost = measure(gsonRead);
+
+        System.out.printf("Converters 2000 points: %d bytes (Gson %d chars), write %d us %d KB (Gson %d us %d KB), "
+                          + "read %d us %d KB (Gson %d us %d KB)%n",
+                          blob.length, json.length(),
+                          write[0] / 1000, write[1] / 1024, gsonWriteCost[0] / 1000, gsonWriteCost[1] / 1024,
+                          read[0] / 1000, read[1] / 1024, gsonReadCost[0] / 1000, gsonReadCost[1] / 1024);
+        assertTrue(sink > 0);
+    }
+
+    /**
+     * Nanoseconds and bytes allocated on this thread per call, averaged over ITERATIONS calls
+     */
+    private long[] measure(IntSupplier operation) {
+        long threadId = Thread.currentThread().getId();
+        long bytes = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) sink += operation.getAsInt();
+        long nanos = System.nanoTime() - start;
+        bytes = THREADS.getThreadAllocatedBytes(threadId) - bytes;
+        return new long[] {nanos / ITERATIONS, bytes / ITERATIONS};
+    }
+}
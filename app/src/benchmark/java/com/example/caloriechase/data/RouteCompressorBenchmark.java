@@ -0,0 +1,33 @@
+package com.example.caloriechase.data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.example.caloriechase.data.RouteCompressorTest.run;
+import static org.junit.Assert.*;
+
+/**
+ * Finalizing a one hour, 1 Hz session; prints the time per compression
+ */
+public class RouteCompressorBenchmark {
+
+    @Test
+    public void oneHourSession() {
+        List<TrackPoint> points = run(3600, 20);
+        int iterations = 50;
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += RouteCompressor.compress(points).track.size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += RouteCompressor.compress(points).track.size();
+        }
+        long perRun = (System.nanoTime() - start) / iterations;
+        RouteCompressor.Result result = RouteCompressor.compress(points);
+        System.out.printf("RouteCompressor 3600 fixes: %d us, %d track points, preview %d chars%n",
+                          perRun / 1000, result.track.size(), result.preview.length());
+        assertTrue(sink > 0);
+    }
+}
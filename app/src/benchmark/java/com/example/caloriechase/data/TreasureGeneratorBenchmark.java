@@ -0,0 +1,29 @@
+package com.example.caloriechase.data;
+
+import org.junit.Test;
+
+import static com.example.caloriechase.data.TreasureGeneratorTest.START_LAT;
+import static com.example.caloriechase.data.TreasureGeneratorTest.START_LNG;
+import static org.junit.Assert.*;
+
+/**
+ * Seeded generation at the 15 treasure cap; prints the time per hunt
+ */
+public class TreasureGeneratorBenchmark {
+
+    @Test
+    public void generateTreasureRing() {
+        int iterations = 1000;
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += new TreasureGenerator(i).generateTreasureRing("s", START_LAT, START_LNG, 5f).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += new TreasureGenerator(i).generateTreasureRing("s", START_LAT, START_LNG, 5f).size();
+        }
+        long perHunt = (System.nanoTime() - start) / iterations;
+        System.out.printf("TreasureGenerator 15 treasures: %d us per hunt%n", perHunt / 1000);
+        assertTrue(sink > 0);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.caloriechase.error;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static com.example.caloriechase.error.TrackingCheckpointJournalTest.SESSION;
+import static com.example.caloriechase.error.TrackingCheckpointJournalTest.checkpoint;
+import static org.junit.Assert.*;
+
+/**
+ * Checkpoint writes on the tracking update path; prints the time per write
+ */
+public class TrackingCheckpointJournalBenchmark {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void write() {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(
+                new File(folder.getRoot(), "tracking_checkpoint.bin"));
+        TrackingCheckpointJournal.Checkpoint checkpoint = checkpoint(SESSION, 0);
+        int iterations = 100_000;
+        for (int i = 0; i < iterations; i++) {
+            checkpoint.sessionSteps = i;
+            journal.write(checkpoint);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checkpoint.sessionSteps = i;
+            journal.write(checkpoint);
+        }
+        long perWrite = (System.nanoTime() - start) / iterations;
+        System.out.printf("TrackingCheckpointJournal: %d ns per write%n", perWrite);
+        assertEquals(iterations - 1, journal.read(SESSION).sessionSteps);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.caloriechase.location;
+
+import com.example.caloriechase.data.TreasureLocation;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.caloriechase.location.GeofencePlannerTest.ORIGIN_LAT;
+import static com.example.caloriechase.location.GeofencePlannerTest.ORIGIN_LNG;
+import static com.example.caloriechase.location.GeofencePlannerTest.scatter;
+import static org.junit.Assert.*;
+
+/**
+ * Replanning a 500 treasure hunt; prints the time per plan
+ */
+public class GeofencePlannerBenchmark {
+
+    @Test
+    public void plan() {
+        List<TreasureLocation> treasures = scatter(500, 15_000, 8);
+        Set<String> collected = Collections.emptySet();
+        int iterations = 500;
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += GeofencePlanner.plan(treasures, collected, ORIGIN_LAT, ORIGIN_LNG).getFenceCount();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += GeofencePlanner.plan(treasures, collected, ORIGIN_LAT, ORIGIN_LNG).getFenceCount();
+        }
+        long perPlan = (System.nanoTime() - start) / iterations;
+        System.out.printf("GeofencePlanner 500 treasures: %d us per plan%n", perPlan / 1000);
+        assertTrue(sink > 0);
+    }
+}
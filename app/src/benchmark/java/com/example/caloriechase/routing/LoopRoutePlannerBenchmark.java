@@ -0,0 +1,39 @@
+package com.example.caloriechase.routing;
+
+import org.junit.Test;
+
+import static com.example.caloriechase.routing.LoopRoutePlannerTest.grid;
+import static com.example.caloriechase.routing.LoopRoutePlannerTest.latitudeOf;
+import static com.example.caloriechase.routing.LoopRoutePlannerTest.longitudeOf;
+import static org.junit.Assert.*;
+
+/**
+ * On-device planning over a 6 km x 6 km grid tile; prints the time per route for a
+ * 5 km loop and a corner to corner route
+ */
+public class LoopRoutePlannerBenchmark {
+
+    @Test
+    public void planning() {
+        StreetGraph graph = grid(60, 60);
+        int iterations = 200;
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += LoopRoutePlanner.planLoop(graph, latitudeOf(30), longitudeOf(30), 5000, i).size();
+            sink += LoopRoutePlanner.planTo(graph, latitudeOf(0), longitudeOf(0), latitudeOf(59), longitudeOf(59)).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += LoopRoutePlanner.planLoop(graph, latitudeOf(30), longitudeOf(30), 5000, i).size();
+        }
+        long loop = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += LoopRoutePlanner.planTo(graph, latitudeOf(0), longitudeOf(0), latitudeOf(59), longitudeOf(59)).size();
+        }
+        long pointToPoint = (System.nanoTime() - start) / iterations;
+        System.out.printf("LoopRoutePlanner 3600 node grid: loop %d us, point to point %d us%n",
+                          loop / 1000, pointToPoint / 1000);
+        assertTrue(sink > 0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.caloriechase.utils;
+
+import org.junit.Test;
+
+import static com.example.caloriechase.utils.PolylineDecoderTest.wigglyRoute;
+import static org.junit.Assert.*;
+
+/**
+ * decode() against decodeInto() with a reused buffer for a 2000 point route; prints the timings
+ */
+public class PolylineDecoderBenchmark {
+
+    @Test
+    public void decodeVsDecodeInto() {
+        String encoded = PolylineDecoder.encode(wigglyRoute(2000));
+        PolylineDecoder.PointBuffer buffer = new PolylineDecoder.PointBuffer();
+        int iterations = 500;
+
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += PolylineDecoder.decode(encoded).size();
+            sink += PolylineDecoder.decodeInto(encoded, buffer).size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += PolylineDecoder.decode(encoded).size();
+        long decode = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += PolylineDecoder.decodeInto(encoded, buffer).size();
+        long decodeInto = (System.nanoTime() - start) / iterations;
+
+        System.out.printf("PolylineDecoder 2000 points: decode %d us, decodeInto %d us%n",
+                          decode / 1000, decodeInto / 1000);
+        assertTrue(sink > 0);
+    }
+}
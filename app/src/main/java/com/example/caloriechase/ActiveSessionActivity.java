@@ -5,10 +5,6 @@ import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
@@ -23,6 +19,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
+import androidx.lifecycle.Lifecycle;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
@@ -52,6 +49,8 @@ import com.example.caloriechase.data.SessionMetrics;
 import com.example.caloriechase.data.SessionRecord;
 import com.example.caloriechase.error.ErrorHandler;
 import com.example.caloriechase.error.ServiceRecoveryManager;
+import com.example.caloriechase.sensors.StepSensorHub;
+import com.example.caloriechase.utils.UiTicker;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import android.content.BroadcastReceiver;
@@ -64,7 +63,7 @@ import java.util.Locale;
  * ActiveSessionActivity provides full-screen map interface for treasure hunt sessions
  * with real-time tracking, GPS warm-up, countdown, and progress overlay
  */
-public class ActiveSessionActivity extends AppCompatActivity implements OnMapReadyCallback, SensorEventListener {
+public class ActiveSessionActivity extends AppCompatActivity implements OnMapReadyCallback, StepSensorHub.StepListener {
     
     private static final String TAG = "ActiveSessionActivity";
     
@@ -146,26 +145,23 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     private long sessionStartTime;
     private long pausedDuration = 0;
     private long lastPauseTime = 0;
+    private long lastManualPauseToggle = 0;
+    private static final long SERVICE_PAUSE_SYNC_GRACE = 3000; // Ignore service pause state right after a manual toggle
     
     // Step counting
-    private SensorManager sensorManager;
-    private Sensor stepCounterSensor;
-    private Sensor stepDetectorSensor;
-    private int initialStepCount = -1;
+    private StepSensorHub stepSensorHub;
+    private boolean stepCountingStarted = false;
     private int currentStepCount = 0;
-    private boolean useStepCounter = false;
     
-    // UI Update Handler
-    private Handler uiUpdateHandler;
-    private Runnable uiUpdateRunnable;
+    // Calories
+    private CalorieEngine.SessionEnergy sessionEnergy;
     
-    // Auto-pause detection
-    private static final long AUTO_PAUSE_THRESHOLD = 5 * 60 * 1000; // 5 minutes of inactivity
-    private static final int MIN_STEPS_FOR_ACTIVITY = 10; // Minimum steps in threshold period to be considered active
-    private long lastActivityTime;
-    private int lastStepCountForActivity;
-    private Handler autoPauseHandler;
-    private Runnable autoPauseRunnable;
+    // UI updates, ticked only while the screen is visible
+    private final UiTicker.TickListener progressTicker = now -> {
+        if (isSessionActive && !isSessionPaused) {
+            updateProgressDisplay();
+        }
+    };
     
     // Error handling and recovery
     private ErrorHandler errorHandler;
@@ -311,15 +307,7 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     private void initializeSensorServices() {
-        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
-        
-        if (sensorManager != null) {
-            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-            stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
-            
-            // Prefer step counter over step detector for accuracy
-            useStepCounter = stepCounterSensor != null;
-        }
+        stepSensorHub = StepSensorHub.getInstance(this);
     }
     
     private void initializeSessionManager() {
@@ -546,9 +534,6 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         // Start UI updates (for elements not handled by service broadcasts)
         startUIUpdates();
         
-        // Initialize auto-pause detection
-        initializeAutoPauseDetection();
-        
         // Update session state in database
         if (activeSession != null) {
             activeSession.startTimestamp = sessionStartTime;
@@ -576,6 +561,11 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         float distance = intent.getFloatExtra(TrackingService.EXTRA_DISTANCE, 0.0f);
         int calories = intent.getIntExtra(TrackingService.EXTRA_CALORIES, 0);
         long duration = intent.getLongExtra(TrackingService.EXTRA_DURATION, 0);
+        boolean paused = intent.getBooleanExtra(TrackingService.EXTRA_PAUSED, isSessionPaused);
+        boolean autoPaused = intent.getBooleanExtra(TrackingService.EXTRA_AUTO_PAUSED, false);
+        
+        // The service keeps counting while this screen is hidden and unsubscribed from the hub
+        currentStepCount = steps;
         
         // Update active session data
         if (activeSession != null) {
@@ -590,6 +580,7 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
             tvDistanceValue.setText(String.format(Locale.getDefault(), "%.2f", distance));
             tvCaloriesValue.setText(String.valueOf(calories));
             tvSessionTime.setText(formatDuration(duration));
+            applyServicePauseState(paused, autoPaused);
             
             // Update progress bar
             float progressPercentage = (distance / distanceGoal) * 100.0f;
@@ -622,12 +613,11 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     private void initializeStepSensors() {
-        if (sensorManager == null) return;
+        if (!stepSensorHub.hasStepSensor()) return;
         
-        if (useStepCounter && stepCounterSensor != null) {
-            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_UI);
-        } else if (stepDetectorSensor != null) {
-            sensorManager.registerListener(this, stepDetectorSensor, SensorManager.SENSOR_DELAY_UI);
+        stepCountingStarted = true;
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+            stepSensorHub.subscribe(this, StepSensorHub.LATENCY_INTERACTIVE_MS);
         }
     }
     
@@ -658,9 +648,6 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
             if (distance > 0.005f && distance < 0.1f) { // Between 5m and 100m
                 totalDistance += distance;
                 updateProgressDisplay();
-                
-                // Detect movement activity for auto-pause
-                updateActivityTime();
             }
         }
         
@@ -731,23 +718,14 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     private void startUIUpdates() {
-        uiUpdateHandler = new Handler(Looper.getMainLooper());
-        uiUpdateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (isSessionActive && !isSessionPaused) {
-                    updateProgressDisplay();
-                    uiUpdateHandler.postDelayed(this, 1000); // Update every second
-                }
-            }
-        };
-        uiUpdateHandler.post(uiUpdateRunnable);
+        if (isSessionActive && !isSessionPaused) {
+            updateProgressDisplay();
+        }
+        UiTicker.getInstance().subscribe(this, progressTicker, 1000); // Update every second
     }
     
     private void stopUIUpdates() {
-        if (uiUpdateHandler != null && uiUpdateRunnable != null) {
-            uiUpdateHandler.removeCallbacks(uiUpdateRunnable);
-        }
+        UiTicker.getInstance().unsubscribe(progressTicker);
     }
     
     private void updateProgressDisplay() {
@@ -775,7 +753,10 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         tvStepsValue.setText(String.valueOf(currentStepCount));
         
         // Update calories
-        int calories = FitnessTracker.calculateCaloriesFromSteps(this, currentStepCount);
+        if (sessionEnergy == null) {
+            sessionEnergy = CalorieEngine.getInstance(this).newSession(activeSession.activityType);
+        }
+        int calories = sessionEnergy.update(effectiveDuration, displayDistance * 1000.0, currentStepCount);
         tvCaloriesValue.setText(String.valueOf(calories));
         
         // Update treasures (placeholder - will be updated by geofence events)
@@ -808,6 +789,7 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     private void togglePauseResume() {
+        lastManualPauseToggle = System.currentTimeMillis();
         if (isSessionPaused) {
             resumeSession();
         } else {
@@ -846,9 +828,6 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         // Stop location updates to save battery
         stopLocationUpdates();
         
-        // Stop auto-pause detection while paused
-        stopAutoPauseDetection();
-        
         // Show pause overlay or update UI to indicate paused state
         showPauseIndicator();
     }
@@ -884,9 +863,39 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         
         // Resume location updates if needed
         startLocationUpdates();
+    }
+    
+    /**
+     * Follow pauses and resumes decided by the tracking service's auto-pause
+     */
+    private void applyServicePauseState(boolean paused, boolean autoPaused) {
+        if (!isSessionActive || System.currentTimeMillis() - lastManualPauseToggle < SERVICE_PAUSE_SYNC_GRACE) {
+            return;
+        }
         
-        // Restart auto-pause detection
-        initializeAutoPauseDetection();
+        if (paused != isSessionPaused) {
+            isSessionPaused = paused;
+            if (paused) {
+                lastPauseTime = System.currentTimeMillis();
+                btnPauseResume.setText("Resume");
+                stopUIUpdates();
+                stopLocationUpdates();
+                if (autoPaused) {
+                    Toast.makeText(this, "Session auto-paused - it resumes when you move", Toast.LENGTH_SHORT).show();
+                }
+            } else {
+                lastPauseTime = 0;
+                btnPauseResume.setText("Pause");
+                startUIUpdates();
+                startLocationUpdates();
+            }
+        }
+        
+        if (paused) {
+            showPauseIndicator();
+        } else {
+            hidePauseIndicator();
+        }
     }
     
     private void showEndSessionDialog() {
@@ -907,7 +916,8 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         // Stop all updates and cleanup
         stopUIUpdates();
         stopLocationUpdates();
-        stopAutoPauseDetection();
+        stepCountingStarted = false;
+        stepSensorHub.unsubscribe(this);
         
         // Mark session as inactive
         isSessionActive = false;
@@ -998,35 +1008,10 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     @Override
-    public void onSensorChanged(SensorEvent event) {
+    public void onSteps(int stepDelta, long counterValue, float cadence) {
         if (!isSessionActive || isSessionPaused) return;
         
-        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            // Step counter gives total steps since boot
-            if (initialStepCount == -1) {
-                initialStepCount = (int) event.values[0];
-                currentStepCount = 0;
-            } else {
-                int previousStepCount = currentStepCount;
-                currentStepCount = (int) event.values[0] - initialStepCount;
-                
-                // Detect activity for auto-pause
-                if (currentStepCount > previousStepCount) {
-                    updateActivityTime();
-                }
-            }
-        } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
-            // Step detector gives individual step events
-            currentStepCount++;
-            
-            // Detect activity for auto-pause
-            updateActivityTime();
-        }
-    }
-    
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Handle sensor accuracy changes if needed
+        currentStepCount += stepDelta;
     }
     
     @Override
@@ -1074,12 +1059,9 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         // Stop UI updates
         stopUIUpdates();
         
-        // Stop auto-pause detection
-        stopAutoPauseDetection();
-        
-        // Unregister sensors
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        // Leave the step sensor hub
+        if (stepSensorHub != null) {
+            stepSensorHub.unsubscribe(this);
         }
         
         // Clear screen on flag
@@ -1087,17 +1069,24 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
     }
     
     @Override
-    protected void onPause() {
-        super.onPause();
-        // Keep tracking active in background via service - don't pause the session
+    protected void onResume() {
+        super.onResume();
+        if (stepCountingStarted) {
+            // Catch up on what the service counted while hidden, then go back to live steps
+            if (trackingServiceManager != null && trackingServiceManager.isServiceBound()) {
+                currentStepCount = Math.max(currentStepCount, trackingServiceManager.getCurrentSteps());
+            }
+            stepSensorHub.subscribe(this, StepSensorHub.LATENCY_INTERACTIVE_MS);
+        }
     }
     
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Resume UI updates if session is active
-        if (isSessionActive && !isSessionPaused) {
-            startUIUpdates();
+    protected void onPause() {
+        super.onPause();
+        // Keep tracking active in background via service - don't pause the session.
+        // Only the service stays subscribed, so the sensor can go back to batching.
+        if (stepSensorHub != null) {
+            stepSensorHub.unsubscribe(this);
         }
     }
     
@@ -1200,86 +1189,6 @@ public class ActiveSessionActivity extends AppCompatActivity implements OnMapRea
         });
     }
     
-    /**
-     * Initialize auto-pause detection
-     */
-    private void initializeAutoPauseDetection() {
-        lastActivityTime = System.currentTimeMillis();
-        lastStepCountForActivity = currentStepCount;
-        
-        autoPauseHandler = new Handler(Looper.getMainLooper());
-        autoPauseRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (isSessionActive && !isSessionPaused) {
-                    checkForInactivity();
-                    // Check every minute
-                    autoPauseHandler.postDelayed(this, 60000);
-                }
-            }
-        };
-        
-        // Start checking after the first minute
-        autoPauseHandler.postDelayed(autoPauseRunnable, 60000);
-    }
-    
-    /**
-     * Check for user inactivity and auto-pause if needed
-     */
-    private void checkForInactivity() {
-        long currentTime = System.currentTimeMillis();
-        long timeSinceLastActivity = currentTime - lastActivityTime;
-        
-        // Check if user has been inactive for the threshold period
-        if (timeSinceLastActivity >= AUTO_PAUSE_THRESHOLD) {
-            // Check if there's been minimal step activity
-            int stepsSinceLastCheck = currentStepCount - lastStepCountForActivity;
-            
-            if (stepsSinceLastCheck < MIN_STEPS_FOR_ACTIVITY) {
-                // User appears to be inactive - auto-pause
-                showAutoPauseDialog();
-            } else {
-                // User is still active - update activity time
-                updateActivityTime();
-            }
-        }
-    }
-    
-    /**
-     * Update the last activity time (called when user shows activity)
-     */
-    private void updateActivityTime() {
-        lastActivityTime = System.currentTimeMillis();
-        lastStepCountForActivity = currentStepCount;
-    }
-    
-    /**
-     * Show auto-pause dialog to user
-     */
-    private void showAutoPauseDialog() {
-        new MaterialAlertDialogBuilder(this)
-                .setTitle("Auto-Pause Detected")
-                .setMessage("You seem to have been inactive for a while. Would you like to pause your session?")
-                .setPositiveButton("Pause Session", (dialog, which) -> {
-                    pauseSession();
-                })
-                .setNegativeButton("Continue", (dialog, which) -> {
-                    // User wants to continue - reset activity timer
-                    updateActivityTime();
-                })
-                .setCancelable(false)
-                .show();
-    }
-    
-    /**
-     * Stop auto-pause detection
-     */
-    private void stopAutoPauseDetection() {
-        if (autoPauseHandler != null && autoPauseRunnable != null) {
-            autoPauseHandler.removeCallbacks(autoPauseRunnable);
-        }
-    }
-    
 
     
     private boolean hasShownGpsFallbackNotification = false;
@@ -0,0 +1,106 @@
+package com.example.caloriechase;
+
+import android.location.Location;
+
+/**
+ * Decides when a tracked session has stopped moving and when it moves again.
+ *
+ * Two signals are combined: step cadence from the step sensor hub and the
+ * speed reported with fused location fixes. A session counts as still only
+ * when the cadence has dropped off and no recent reliable fix shows it
+ * moving; fixes go quiet when standing still because of the displacement
+ * filter, so a stale speed is no evidence of movement. Pausing needs a full
+ * minute of stillness, resuming needs movement on two evaluations a few
+ * seconds apart and speed alone only counts after two consecutive moving
+ * fixes, so a brief stop at a crossing or a single noisy fix does not flip
+ * the state. Evaluations are driven by the caller with the current time.
+ */
+public class AutoPauseDetector {
+
+    public enum Decision { NONE, PAUSE, RESUME }
+
+    static final long PAUSE_AFTER_MS = 60_000;
+    static final long RESUME_AFTER_MS = 3_000;
+
+    private static final float STILL_CADENCE = 20f; // Steps per minute
+    private static final float MOVING_CADENCE = 50f;
+    private static final float STILL_SPEED_MPS = 0.5f;
+    private static final float MOVING_SPEED_MPS = 1.0f;
+    private static final float MAX_FIX_ACCURACY_M = 25f;
+    private static final long SPEED_MAX_AGE_MS = 15_000;
+
+    private float speedMps = -1f;
+    private long speedTime = 0;
+    private int movingFixes = 0;
+    private long stillSince = -1;
+    private long movingSince = -1;
+
+    /**
+     * Record the speed of a fix; fixes without speed or with poor accuracy are ignored
+     */
+    public void onFix(Location location, long nowMillis) {
+        if (location == null || !location.hasSpeed()) {
+            return;
+        }
+        onSpeed(location.getSpeed(), location.hasAccuracy() ? location.getAccuracy() : 0f, nowMillis);
+    }
+
+    /**
+     * @param accuracyMeters Accuracy of the fix, 0 when unknown
+     */
+    void onSpeed(float speed, float accuracyMeters, long nowMillis) {
+        if (accuracyMeters > MAX_FIX_ACCURACY_M) {
+            return;
+        }
+        // Consecutive only counts fixes close enough together to describe the same movement
+        if (nowMillis - speedTime > SPEED_MAX_AGE_MS) {
+            movingFixes = 0;
+        }
+        speedMps = speed;
+        speedTime = nowMillis;
+        movingFixes = speedMps >= MOVING_SPEED_MPS ? movingFixes + 1 : 0;
+    }
+
+    /**
+     * @param cadence Current steps per minute (decays to zero when steps stop)
+     * @param paused Whether the session is currently paused
+     * @return PAUSE once the session has been still long enough, RESUME once a paused
+     *         session is reliably moving again, NONE otherwise
+     */
+    public Decision evaluate(long nowMillis, float cadence, boolean paused) {
+        boolean speedFresh = speedMps >= 0 && nowMillis - speedTime <= SPEED_MAX_AGE_MS;
+        boolean moving = cadence >= MOVING_CADENCE || (speedFresh && movingFixes >= 2);
+        boolean still = cadence < STILL_CADENCE && !(speedFresh && speedMps >= STILL_SPEED_MPS);
+
+        stillSince = still ? (stillSince < 0 ? nowMillis : stillSince) : -1;
+        movingSince = moving ? (movingSince < 0 ? nowMillis : movingSince) : -1;
+
+        if (!paused && stillSince >= 0 && nowMillis - stillSince >= PAUSE_AFTER_MS) {
+            stillSince = -1;
+            return Decision.PAUSE;
+        }
+        if (paused && movingSince >= 0 && nowMillis - movingSince >= RESUME_AFTER_MS) {
+            movingSince = -1;
+            return Decision.RESUME;
+        }
+        return Decision.NONE;
+    }
+
+    /**
+     * @return True while movement has been seen but not yet confirmed
+     */
+    public boolean isMovementPending() {
+        return movingSince >= 0;
+    }
+
+    /**
+     * Forget all evidence, e.g. after a manual pause or resume
+     */
+    public void reset() {
+        speedMps = -1f;
+        speedTime = 0;
+        movingFixes = 0;
+        stillSince = -1;
+        movingSince = -1;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.caloriechase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.example.caloriechase.data.ActivityType;
+
+/**
+ * Single source of calorie and stride estimates.
+ *
+ * MET values come from per-activity curves (Compendium of Physical Activities)
+ * expanded once into dense 0.1 km/h tables, so a lookup is two array reads and a
+ * lerp. The user profile is read once and refreshed only when the profile
+ * preferences change. Sessions integrate energy window by window with
+ * {@link SessionEnergy} instead of recomputing from averaged totals, so a session
+ * that mixes walking and running is not billed at its average pace.
+ */
+public class CalorieEngine {
+
+    private static final String PREFS_NAME = "UserPrefs";
+
+    private static final float DEFAULT_WEIGHT_KG = 70f;
+    private static final float DEFAULT_HEIGHT_CM = 170f;
+    private static final double WALKING_PACE_KMH = 4.8; // Assumed pace for steps without timing
+    private static final double OXYGEN_ML_PER_MET = 3.5; // 1 MET = 3.5 ml O2/kg/min
+    private static final double KCAL_PER_LITER_OXYGEN = 5.0;
+    private static final long MIN_WINDOW_MS = 3000;
+
+    // MET curves: speed (km/h) -> MET, interpolated linearly
+    // Walking past 8 km/h is billed as running
+    private static final double[] WALK_SPEEDS = {0.0, 2.7, 3.2, 4.0, 4.8, 5.6, 6.4, 7.2, 8.0, 9.7, 10.8, 11.3, 12.9, 14.5, 16.1, 17.7, 19.3, 22.5};
+    private static final double[] WALK_METS   = {1.3, 2.3, 2.8, 3.0, 3.5, 4.3, 5.0, 7.0, 8.3, 9.8, 10.5, 11.0, 11.8, 12.8, 14.5, 16.0, 19.0, 23.0};
+    private static final double[] RUN_SPEEDS  = {0.0, 2.7, 3.2, 4.0, 4.8, 5.6, 6.4, 8.0, 9.7, 10.8, 11.3, 12.9, 14.5, 16.1, 17.7, 19.3, 22.5};
+    private static final double[] RUN_METS    = {1.3, 2.3, 2.8, 3.0, 3.5, 4.3, 6.0, 8.3, 9.8, 10.5, 11.0, 11.8, 12.8, 14.5, 16.0, 19.0, 23.0};
+
+    private static final double TABLE_STEP_KMH = 0.1;
+    private static final int TABLE_SIZE = 251; // 0 - 25 km/h
+    private static final float[] WALK_TABLE = expand(WALK_SPEEDS, WALK_METS);
+    private static final float[] RUN_TABLE = expand(RUN_SPEEDS, RUN_METS);
+
+    private static volatile CalorieEngine instance;
+
+    private final SharedPreferences prefs;
+    private volatile Profile profile;
+
+    // Held strongly; SharedPreferences only keeps a weak reference to listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener profileListener =
+            (sharedPreferences, key) -> profile = null;
+
+    /**
+     * Profile values derived once per change of the user's personal info
+     */
+    static final class Profile {
+        final float strideMeters;
+        final double kcalPerMetHour; // Weight adjusted for the user's resting metabolic rate
+
+        Profile(UserDataManager.UserData userData) {
+            float weight = userData.weight;
+            float height = userData.height;
+            if (userData.isImperial) {
+                weight = weight * 0.453592f; // Convert lb to kg
+                height = height * 2.54f; // Convert inches to cm
+            }
+            boolean complete = weight > 0 && height > 0 && userData.age > 0;
+            if (weight <= 0) weight = DEFAULT_WEIGHT_KG;
+            if (height <= 0) height = DEFAULT_HEIGHT_CM;
+
+            // Step length ≈ height × 0.43, slightly longer for men and shorter after 60
+            float strideCm = height * 0.43f;
+            if ("Male".equals(userData.sex)) {
+                strideCm *= 1.05f;
+            }
+            if (userData.age > 60) {
+                float ageAdjustment = 1.0f - ((userData.age - 60) * 0.01f);
+                strideCm *= Math.max(ageAdjustment, 0.85f);
+            }
+            strideMeters = strideCm / 100f;
+
+            // Scale the standard 3.5 ml/kg/min MET by the user's own resting rate (Mifflin-St Jeor):
+            // a higher resting rate burns more per MET, so the correction is resting / 3.5
+            double correction = 1.0;
+            if (complete) {
+                double bmrKcalPerMinute = UserDataManager.calculateBMR(userData) / 1440.0;
+                double restingMlPerKgMin = bmrKcalPerMinute / KCAL_PER_LITER_OXYGEN * 1000.0 / weight;
+                if (restingMlPerKgMin > 0) {
+                    correction = Math.max(0.75, Math.min(1.35, restingMlPerKgMin / OXYGEN_ML_PER_MET));
+                }
+            }
+            kcalPerMetHour = weight * correction;
+        }
+    }
+
+    private CalorieEngine(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.registerOnSharedPreferenceChangeListener(profileListener);
+    }
+
+    /**
+     * Get singleton instance of CalorieEngine
+     */
+    public static CalorieEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CalorieEngine.class) {
+                if (instance == null) {
+                    instance = new CalorieEngine(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private Profile profile() {
+        Profile current = profile;
+        if (current == null) {
+            current = new Profile(UserDataManager.getUserData(prefs));
+            profile = current;
+        }
+        return current;
+    }
+
+    /**
+     * MET for the given activity at the given speed
+     */
+    public static double getMet(ActivityType activityType, double speedKmh) {
+        float[] table = activityType == ActivityType.RUN ? RUN_TABLE : WALK_TABLE;
+        double position = Math.max(0.0, speedKmh) / TABLE_STEP_KMH;
+        int index = (int) position;
+        if (index >= TABLE_SIZE - 1) {
+            return table[TABLE_SIZE - 1];
+        }
+        double fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    /**
+     * Energy rate for the current user
+     */
+    public double kcalPerHour(ActivityType activityType, double speedKmh) {
+        return getMet(activityType, speedKmh) * profile().kcalPerMetHour;
+    }
+
+    /**
+     * Calories for steps without timing information (daily totals), assuming a normal walking pace
+     */
+    public int caloriesForSteps(int steps) {
+        if (steps <= 0) {
+            return 0;
+        }
+        double hours = steps * profile().strideMeters / 1000.0 / WALKING_PACE_KMH;
+        return (int) Math.round(kcalPerHour(ActivityType.WALK, WALKING_PACE_KMH) * hours);
+    }
+
+    /**
+     * Step length for the current user
+     */
+    public float getStrideMeters() {
+        return profile().strideMeters;
+    }
+
+    /**
+     * Distance in km covered by the given number of steps
+     */
+    public float distanceKmForSteps(int steps) {
+        return steps * profile().strideMeters / 1000f;
+    }
+
+    /**
+     * Start integrating energy for a session
+     */
+    public SessionEnergy newSession(ActivityType activityType) {
+        return new SessionEnergy(this, activityType != null ? activityType : ActivityType.WALK);
+    }
+
+    /**
+     * Incremental energy for one session. Feed it the running totals as they change;
+     * each window since the previous update is billed at that window's own speed.
+     */
+    public static class SessionEnergy {
+        private final CalorieEngine engine;
+        private final ActivityType activityType;
+        private double kcal;
+        private long lastElapsedMillis;
+        private double lastDistanceMeters;
+        private int lastSteps;
+
+        private SessionEnergy(CalorieEngine engine, ActivityType activityType) {
+            this.engine = engine;
+            this.activityType = activityType;
+        }
+
+        /**
+         * Continue from totals of a session restored after a restart
+         */
+        public synchronized void restore(int calories, long elapsedMillis, double distanceMeters, int steps) {
+            kcal = calories;
+            lastElapsedMillis = elapsedMillis;
+            lastDistanceMeters = distanceMeters;
+            lastSteps = steps;
+        }
+
+        /**
+         * @param elapsedMillis Active (unpaused) session time
+         * @param distanceMeters Distance so far
+         * @param steps Steps so far
+         * @return Calories so far
+         */
+        public synchronized int update(long elapsedMillis, double distanceMeters, int steps) {
+            long window = elapsedMillis - lastElapsedMillis;
+            if (window < MIN_WINDOW_MS) {
+                // Too short for a meaningful speed; the movement is billed with the next window
+                return getCalories();
+            }
+
+            double hours = window / 3_600_000.0;
+            double gpsKm = Math.max(0.0, distanceMeters - lastDistanceMeters) / 1000.0;
+            double stepKm = Math.max(0, steps - lastSteps) * engine.profile().strideMeters / 1000.0;
+            // Use the greater of GPS or step-based distance, as tracking does for distance
+            double speedKmh = Math.max(gpsKm, stepKm) / hours;
+            kcal += engine.kcalPerHour(activityType, speedKmh) * hours;
+
+            lastElapsedMillis = elapsedMillis;
+            lastDistanceMeters = distanceMeters;
+            lastSteps = steps;
+            return getCalories();
+        }
+
+        public synchronized int getCalories() {
+            return (int) Math.round(kcal);
+        }
+    }
+
+    private static float[] expand(double[] speeds, double[] mets) {
+        float[] table = new float[TABLE_SIZE];
+        int knot = 0;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double speed = i * TABLE_STEP_KMH;
+            while (knot < speeds.length - 2 && speed > speeds[knot + 1]) {
+                knot++;
+            }
+            // Held at the last measured value beyond the end of the curve
+            double fraction = Math.min(1.0, (speed - speeds[knot]) / (speeds[knot + 1] - speeds[knot]));
+            table[i] = (float) (mets[knot] + (mets[knot + 1] - mets[knot]) * fraction);
+        }
+        return table;
+    }
+}
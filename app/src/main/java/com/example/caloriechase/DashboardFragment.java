@@ -6,10 +6,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.graphics.Color;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -23,8 +19,10 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import com.example.caloriechase.data.DailyProgressStore;
 import com.example.caloriechase.data.DailyStats;
 import com.example.caloriechase.data.TreasureHuntDatabase;
+import com.example.caloriechase.sensors.StepSensorHub;
 import com.github.mikephil.charting.charts.BarChart;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.XAxis;
@@ -39,18 +37,15 @@ import com.github.mikephil.charting.formatter.ValueFormatter;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-public class DashboardFragment extends Fragment implements SensorEventListener {
+public class DashboardFragment extends Fragment implements StepSensorHub.StepListener {
 
-    private SensorManager sensorManager;
-    private Sensor stepCounterSensor;
-    private Sensor stepDetectorSensor;
+    private StepSensorHub stepSensorHub;
     
     // UI Components
     private TextView tvSteps, tvDistance, tvCalories, tvDuration, tvPace, tvTreasures;
@@ -88,8 +83,8 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
     // Broadcast receiver for session updates
     private BroadcastReceiver sessionUpdateReceiver;
     
-    private SharedPreferences prefs;
-    private static final String PREFS_NAME = "DashboardPrefs";
+    // Today's totals, shared with FitnessTracker and persisted in the background
+    private DailyProgressStore progressStore;
     
     // Database and executor
     private TreasureHuntDatabase database;
@@ -147,24 +142,26 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
         chartDistance = view.findViewById(R.id.chart_distance);
         chartCalories = view.findViewById(R.id.chart_calories);
         
-        prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        progressStore = DailyProgressStore.getInstance(requireContext());
+        progressStore.whenLoaded(() -> {
+            if (isAdded() && getView() != null) {
+                loadDailyData();
+                updateUI();
+            }
+        });
     }
     
     private void initSensors() {
-        sensorManager = (SensorManager) requireContext().getSystemService(Context.SENSOR_SERVICE);
-        
-        if (sensorManager != null) {
-            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-            stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
-        }
+        stepSensorHub = StepSensorHub.getInstance(requireContext());
     }
     
     private void loadDailyData() {
-        // Load saved data from SharedPreferences
-        dailySteps = prefs.getInt("daily_steps", 0);
-        totalDistance = prefs.getFloat("total_distance", 0.0f);
-        caloriesBurned = prefs.getInt("calories_burned", 0);
-        treasuresCollected = prefs.getInt("treasures_collected", 0);
+        // Today's totals from the shared progress store
+        DailyProgressStore.Snapshot today = progressStore.getToday();
+        dailySteps = today.steps;
+        totalDistance = today.distanceKm;
+        caloriesBurned = today.calories;
+        treasuresCollected = today.treasures;
         
         // Load user data for calorie calculation
         SharedPreferences userPrefs = requireContext().getSharedPreferences("UserPrefs", Context.MODE_PRIVATE);
@@ -226,42 +223,16 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
         }
     }
     
-    private int calculateCalories(int steps) {
-        // Get user data for more accurate calculation
-        SharedPreferences userPrefs = requireContext().getSharedPreferences("UserPrefs", Context.MODE_PRIVATE);
-        float weight = userPrefs.getFloat("weight", 70.0f); // Default 70kg
-        boolean isImperial = userPrefs.getBoolean("is_imperial", false);
-        
-        if (isImperial) {
-            weight = weight * 0.453592f; // Convert lb to kg
-        }
-        
-        // Simple calorie calculation: ~0.04 calories per step per kg of body weight
-        return Math.round(steps * 0.04f * weight);
-    }
-    
     private void saveDailyData() {
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putInt("daily_steps", dailySteps);
-        editor.putFloat("total_distance", totalDistance);
-        editor.putInt("calories_burned", caloriesBurned);
-        editor.putInt("treasures_collected", treasuresCollected);
-        editor.apply();
-        
-        // Also save to database for charts
-        saveTodayStats();
+        // Totals are already in the store; just make sure Room (and the charts) catch up
+        progressStore.flush();
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        // Register sensor listeners
-        if (stepCounterSensor != null) {
-            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_UI);
-        }
-        if (stepDetectorSensor != null) {
-            sensorManager.registerListener(this, stepDetectorSensor, SensorManager.SENSOR_DELAY_UI);
-        }
+        // Live step count while visible
+        stepSensorHub.subscribe(this, StepSensorHub.LATENCY_INTERACTIVE_MS);
         
         // Register session update receiver
         registerSessionUpdateReceiver();
@@ -273,8 +244,8 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
     @Override
     public void onPause() {
         super.onPause();
-        // Unregister sensor listeners to save battery
-        sensorManager.unregisterListener(this);
+        // Leave the sensor to batch (or sleep) while the dashboard is hidden
+        stepSensorHub.unsubscribe(this);
         
         // Unregister session update receiver
         unregisterSessionUpdateReceiver();
@@ -283,32 +254,16 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
     }
 
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            // Step counter gives total steps since device boot
-            // We need to calculate daily steps
-            int totalSteps = (int) event.values[0];
-            int savedBootSteps = prefs.getInt("boot_steps", 0);
-            
-            if (savedBootSteps == 0) {
-                // First time, save current total as baseline
-                prefs.edit().putInt("boot_steps", totalSteps).apply();
-                savedBootSteps = totalSteps;
-            }
-            
-            dailySteps = totalSteps - savedBootSteps;
-            updateUI();
-            
-        } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
-            // Step detector triggers for each step
-            dailySteps++;
-            updateUI();
+    public void onSteps(int stepDelta, long counterValue, float cadence) {
+        if (counterValue >= 0) {
+            // Step counter gives total steps since device boot; the store turns it into daily steps
+            progressStore.recordStepCounter(counterValue);
+        } else {
+            // Step detector only; add the batched steps directly
+            progressStore.addSteps(stepDelta);
         }
-    }
-
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not needed for this implementation
+        dailySteps = progressStore.getToday().steps;
+        updateUI();
     }
     
     /**
@@ -352,7 +307,7 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
         
         // Use FitnessTracker for consistent calorie calculation if needed
         if (activeSessionCalories == 0 && activeSessionSteps > 0) {
-            activeSessionCalories = FitnessTracker.calculateCaloriesFromSteps(requireContext(), activeSessionSteps);
+            activeSessionCalories = CalorieEngine.getInstance(requireContext()).caloriesForSteps(activeSessionSteps);
         }
         
         hasActiveSession = true;
@@ -392,10 +347,9 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
      */
     public void updateDailyProgressFromSession(int sessionSteps, float sessionDistance, int sessionCalories, int sessionTreasures) {
         // Add session data to daily totals
-        dailySteps += sessionSteps;
-        totalDistance += sessionDistance;
-        caloriesBurned += sessionCalories;
-        treasuresCollected += sessionTreasures;
+        FitnessTracker.updateDailyProgressFromSession(requireContext(), sessionSteps, sessionDistance,
+                                                      sessionCalories, sessionTreasures);
+        loadDailyData();
         
         // Reset active session data
         activeSessionSteps = 0;
@@ -628,24 +582,6 @@ public class DashboardFragment extends Fragment implements SensorEventListener {
         }
     }
     
-    /**
-     * Save today's stats to database
-     */
-    public void saveTodayStats() {
-        if (database == null) return;
-        
-        executorService.execute(() -> {
-            String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(Calendar.getInstance().getTime());
-            
-            int totalDailySteps = dailySteps + activeSessionSteps;
-            float totalDailyDistance = totalDistance + activeSessionDistance;
-            int totalDailyCalories = caloriesBurned + activeSessionCalories;
-            
-            DailyStats stats = new DailyStats(today, totalDailySteps, totalDailyDistance, totalDailyCalories);
-            database.dailyStatsDao().insert(stats);
-        });
-    }
-    
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -7,12 +7,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 import android.location.Location;
 import android.os.Build;
 import android.os.Bundle;
@@ -38,11 +33,12 @@ import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
-import com.google.android.gms.maps.model.Circle;
-import com.google.android.gms.maps.model.CircleOptions;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.Marker;
-import com.google.android.gms.maps.model.MarkerOptions;
+import com.example.caloriechase.data.ActivityType;
+import com.example.caloriechase.sensors.StepSensorHub;
+import com.example.caloriechase.utils.PolylineDecoder;
+import com.example.caloriechase.utils.UiTicker;
+import com.example.caloriechase.views.MapOverlayController;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.util.ArrayList;
@@ -51,11 +47,13 @@ import java.util.List;
 /**
  * Pokemon Go-style gameplay activity with live tracking and geofencing
  */
-public class GameplayActivity extends AppCompatActivity implements OnMapReadyCallback, SensorEventListener {
+public class GameplayActivity extends AppCompatActivity implements OnMapReadyCallback, StepSensorHub.StepListener {
     
     private static final String TAG = "GameplayActivity";
     private static final int LOCATION_PERMISSION_REQUEST = 1001;
     private static final String GEOFENCE_ACTION = "com.example.caloriechase.GEOFENCE_TRIGGERED";
+    private static final float TRACK_DISPLAY_ZOOM = 18f;
+    private static final float COLLECTION_RADIUS_METERS = 20f;
     
     // UI Components
     private GoogleMap mMap;
@@ -76,10 +74,9 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     
     // Game Data
     private List<LatLng> treasureLocations;
-    private List<Marker> treasureMarkers;
     private List<Boolean> treasuresCollected;
-    private Marker playerMarker;
-    private Circle playerRadius;
+    private MapOverlayController overlayController;
+    private final int[] nearbyTreasures = new int[16];
     private int score = 0;
     private int treasuresFound = 0;
     private float totalDistance = 0f;
@@ -88,25 +85,18 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     
     // Step tracking with real sensor
     private int totalSteps = 0;
-    private int initialStepCount = 0;
-    private SensorManager sensorManager;
-    private Sensor stepCounterSensor;
+    private StepSensorHub stepSensorHub;
     private boolean sensorAvailable = false;
-    
-    // User profile data for calorie calculation
-    private float userWeight = 70f; // kg
-    private float userHeight = 170f; // cm
-    private String userGender = "male";
-    private int userAge = 30;
+    private boolean sessionEnded = false;
+    private long lastCounterValue = -1; // last step counter reading, to catch up after being hidden
     
     // Calorie tracking
     private int caloriesBurned = 0;
-    private List<Location> locationHistory;
+    private CalorieEngine.SessionEnergy sessionEnergy;
     
     // Timer
     private long sessionStartTime;
-    private android.os.Handler timerHandler;
-    private Runnable timerRunnable;
+    private final UiTicker.TickListener timerTicker = now -> updateTimerDisplay();
     
     // Session Data
     private double startLatitude;
@@ -138,18 +128,14 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
             double[] latitudes = intent.getDoubleArrayExtra("treasure_latitudes");
             double[] longitudes = intent.getDoubleArrayExtra("treasure_longitudes");
             
-            // Get track path from intent
-            double[] trackLats = intent.getDoubleArrayExtra("track_latitudes");
-            double[] trackLngs = intent.getDoubleArrayExtra("track_longitudes");
+            // Get track path from intent, as an encoded polyline
+            String trackPolyline = intent.getStringExtra("track_polyline");
             
             Log.d(TAG, "Received treasures: " + (latitudes != null ? latitudes.length : 0));
-            Log.d(TAG, "Received track points: " + (trackLats != null ? trackLats.length : 0));
-            
-            // Load user profile data
-            loadUserProfile();
+            Log.d(TAG, "Received track polyline: " + (trackPolyline != null ? trackPolyline.length() : 0) + " chars");
             
-            // Initialize location history
-            locationHistory = new ArrayList<>();
+            // Calories are integrated against the cached user profile
+            sessionEnergy = CalorieEngine.getInstance(this).newSession(ActivityType.WALK);
             
             // Initialize step counter sensor
             initStepCounter();
@@ -157,7 +143,7 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
             initViews();
             initLocationServices();
             initTreasureData(latitudes, longitudes);
-            initTrackPath(trackLats, trackLngs);
+            initTrackPath(trackPolyline);
             setupMap();
             registerGeofenceReceiver();
             
@@ -169,130 +155,52 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         }
     }
     
-    /**
-     * Load user profile data from SharedPreferences
-     */
-    private void loadUserProfile() {
-        SharedPreferences prefs = getSharedPreferences("UserProfile", MODE_PRIVATE);
-        userWeight = prefs.getFloat("weight", 70f); // Default 70kg
-        userHeight = prefs.getFloat("height", 170f); // Default 170cm
-        userGender = prefs.getString("gender", "male"); // Default male
-        userAge = prefs.getInt("age", 30); // Default 30 years
-        
-        Log.d(TAG, "User profile loaded: weight=" + userWeight + "kg, height=" + userHeight + 
-              "cm, gender=" + userGender + ", age=" + userAge);
-    }
-    
     /**
      * Initialize step counter sensor
      */
     private void initStepCounter() {
-        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        stepSensorHub = StepSensorHub.getInstance(this);
         
-        if (sensorManager != null) {
-            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-            
-            if (stepCounterSensor != null) {
-                sensorAvailable = true;
-                sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_UI);
-                Log.d(TAG, "Step counter sensor registered");
-            } else {
-                Log.w(TAG, "Step counter sensor not available, will estimate from GPS");
-                sensorAvailable = false;
-            }
+        if (stepSensorHub.hasStepSensor()) {
+            // Subscribed in onResume, so the sensor only runs at interactive latency while visible
+            sensorAvailable = true;
+        } else {
+            Log.w(TAG, "Step sensor not available, will estimate from GPS");
+            sensorAvailable = false;
         }
     }
     
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            if (initialStepCount == 0) {
-                // First reading - set as baseline
-                initialStepCount = (int) event.values[0];
-                Log.d(TAG, "Initial step count: " + initialStepCount);
-            } else {
-                // Calculate steps since session started
-                totalSteps = (int) event.values[0] - initialStepCount;
-                
-                // Calculate calories based on real steps
-                calculateCalories();
-                
-                Log.d(TAG, "Steps: " + totalSteps + ", Calories: " + caloriesBurned);
+    public void onSteps(int stepDelta, long counterValue, float cadence) {
+        if (counterValue >= 0) {
+            // The counter keeps running while we are unsubscribed; take the gap from it
+            if (lastCounterValue >= 0 && counterValue >= lastCounterValue) {
+                stepDelta = (int) (counterValue - lastCounterValue);
             }
+            lastCounterValue = counterValue;
         }
-    }
-    
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not needed for step counter
-    }
-    
-    /**
-     * Calculate calories burned based on user profile, steps, distance, and pace
-     */
-    private void calculateCalories() {
-        if (totalSteps == 0 && totalDistance == 0) {
-            caloriesBurned = 0;
+        if (stepDelta <= 0) {
             return;
         }
         
-        // Calculate MET (Metabolic Equivalent of Task) based on pace
-        float met = calculateMET();
-        
-        // Calculate time in hours
-        long sessionDuration = (System.currentTimeMillis() - sessionStartTime) / 1000; // seconds
-        float hours = sessionDuration / 3600f;
-        
-        // Calorie formula: Calories = MET × weight(kg) × time(hours)
-        // Adjusted for gender and age
-        float baseCalories = met * userWeight * hours;
+        // Steps since session started
+        totalSteps += stepDelta;
         
-        // Gender adjustment (women typically burn ~5% fewer calories)
-        float genderMultiplier = userGender.equalsIgnoreCase("female") ? 0.95f : 1.0f;
-        
-        // Age adjustment (metabolism decreases ~2% per decade after 30)
-        float ageMultiplier = 1.0f - Math.max(0, (userAge - 30) / 10) * 0.02f;
-        
-        caloriesBurned = (int) (baseCalories * genderMultiplier * ageMultiplier);
+        // Calculate calories based on real steps
+        calculateCalories();
         
-        Log.d(TAG, "Calories calculated: MET=" + met + ", base=" + baseCalories + 
-              ", final=" + caloriesBurned);
+        Log.d(TAG, "Steps: " + totalSteps + ", Calories: " + caloriesBurned);
     }
     
     /**
-     * Calculate MET value based on pace and activity
+     * Add the energy of the latest window to the session total
      */
-    private float calculateMET() {
-        if (totalDistance == 0 || totalSteps == 0) {
-            return 3.0f; // Slow walking
-        }
-        
-        // Calculate pace (km/h)
-        long sessionDuration = (System.currentTimeMillis() - sessionStartTime) / 1000; // seconds
-        if (sessionDuration == 0) return 3.0f;
-        
-        float distanceKm = totalDistance / 1000f;
-        float hours = sessionDuration / 3600f;
-        float pace = distanceKm / hours; // km/h
-        
-        // MET values based on pace
-        // Walking: 2.0 mph (3.2 km/h) = 2.5 MET
-        // Walking: 3.0 mph (4.8 km/h) = 3.5 MET
-        // Walking: 4.0 mph (6.4 km/h) = 5.0 MET
-        // Jogging: 5.0 mph (8.0 km/h) = 8.0 MET
-        // Running: 6.0 mph (9.7 km/h) = 10.0 MET
-        
-        if (pace < 3.2f) {
-            return 2.5f; // Slow walking
-        } else if (pace < 4.8f) {
-            return 3.5f; // Normal walking
-        } else if (pace < 6.4f) {
-            return 5.0f; // Brisk walking
-        } else if (pace < 8.0f) {
-            return 8.0f; // Jogging
-        } else {
-            return 10.0f; // Running
+    private void calculateCalories() {
+        if (sessionStartTime == 0) {
+            return;
         }
+        long elapsed = System.currentTimeMillis() - sessionStartTime;
+        caloriesBurned = sessionEnergy.update(elapsed, totalDistance, totalSteps);
     }
     
     private void initViews() {
@@ -329,28 +237,23 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     
     private void startTimer() {
         sessionStartTime = System.currentTimeMillis();
-        timerHandler = new android.os.Handler();
-        
-        timerRunnable = new Runnable() {
-            @Override
-            public void run() {
-                long elapsedMillis = System.currentTimeMillis() - sessionStartTime;
-                int seconds = (int) (elapsedMillis / 1000);
-                int minutes = seconds / 60;
-                int hours = minutes / 60;
-                seconds = seconds % 60;
-                minutes = minutes % 60;
-                
-                tvTimer.setText(String.format("%02d:%02d:%02d", hours, minutes, seconds));
-                
-                timerHandler.postDelayed(this, 1000); // Update every second
-            }
-        };
-        
-        timerHandler.post(timerRunnable);
+        updateTimerDisplay();
+        // Ticks only while the screen is visible
+        UiTicker.getInstance().subscribe(this, timerTicker, 1000); // Update every second
         Log.d(TAG, "Session timer started");
     }
     
+    private void updateTimerDisplay() {
+        long elapsedMillis = System.currentTimeMillis() - sessionStartTime;
+        int seconds = (int) (elapsedMillis / 1000);
+        int minutes = seconds / 60;
+        int hours = minutes / 60;
+        seconds = seconds % 60;
+        minutes = minutes % 60;
+        
+        tvTimer.setText(String.format("%02d:%02d:%02d", hours, minutes, seconds));
+    }
+    
     private void initLocationServices() {
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         geofencingClient = LocationServices.getGeofencingClient(this);
@@ -369,7 +272,6 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     
     private void initTreasureData(double[] latitudes, double[] longitudes) {
         treasureLocations = new ArrayList<>();
-        treasureMarkers = new ArrayList<>();
         treasuresCollected = new ArrayList<>();
         
         if (latitudes != null && longitudes != null) {
@@ -382,13 +284,14 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         tvTotalTreasures.setText(String.valueOf(treasureLocations.size()));
     }
     
-    private void initTrackPath(double[] trackLats, double[] trackLngs) {
+    private void initTrackPath(String trackPolyline) {
         trackPath = new ArrayList<>();
         
-        if (trackLats != null && trackLngs != null) {
-            for (int i = 0; i < Math.min(trackLats.length, trackLngs.length); i++) {
-                trackPath.add(new LatLng(trackLats[i], trackLngs[i]));
-            }
+        if (trackPolyline != null && !trackPolyline.isEmpty()) {
+            // Only keep the points that are distinguishable at street-level zoom, dropped while decoding
+            double tolerance = PolylineDecoder.toleranceForZoom(TRACK_DISPLAY_ZOOM, startLatitude);
+            trackPath = PolylineDecoder.decodeInto(trackPolyline, 0, Integer.MAX_VALUE, tolerance,
+                    new PolylineDecoder.PointBuffer()).toLatLngList();
         }
         
         Log.d(TAG, "Track path initialized with " + trackPath.size() + " points");
@@ -414,6 +317,10 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         mMap.getUiSettings().setZoomGesturesEnabled(true); // Enable pinch to zoom
         mMap.getUiSettings().setScrollGesturesEnabled(true); // Enable panning
         
+        int collectionColor = ContextCompat.getColor(this, R.color.accent_blue);
+        overlayController = new MapOverlayController(mMap, COLLECTION_RADIUS_METERS,
+                collectionColor, collectionColor & 0x30FFFFFF);
+        
         drawTrackPath();
         setupTreasureMarkers();
         setupGeofences();
@@ -455,17 +362,13 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     private void setupTreasureMarkers() {
         BitmapDescriptor goldIcon = createScaledGoldIcon();
         
+        double[] latitudes = new double[treasureLocations.size()];
+        double[] longitudes = new double[treasureLocations.size()];
         for (int i = 0; i < treasureLocations.size(); i++) {
-            LatLng location = treasureLocations.get(i);
-            
-            Marker marker = mMap.addMarker(new MarkerOptions()
-                    .position(location)
-                    .title("Treasure " + (i + 1))
-                    .snippet("Walk here to collect!")
-                    .icon(goldIcon));
-            
-            treasureMarkers.add(marker);
+            latitudes[i] = treasureLocations.get(i).latitude;
+            longitudes[i] = treasureLocations.get(i).longitude;
         }
+        overlayController.setTreasures(latitudes, longitudes, goldIcon);
     }
 
     private void setupGeofences() {
@@ -626,34 +529,10 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     }
     
     private void updatePlayerLocation(Location location) {
-        if (mMap == null) return;
-        
-        LatLng playerLocation = new LatLng(location.getLatitude(), location.getLongitude());
+        if (mMap == null || overlayController == null) return;
         
-        // Add to location history for accurate distance tracking
-        locationHistory.add(location);
-        
-        // Update player marker
-        if (playerMarker != null) {
-            playerMarker.remove();
-        }
-        
-        playerMarker = mMap.addMarker(new MarkerOptions()
-                .position(playerLocation)
-                .title("You are here")
-                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE)));
-        
-        // Update player radius circle (collection radius)
-        if (playerRadius != null) {
-            playerRadius.remove();
-        }
-        
-        playerRadius = mMap.addCircle(new CircleOptions()
-                .center(playerLocation)
-                .radius(20f) // 20 meter collection radius
-                .strokeColor(ContextCompat.getColor(this, R.color.accent_blue))
-                .fillColor(ContextCompat.getColor(this, R.color.accent_blue) & 0x30FFFFFF)
-                .strokeWidth(2f));
+        // Move the player marker and collection circle, record the fix and follow with the camera
+        overlayController.updatePlayer(location.getLatitude(), location.getLongitude(), location.getTime());
         
         // Calculate distance traveled from GPS
         if (lastLocation != null) {
@@ -665,8 +544,7 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
                 
                 // If sensor not available, estimate steps from distance
                 if (!sensorAvailable) {
-                    // Average stride length is ~0.75 meters
-                    int estimatedSteps = (int) (distance / 0.75f);
+                    int estimatedSteps = (int) (distance / CalorieEngine.getInstance(this).getStrideMeters());
                     totalSteps += estimatedSteps;
                 }
                 
@@ -680,40 +558,19 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         lastLocation = location;
         
         // Check for nearby treasures within collection radius
-        checkNearbyTreasures(playerLocation);
-        
-        // Smoothly pan camera to keep player in view (don't re-fit bounds on every update)
-        mMap.animateCamera(CameraUpdateFactory.newLatLng(playerLocation));
+        checkNearbyTreasures(location.getLatitude(), location.getLongitude());
     }
     
     /**
      * Check if any treasures are within collection radius and collect them
      */
-    private void checkNearbyTreasures(LatLng playerLocation) {
+    private void checkNearbyTreasures(double latitude, double longitude) {
         if (treasureLocations == null || treasureLocations.isEmpty()) return;
         
-        float collectionRadius = 20f; // 20 meters collection radius
-        
-        for (int i = 0; i < treasureLocations.size(); i++) {
-            // Skip already collected treasures
-            if (treasuresCollected.get(i)) continue;
-            
-            LatLng treasureLocation = treasureLocations.get(i);
-            
-            // Calculate distance between player and treasure
-            float[] results = new float[1];
-            Location.distanceBetween(
-                playerLocation.latitude, playerLocation.longitude,
-                treasureLocation.latitude, treasureLocation.longitude,
-                results
-            );
-            
-            float distanceToTreasure = results[0];
-            
-            // Check if treasure is within collection radius
-            if (distanceToTreasure <= collectionRadius) {
-                collectTreasure(i);
-            }
+        // Grid lookup of uncollected treasures around the player; collected ones are dropped from the index
+        int found = overlayController.findTreasuresInRange(latitude, longitude, nearbyTreasures);
+        for (int i = 0; i < found; i++) {
+            collectTreasure(nearbyTreasures[i]);
         }
     }
     
@@ -755,12 +612,9 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
             score += points;
             
             // Remove the marker from the map (make coin vanish)
-            if (treasureMarkers != null && treasureIndex < treasureMarkers.size()) {
-                Marker marker = treasureMarkers.get(treasureIndex);
-                if (marker != null) {
-                    marker.remove();
-                    Log.d(TAG, "Treasure " + treasureIndex + " marker removed from map");
-                }
+            if (overlayController != null) {
+                overlayController.removeTreasure(treasureIndex);
+                Log.d(TAG, "Treasure " + treasureIndex + " marker removed from map");
             }
             
             // Update UI (change scoreboard)
@@ -851,10 +705,10 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
     }
     
     private void endSession() {
+        sessionEnded = true;
+        
         // Stop timer
-        if (timerHandler != null && timerRunnable != null) {
-            timerHandler.removeCallbacks(timerRunnable);
-        }
+        UiTicker.getInstance().unsubscribe(timerTicker);
         
         // Stop location updates
         fusedLocationClient.removeLocationUpdates(locationCallback);
@@ -862,9 +716,9 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         // Remove geofences
         geofencingClient.removeGeofences(getGeofencePendingIntent());
         
-        // Unregister sensor
-        if (sensorManager != null && stepCounterSensor != null) {
-            sensorManager.unregisterListener(this);
+        // Leave the step sensor hub
+        if (stepSensorHub != null) {
+            stepSensorHub.unsubscribe(this);
         }
         
         // Calculate session metrics
@@ -899,19 +753,31 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         finish();
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (sensorAvailable && !sessionEnded) {
+            stepSensorHub.subscribe(this, StepSensorHub.LATENCY_INTERACTIVE_MS);
+            Log.d(TAG, "Subscribed to step sensor hub");
+        }
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Let the sensor batch (or sleep) while the screen is hidden; the step counter
+        // value on the next callback covers the steps taken meanwhile
+        if (stepSensorHub != null) {
+            stepSensorHub.unsubscribe(this);
+        }
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
         
         // Stop timer
-        if (timerHandler != null && timerRunnable != null) {
-            timerHandler.removeCallbacks(timerRunnable);
-        }
-        
-        // Unregister sensor
-        if (sensorManager != null && stepCounterSensor != null) {
-            sensorManager.unregisterListener(this);
-        }
+        UiTicker.getInstance().unsubscribe(timerTicker);
         
         if (geofenceReceiver != null) {
             unregisterReceiver(geofenceReceiver);
@@ -919,6 +785,9 @@ public class GameplayActivity extends AppCompatActivity implements OnMapReadyCal
         if (fusedLocationClient != null && locationCallback != null) {
             fusedLocationClient.removeLocationUpdates(locationCallback);
         }
+        if (overlayController != null) {
+            overlayController.release();
+        }
     }
     
     /**
@@ -358,7 +358,7 @@ public class HomeFragment extends Fragment implements OnMapReadyCallback {
         }
         if (tvActiveSessionCalories != null) {
             // Use FitnessTracker for calorie calculation if needed
-            int calculatedCalories = calories > 0 ? calories : FitnessTracker.calculateCaloriesFromSteps(requireContext(), steps);
+            int calculatedCalories = calories > 0 ? calories : CalorieEngine.getInstance(requireContext()).caloriesForSteps(steps);
             tvActiveSessionCalories.setText(String.valueOf(calculatedCalories));
         }
         if (tvActiveSessionTime != null) {
@@ -43,6 +43,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
+import com.example.caloriechase.api.ApiResponseCache;
 import com.example.caloriechase.error.NetworkErrorHandler;
 
 import java.io.IOException;
@@ -86,6 +87,9 @@ public class MapSearchActivity extends AppCompatActivity implements OnMapReadyCa
     // Error handling
     private NetworkErrorHandler networkErrorHandler;
     
+    // Cache for resolved search queries
+    private ApiResponseCache apiResponseCache;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -105,6 +109,7 @@ public class MapSearchActivity extends AppCompatActivity implements OnMapReadyCa
         
         // Initialize error handling
         networkErrorHandler = new NetworkErrorHandler(this);
+        apiResponseCache = ApiResponseCache.getInstance(this);
         
         // Initialize map
         mainMapFragment = (SupportMapFragment) getSupportFragmentManager()
@@ -285,30 +290,62 @@ public class MapSearchActivity extends AppCompatActivity implements OnMapReadyCa
                 .setQuery(query)
                 .build();
         
-        placesClient.findAutocompletePredictions(request)
+        ApiResponseCache.Loader<PlaceIdResult> loader = callback -> placesClient.findAutocompletePredictions(request)
                 .addOnSuccessListener(response -> {
-                    if (!response.getAutocompletePredictions().isEmpty()) {
-                        // For simplicity, select the first prediction
-                        AutocompletePrediction prediction = response.getAutocompletePredictions().get(0);
-                        fetchPlaceDetails(prediction.getPlaceId());
+                    if (response.getAutocompletePredictions().isEmpty()) {
+                        callback.onLoaded(null, false);
+                        return;
                     }
+                    // For simplicity, select the first prediction
+                    AutocompletePrediction prediction = response.getAutocompletePredictions().get(0);
+                    PlaceIdResult result = new PlaceIdResult();
+                    result.placeId = prediction.getPlaceId();
+                    callback.onLoaded(result, result.placeId != null);
                 })
-                .addOnFailureListener(exception -> {
-                    networkErrorHandler.handlePlacesApiError(exception, query, 
-                            new NetworkErrorHandler.PlacesApiCallback() {
-                        @Override
-                        public void onRetryPlacesSearch(String retryQuery) {
-                            searchPlaces(retryQuery);
-                        }
-                        
-                        @Override
-                        public void onUseManualSelection() {
-                            Toast.makeText(MapSearchActivity.this, 
-                                         "Search unavailable. Tap on map to select location.", 
-                                         Toast.LENGTH_LONG).show();
-                        }
-                    });
+                .addOnFailureListener(callback::onFailed);
+        
+        ApiResponseCache.ResultCallback<PlaceIdResult> resultCallback = new ApiResponseCache.ResultCallback<PlaceIdResult>() {
+            @Override
+            public void onResult(PlaceIdResult result, boolean fromCache) {
+                if (result == null || result.placeId == null || isFinishing()) {
+                    return;
+                }
+                // Only the id is cached; the location and address are always fetched fresh
+                fetchPlaceDetails(result.placeId);
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                if (isFinishing()) {
+                    return;
+                }
+                Exception exception = error instanceof Exception ? (Exception) error : new Exception(error);
+                networkErrorHandler.handlePlacesApiError(exception, query, 
+                        new NetworkErrorHandler.PlacesApiCallback() {
+                    @Override
+                    public void onRetryPlacesSearch(String retryQuery) {
+                        searchPlaces(retryQuery);
+                    }
+                    
+                    @Override
+                    public void onUseManualSelection() {
+                        Toast.makeText(MapSearchActivity.this, 
+                                     "Search unavailable. Tap on map to select location.", 
+                                     Toast.LENGTH_LONG).show();
+                    }
                 });
+            }
+        };
+        
+        if (currentLocation != null) {
+            // Repeated queries from the same area skip the autocomplete call
+            String cacheKey = ApiResponseCache.placeIdKey(currentLocation.latitude, currentLocation.longitude, query);
+            apiResponseCache.get(cacheKey, PlaceIdResult.class, ApiResponseCache.Policy.PLACE_ID,
+                    loader, resultCallback);
+        } else {
+            // Unbiased results belong to no area, so they are neither served from nor stored in the cache
+            apiResponseCache.getUncached(ApiResponseCache.placeIdKey(query), loader, resultCallback);
+        }
     }
     
     private void fetchPlaceDetails(String placeId) {
@@ -548,6 +585,14 @@ public class MapSearchActivity extends AppCompatActivity implements OnMapReadyCa
         void onAddressReceived(String address);
     }
     
+    /**
+     * Cached outcome of a text search: the first prediction's place id, the only
+     * Places content that may be stored long-term
+     */
+    private static class PlaceIdResult {
+        String placeId;
+    }
+    
     /**
      * Enable edge-to-edge display to prevent system navigation bar overlap
      */
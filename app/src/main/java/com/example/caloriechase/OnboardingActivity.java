@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.caloriechase.api.AuthTokenStore;
 
 public class OnboardingActivity extends AppCompatActivity {
     
@@ -22,7 +23,7 @@ public class OnboardingActivity extends AppCompatActivity {
         boolean isLoggedIn = userPrefs.getBoolean(KEY_IS_LOGGED_IN, false);
         boolean hasAccount = !userPrefs.getString(KEY_USER_EMAIL, "").isEmpty();
         
-        if (isLoggedIn) {
+        if (isLoggedIn && AuthTokenStore.getInstance(this).getToken() != null) {
             // User is logged in, go to main activity
             startActivity(new Intent(this, MainActivity.class));
             finish();
@@ -30,7 +31,7 @@ public class OnboardingActivity extends AppCompatActivity {
         }
         
         if (hasAccount) {
-            // User has account but not logged in, go to sign in
+            // User has account but not logged in, or the backend token is gone, go to sign in
             startActivity(new Intent(this, SignInActivity.class));
             finish();
             return;
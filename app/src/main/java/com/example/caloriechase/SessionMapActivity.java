@@ -25,6 +25,7 @@ import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.PolygonOptions;
 import com.google.android.gms.maps.model.PolylineOptions;
+import com.example.caloriechase.utils.PolylineDecoder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.util.ArrayList;
 import java.util.List;
@@ -35,6 +36,9 @@ import java.util.List;
  */
 public class SessionMapActivity extends AppCompatActivity implements OnMapReadyCallback {
     
+    /** Encoded route of a finished session; the map then only shows that route */
+    public static final String EXTRA_REVIEW_ROUTE = "review_route_polyline";
+    
     private GoogleMap mMap;
     private double startLatitude;
     private double startLongitude;
@@ -51,8 +55,10 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
     
     // Directions API route
     private boolean useDirectionsRoute = false;
-    private double[] directionsRouteLats;
-    private double[] directionsRouteLngs;
+    private String directionsRoutePolyline; // encoded, full resolution
+    
+    // Finished session shown read-only
+    private String reviewRoutePolyline;
     
     private FloatingActionButton fabStartSession;
     
@@ -74,10 +80,11 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
         // Check for Directions API route
         useDirectionsRoute = intent.getBooleanExtra("use_directions_route", false);
         if (useDirectionsRoute) {
-            directionsRouteLats = intent.getDoubleArrayExtra("directions_route_latitudes");
-            directionsRouteLngs = intent.getDoubleArrayExtra("directions_route_longitudes");
+            directionsRoutePolyline = intent.getStringExtra("directions_route_polyline");
         }
         
+        reviewRoutePolyline = intent.getStringExtra(EXTRA_REVIEW_ROUTE);
+        
         // Check for AI-generated points
         useAiPoints = intent.getBooleanExtra("use_ai_points", false);
         if (useAiPoints) {
@@ -92,6 +99,9 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
             Log.d("SessionMapActivity", "FAB button clicked!");
             showSessionRecapDialogBeforeStart();
         });
+        if (reviewRoutePolyline != null) {
+            fabStartSession.setVisibility(View.GONE);
+        }
         
         // Initialize treasure locations list
         treasureLocations = new ArrayList<>();
@@ -123,6 +133,11 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
         mMap.setIndoorEnabled(true);
         googleMap.setTrafficEnabled(true);
         
+        if (reviewRoutePolyline != null) {
+            setupNavigationView(drawReviewRoute());
+            return;
+        }
+        
         // Add starting point marker
         LatLng startPoint = new LatLng(startLatitude, startLongitude);
         mMap.addMarker(new MarkerOptions()
@@ -132,7 +147,7 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
                 .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN)));
         
         // Draw track based on Directions API route, AI points, or random generation
-        if (useDirectionsRoute && directionsRouteLats != null && directionsRouteLngs != null) {
+        if (useDirectionsRoute && directionsRoutePolyline != null) {
             trackPoints = drawDirectionsRoute(startPoint);
         } else if (useAiPoints && aiPointsLats != null && aiPointsLngs != null) {
             trackPoints = drawAiGeneratedTrack(startPoint);
@@ -148,21 +163,48 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
         
         // Don't show recap here - it will show when user clicks "Start Gameplay"
     }
-    private List<LatLng> drawDirectionsRoute(LatLng startPoint) {
-        List<LatLng> trackPoints = new ArrayList<>();
-        
-        // Convert directions route to LatLng list
-        for (int i = 0; i < directionsRouteLats.length; i++) {
-            LatLng point = new LatLng(directionsRouteLats[i], directionsRouteLngs[i]);
-            trackPoints.add(point);
+    /**
+     * Draw the route of a finished session between start and finish markers, without treasures
+     */
+    private List<LatLng> drawReviewRoute() {
+        double tolerance = PolylineDecoder.toleranceForZoom(calculateNavigationZoom(distance), startLatitude);
+        List<LatLng> route = PolylineDecoder.decodeInto(reviewRoutePolyline, 0, Integer.MAX_VALUE, tolerance,
+                new PolylineDecoder.PointBuffer()).toLatLngList();
+        if (route.isEmpty()) {
+            return route;
         }
         
-        // Draw the entire route as a polyline
+        mMap.addPolyline(new PolylineOptions()
+                .addAll(route)
+                .color(ContextCompat.getColor(this, R.color.primary_orange))
+                .width(10f)
+                .clickable(false));
+        mMap.addMarker(new MarkerOptions()
+                .position(route.get(0))
+                .title("Start")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN)));
+        mMap.addMarker(new MarkerOptions()
+                .position(route.get(route.size() - 1))
+                .title("Finish")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED)));
+        return route;
+    }
+    
+    private List<LatLng> drawDirectionsRoute(LatLng startPoint) {
+        // Treasures below are placed along the full-resolution track
+        List<LatLng> trackPoints = PolylineDecoder.decode(directionsRoutePolyline);
+        
+        // Draw the route simplified to what is visible at the navigation zoom, in the same pass as decoding
+        double tolerance = PolylineDecoder.toleranceForZoom(calculateNavigationZoom(distance), startPoint.latitude);
+        PolylineDecoder.PointBuffer displayRoute = PolylineDecoder.decodeInto(
+                directionsRoutePolyline, 0, Integer.MAX_VALUE, tolerance, new PolylineDecoder.PointBuffer());
         PolylineOptions polylineOptions = new PolylineOptions()
-                .addAll(trackPoints)
                 .color(ContextCompat.getColor(this, R.color.primary_orange))
                 .width(10f)
                 .clickable(false);
+        for (int i = 0; i < displayRoute.size(); i++) {
+            polylineOptions.add(new LatLng(displayRoute.latitudeAt(i), displayRoute.longitudeAt(i)));
+        }
         mMap.addPolyline(polylineOptions);
         
         // Add treasure markers along the route at regular intervals
@@ -634,17 +676,7 @@ public class SessionMapActivity extends AppCompatActivity implements OnMapReadyC
         
         // Pass track path to gameplay activity
         if (trackPoints != null && !trackPoints.isEmpty()) {
-            double[] trackLats = new double[trackPoints.size()];
-            double[] trackLngs = new double[trackPoints.size()];
-            
-            for (int i = 0; i < trackPoints.size(); i++) {
-                LatLng point = trackPoints.get(i);
-                trackLats[i] = point.latitude;
-                trackLngs[i] = point.longitude;
-            }
-            
-            intent.putExtra("track_latitudes", trackLats);
-            intent.putExtra("track_longitudes", trackLngs);
+            intent.putExtra("track_polyline", PolylineDecoder.encode(trackPoints));
         }
         
         startActivity(intent);
@@ -37,7 +37,11 @@ import com.example.caloriechase.data.ActiveSession;
 import com.example.caloriechase.data.TreasureType;
 import com.example.caloriechase.error.ErrorHandler;
 import com.example.caloriechase.views.TrackVisualizationView;
+import com.example.caloriechase.api.ApiResponseCache;
 import com.example.caloriechase.api.RetrofitClient;
+import com.example.caloriechase.routing.LoopRoutePlanner;
+import com.example.caloriechase.routing.PlannedRoute;
+import com.example.caloriechase.routing.StreetGraphStore;
 import com.example.caloriechase.api.AgentResponse;
 import com.example.caloriechase.api.GooglePlacesResponse;
 import com.example.caloriechase.api.DirectionsResponse;
@@ -46,8 +50,6 @@ import com.example.caloriechase.utils.GeminiHelper;
 import com.example.caloriechase.utils.GMHelper;
 import android.util.Log;
 import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -108,7 +110,7 @@ public class SessionSetupActivity extends AppCompatActivity {
     private boolean useAiPoints = false;
     
     // Directions API route data
-    private List<com.google.android.gms.maps.model.LatLng> directionsRoutePoints;
+    private final PolylineDecoder.PointBuffer directionsRoutePoints = new PolylineDecoder.PointBuffer();
     private boolean useDirectionsRoute = false;
     
     // Google Places API Key
@@ -123,6 +125,13 @@ public class SessionSetupActivity extends AppCompatActivity {
     // GMHelper for prompt refinement
     private GMHelper gmHelper;
     
+    // Offline-first cache for Places/Directions results
+    private ApiResponseCache apiResponseCache;
+    
+    // Offline street graph for road-snapped treasures and loop routes
+    private StreetGraphStore streetGraphStore;
+    private LoopRoutePlanner routePlanner;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -136,6 +145,10 @@ public class SessionSetupActivity extends AppCompatActivity {
         errorHandler = new ErrorHandler(this);
         geminiHelper = new GeminiHelper(this);
         gmHelper = new GMHelper();
+        apiResponseCache = ApiResponseCache.getInstance(this);
+        RetrofitClient.init(this);
+        streetGraphStore = StreetGraphStore.getInstance(this);
+        routePlanner = LoopRoutePlanner.getInstance(this);
         
         initViews();
         setupDistanceGoal();
@@ -609,18 +622,8 @@ public class SessionSetupActivity extends AppCompatActivity {
         intent.putExtra("start_address", selectedAddress);
         
         // Pass Directions API route if available
-        if (useDirectionsRoute && directionsRoutePoints != null && !directionsRoutePoints.isEmpty()) {
-            double[] routeLats = new double[directionsRoutePoints.size()];
-            double[] routeLngs = new double[directionsRoutePoints.size()];
-            
-            for (int i = 0; i < directionsRoutePoints.size(); i++) {
-                com.google.android.gms.maps.model.LatLng point = directionsRoutePoints.get(i);
-                routeLats[i] = point.latitude;
-                routeLngs[i] = point.longitude;
-            }
-            
-            intent.putExtra("directions_route_latitudes", routeLats);
-            intent.putExtra("directions_route_longitudes", routeLngs);
+        if (useDirectionsRoute && !directionsRoutePoints.isEmpty()) {
+            intent.putExtra("directions_route_polyline", PolylineDecoder.encode(directionsRoutePoints));
             intent.putExtra("use_directions_route", true);
         }
         
@@ -667,6 +670,7 @@ public class SessionSetupActivity extends AppCompatActivity {
             distanceFromCurrent = data.getFloatExtra("distance_from_current", 0);
             
             startingPointSelected = true;
+            streetGraphStore.preloadAround(selectedLatitude, selectedLongitude);
             updateSelectedLocationDisplay();
             updateUI();
             
@@ -692,7 +696,8 @@ public class SessionSetupActivity extends AppCompatActivity {
         // Format location as "lat,lng"
         String location = selectedLatitude + "," + selectedLongitude;
         
-        // Call Google Places API
+        // Serve from the response cache when this start cell + keyword was searched before
+        String cacheKey = ApiResponseCache.placesKey(selectedLatitude, selectedLongitude, keyword, radiusMeters);
         Call<GooglePlacesResponse.Root> call = RetrofitClient.googlePlacesApi().nearbySearch(
                 location,
                 radiusMeters,
@@ -700,66 +705,63 @@ public class SessionSetupActivity extends AppCompatActivity {
                 GOOGLE_PLACES_API_KEY
         );
         
-        call.enqueue(new Callback<GooglePlacesResponse.Root>() {
+        apiResponseCache.get(cacheKey, GooglePlacesResponse.Root.class, ApiResponseCache.Policy.PLACES,
+                ApiResponseCache.fromCall(call, root -> "OK".equals(root.status)),
+                new ApiResponseCache.ResultCallback<GooglePlacesResponse.Root>() {
             @Override
-            public void onResponse(Call<GooglePlacesResponse.Root> call, Response<GooglePlacesResponse.Root> response) {
-                runOnUiThread(() -> {
-                    if (response.isSuccessful() && response.body() != null) {
-                        GooglePlacesResponse.Root root = response.body();
-                        
-                        if ("OK".equals(root.status) && root.results != null && !root.results.isEmpty()) {
-                            // Find the place with distance closest to user's selected distance
-                            GooglePlacesResponse.Result selectedPlace = findPlaceClosestToTargetDistance(root.results);
-                            
-                            if (selectedPlace == null) {
-                                loading.dismiss();
-                                Toast.makeText(SessionSetupActivity.this, 
-                                             "No valid places found. Using default generation.", 
-                                             Toast.LENGTH_SHORT).show();
-                                useAiPoints = false;
-                                generateDefaultTreasuresAndProceed();
-                                return;
-                            }
-                            
-                            // Store all results for reference
-                            googlePlacesResults = root.results;
-                            useAiPoints = true;
-                            
-                            loading.setMessage("Getting route to " + 
-                                (selectedPlace.name != null ? selectedPlace.name : "destination") + "...");
-                            
-                            // Fetch directions from starting point to selected place
-                            fetchDirectionsAndProceed(selectedPlace, loading);
-                        } else {
-                            loading.dismiss();
-                            String errorMsg = root.status != null ? root.status : "No places found";
-                            Toast.makeText(SessionSetupActivity.this, 
-                                         errorMsg + ". Using default generation.", 
-                                         Toast.LENGTH_SHORT).show();
-                            useAiPoints = false;
-                            generateDefaultTreasuresAndProceed();
-                        }
-                    } else {
+            public void onResult(GooglePlacesResponse.Root root, boolean fromCache) {
+                if (isFinishing()) {
+                    return;
+                }
+                if (fromCache) {
+                    Log.d(TAG, "Places results served from cache for " + keyword);
+                }
+                
+                if ("OK".equals(root.status) && root.results != null && !root.results.isEmpty()) {
+                    // Find the place with distance closest to user's selected distance
+                    GooglePlacesResponse.Result selectedPlace = findPlaceClosestToTargetDistance(root.results);
+                    
+                    if (selectedPlace == null) {
                         loading.dismiss();
                         Toast.makeText(SessionSetupActivity.this, 
-                                     "Places API request failed. Using default generation.", 
-                                     Toast.LENGTH_LONG).show();
+                                     "No valid places found. Using default generation.", 
+                                     Toast.LENGTH_SHORT).show();
                         useAiPoints = false;
                         generateDefaultTreasuresAndProceed();
+                        return;
                     }
-                });
-            }
-            
-            @Override
-            public void onFailure(Call<GooglePlacesResponse.Root> call, Throwable t) {
-                runOnUiThread(() -> {
+                    
+                    // Store all results for reference
+                    googlePlacesResults = root.results;
+                    useAiPoints = true;
+                    
+                    loading.setMessage("Getting route to " + 
+                        (selectedPlace.name != null ? selectedPlace.name : "destination") + "...");
+                    
+                    // Fetch directions from starting point to selected place
+                    fetchDirectionsAndProceed(selectedPlace, loading);
+                } else {
                     loading.dismiss();
+                    String errorMsg = root.status != null ? root.status : "No places found";
                     Toast.makeText(SessionSetupActivity.this, 
-                                 "Network error: " + t.getMessage() + ". Using default generation.", 
-                                 Toast.LENGTH_LONG).show();
+                                 errorMsg + ". Using default generation.", 
+                                 Toast.LENGTH_SHORT).show();
                     useAiPoints = false;
                     generateDefaultTreasuresAndProceed();
-                });
+                }
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+                if (isFinishing()) {
+                    return;
+                }
+                loading.dismiss();
+                Toast.makeText(SessionSetupActivity.this, 
+                             "Network error: " + t.getMessage() + ". Using default generation.", 
+                             Toast.LENGTH_LONG).show();
+                useAiPoints = false;
+                generateDefaultTreasuresAndProceed();
             }
         });
     }
@@ -779,6 +781,46 @@ public class SessionSetupActivity extends AppCompatActivity {
             return;
         }
         
+        // Route on-device when the street graph covers the trip; only go to Directions otherwise
+        routePlanner.planToAsync(selectedLatitude, selectedLongitude,
+                destination.geometry.location.lat, destination.geometry.location.lng,
+                new LoopRoutePlanner.RouteCallback() {
+            @Override
+            public void onRoute(PlannedRoute route) {
+                if (isFinishing()) {
+                    return;
+                }
+                PolylineDecoder.simplify(route.latitudes, route.longitudes, 0, directionsRoutePoints);
+                useDirectionsRoute = true;
+                
+                loadingDialog.dismiss();
+                
+                String destName = destination.name != null ? 
+                    destination.name : "destination";
+                Toast.makeText(SessionSetupActivity.this, 
+                             "Route to " + destName + " loaded with " + 
+                             directionsRoutePoints.size() + " points!", 
+                             Toast.LENGTH_SHORT).show();
+                
+                // Now create session and proceed to map
+                generateDefaultTreasuresAndProceed();
+            }
+            
+            @Override
+            public void onNoRoute(String reason) {
+                if (isFinishing()) {
+                    return;
+                }
+                fetchDirectionsFromApi(destination, loadingDialog);
+            }
+        });
+    }
+    
+    /**
+     * Fetch directions from the Directions API (or its cache) when no offline route exists
+     */
+    private void fetchDirectionsFromApi(GooglePlacesResponse.Result destination, 
+                                        androidx.appcompat.app.AlertDialog loadingDialog) {
         // Format origin and destination as "lat,lng"
         String origin = selectedLatitude + "," + selectedLongitude;
         String dest = destination.geometry.location.lat + "," + destination.geometry.location.lng;
@@ -787,7 +829,9 @@ public class SessionSetupActivity extends AppCompatActivity {
         String selectedActivity = spinnerActivityType.getSelectedItem().toString();
         String travelMode = convertActivityToTravelMode(selectedActivity);
         
-        // Call Directions API with the selected mode
+        // Call Directions API with the selected mode, or reuse a recent route from this exact start
+        String cacheKey = ApiResponseCache.directionsKey(selectedLatitude, selectedLongitude,
+                destination.geometry.location.lat, destination.geometry.location.lng, travelMode);
         Call<DirectionsResponse.Root> call = RetrofitClient.googlePlacesApi().getDirections(
                 origin,
                 dest,
@@ -795,74 +839,67 @@ public class SessionSetupActivity extends AppCompatActivity {
                 GOOGLE_PLACES_API_KEY
         );
         
-        call.enqueue(new Callback<DirectionsResponse.Root>() {
+        apiResponseCache.get(cacheKey, DirectionsResponse.Root.class, ApiResponseCache.Policy.DIRECTIONS,
+                ApiResponseCache.fromCall(call, root -> "OK".equals(root.status)),
+                new ApiResponseCache.ResultCallback<DirectionsResponse.Root>() {
             @Override
-            public void onResponse(Call<DirectionsResponse.Root> call, 
-                                 Response<DirectionsResponse.Root> response) {
-                runOnUiThread(() -> {
-                    if (response.isSuccessful() && response.body() != null) {
-                        DirectionsResponse.Root root = response.body();
+            public void onResult(DirectionsResponse.Root root, boolean fromCache) {
+                if (isFinishing()) {
+                    return;
+                }
+                
+                if ("OK".equals(root.status) && root.routes != null && !root.routes.isEmpty()) {
+                    DirectionsResponse.Route route = root.routes.get(0);
+                    
+                    // Decode the overview polyline
+                    if (route.overview_polyline != null && 
+                        route.overview_polyline.points != null) {
+                        
+                        PolylineDecoder.decodeInto(
+                            route.overview_polyline.points, directionsRoutePoints);
+                        useDirectionsRoute = true;
                         
-                        if ("OK".equals(root.status) && root.routes != null && !root.routes.isEmpty()) {
-                            DirectionsResponse.Route route = root.routes.get(0);
-                            
-                            // Decode the overview polyline
-                            if (route.overview_polyline != null && 
-                                route.overview_polyline.points != null) {
-                                
-                                directionsRoutePoints = PolylineDecoder.decode(
-                                    route.overview_polyline.points);
-                                useDirectionsRoute = true;
-                                
-                                loadingDialog.dismiss();
-                                
-                                String destName = destination.name != null ? 
-                                    destination.name : "destination";
-                                Toast.makeText(SessionSetupActivity.this, 
-                                             "Route to " + destName + " loaded with " + 
-                                             directionsRoutePoints.size() + " points!", 
-                                             Toast.LENGTH_SHORT).show();
-                                
-                                // Now create session and proceed to map
-                                generateDefaultTreasuresAndProceed();
-                            } else {
-                                loadingDialog.dismiss();
-                                Toast.makeText(SessionSetupActivity.this, 
-                                             "No route polyline found. Using default generation.", 
-                                             Toast.LENGTH_SHORT).show();
-                                useDirectionsRoute = false;
-                                generateDefaultTreasuresAndProceed();
-                            }
-                        } else {
-                            loadingDialog.dismiss();
-                            String errorMsg = root.status != null ? root.status : "No route found";
-                            Toast.makeText(SessionSetupActivity.this, 
-                                         errorMsg + ". Using default generation.", 
-                                         Toast.LENGTH_SHORT).show();
-                            useDirectionsRoute = false;
-                            generateDefaultTreasuresAndProceed();
-                        }
+                        loadingDialog.dismiss();
+                        
+                        String destName = destination.name != null ? 
+                            destination.name : "destination";
+                        Toast.makeText(SessionSetupActivity.this, 
+                                     "Route to " + destName + " loaded with " + 
+                                     directionsRoutePoints.size() + " points!", 
+                                     Toast.LENGTH_SHORT).show();
+                        
+                        // Now create session and proceed to map
+                        generateDefaultTreasuresAndProceed();
                     } else {
                         loadingDialog.dismiss();
                         Toast.makeText(SessionSetupActivity.this, 
-                                     "Directions API request failed. Using default generation.", 
-                                     Toast.LENGTH_LONG).show();
+                                     "No route polyline found. Using default generation.", 
+                                     Toast.LENGTH_SHORT).show();
                         useDirectionsRoute = false;
                         generateDefaultTreasuresAndProceed();
                     }
-                });
-            }
-            
-            @Override
-            public void onFailure(Call<DirectionsResponse.Root> call, Throwable t) {
-                runOnUiThread(() -> {
+                } else {
                     loadingDialog.dismiss();
+                    String errorMsg = root.status != null ? root.status : "No route found";
                     Toast.makeText(SessionSetupActivity.this, 
-                                 "Network error: " + t.getMessage() + ". Using default generation.", 
-                                 Toast.LENGTH_LONG).show();
+                                 errorMsg + ". Using default generation.", 
+                                 Toast.LENGTH_SHORT).show();
                     useDirectionsRoute = false;
                     generateDefaultTreasuresAndProceed();
-                });
+                }
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+                if (isFinishing()) {
+                    return;
+                }
+                loadingDialog.dismiss();
+                Toast.makeText(SessionSetupActivity.this, 
+                             "Network error: " + t.getMessage() + ". Using default generation.", 
+                             Toast.LENGTH_LONG).show();
+                useDirectionsRoute = false;
+                generateDefaultTreasuresAndProceed();
             }
         });
     }
@@ -968,9 +1005,34 @@ public class SessionSetupActivity extends AppCompatActivity {
             public void onSuccess(SessionDraft draft) {
                 currentSessionDraft = draft;
                 
-                // Generate treasures
-                generatedTreasures = treasureGenerator.generateTreasureRing(
-                    draft.sessionId, selectedLatitude, selectedLongitude, selectedDistance);
+                // Seed from the session id so the same hunt can be regenerated identically later
+                TreasureGenerator sessionGenerator =
+                    new TreasureGenerator(TreasureGenerator.seedForSession(draft.sessionId));
+                
+                // Generate treasures, snapped to streets when an offline graph covers the start
+                TreasureGenerator.RoadSnappedHunt snappedHunt = useDirectionsRoute ? null :
+                    sessionGenerator.generateRoadSnappedHunt(draft.sessionId, selectedLatitude,
+                        selectedLongitude, selectedDistance,
+                        streetGraphStore.getGraphAround(selectedLatitude, selectedLongitude));
+                if (snappedHunt != null) {
+                    generatedTreasures = snappedHunt.treasures;
+                    PolylineDecoder.simplify(snappedHunt.routeLatitudes, snappedHunt.routeLongitudes,
+                                             0, directionsRoutePoints);
+                    useDirectionsRoute = true;
+                    Log.d(TAG, "Offline loop route: " + Math.round(snappedHunt.routeLengthMeters) + "m, " +
+                               generatedTreasures.size() + " snapped treasures");
+                } else {
+                    generatedTreasures = sessionGenerator.generateTreasureRing(
+                        draft.sessionId, selectedLatitude, selectedLongitude, selectedDistance);
+                    
+                    // Treasures couldn't be snapped, but a plain loop route may still fit the streets
+                    PlannedRoute loop = useDirectionsRoute ? null :
+                        routePlanner.planLoop(selectedLatitude, selectedLongitude, selectedDistance * 1000.0);
+                    if (loop != null) {
+                        PolylineDecoder.simplify(loop.latitudes, loop.longitudes, 0, directionsRoutePoints);
+                        useDirectionsRoute = true;
+                    }
+                }
                 
                 treasuresGenerated = true;
                 
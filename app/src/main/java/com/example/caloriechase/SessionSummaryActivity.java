@@ -12,10 +12,14 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
+import com.example.caloriechase.data.LocationUpdate;
 import com.example.caloriechase.data.SessionManager;
 import com.example.caloriechase.data.SessionRecord;
 import com.example.caloriechase.data.TreasureLocation;
+import com.example.caloriechase.utils.PolylineDecoder;
+import com.google.android.gms.maps.model.LatLng;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -61,7 +65,9 @@ public class SessionSummaryActivity extends AppCompatActivity {
     
     // Data
     private String sessionId;
-    private SessionRecord sessionRecord;
+    private SessionRecord sessionRecord; // stats only; the route is loaded in viewRoute
+    private boolean hasRoute;
+    private String routePolyline; // preview, or the full track encoded when there is none
     private SessionManager sessionManager;
     
     @Override
@@ -130,28 +136,14 @@ public class SessionSummaryActivity extends AppCompatActivity {
     }
     
     private void loadSessionData() {
-        sessionManager.getSessionHistory(100, new SessionManager.SessionCallback<List<SessionRecord>>() {
+        sessionManager.getSessionSummary(sessionId, new SessionManager.SessionCallback<SessionManager.SessionSummary>() {
             @Override
-            public void onSuccess(List<SessionRecord> records) {
-                // Find the specific session record
-                SessionRecord targetRecord = null;
-                for (SessionRecord record : records) {
-                    if (record.sessionId.equals(sessionId)) {
-                        targetRecord = record;
-                        break;
-                    }
-                }
-                
-                if (targetRecord != null) {
-                    sessionRecord = targetRecord;
-                    runOnUiThread(() -> displaySessionStats());
-                } else {
-                    runOnUiThread(() -> {
-                        Toast.makeText(SessionSummaryActivity.this, 
-                                     "Session record not found", Toast.LENGTH_LONG).show();
-                        finish();
-                    });
-                }
+            public void onSuccess(SessionManager.SessionSummary summary) {
+                runOnUiThread(() -> {
+                    sessionRecord = summary.stats;
+                    hasRoute = summary.hasRoute;
+                    displaySessionStats();
+                });
             }
             
             @Override
@@ -214,18 +206,60 @@ public class SessionSummaryActivity extends AppCompatActivity {
         tvPaceValue.setText(sessionRecord.getFormattedPace() + " /km");
         
         // Show/hide route button based on available data
-        btnViewRoute.setVisibility(sessionRecord.routePoints != null && !sessionRecord.routePoints.isEmpty() 
-                                  ? View.VISIBLE : View.GONE);
+        btnViewRoute.setVisibility(hasRoute ? View.VISIBLE : View.GONE);
     }
     
     private void viewRoute() {
-        if (sessionRecord == null || sessionRecord.routePoints == null || sessionRecord.routePoints.isEmpty()) {
+        if (sessionRecord == null || !hasRoute) {
             Toast.makeText(this, "No route data available", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (routePolyline == null && sessionRecord.routePreview != null) {
+            // The stored preview is enough to draw the path; the full track is only loaded without one
+            routePolyline = sessionRecord.routePreview;
+        }
+        if (routePolyline == null) {
+            // First tap: load the track, then come back here
+            btnViewRoute.setEnabled(false);
+            sessionManager.getSessionRoute(sessionId, new SessionManager.SessionCallback<List<LocationUpdate>>() {
+                @Override
+                public void onSuccess(List<LocationUpdate> route) {
+                    List<LatLng> points = new ArrayList<>(route.size());
+                    for (LocationUpdate update : route) {
+                        points.add(new LatLng(update.latitude, update.longitude));
+                    }
+                    String encoded = PolylineDecoder.encode(points);
+                    runOnUiThread(() -> {
+                        btnViewRoute.setEnabled(true);
+                        hasRoute = !route.isEmpty();
+                        if (!hasRoute) {
+                            Toast.makeText(SessionSummaryActivity.this, "No route data available",
+                                         Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        routePolyline = encoded;
+                        viewRoute();
+                    });
+                }
+                
+                @Override
+                public void onError(Exception error) {
+                    runOnUiThread(() -> {
+                        btnViewRoute.setEnabled(true);
+                        Toast.makeText(SessionSummaryActivity.this,
+                                     "Failed to load route: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+                    });
+                }
+            });
+            return;
+        }
         
-        // TODO: Implement route viewing (could open a map activity showing the path taken)
-        Toast.makeText(this, "Route viewing coming soon!", Toast.LENGTH_SHORT).show();
+        Intent intent = new Intent(this, SessionMapActivity.class);
+        intent.putExtra(SessionMapActivity.EXTRA_REVIEW_ROUTE, routePolyline);
+        intent.putExtra("start_latitude", sessionRecord.startLatitude);
+        intent.putExtra("start_longitude", sessionRecord.startLongitude);
+        intent.putExtra("distance", sessionRecord.currentDistance);
+        startActivity(intent);
     }
     
     private void shareResults() {
@@ -4,14 +4,24 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Log;
 import android.util.Patterns;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.caloriechase.api.AuthTokenStore;
+import com.example.caloriechase.api.BackendResponse;
+import com.example.caloriechase.api.RetrofitClient;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class SignInActivity extends AppCompatActivity {
+
+    private static final String TAG = "SignInActivity";
     
     private TextInputEditText etEmail, etPassword;
     private MaterialButton btnSignIn, btnGoogleSignIn;
@@ -26,8 +36,8 @@ public class SignInActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_sign_in);
         
-        // Check if already logged in
-        if (isUserLoggedIn()) {
+        // Check if already logged in; without a backend token the user signs in again so uploads can resume
+        if (isUserLoggedIn() && AuthTokenStore.getInstance(this).getToken() != null) {
             navigateToMain();
             return;
         }
@@ -93,11 +103,39 @@ public class SignInActivity extends AppCompatActivity {
         SharedPreferences.Editor editor = prefs.edit();
         editor.putBoolean(KEY_IS_LOGGED_IN, true);
         editor.apply();
+        requestBackendToken(email, password);
         
         Toast.makeText(this, "Welcome back!", Toast.LENGTH_SHORT).show();
         navigateToMain();
     }
     
+    /**
+     * Exchange the credentials for a gateway token in the background; sessions
+     * stay queued locally until one is stored
+     */
+    private void requestBackendToken(String email, String password) {
+        AuthTokenStore tokens = AuthTokenStore.getInstance(this);
+        RetrofitClient.backend(this)
+                .requestToken(new BackendResponse.Credentials(email, password))
+                .enqueue(new Callback<BackendResponse.TokenGrant>() {
+                    @Override
+                    public void onResponse(@NonNull Call<BackendResponse.TokenGrant> call,
+                                           @NonNull Response<BackendResponse.TokenGrant> response) {
+                        BackendResponse.TokenGrant grant = response.body();
+                        if (response.isSuccessful() && grant != null && grant.token != null && grant.userId != null) {
+                            tokens.save(grant.token, grant.userId);
+                        } else {
+                            Log.w(TAG, "Backend sign-in refused: HTTP " + response.code());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<BackendResponse.TokenGrant> call, @NonNull Throwable t) {
+                        Log.w(TAG, "Backend sign-in failed: " + t.getMessage());
+                    }
+                });
+    }
+    
     private boolean validateInputs(String email, String password) {
         if (TextUtils.isEmpty(email)) {
             etEmail.setError("Email is required");
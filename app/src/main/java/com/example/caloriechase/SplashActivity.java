@@ -7,6 +7,7 @@ import android.os.Looper;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.activity.OnBackPressedCallback;
 import com.airbnb.lottie.LottieAnimationView;
+import com.example.caloriechase.api.RetrofitClient;
 
 public class SplashActivity extends AppCompatActivity {
 
@@ -17,6 +18,9 @@ public class SplashActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        // Set up the shared HTTP client (disk cache, connection pool) before any screen needs it
+        RetrofitClient.init(this);
+
         // Disable back button during splash screen
         getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
             @Override
@@ -0,0 +1,156 @@
+package com.example.caloriechase;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Objects;
+
+/**
+ * Renders the tracking foreground notification.
+ *
+ * Every notify() is an IPC to the system server, so the renderer keeps one
+ * builder for the lifetime of the service, compares the values at the
+ * precision they are displayed with, and only posts when something visible
+ * changed. Value changes are additionally capped to one post per
+ * {@link #MIN_UPDATE_INTERVAL_MS}; pause and resume are always posted at once.
+ * Changes held back by the cap are picked up by the next periodic tick.
+ */
+class TrackingNotificationRenderer {
+
+    static final long MIN_UPDATE_INTERVAL_MS = 5000;
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final int notificationId;
+    private final NotificationCompat.Builder builder;
+
+    private String sessionId;
+    private boolean contentIntentSet = false;
+
+    // Last posted values, at displayed precision
+    private boolean shown = false;
+    private boolean shownPaused;
+    private int shownSteps;
+    private long shownDistanceHundredths;
+    private int shownCalories;
+    private long lastPostTime = 0;
+
+    private int posted = 0;
+    private int skipped = 0;
+
+    TrackingNotificationRenderer(Context context, NotificationManager notificationManager,
+                                 int notificationId, String channelId) {
+        this.context = context;
+        this.notificationManager = notificationManager;
+        this.notificationId = notificationId;
+        this.builder = new NotificationCompat.Builder(context, channelId)
+                .setContentTitle("Treasure Hunt Active")
+                .setSmallIcon(R.drawable.ic_treasure)
+                .setOngoing(true)
+                .setShowWhen(false)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW);
+    }
+
+    /**
+     * Build the notification for startForeground and remember it as posted
+     */
+    Notification build(String sessionId, boolean paused, int steps, float distanceKm, int calories) {
+        setSession(sessionId);
+        apply(paused, steps, distanceKm, calories);
+        lastPostTime = SystemClock.elapsedRealtime();
+        posted++;
+        return builder.build();
+    }
+
+    /**
+     * Post the notification if a displayed value changed and the rate cap allows it
+     *
+     * @return true if the notification was posted
+     */
+    boolean update(String sessionId, boolean paused, int steps, float distanceKm, int calories) {
+        if (notificationManager == null) {
+            return false;
+        }
+        setSession(sessionId);
+
+        long distanceHundredths = Math.round(distanceKm * 100.0);
+        boolean stateChanged = !shown || paused != shownPaused;
+        boolean valuesChanged = !paused && (steps != shownSteps
+                || distanceHundredths != shownDistanceHundredths
+                || calories != shownCalories);
+        if (!stateChanged && !valuesChanged) {
+            skipped++;
+            return false;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (!stateChanged && now - lastPostTime < MIN_UPDATE_INTERVAL_MS) {
+            skipped++;
+            return false;
+        }
+
+        apply(paused, steps, distanceKm, calories);
+        lastPostTime = now;
+        posted++;
+        notificationManager.notify(notificationId, builder.build());
+        return true;
+    }
+
+    /**
+     * Forget the posted values so the next update is posted unconditionally, and restart the counters
+     */
+    void reset() {
+        shown = false;
+        lastPostTime = 0;
+        posted = 0;
+        skipped = 0;
+    }
+
+    int getPostedCount() {
+        return posted;
+    }
+
+    int getSkippedCount() {
+        return skipped;
+    }
+
+    private void setSession(String sessionId) {
+        if (contentIntentSet && Objects.equals(sessionId, this.sessionId)) {
+            return;
+        }
+        this.sessionId = sessionId;
+        contentIntentSet = true;
+
+        // Intent to open ActiveSessionActivity when notification is tapped
+        Intent notificationIntent = new Intent(context, ActiveSessionActivity.class);
+        if (sessionId != null) {
+            notificationIntent.putExtra(TrackingService.EXTRA_SESSION_ID, sessionId);
+        }
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context, 0, notificationIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        builder.setContentIntent(pendingIntent);
+    }
+
+    private void apply(boolean paused, int steps, float distanceKm, int calories) {
+        if (paused) {
+            builder.setContentText("Session paused - Tap to resume");
+        } else {
+            builder.setContentText(String.format("Steps: %d • Distance: %.2f km • Calories: %d",
+                    steps, distanceKm, calories));
+        }
+        shown = true;
+        shownPaused = paused;
+        shownSteps = steps;
+        shownDistanceHundredths = Math.round(distanceKm * 100.0);
+        shownCalories = calories;
+    }
+}
@@ -3,25 +3,24 @@ package com.example.caloriechase;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
 import android.location.Location;
 import android.os.Binder;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
-import androidx.core.app.NotificationCompat;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import com.example.caloriechase.data.ActiveSession;
@@ -30,6 +29,9 @@ import com.example.caloriechase.data.TreasureLocation;
 import com.example.caloriechase.location.TreasureHuntLocationManager;
 import com.example.caloriechase.error.ErrorHandler;
 import com.example.caloriechase.error.ServiceRecoveryManager;
+import com.example.caloriechase.error.TrackingCheckpointJournal;
+import com.example.caloriechase.sensors.StepSensorHub;
+import com.example.caloriechase.utils.UiTicker;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
@@ -40,7 +42,7 @@ import com.google.android.gms.location.Priority;
 /**
  * Foreground service for continuous background tracking during active sessions
  */
-public class TrackingService extends Service implements SensorEventListener {
+public class TrackingService extends Service implements StepSensorHub.StepListener {
     
     private static final String TAG = "TrackingService";
     private static final String CHANNEL_ID = "tracking_channel";
@@ -64,6 +66,8 @@ public class TrackingService extends Service implements SensorEventListener {
     public static final String EXTRA_DISTANCE = "distance";
     public static final String EXTRA_CALORIES = "calories";
     public static final String EXTRA_DURATION = "duration";
+    public static final String EXTRA_PAUSED = "paused";
+    public static final String EXTRA_AUTO_PAUSED = "auto_paused";
     public static final String EXTRA_LATITUDE = "latitude";
     public static final String EXTRA_LONGITUDE = "longitude";
     public static final String EXTRA_AT_STARTING_POINT = "at_starting_point";
@@ -76,18 +80,26 @@ public class TrackingService extends Service implements SensorEventListener {
     private static final long LOCATION_FASTEST_INTERVAL = 2000; // 2 seconds
     private static final float LOCATION_SMALLEST_DISPLACEMENT = 2.0f; // 2 meters
     
+    // Location request settings while paused, only used to notice movement resuming
+    private static final long IDLE_LOCATION_UPDATE_INTERVAL = 30000; // 30 seconds
+    private static final float IDLE_LOCATION_SMALLEST_DISPLACEMENT = 10.0f; // 10 meters
+    
     // Service components
     private SessionManager sessionManager;
     private TreasureHuntLocationManager treasureHuntManager;
-    private SensorManager sensorManager;
+    private StepSensorHub stepSensorHub;
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
     private NotificationManager notificationManager;
+    private TrackingNotificationRenderer notificationRenderer;
     private Handler mainHandler;
+    private SensorManager sensorManager;
+    private Sensor significantMotionSensor;
     
     // Error handling and recovery
     private ErrorHandler errorHandler;
     private ServiceRecoveryManager recoveryManager;
+    private TrackingStateRegistry trackingState;
     
     // Tracking state
     private String currentSessionId;
@@ -96,14 +108,14 @@ public class TrackingService extends Service implements SensorEventListener {
     private boolean isPaused = false;
     
     // Sensor data
-    private Sensor stepCounterSensor;
-    private Sensor stepDetectorSensor;
     private int initialStepCount = -1;
     private int currentStepCount = 0;
     private int sessionSteps = 0;
+    private long resumeCounterValue = -1; // Counter at the last checkpoint of a restored session
     
     // Location data
     private Location lastLocation;
+    private long trackSegmentStart = 0; // start of the current recorded stretch, see TrackPoint.segmentStart
     private Location startingPointLocation;
     private boolean isAtStartingPoint = false;
     private boolean useStepBasedDistance = false;
@@ -116,6 +128,20 @@ public class TrackingService extends Service implements SensorEventListener {
     
     // Session tracking
     private float totalDistance = 0.0f;
+    private CalorieEngine.SessionEnergy sessionEnergy;
+    
+    // Auto-pause
+    private static final long AUTO_PAUSE_CHECK_INTERVAL = 4000; // 4 seconds
+    private static final long WAKE_CONFIRM_TIMEOUT = 30000; // Back to idle sampling if movement is not confirmed
+    private final AutoPauseDetector autoPauseDetector = new AutoPauseDetector();
+    private boolean isAutoPaused = false;
+    private boolean idleSampling = false;
+    private long idleWakeTime = 0;
+    private int autoPauseSteps = 0; // Steps of movement not yet confirmed while auto-paused
+    
+    // Crash checkpoint, reused for every journal write
+    private final TrackingCheckpointJournal.Checkpoint checkpoint = new TrackingCheckpointJournal.Checkpoint();
+    private static final long CHECKPOINT_FIX_MAX_AGE_MS = 120000; // Older fixes are not used to continue distance
 
     
     // Binder for local service binding
@@ -135,20 +161,25 @@ public class TrackingService extends Service implements SensorEventListener {
         // Initialize components
         sessionManager = SessionManager.getInstance(this);
         treasureHuntManager = new TreasureHuntLocationManager(this);
-        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        stepSensorHub = StepSensorHub.getInstance(this);
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         mainHandler = new Handler(Looper.getMainLooper());
+        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        significantMotionSensor = sensorManager != null
+                ? sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION) : null;
         
         // Initialize error handling and recovery
         errorHandler = new ErrorHandler(this);
         recoveryManager = new ServiceRecoveryManager(this);
+        trackingState = TrackingStateRegistry.getInstance(this);
         
         // Initialize sensors
         initializeSensors();
         
         // Create notification channel
         createNotificationChannel();
+        notificationRenderer = new TrackingNotificationRenderer(this, notificationManager, NOTIFICATION_ID, CHANNEL_ID);
         
         // Initialize location callback
         initializeLocationCallback();
@@ -170,7 +201,7 @@ public class TrackingService extends Service implements SensorEventListener {
                     stopTracking();
                     break;
                 case ACTION_PAUSE_TRACKING:
-                    pauseTracking();
+                    pauseTracking(false);
                     break;
                 case ACTION_RESUME_TRACKING:
                     resumeTracking();
@@ -209,13 +240,8 @@ public class TrackingService extends Service implements SensorEventListener {
      * Initialize step counting sensors
      */
     private void initializeSensors() {
-        if (sensorManager != null) {
-            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-            stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
-            
-            if (stepCounterSensor == null && stepDetectorSensor == null) {
-                Log.w(TAG, "No step sensors available on this device");
-            }
+        if (!stepSensorHub.hasStepSensor()) {
+            Log.w(TAG, "No step sensors available on this device");
         }
     }
     
@@ -226,13 +252,17 @@ public class TrackingService extends Service implements SensorEventListener {
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
-                if (locationResult == null || !isTracking || isPaused) {
+                if (locationResult == null || !isTracking) {
                     return;
                 }
                 
                 Location location = locationResult.getLastLocation();
                 if (location != null) {
-                    handleLocationUpdate(location);
+                    // Paused sessions still feed auto-resume
+                    autoPauseDetector.onFix(location, System.currentTimeMillis());
+                    if (!isPaused) {
+                        handleLocationUpdate(location);
+                    }
                 }
             }
         };
@@ -249,6 +279,7 @@ public class TrackingService extends Service implements SensorEventListener {
         
         Log.d(TAG, "Starting tracking for session: " + sessionId);
         currentSessionId = sessionId;
+        trackingState.markStarting(sessionId);
         
         // Get the active session
         sessionManager.getCurrentActiveSession(new SessionManager.SessionCallback<ActiveSession>() {
@@ -268,6 +299,7 @@ public class TrackingService extends Service implements SensorEventListener {
                     
                     // Reset counters
                     resetCounters();
+                    sessionEnergy = CalorieEngine.getInstance(TrackingService.this).newSession(session.activityType);
                     
                     // Start foreground service
                     startForeground(NOTIFICATION_ID, createNotification());
@@ -286,10 +318,13 @@ public class TrackingService extends Service implements SensorEventListener {
                     
                     // Save service state for recovery
                     recoveryManager.saveServiceState(sessionId, ServiceRecoveryManager.ServiceState.ACTIVE);
+                    trackingState.markTracking(sessionId);
+                    saveCheckpoint();
                     
                     Log.d(TAG, "Tracking started successfully");
                 } else {
                     Log.e(TAG, "Active session not found or session ID mismatch");
+                    trackingState.markStopped();
                     stopSelf();
                 }
             }
@@ -297,6 +332,7 @@ public class TrackingService extends Service implements SensorEventListener {
             @Override
             public void onError(Exception error) {
                 Log.e(TAG, "Error getting active session", error);
+                trackingState.markStopped();
                 stopSelf();
             }
         });
@@ -310,21 +346,29 @@ public class TrackingService extends Service implements SensorEventListener {
         
         isTracking = false;
         isPaused = false;
+        isAutoPaused = false;
         
         // Stop location updates
         stopLocationUpdates();
+        cancelSignificantMotion();
+        idleSampling = false;
         
         // Stop step counting
         stopStepCounting();
         
         // Stop periodic updates
         stopPeriodicUpdates();
+        Log.d(TAG, "UI ticker wakeups in the last minute: " + UiTicker.getInstance().getWakeupsPerMinute());
+        Log.d(TAG, "Notification updates this session: " + notificationRenderer.getPostedCount() +
+                   " posted, " + notificationRenderer.getSkippedCount() + " skipped");
         
         // Cleanup treasure hunt
         cleanupTreasureHunt();
         
         // Clear recovery state
         recoveryManager.clearServiceState();
+        recoveryManager.clearCheckpoint();
+        trackingState.markStopped();
         
         // Clear session data
         currentSession = null;
@@ -332,19 +376,40 @@ public class TrackingService extends Service implements SensorEventListener {
         
         // Stop foreground service
         stopForeground(true);
+        notificationRenderer.reset();
         stopSelf();
     }
     
     /**
      * Pause tracking
+     *
+     * @param auto True when the auto-pause detector decided the session stopped moving
      */
-    private void pauseTracking() {
-        if (!isTracking || isPaused) {
+    private void pauseTracking(boolean auto) {
+        if (!isTracking) {
+            return;
+        }
+        if (isPaused) {
+            if (!auto && isAutoPaused) {
+                // A manual pause while auto-paused stays paused until the user resumes
+                isAutoPaused = false;
+                cancelSignificantMotion();
+                UiTicker.getInstance().unsubscribe(autoPauseTicker);
+                saveCheckpoint();
+                broadcastSessionUpdate();
+            }
             return;
         }
         
-        Log.d(TAG, "Pausing tracking");
+        Log.d(TAG, auto ? "Auto-pausing tracking" : "Pausing tracking");
         isPaused = true;
+        isAutoPaused = auto;
+        autoPauseSteps = 0;
+        UiTicker.getInstance().unsubscribe(updateTicker);
+        if (!auto) {
+            UiTicker.getInstance().unsubscribe(autoPauseTicker);
+        }
+        setIdleSampling(true);
         
         if (currentSession != null) {
             currentSession.pause();
@@ -354,6 +419,8 @@ public class TrackingService extends Service implements SensorEventListener {
         // Save paused state for recovery
         if (currentSessionId != null) {
             recoveryManager.saveServiceState(currentSessionId, ServiceRecoveryManager.ServiceState.PAUSED);
+            trackingState.markPaused(currentSessionId);
+            saveCheckpoint();
         }
         
         // Update notification
@@ -371,8 +438,13 @@ public class TrackingService extends Service implements SensorEventListener {
             return;
         }
         
-        Log.d(TAG, "Resuming tracking");
+        Log.d(TAG, isAutoPaused ? "Auto-resuming tracking" : "Resuming tracking");
         isPaused = false;
+        isAutoPaused = false;
+        trackSegmentStart = System.currentTimeMillis();
+        autoPauseDetector.reset();
+        setIdleSampling(false);
+        startPeriodicUpdates();
         
         if (currentSession != null) {
             currentSession.resume();
@@ -382,6 +454,8 @@ public class TrackingService extends Service implements SensorEventListener {
         // Save active state for recovery
         if (currentSessionId != null) {
             recoveryManager.saveServiceState(currentSessionId, ServiceRecoveryManager.ServiceState.ACTIVE);
+            trackingState.markTracking(currentSessionId);
+            saveCheckpoint();
         }
         
         // Update notification
@@ -406,26 +480,51 @@ public class TrackingService extends Service implements SensorEventListener {
                     currentSessionId = session.sessionId;
                     isTracking = true;
                     isPaused = session.isPaused;
+                    if (isPaused) {
+                        trackingState.markPaused(currentSessionId);
+                    } else {
+                        trackingState.markTracking(currentSessionId);
+                    }
                     
-                    // Restore counters from session
+                    // Restore counters from session, then from the newer journaled checkpoint
+                    resetCounters();
                     sessionSteps = session.currentSteps;
                     totalDistance = session.currentDistance;
+                    TrackingCheckpointJournal.Checkpoint saved = recoveryManager.getCheckpoint(session.sessionId);
+                    restoreCheckpoint(saved);
+                    // Only the journal knows who paused, so without it the user has to resume
+                    isAutoPaused = isPaused && saved != null && saved.paused && saved.autoPaused;
+                    sessionEnergy = CalorieEngine.getInstance(TrackingService.this).newSession(session.activityType);
+                    sessionEnergy.restore(session.caloriesBurned, session.getEffectiveDuration(),
+                                          totalDistance * 1000.0, sessionSteps);
                     
                     // Start foreground service
                     startForeground(NOTIFICATION_ID, createNotification());
                     
+                    // A paused session samples at the idle rate until it is resumed
+                    idleSampling = isPaused;
+                    
+                    // Start location updates
+                    startLocationUpdates();
+                    
+                    // Start step counting
+                    startStepCounting();
+                    
                     if (!isPaused) {
-                        // Start location updates
-                        startLocationUpdates();
-                        
-                        // Start step counting
-                        startStepCounting();
-                        
                         // Start periodic updates
                         startPeriodicUpdates();
+                    } else {
+                        // Paused sessions still report that the service is alive
+                        UiTicker.getInstance().subscribe(heartbeatTicker, TrackingStateRegistry.HEARTBEAT_INTERVAL_MS);
+                        if (isAutoPaused) {
+                            // Keep watching for movement so the session auto-resumes
+                            UiTicker.getInstance().subscribe(autoPauseTicker, AUTO_PAUSE_CHECK_INTERVAL);
+                            requestSignificantMotion();
+                        }
                     }
                 } else {
                     Log.d(TAG, "No active session to restore");
+                    trackingState.markStopped();
                     stopSelf();
                 }
             }
@@ -433,6 +532,7 @@ public class TrackingService extends Service implements SensorEventListener {
             @Override
             public void onError(Exception error) {
                 Log.e(TAG, "Error restoring active session", error);
+                trackingState.markStopped();
                 stopSelf();
             }
         });
@@ -443,14 +543,21 @@ public class TrackingService extends Service implements SensorEventListener {
      */
     private void startLocationUpdates() {
         try {
-            LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, LOCATION_UPDATE_INTERVAL)
-                    .setWaitForAccurateLocation(false)
-                    .setMinUpdateIntervalMillis(LOCATION_FASTEST_INTERVAL)
-                    .setMinUpdateDistanceMeters(LOCATION_SMALLEST_DISPLACEMENT)
-                    .build();
+            LocationRequest locationRequest;
+            if (idleSampling) {
+                locationRequest = new LocationRequest.Builder(Priority.PRIORITY_BALANCED_POWER_ACCURACY, IDLE_LOCATION_UPDATE_INTERVAL)
+                        .setMinUpdateDistanceMeters(IDLE_LOCATION_SMALLEST_DISPLACEMENT)
+                        .build();
+            } else {
+                locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, LOCATION_UPDATE_INTERVAL)
+                        .setWaitForAccurateLocation(false)
+                        .setMinUpdateIntervalMillis(LOCATION_FASTEST_INTERVAL)
+                        .setMinUpdateDistanceMeters(LOCATION_SMALLEST_DISPLACEMENT)
+                        .build();
+            }
             
             fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
-            Log.d(TAG, "Location updates started");
+            Log.d(TAG, "Location updates started" + (idleSampling ? " (idle)" : ""));
         } catch (SecurityException e) {
             Log.e(TAG, "Location permission not granted", e);
             handleGpsFailure(ErrorHandler.GpsFailureType.GPS_PERMISSION_DENIED);
@@ -501,64 +608,134 @@ public class TrackingService extends Service implements SensorEventListener {
      * Start step counting
      */
     private void startStepCounting() {
-        if (sensorManager == null) {
+        if (!stepSensorHub.hasStepSensor()) {
+            Log.w(TAG, "No step sensors available");
             return;
         }
         
-        // Try step counter first (more battery efficient)
-        if (stepCounterSensor != null) {
-            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_UI);
-            Log.d(TAG, "Step counter sensor registered");
-        } else if (stepDetectorSensor != null) {
-            sensorManager.registerListener(this, stepDetectorSensor, SensorManager.SENSOR_DELAY_UI);
-            Log.d(TAG, "Step detector sensor registered");
-        } else {
-            Log.w(TAG, "No step sensors available");
-        }
+        // Steps are only read on the update cycle, so let the sensor batch them in its FIFO
+        stepSensorHub.subscribe(this, idleSampling ? StepSensorHub.LATENCY_IDLE_MS : StepSensorHub.LATENCY_BACKGROUND_MS);
+        Log.d(TAG, "Subscribed to step sensor hub");
     }
     
     /**
      * Stop step counting
      */
     private void stopStepCounting() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-            Log.d(TAG, "Step sensors unregistered");
-        }
+        stepSensorHub.unsubscribe(this);
+        Log.d(TAG, "Unsubscribed from step sensor hub");
     }
     
     /**
      * Start periodic updates
      */
     private void startPeriodicUpdates() {
-        mainHandler.post(updateRunnable);
+        UiTicker.getInstance().subscribe(updateTicker, UPDATE_INTERVAL);
+        UiTicker.getInstance().subscribe(autoPauseTicker, AUTO_PAUSE_CHECK_INTERVAL);
+        UiTicker.getInstance().subscribe(heartbeatTicker, TrackingStateRegistry.HEARTBEAT_INTERVAL_MS);
     }
     
     /**
      * Stop periodic updates
      */
     private void stopPeriodicUpdates() {
-        mainHandler.removeCallbacks(updateRunnable);
+        UiTicker.getInstance().unsubscribe(updateTicker);
+        UiTicker.getInstance().unsubscribe(autoPauseTicker);
+        UiTicker.getInstance().unsubscribe(heartbeatTicker);
     }
     
     /**
-     * Periodic update runnable
+     * Periodic update, ticked together with the visible screens' refreshes
      */
-    private final Runnable updateRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (isTracking && !isPaused) {
-                updateSessionMetrics();
-                updateNotification();
-                broadcastSessionUpdate();
+    private final UiTicker.TickListener updateTicker = now -> {
+        if (isTracking && !isPaused) {
+            updateSessionMetrics();
+            updateNotification();
+            broadcastSessionUpdate();
+        }
+    };
+    
+    /**
+     * Auto-pause check; keeps running while auto-paused to notice movement resuming
+     */
+    private final UiTicker.TickListener autoPauseTicker = now -> checkAutoPause();
+    
+    /**
+     * Liveness for TrackingStateRegistry; keeps running while paused
+     */
+    private final UiTicker.TickListener heartbeatTicker = now -> trackingState.heartbeat();
+    
+    private void checkAutoPause() {
+        if (!isTracking || (isPaused && !isAutoPaused)) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        AutoPauseDetector.Decision decision = autoPauseDetector.evaluate(now, stepSensorHub.getCadence(), isPaused);
+        if (decision == AutoPauseDetector.Decision.PAUSE) {
+            pauseTracking(true);
+        } else if (decision == AutoPauseDetector.Decision.RESUME) {
+            // Steps taken while the movement was being confirmed belong to the session
+            sessionSteps += autoPauseSteps;
+            autoPauseSteps = 0;
+            resumeTracking();
+        } else if (isAutoPaused && !autoPauseDetector.isMovementPending()) {
+            autoPauseSteps = 0;
+            if (!idleSampling && now - idleWakeTime >= WAKE_CONFIRM_TIMEOUT) {
+                // Woken by significant motion but never confirmed as moving
+                setIdleSampling(true);
             }
-            
-            if (isTracking) {
-                mainHandler.postDelayed(this, UPDATE_INTERVAL);
+        }
+    }
+    
+    /**
+     * Switch location and step sampling between the tracking rate and the paused rate
+     */
+    private void setIdleSampling(boolean idle) {
+        if (idleSampling == idle) {
+            return;
+        }
+        idleSampling = idle;
+        Log.d(TAG, idle ? "Reducing sampling while paused" : "Restoring tracking sampling");
+        
+        stopLocationUpdates();
+        startLocationUpdates();
+        startStepCounting();
+        
+        if (idle && isAutoPaused) {
+            requestSignificantMotion();
+        } else {
+            cancelSignificantMotion();
+        }
+    }
+    
+    /**
+     * Significant motion wakes an auto-paused session back to full sampling so the
+     * detector can confirm the movement quickly
+     */
+    private final TriggerEventListener significantMotionListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            if (isTracking && isAutoPaused && idleSampling) {
+                Log.d(TAG, "Significant motion while auto-paused");
+                idleWakeTime = System.currentTimeMillis();
+                setIdleSampling(false);
             }
         }
     };
     
+    private void requestSignificantMotion() {
+        if (sensorManager != null && significantMotionSensor != null) {
+            sensorManager.requestTriggerSensor(significantMotionListener, significantMotionSensor);
+        }
+    }
+    
+    private void cancelSignificantMotion() {
+        if (sensorManager != null && significantMotionSensor != null) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotionSensor);
+        }
+    }
+    
     /**
      * Handle location updates
      */
@@ -589,7 +766,13 @@ public class TrackingService extends Service implements SensorEventListener {
         checkStartingPointProximity(location);
         
         lastLocation = location;
-        
+        saveCheckpoint();
+
+        // Raw track for the route; cleaned and compressed when the session is finalized
+        sessionManager.recordTrackPoint(currentSessionId, location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Float.MAX_VALUE,
+                location.hasSpeed() ? location.getSpeed() : 0f, location.getTime(), trackSegmentStart);
+
         // Check for treasure collection (proximity checking if geofences failed)
         if (currentSessionId != null) {
             treasureHuntManager.updateLocation(location, currentSessionId);
@@ -621,29 +804,37 @@ public class TrackingService extends Service implements SensorEventListener {
     }
     
     /**
-     * Handle sensor events (step counting)
+     * Handle batched steps from the shared sensor hub
      */
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (!isTracking || isPaused) {
+    public void onSteps(int stepDelta, long counterValue, float cadence) {
+        if (!isTracking) {
             return;
         }
         
-        if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            // Step counter gives total steps since boot
-            int totalSteps = (int) event.values[0];
-            
+        if (counterValue >= 0) {
+            if (resumeCounterValue >= 0) {
+                // First batch after a restore: count everything since the checkpoint, including
+                // steps taken while the service was dead. A lower counter means the device rebooted.
+                if (!isPaused && counterValue >= resumeCounterValue) {
+                    stepDelta = (int) Math.max(stepDelta, counterValue - resumeCounterValue);
+                }
+                resumeCounterValue = -1;
+            }
+            // Raw counter positions at session start and at the latest batch
             if (initialStepCount == -1) {
-                initialStepCount = totalSteps;
-                currentStepCount = totalSteps;
-            } else {
-                currentStepCount = totalSteps;
-                sessionSteps = currentStepCount - initialStepCount;
+                initialStepCount = (int) counterValue;
             }
-        } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
-            // Step detector gives individual steps
-            sessionSteps++;
+            currentStepCount = (int) counterValue;
         }
+        if (isPaused) {
+            if (isAutoPaused) {
+                autoPauseSteps += stepDelta;
+            }
+            saveCheckpoint();
+            return;
+        }
+        sessionSteps += stepDelta;
         
         // If GPS is weak, use step-based distance
         if (useStepBasedDistance && sessionSteps > 0) {
@@ -651,11 +842,7 @@ public class TrackingService extends Service implements SensorEventListener {
             // Use the greater of GPS distance or step-based distance for better accuracy
             totalDistance = Math.max(totalDistance, stepBasedDistance);
         }
-    }
-    
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Handle sensor accuracy changes if needed
+        saveCheckpoint();
     }
     
     /**
@@ -665,8 +852,12 @@ public class TrackingService extends Service implements SensorEventListener {
         initialStepCount = -1;
         currentStepCount = 0;
         sessionSteps = 0;
+        resumeCounterValue = -1;
+        autoPauseSteps = 0;
+        autoPauseDetector.reset();
         totalDistance = 0.0f;
         lastLocation = null;
+        trackSegmentStart = System.currentTimeMillis();
         useStepBasedDistance = false;
     }
     
@@ -682,16 +873,14 @@ public class TrackingService extends Service implements SensorEventListener {
         currentSession.currentSteps = sessionSteps;
         currentSession.currentDistance = totalDistance;
         
-        // Calculate calories
-        long durationMinutes = currentSession.getEffectiveDuration() / (1000 * 60);
-        if (durationMinutes > 0 && totalDistance > 0) {
-            double averageSpeedKmh = (totalDistance / durationMinutes) * 60.0;
-            currentSession.caloriesBurned = FitnessTracker.calculateCalories(this, durationMinutes, averageSpeedKmh);
-        } else {
-            // Fallback to step-based calories
-            currentSession.caloriesBurned = FitnessTracker.calculateCaloriesFromSteps(this, sessionSteps);
+        // Add the energy of the window since the last update at that window's pace
+        if (sessionEnergy != null) {
+            currentSession.caloriesBurned = sessionEnergy.update(currentSession.getEffectiveDuration(),
+                                                                 totalDistance * 1000.0, sessionSteps);
         }
         
+        saveCheckpoint();
+        
         // Update in database periodically (every 10 updates to avoid excessive writes)
         long currentTime = System.currentTimeMillis();
         if (currentTime - lastUpdateTime > 10000) { // 10 seconds
@@ -700,6 +889,71 @@ public class TrackingService extends Service implements SensorEventListener {
         }
     }
     
+    /**
+     * Journal the live counters so a killed service can resume without losing any of them
+     */
+    private void saveCheckpoint() {
+        if (!isTracking || currentSessionId == null) {
+            return;
+        }
+        checkpoint.sessionId = currentSessionId;
+        checkpoint.savedAt = System.currentTimeMillis();
+        checkpoint.paused = isPaused;
+        checkpoint.autoPaused = isAutoPaused;
+        checkpoint.sessionSteps = sessionSteps;
+        checkpoint.initialStepCount = initialStepCount;
+        checkpoint.lastCounterValue = initialStepCount >= 0 ? currentStepCount : -1;
+        checkpoint.distanceKm = totalDistance;
+        checkpoint.useStepBasedDistance = useStepBasedDistance;
+        checkpoint.calories = sessionEnergy != null ? sessionEnergy.getCalories() : 0;
+        checkpoint.activeDurationMs = currentSession != null ? currentSession.getEffectiveDuration() : 0;
+        checkpoint.hasFix = lastLocation != null;
+        if (lastLocation != null) {
+            checkpoint.latitude = lastLocation.getLatitude();
+            checkpoint.longitude = lastLocation.getLongitude();
+            checkpoint.accuracy = lastLocation.hasAccuracy() ? lastLocation.getAccuracy() : 0f;
+            checkpoint.fixTime = lastLocation.getTime();
+        }
+        recoveryManager.saveCheckpoint(checkpoint);
+    }
+    
+    /**
+     * Continue from a journaled checkpoint, which is newer than the periodically written session row
+     */
+    private void restoreCheckpoint(TrackingCheckpointJournal.Checkpoint saved) {
+        if (saved == null || currentSession == null) {
+            return;
+        }
+        Log.d(TAG, "Restoring checkpoint from " + (System.currentTimeMillis() - saved.savedAt) + "ms ago");
+        
+        // Counters only grow, so the larger of the two sources is the latest
+        sessionSteps = Math.max(sessionSteps, saved.sessionSteps);
+        totalDistance = Math.max(totalDistance, saved.distanceKm);
+        currentSession.caloriesBurned = Math.max(currentSession.caloriesBurned, saved.calories);
+        useStepBasedDistance = saved.useStepBasedDistance;
+        
+        // Raw step counter positions are only comparable within the same boot
+        long bootTime = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        if (saved.savedAt >= bootTime && saved.lastCounterValue >= 0) {
+            initialStepCount = (int) saved.initialStepCount;
+            currentStepCount = (int) saved.lastCounterValue;
+            resumeCounterValue = isPaused || saved.paused ? -1 : saved.lastCounterValue;
+        }
+        
+        // The last fix lets the first new fix continue the distance
+        if (saved.hasFix && System.currentTimeMillis() - saved.fixTime <= CHECKPOINT_FIX_MAX_AGE_MS) {
+            lastLocation = new Location("checkpoint");
+            lastLocation.setLatitude(saved.latitude);
+            lastLocation.setLongitude(saved.longitude);
+            lastLocation.setAccuracy(saved.accuracy);
+            lastLocation.setTime(saved.fixTime);
+        }
+        
+        currentSession.currentSteps = sessionSteps;
+        currentSession.currentDistance = totalDistance;
+        updateSessionInDatabase();
+    }
+    
     /**
      * Update session in database
      */
@@ -733,6 +987,8 @@ public class TrackingService extends Service implements SensorEventListener {
         intent.putExtra(EXTRA_DISTANCE, totalDistance);
         intent.putExtra(EXTRA_CALORIES, currentSession.caloriesBurned);
         intent.putExtra(EXTRA_DURATION, currentSession.getEffectiveDuration());
+        intent.putExtra(EXTRA_PAUSED, isPaused);
+        intent.putExtra(EXTRA_AUTO_PAUSED, isAutoPaused);
         
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
     }
@@ -798,45 +1054,16 @@ public class TrackingService extends Service implements SensorEventListener {
      * Create notification for foreground service
      */
     private Notification createNotification() {
-        // Intent to open ActiveSessionActivity when notification is tapped
-        Intent notificationIntent = new Intent(this, ActiveSessionActivity.class);
-        if (currentSessionId != null) {
-            notificationIntent.putExtra(EXTRA_SESSION_ID, currentSessionId);
-        }
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, notificationIntent, 
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        
-        // Build notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Treasure Hunt Active")
-                .setSmallIcon(R.drawable.ic_treasure) // You'll need to add this icon
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .setShowWhen(false)
-                .setPriority(NotificationCompat.PRIORITY_LOW);
-        
-        // Add content text based on current state
-        if (isPaused) {
-            builder.setContentText("Session paused - Tap to resume");
-        } else {
-            String content = String.format("Steps: %d • Distance: %.2f km • Calories: %d",
-                    sessionSteps, totalDistance, 
-                    currentSession != null ? currentSession.caloriesBurned : 0);
-            builder.setContentText(content);
-        }
-        
-        return builder.build();
+        return notificationRenderer.build(currentSessionId, isPaused, sessionSteps, totalDistance,
+                currentSession != null ? currentSession.caloriesBurned : 0);
     }
     
     /**
-     * Update the existing notification
+     * Update the existing notification if a displayed value changed
      */
     private void updateNotification() {
-        if (notificationManager != null) {
-            notificationManager.notify(NOTIFICATION_ID, createNotification());
-        }
+        notificationRenderer.update(currentSessionId, isPaused, sessionSteps, totalDistance,
+                currentSession != null ? currentSession.caloriesBurned : 0);
     }
     
     // Public methods for service interaction
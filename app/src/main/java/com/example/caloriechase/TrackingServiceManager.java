@@ -15,6 +15,7 @@ public class TrackingServiceManager {
     private static final String TAG = "TrackingServiceManager";
     
     private Context context;
+    private final TrackingStateRegistry stateRegistry;
     private TrackingService trackingService;
     private boolean isServiceBound = false;
     private ServiceConnection serviceConnection;
@@ -27,6 +28,7 @@ public class TrackingServiceManager {
     
     public TrackingServiceManager(Context context) {
         this.context = context.getApplicationContext();
+        this.stateRegistry = TrackingStateRegistry.getInstance(context);
         initializeServiceConnection();
     }
     
@@ -168,39 +170,32 @@ public class TrackingServiceManager {
     }
     
     /**
-     * Check if tracking is active
+     * Check if tracking is active (not paused)
      */
     public boolean isTracking() {
-        return trackingService != null && trackingService.isTracking();
+        return stateRegistry.isTracking();
     }
     
     /**
-     * Check if the tracking service is running
+     * Check if a tracking session is running (starting, tracking or paused).
+     * Answered from the in-process state registry, so it is cheap enough for onResume.
      */
     public boolean isServiceRunning() {
-        android.app.ActivityManager manager = (android.app.ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-        if (manager != null) {
-            for (android.app.ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-                if (TrackingService.class.getName().equals(service.service.getClassName())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return stateRegistry.isActive();
     }
     
     /**
      * Check if tracking is paused
      */
     public boolean isPaused() {
-        return trackingService != null && trackingService.isPaused();
+        return stateRegistry.isPaused();
     }
     
     /**
      * Get current session ID
      */
     public String getCurrentSessionId() {
-        return trackingService != null ? trackingService.getCurrentSessionId() : null;
+        return stateRegistry.getSessionId();
     }
     
     /**
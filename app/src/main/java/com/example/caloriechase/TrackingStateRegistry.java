@@ -0,0 +1,180 @@
+package com.example.caloriechase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process-wide answer to "is a session being tracked, is it paused, which one".
+ *
+ * TrackingService publishes every transition here; readers get the current
+ * immutable snapshot from an AtomicReference without binding to the service or
+ * asking ActivityManager. Each transition is also written to SharedPreferences so
+ * a cold-started process knows about a session whose service is being restarted.
+ * While a session is active the service also writes a heartbeat; a saved state
+ * whose heartbeat stopped long ago belongs to a service that was force-stopped or
+ * crashed and is not coming back, so it is not restored.
+ */
+public class TrackingStateRegistry {
+
+    private static final String PREFS_NAME = "tracking_state";
+    private static final String KEY_STATE = "state";
+    private static final String KEY_SESSION_ID = "session_id";
+    private static final String KEY_CHANGED_AT = "changed_at";
+    private static final String KEY_BOOT_TIME = "boot_time";
+    private static final String KEY_HEARTBEAT = "heartbeat";
+
+    static final long HEARTBEAT_INTERVAL_MS = 10_000;
+    // A few missed beats; a service restarted later than this republishes its state itself
+    private static final long HEARTBEAT_TIMEOUT_MS = 3 * HEARTBEAT_INTERVAL_MS;
+
+    // Wall clock minus uptime drifts a little with clock adjustments; a reboot moves it much further
+    private static final long BOOT_TIME_TOLERANCE_MS = 60_000;
+
+    private static volatile TrackingStateRegistry instance;
+
+    private final SharedPreferences prefs;
+    private final AtomicReference<Snapshot> current;
+
+    public enum State {
+        IDLE,
+        STARTING, // service asked to start, session not loaded yet
+        TRACKING,
+        PAUSED
+    }
+
+    /**
+     * Immutable view of the tracking state at one moment
+     */
+    public static final class Snapshot {
+        public final State state;
+        public final String sessionId; // null when IDLE
+        public final long changedAt; // wall clock time of the transition
+        public final boolean restored; // read from disk at process start, not yet confirmed by the service
+
+        Snapshot(State state, String sessionId, long changedAt, boolean restored) {
+            this.state = state;
+            this.sessionId = sessionId;
+            this.changedAt = changedAt;
+            this.restored = restored;
+        }
+
+        public boolean isActive() {
+            return state != State.IDLE;
+        }
+    }
+
+    private TrackingStateRegistry(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.current = new AtomicReference<>(load());
+    }
+
+    /**
+     * Get singleton instance of TrackingStateRegistry
+     */
+    public static TrackingStateRegistry getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TrackingStateRegistry.class) {
+                if (instance == null) {
+                    instance = new TrackingStateRegistry(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * True while a session is starting, tracking or paused
+     */
+    public boolean isActive() {
+        return current.get().isActive();
+    }
+
+    public boolean isTracking() {
+        return current.get().state == State.TRACKING;
+    }
+
+    public boolean isPaused() {
+        return current.get().state == State.PAUSED;
+    }
+
+    public String getSessionId() {
+        return current.get().sessionId;
+    }
+
+    // Transitions, published by TrackingService
+
+    void markStarting(String sessionId) {
+        publish(State.STARTING, sessionId);
+    }
+
+    void markTracking(String sessionId) {
+        publish(State.TRACKING, sessionId);
+    }
+
+    void markPaused(String sessionId) {
+        publish(State.PAUSED, sessionId);
+    }
+
+    void markStopped() {
+        publish(State.IDLE, null);
+    }
+
+    /**
+     * Record that the service is still alive; called every {@link #HEARTBEAT_INTERVAL_MS}
+     * while a session is active
+     */
+    void heartbeat() {
+        if (isActive()) {
+            prefs.edit().putLong(KEY_HEARTBEAT, SystemClock.elapsedRealtime()).apply();
+        }
+    }
+
+    private void publish(State state, String sessionId) {
+        Snapshot next = new Snapshot(state, state == State.IDLE ? null : sessionId,
+                System.currentTimeMillis(), false);
+        current.set(next);
+        prefs.edit()
+                .putString(KEY_STATE, state.name())
+                .putString(KEY_SESSION_ID, next.sessionId)
+                .putLong(KEY_CHANGED_AT, next.changedAt)
+                .putLong(KEY_BOOT_TIME, bootTime())
+                .putLong(KEY_HEARTBEAT, SystemClock.elapsedRealtime())
+                .apply();
+    }
+
+    private Snapshot load() {
+        State state;
+        try {
+            state = State.valueOf(prefs.getString(KEY_STATE, State.IDLE.name()));
+        } catch (IllegalArgumentException e) {
+            state = State.IDLE;
+        }
+        String sessionId = prefs.getString(KEY_SESSION_ID, null);
+        if (state == State.IDLE || sessionId == null) {
+            return new Snapshot(State.IDLE, null, 0, false);
+        }
+
+        // Nothing restarts the service after a reboot, so a state saved before it is stale
+        long savedBootTime = prefs.getLong(KEY_BOOT_TIME, 0);
+        if (Math.abs(bootTime() - savedBootTime) > BOOT_TIME_TOLERANCE_MS) {
+            return new Snapshot(State.IDLE, null, 0, false);
+        }
+
+        // Same boot but the service stopped beating: it died without stopping the session
+        long sinceHeartbeat = SystemClock.elapsedRealtime() - prefs.getLong(KEY_HEARTBEAT, Long.MIN_VALUE / 2);
+        if (sinceHeartbeat < 0 || sinceHeartbeat > HEARTBEAT_TIMEOUT_MS) {
+            return new Snapshot(State.IDLE, null, 0, false);
+        }
+        return new Snapshot(state, sessionId, prefs.getLong(KEY_CHANGED_AT, 0), true);
+    }
+
+    private static long bootTime() {
+        return System.currentTimeMillis() - SystemClock.elapsedRealtime();
+    }
+}
@@ -30,8 +30,10 @@ public class UserDataManager {
     }
     
     public static UserData getUserData(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        
+        return getUserData(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+    
+    public static UserData getUserData(SharedPreferences prefs) {
         return new UserData(
             prefs.getInt("age", 0),
             prefs.getFloat("height", 0),
@@ -1,5 +1,6 @@
 package com.example.caloriechase.api;
 
+import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
 
 public class AgentResponse {
@@ -19,5 +20,20 @@ public class AgentResponse {
         public ArrayList<Content> content;
     }
 
+    // Output of the agent's plan_route tool
+    public static class Route{
+        public String polyline;
+        public double est_duration; // minutes
+        public Dest dest;
+        public String source; // "places" | "directions" | "synthetic"
+    }
+
+    public static class Dest{
+        public double lat;
+        @SerializedName("long")
+        public double lng;
+        public String name;
+    }
+
 
 }
@@ -0,0 +1,422 @@
+package com.example.caloriechase.api;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.example.caloriechase.data.CachedResponse;
+import com.example.caloriechase.data.CachedResponseDao;
+import com.example.caloriechase.data.TreasureHuntDatabase;
+import com.example.caloriechase.error.NetworkErrorHandler;
+import com.example.caloriechase.error.RetryScheduler;
+import com.example.caloriechase.utils.GeoHash;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Offline-first cache for Places and Directions results.
+ *
+ * Responses are persisted in Room keyed by geohash cell + keyword (Places), exact
+ * origin + destination + travel mode (Directions), or query (place search ids).
+ * Fresh entries are served without touching the network, stale entries are served
+ * immediately and refreshed in the background, and identical in-flight requests
+ * share a single network call. Past its policy window an entry is deleted and never
+ * served, not even when the network fails.
+ *
+ * Google's terms allow caching Maps content for at most 30 days (place ids are
+ * exempt), so no policy may keep an entry longer than that. Places and Directions
+ * bodies are only kept for a day; long-lived entries should hold place ids only.
+ * Network calls go through the shared {@link RetryScheduler}, so a failing API
+ * trips its circuit and later lookups fail fast.
+ */
+public class ApiResponseCache {
+
+    private static final String TAG = "ApiResponseCache";
+
+    private static final long MAX_CACHE_BYTES = 2 * 1024 * 1024; // 2 MB of JSON
+    private static final int EVICTION_BATCH = 8;
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long MAX_ENTRY_AGE_MS = 30 * 24 * HOUR_MS; // Google's caching limit
+
+    private static volatile ApiResponseCache instance;
+
+    private final CachedResponseDao dao;
+    private final RetryScheduler retryScheduler;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+    private final Gson gson;
+    private final Map<String, List<ResultCallback<Object>>> inFlight = new HashMap<>();
+
+    /**
+     * How long an entry is served as-is, and how long after that it may still be
+     * served while a background refresh runs. Together at most 30 days.
+     */
+    public static class Policy {
+        public final long freshMs;
+        public final long staleWhileRevalidateMs;
+
+        public Policy(long freshMs, long staleWhileRevalidateMs) {
+            if (freshMs < 0 || staleWhileRevalidateMs < 0
+                    || freshMs + staleWhileRevalidateMs > MAX_ENTRY_AGE_MS) {
+                throw new IllegalArgumentException("Cache window must be within 30 days");
+            }
+            this.freshMs = freshMs;
+            this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+        }
+
+        public long maxAgeMs() {
+            return freshMs + staleWhileRevalidateMs;
+        }
+
+        /** Nearby search bodies (names, locations): one day in total */
+        public static final Policy PLACES = new Policy(6 * HOUR_MS, 18 * HOUR_MS);
+        /** Directions bodies: one day in total */
+        public static final Policy DIRECTIONS = new Policy(6 * HOUR_MS, 18 * HOUR_MS);
+        /** Place ids only, which may be kept longest */
+        public static final Policy PLACE_ID = new Policy(7 * 24 * HOUR_MS, 23 * 24 * HOUR_MS);
+    }
+
+    /**
+     * Performs the actual network request for a cache miss or revalidation
+     */
+    public interface Loader<T> {
+        void load(LoadCallback<T> callback);
+    }
+
+    public interface LoadCallback<T> {
+        /**
+         * @param cacheable false for responses that must not be stored (e.g. error statuses)
+         */
+        void onLoaded(T value, boolean cacheable);
+        void onFailed(Throwable error);
+    }
+
+    /**
+     * Result callbacks are always delivered on the main thread
+     */
+    public interface ResultCallback<T> {
+        void onResult(T value, boolean fromCache);
+        void onError(Throwable error);
+    }
+
+    /**
+     * Decides whether a successfully parsed response is worth caching
+     */
+    public interface Validator<T> {
+        boolean isCacheable(T value);
+    }
+
+    private ApiResponseCache(Context context) {
+        this.dao = TreasureHuntDatabase.getInstance(context).cachedResponseDao();
+        this.retryScheduler = RetryScheduler.getInstance(context);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.gson = new Gson();
+
+        executor.execute(() -> {
+            try {
+                pruneExpired();
+                // Place search results with addresses and coordinates, from before only ids were kept
+                dao.deleteWithPrefixCreatedBefore("search|", Long.MAX_VALUE);
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to prune expired cache entries", e);
+            }
+        });
+    }
+
+    /**
+     * Delete entries past their window even if they are never looked up again
+     */
+    private void pruneExpired() {
+        long now = System.currentTimeMillis();
+        dao.deleteCreatedBefore(now - MAX_ENTRY_AGE_MS);
+        dao.deleteWithPrefixCreatedBefore("places|", now - Policy.PLACES.maxAgeMs());
+        dao.deleteWithPrefixCreatedBefore("directions|", now - Policy.DIRECTIONS.maxAgeMs());
+    }
+
+    /**
+     * Get singleton instance of ApiResponseCache
+     */
+    public static ApiResponseCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ApiResponseCache.class) {
+                if (instance == null) {
+                    instance = new ApiResponseCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ---- Cache keys ----
+
+    public static String placesKey(double latitude, double longitude, String keyword, int radiusMeters) {
+        return "places|" + GeoHash.encode(latitude, longitude) + "|" + normalize(keyword) + "|" + radiusMeters;
+    }
+
+    /**
+     * Exact origin and destination (to ~0.1m), so a cached route always starts where the user is
+     */
+    public static String directionsKey(double originLat, double originLng,
+                                       double destLat, double destLng, String travelMode) {
+        return String.format(Locale.US, "directions|%.6f,%.6f|%.6f,%.6f|%s",
+                originLat, originLng, destLat, destLng, normalize(travelMode));
+    }
+
+    public static String placeIdKey(double latitude, double longitude, String query) {
+        // Search results are biased to an ~11km box, so a coarse cell is enough
+        return "placeid|" + GeoHash.encode(latitude, longitude, 5) + "|" + normalize(query);
+    }
+
+    /**
+     * Key for a search without a location bias; use with {@link #getUncached}, since the
+     * results are not tied to any cell
+     */
+    public static String placeIdKey(String query) {
+        return "placeid||" + normalize(query);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ---- Lookup ----
+
+    /**
+     * Resolve a value from the cache or the network according to the policy
+     */
+    public <T> void get(String key, Class<T> type, Policy policy,
+                        Loader<T> loader, ResultCallback<T> callback) {
+        executor.execute(() -> {
+            CachedResponse entry = null;
+            T cached = null;
+            try {
+                entry = dao.get(key);
+                if (entry != null && entry.body != null) {
+                    cached = gson.fromJson(entry.body, type);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable cache entry " + key, e);
+                cached = null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (cached != null) {
+                long age = now - entry.createdAt;
+                if (age <= policy.maxAgeMs()) {
+                    dao.touch(key, now);
+                    T result = cached;
+                    mainHandler.post(() -> callback.onResult(result, true));
+                    if (age > policy.freshMs) {
+                        Log.d(TAG, "Serving stale entry and revalidating " + key);
+                        fetch(key, loader, null);
+                    }
+                    return;
+                }
+            }
+            if (entry != null) {
+                // Expired (or unreadable) entries are not kept around as an offline fallback
+                dao.delete(key);
+            }
+
+            fetch(key, loader, callback);
+        });
+    }
+
+    /**
+     * Run the request with the shared retry and circuit handling but without reading or
+     * writing the cache, for requests whose result the key would not describe.
+     * {@code key} still groups identical in-flight requests and names the circuit.
+     */
+    public <T> void getUncached(String key, Loader<T> loader, ResultCallback<T> callback) {
+        Loader<T> uncached = loadCallback -> loader.load(new LoadCallback<T>() {
+            @Override
+            public void onLoaded(T value, boolean cacheable) {
+                loadCallback.onLoaded(value, false);
+            }
+
+            @Override
+            public void onFailed(Throwable error) {
+                loadCallback.onFailed(error);
+            }
+        });
+        executor.execute(() -> fetch(key, uncached, callback));
+    }
+
+    /**
+     * Run (or join) the network request for a key; {@code callback} may be null for
+     * background revalidation
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void fetch(String key, Loader<T> loader, ResultCallback<T> callback) {
+        ResultCallback<Object> waiter = callback == null ? null : new ResultCallback<Object>() {
+            @Override
+            public void onResult(Object value, boolean fromCache) {
+                callback.onResult((T) value, fromCache);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                callback.onError(error);
+            }
+        };
+
+        synchronized (inFlight) {
+            List<ResultCallback<Object>> waiters = inFlight.get(key);
+            if (waiters != null) {
+                // Identical request already running: share its result
+                if (waiter != null) waiters.add(waiter);
+                return;
+            }
+            waiters = new ArrayList<>();
+            if (waiter != null) waiters.add(waiter);
+            inFlight.put(key, waiters);
+        }
+
+        LoadResult<T> result = new LoadResult<>();
+        NetworkErrorHandler.NetworkOperation operation = attempt -> loader.load(new LoadCallback<T>() {
+            @Override
+            public void onLoaded(T value, boolean cacheable) {
+                result.value = value;
+                result.cacheable = cacheable;
+                attempt.onSuccess();
+            }
+
+            @Override
+            public void onFailed(Throwable error) {
+                Log.w(TAG, "Request failed for " + key + ": " + error.getMessage());
+                result.error = error;
+                attempt.onFailure(error instanceof Exception ? (Exception) error : new IOException(error));
+            }
+        });
+
+        retryScheduler.execute(endpointOf(key), operation, RetryScheduler.RetryPolicy.INTERACTIVE,
+                new NetworkErrorHandler.RetryCallback() {
+                    @Override
+                    public void onRetrySuccess() {
+                        T value = result.value;
+                        if (result.cacheable) {
+                            executor.execute(() -> store(key, value));
+                        }
+                        complete(key, waiter2 -> waiter2.onResult(value, false));
+                    }
+
+                    @Override
+                    public void onMaxRetriesExceeded() {
+                        Throwable error = result.error;
+                        complete(key, waiter2 -> waiter2.onError(error));
+                    }
+
+                    @Override
+                    public void onNetworkUnavailable() {
+                        IOException error = new IOException("No network connection");
+                        complete(key, waiter2 -> waiter2.onError(error));
+                    }
+
+                    @Override
+                    public void onCircuitOpen(String endpoint) {
+                        IOException error = RetryScheduler.circuitOpenError(endpoint);
+                        complete(key, waiter2 -> waiter2.onError(error));
+                    }
+                });
+    }
+
+    /**
+     * Outcome of the latest attempt, handed from the loader to the retry callback
+     */
+    private static final class LoadResult<T> {
+        volatile T value;
+        volatile boolean cacheable;
+        volatile Throwable error;
+    }
+
+    /**
+     * Keys start with the API name ("places|...", "directions|...", "placeid|..."), which is also the circuit name
+     */
+    private static String endpointOf(String key) {
+        int separator = key.indexOf('|');
+        return separator > 0 ? key.substring(0, separator) : key;
+    }
+
+    private interface Delivery {
+        void deliver(ResultCallback<Object> waiter);
+    }
+
+    private void complete(String key, Delivery delivery) {
+        List<ResultCallback<Object>> waiters;
+        synchronized (inFlight) {
+            waiters = inFlight.remove(key);
+        }
+        if (waiters == null) return;
+        mainHandler.post(() -> {
+            for (ResultCallback<Object> waiter : waiters) {
+                delivery.deliver(waiter);
+            }
+        });
+    }
+
+    private void store(String key, Object value) {
+        try {
+            String body = gson.toJson(value);
+            long now = System.currentTimeMillis();
+
+            CachedResponse entry = new CachedResponse();
+            entry.cacheKey = key;
+            entry.body = body;
+            entry.createdAt = now;
+            entry.lastAccessedAt = now;
+            entry.sizeBytes = body.length() * 2; // UTF-16 upper bound, good enough for budgeting
+            dao.insert(entry);
+            pruneExpired();
+
+            // Size-based eviction, least recently used first
+            while (dao.getTotalSizeBytes() > MAX_CACHE_BYTES && dao.getEntryCount() > 1) {
+                dao.evictLeastRecentlyUsed(EVICTION_BATCH);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to store cache entry " + key, e);
+        }
+    }
+
+    /**
+     * Drop every cached response
+     */
+    public void clear() {
+        executor.execute(dao::clear);
+    }
+
+    // ---- Retrofit adapter ----
+
+    /**
+     * Adapt a Retrofit call into a loader; only successful bodies accepted by the
+     * validator are cached. Retries run on a clone, since a call executes only once.
+     */
+    public static <T> Loader<T> fromCall(Call<T> call, Validator<T> validator) {
+        return loadCallback -> (call.isExecuted() ? call.clone() : call).enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                T body = response.body();
+                if (response.isSuccessful() && body != null) {
+                    loadCallback.onLoaded(body, validator == null || validator.isCacheable(body));
+                } else {
+                    loadCallback.onFailed(new IOException("HTTP " + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                loadCallback.onFailed(t);
+            }
+        });
+    }
+}
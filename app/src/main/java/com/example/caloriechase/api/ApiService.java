@@ -14,4 +14,13 @@ public interface ApiService {
             @Query("keyword") String keyword,
             @Query("distance_km") double distanceKm
     );
+
+    // GET /plan_route?start_lat=..&start_lng=..&mode=walk|jog|run&distance_m=..
+    @GET("plan_route")
+    Call<AgentResponse.Route> planRoute(
+            @Query("start_lat") double startLat,
+            @Query("start_lng") double startLng,
+            @Query("mode") String mode,
+            @Query("distance_m") int distanceMeters
+    );
 }
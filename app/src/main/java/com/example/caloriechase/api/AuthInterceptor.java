@@ -0,0 +1,30 @@
+package com.example.caloriechase.api;
+
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Adds the stored gateway token to backend requests
+ */
+class AuthInterceptor implements Interceptor {
+
+    private final AuthTokenStore tokens;
+
+    AuthInterceptor(AuthTokenStore tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String token = tokens.getToken();
+        Request request = chain.request();
+        if (token == null || request.header("Authorization") != null) {
+            return chain.proceed(request);
+        }
+        return chain.proceed(request.newBuilder()
+                .header("Authorization", "Bearer " + token)
+                .build());
+    }
+}
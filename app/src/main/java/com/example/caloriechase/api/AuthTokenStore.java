@@ -0,0 +1,63 @@
+package com.example.caloriechase.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.example.caloriechase.sync.SessionSync;
+
+/**
+ * Gateway token of the signed-in user, used for every backend request.
+ *
+ * Obtained at sign-in from the gateway's {@code public/token} endpoint. The token
+ * is cleared when the backend answers 401/403, and uploads wait until the user
+ * signs in again; saving a new token schedules them right away.
+ */
+public class AuthTokenStore {
+
+    private static final String PREFS_NAME = "BackendAuth";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_USER_ID = "user_id";
+
+    private static volatile AuthTokenStore instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+
+    private AuthTokenStore(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static AuthTokenStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AuthTokenStore.class) {
+                if (instance == null) {
+                    instance = new AuthTokenStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return Bearer token, or null when the user has not signed in to the backend
+     */
+    public String getToken() {
+        return prefs.getString(KEY_TOKEN, null);
+    }
+
+    /**
+     * @return Backend id of the signed-in user, or null
+     */
+    public Long getUserId() {
+        return prefs.contains(KEY_USER_ID) ? prefs.getLong(KEY_USER_ID, 0) : null;
+    }
+
+    public void save(String token, long userId) {
+        prefs.edit().putString(KEY_TOKEN, token).putLong(KEY_USER_ID, userId).apply();
+        SessionSync.schedule(appContext); // Uploads held back for a missing token can go now
+    }
+
+    public void clear() {
+        prefs.edit().remove(KEY_TOKEN).remove(KEY_USER_ID).apply();
+    }
+}
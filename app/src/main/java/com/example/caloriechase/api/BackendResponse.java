@@ -0,0 +1,64 @@
+package com.example.caloriechase.api;
+
+import java.util.ArrayList;
+
+/**
+ * Models for the Activity/Score services behind the API gateway
+ */
+public class BackendResponse {
+
+    /**
+     * Envelope every backend endpoint answers with
+     */
+    public static class Root<T> {
+        public String statusCode;
+        public String message;
+        public T data;
+    }
+
+    public static class Credentials {
+        public String email;
+        public String password;
+
+        public Credentials(String email, String password) {
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Answer of the gateway's token endpoint; not wrapped in {@link Root}
+     */
+    public static class TokenGrant {
+        public String token;
+        public Long userId;
+    }
+
+    public static class Session {
+        public Long id;
+        public String clientId; // device session id; the server ignores repeats of a clientId
+        public Long userId;
+        public String type; // RUNNING, CYCLING or WALKING
+        public String prompt;
+    }
+
+    public static class Score {
+        public Long id;
+        public String clientId;
+        public Long sessionId; // server id of the session
+        public Integer score;
+        public int distanceCovered; // meters
+        public int distanceAssigned; // meters
+        public String duration; // HH:MM:SS
+        public int stepsTaken;
+        public int caloriesBurnt;
+        public int treasuresCollected;
+        public int treasuresAssigned;
+    }
+
+    public static class SessionList extends Root<ArrayList<Session>> {
+    }
+
+    public static class ScoreList extends Root<ArrayList<Score>> {
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.caloriechase.api;
+
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+
+public interface BackendService {
+
+    // POST /public/token  {"email", "password"} -> gateway token for the other calls
+    @POST("public/token")
+    Call<BackendResponse.TokenGrant> requestToken(@Body BackendResponse.Credentials credentials);
+
+    // POST /session/batch  (gzip-compressed JSON array of BackendResponse.Session)
+    @Headers("Content-Encoding: gzip")
+    @POST("session/batch")
+    Call<BackendResponse.SessionList> uploadSessions(@Body RequestBody gzippedSessions);
+
+    // POST /score/batch  (gzip-compressed JSON array of BackendResponse.Score)
+    @Headers("Content-Encoding: gzip")
+    @POST("score/batch")
+    Call<BackendResponse.ScoreList> uploadScores(@Body RequestBody gzippedScores);
+}
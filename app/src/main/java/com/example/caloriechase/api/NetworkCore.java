@@ -0,0 +1,201 @@
+package com.example.caloriechase.api;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.caloriechase.BuildConfig;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * Single OkHttp client shared by every Retrofit service in the app.
+ *
+ * One connection pool and dispatcher serve the agent, the sync backend and the
+ * Google APIs, responses go through an on-disk HTTP cache, and bodies are never logged.
+ * Debug builds log request lines with the API key masked.
+ * OkHttp negotiates gzip transparently as long as no Accept-Encoding header is
+ * set by hand, so none of the interceptors here touch it.
+ */
+public class NetworkCore {
+
+    private static final String TAG = "NetworkCore";
+
+    private static final long HTTP_CACHE_BYTES = 10L * 1024 * 1024;
+    private static final String GOOGLE_APIS_HOST = "maps.googleapis.com";
+    private static final HttpUrl BACKEND_URL = HttpUrl.get(BuildConfig.BACKEND_BASE_URL);
+    // Empty unless tile downloads were enabled at build time
+    private static final HttpUrl STREET_GRAPH_URL = HttpUrl.parse(BuildConfig.STREET_GRAPH_URL);
+    private static final boolean debuggable = BuildConfig.DEBUG;
+    // The Google API key travels in the query string, and request lines are logged in debug builds
+    private static final Pattern SECRET_QUERY_PARAM = Pattern.compile("([?&](?:key|signature)=)[^&\\s]*");
+
+    private static volatile OkHttpClient client;
+
+    private static final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Timeouts per backend: the agent runs an LLM before answering, Google APIs are quick,
+     * the sync backend answers fast but may receive large session batches, and Overpass
+     * streets out a whole street graph tile
+     */
+    enum TimeoutPolicy {
+        AGENT(15, 45, 20),
+        BACKEND(10, 20, 30),
+        GOOGLE_APIS(10, 15, 15),
+        STREET_GRAPH(15, 90, 15);
+
+        final int connectSeconds;
+        final int readSeconds;
+        final int writeSeconds;
+
+        TimeoutPolicy(int connectSeconds, int readSeconds, int writeSeconds) {
+            this.connectSeconds = connectSeconds;
+            this.readSeconds = readSeconds;
+            this.writeSeconds = writeSeconds;
+        }
+
+        static TimeoutPolicy forUrl(HttpUrl url) {
+            if (GOOGLE_APIS_HOST.equals(url.host())) {
+                return GOOGLE_APIS;
+            }
+            if (STREET_GRAPH_URL != null && STREET_GRAPH_URL.host().equals(url.host())) {
+                return STREET_GRAPH;
+            }
+            // The agent and the backend may share a host (the emulator loopback), so match the port too
+            if (BACKEND_URL.host().equals(url.host()) && BACKEND_URL.port() == url.port()) {
+                return BACKEND;
+            }
+            return AGENT;
+        }
+    }
+
+    /**
+     * Request counters for one host, exposed for diagnostics
+     */
+    public static class EndpointMetrics {
+        public final AtomicLong requests = new AtomicLong();
+        public final AtomicLong failures = new AtomicLong();
+        public final AtomicLong cacheHits = new AtomicLong();
+        public final AtomicLong totalMillis = new AtomicLong();
+
+        public long averageMillis() {
+            long count = requests.get();
+            return count == 0 ? 0 : totalMillis.get() / count;
+        }
+    }
+
+    /**
+     * Install the on-disk cache; safe to call repeatedly.
+     * Without it the shared client still works, just without a disk cache.
+     */
+    public static void init(Context context) {
+        if (client != null) return;
+        synchronized (NetworkCore.class) {
+            if (client == null) {
+                Context appContext = context.getApplicationContext();
+                Cache cache = new Cache(new File(appContext.getCacheDir(), "http_cache"), HTTP_CACHE_BYTES);
+                client = buildClient(cache);
+            }
+        }
+    }
+
+    /**
+     * Get the shared client, building an uncached one if init() was never called
+     */
+    public static OkHttpClient client() {
+        if (client == null) {
+            synchronized (NetworkCore.class) {
+                if (client == null) {
+                    Log.w(TAG, "NetworkCore used before init(); HTTP disk cache disabled");
+                    client = buildClient(null);
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Per-host request counters collected since process start
+     */
+    public static Map<String, EndpointMetrics> getMetrics() {
+        return metrics;
+    }
+
+    private static OkHttpClient buildClient(Cache cache) {
+        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(NetworkCore::logRedacted);
+        // BODY buffers every response in memory just to print it; request lines are enough
+        logging.setLevel(debuggable ? HttpLoggingInterceptor.Level.BASIC : HttpLoggingInterceptor.Level.NONE);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(16);
+        dispatcher.setMaxRequestsPerHost(4);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .addInterceptor(NetworkCore::applyTimeoutPolicy)
+                .addInterceptor(NetworkCore::recordTiming)
+                .addInterceptor(logging)
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .writeTimeout(20, TimeUnit.SECONDS);
+        if (cache != null) {
+            builder.cache(cache);
+        }
+        return builder.build();
+    }
+
+    private static void logRedacted(String message) {
+        Log.d(TAG, SECRET_QUERY_PARAM.matcher(message).replaceAll("$1REDACTED"));
+    }
+
+    private static Response applyTimeoutPolicy(Interceptor.Chain chain) throws IOException {
+        TimeoutPolicy policy = TimeoutPolicy.forUrl(chain.request().url());
+        return chain
+                .withConnectTimeout(policy.connectSeconds, TimeUnit.SECONDS)
+                .withReadTimeout(policy.readSeconds, TimeUnit.SECONDS)
+                .withWriteTimeout(policy.writeSeconds, TimeUnit.SECONDS)
+                .proceed(chain.request());
+    }
+
+    private static Response recordTiming(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        EndpointMetrics endpoint = metrics.computeIfAbsent(request.url().host(), host -> new EndpointMetrics());
+        endpoint.requests.incrementAndGet();
+
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            endpoint.totalMillis.addAndGet(elapsedMs);
+            if (response.cacheResponse() != null && response.networkResponse() == null) {
+                endpoint.cacheHits.incrementAndGet();
+            }
+            if (!response.isSuccessful()) {
+                endpoint.failures.incrementAndGet();
+            }
+            if (debuggable) {
+                Log.d(TAG, request.method() + " " + request.url().encodedPath() + " -> " +
+                           response.code() + " in " + elapsedMs + "ms");
+            }
+            return response;
+        } catch (IOException e) {
+            endpoint.totalMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            endpoint.failures.incrementAndGet();
+            throw e;
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.example.caloriechase.api;
 
-import java.util.concurrent.TimeUnit;
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import android.content.Context;
+import com.example.caloriechase.BuildConfig;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -13,24 +12,21 @@ public class RetrofitClient {
     // change to your hosted base url; include trailing slash
     private static final String BASE_URL = "http://10.0.2.2:8080/"; // android emulator to localhost
 
+    /**
+     * Enable the shared HTTP disk cache; call before the first request
+     */
+    public static void init(Context context) {
+        NetworkCore.init(context);
+    }
+
     public static Retrofit getInstance() {
         if (retrofit == null) {
             synchronized (RetrofitClient.class) {
                 if (retrofit == null) {
-                    HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-                    logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-                    OkHttpClient client = new OkHttpClient.Builder()
-                            .addInterceptor(logging)
-                            .connectTimeout(15, TimeUnit.SECONDS)
-                            .readTimeout(20, TimeUnit.SECONDS)
-                            .writeTimeout(20, TimeUnit.SECONDS)
-                            .build();
-
                     retrofit = new Retrofit.Builder()
                             .baseUrl(BASE_URL)
                             .addConverterFactory(GsonConverterFactory.create())
-                            .client(client)
+                            .client(NetworkCore.client())
                             .build();
                 }
             }
@@ -42,27 +38,47 @@ public class RetrofitClient {
         return getInstance().create(ApiService.class);
     }
     
-    // Separate Retrofit instance for Google Places API (uses full URL)
+    // API gateway in front of the Spring services (Server/Gateway); set per build in app/build.gradle.kts
+    private static final String BACKEND_BASE_URL = BuildConfig.BACKEND_BASE_URL;
+    
+    private static volatile Retrofit backendRetrofit;
+    
+    /**
+     * Backend client; requests carry the signed-in user's token from {@link AuthTokenStore}
+     */
+    public static Retrofit getBackendInstance(Context context) {
+        if (backendRetrofit == null) {
+            synchronized (RetrofitClient.class) {
+                if (backendRetrofit == null) {
+                    // Same pool and dispatcher as the other services, plus the token
+                    backendRetrofit = new Retrofit.Builder()
+                            .baseUrl(BACKEND_BASE_URL)
+                            .addConverterFactory(GsonConverterFactory.create())
+                            .client(NetworkCore.client().newBuilder()
+                                    .addInterceptor(new AuthInterceptor(AuthTokenStore.getInstance(context)))
+                                    .build())
+                            .build();
+                }
+            }
+        }
+        return backendRetrofit;
+    }
+    
+    public static BackendService backend(Context context) {
+        return getBackendInstance(context).create(BackendService.class);
+    }
+    
+    // Separate Retrofit instance for Google Places API (uses full URL), same OkHttp client
     private static volatile Retrofit googlePlacesRetrofit;
     
     public static Retrofit getGooglePlacesInstance() {
         if (googlePlacesRetrofit == null) {
             synchronized (RetrofitClient.class) {
                 if (googlePlacesRetrofit == null) {
-                    HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-                    logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-                    OkHttpClient client = new OkHttpClient.Builder()
-                            .addInterceptor(logging)
-                            .connectTimeout(15, TimeUnit.SECONDS)
-                            .readTimeout(20, TimeUnit.SECONDS)
-                            .writeTimeout(20, TimeUnit.SECONDS)
-                            .build();
-
                     googlePlacesRetrofit = new Retrofit.Builder()
                             .baseUrl("https://maps.googleapis.com/") // Base URL for Google APIs
                             .addConverterFactory(GsonConverterFactory.create())
-                            .client(client)
+                            .client(NetworkCore.client())
                             .build();
                 }
             }
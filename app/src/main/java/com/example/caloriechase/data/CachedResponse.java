@@ -0,0 +1,26 @@
+package com.example.caloriechase.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity representing a cached Places/Directions response body
+ */
+@Entity(tableName = "api_response_cache", indices = {@Index(value = "lastAccessedAt")})
+public class CachedResponse {
+    @PrimaryKey
+    @NonNull
+    public String cacheKey;
+    
+    public String body; // JSON of the response model
+    public long createdAt; // when the response was fetched from the network
+    public long lastAccessedAt; // for least-recently-used eviction
+    public int sizeBytes;
+
+    public CachedResponse() {
+        // Default constructor required by Room
+        this.cacheKey = "";
+    }
+}
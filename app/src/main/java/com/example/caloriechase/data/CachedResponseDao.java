@@ -0,0 +1,44 @@
+package com.example.caloriechase.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+/**
+ * Data Access Object for the Places/Directions response cache
+ */
+@Dao
+public interface CachedResponseDao {
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(CachedResponse response);
+    
+    @Query("SELECT * FROM api_response_cache WHERE cacheKey = :cacheKey")
+    CachedResponse get(String cacheKey);
+    
+    @Query("UPDATE api_response_cache SET lastAccessedAt = :timestamp WHERE cacheKey = :cacheKey")
+    void touch(String cacheKey, long timestamp);
+    
+    @Query("SELECT COALESCE(SUM(sizeBytes), 0) FROM api_response_cache")
+    long getTotalSizeBytes();
+    
+    @Query("SELECT COUNT(*) FROM api_response_cache")
+    int getEntryCount();
+    
+    @Query("DELETE FROM api_response_cache WHERE cacheKey IN " +
+           "(SELECT cacheKey FROM api_response_cache ORDER BY lastAccessedAt ASC LIMIT :count)")
+    void evictLeastRecentlyUsed(int count);
+    
+    @Query("DELETE FROM api_response_cache WHERE cacheKey = :cacheKey")
+    void delete(String cacheKey);
+    
+    @Query("DELETE FROM api_response_cache WHERE createdAt < :timestamp")
+    void deleteCreatedBefore(long timestamp);
+    
+    @Query("DELETE FROM api_response_cache WHERE cacheKey LIKE :prefix || '%' AND createdAt < :timestamp")
+    void deleteWithPrefixCreatedBefore(String prefix, long timestamp);
+    
+    @Query("DELETE FROM api_response_cache")
+    void clear();
+}
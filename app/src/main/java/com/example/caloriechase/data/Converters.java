@@ -1,17 +1,35 @@
 package com.example.caloriechase.data;
 
 import androidx.room.TypeConverter;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
- * Type converters for Room database to handle complex data types
+ * Type converters for Room database to handle complex data types.
+ *
+ * Collections are stored as compact big-endian binary blobs: a format byte, an int
+ * count, then fixed-width records (length-prefixed UTF-8 for strings). Decoding is a
+ * straight ByteBuffer walk with no parsing, TypeToken or reflection on row reads.
+ * Rows written before database version 9 hold the JSON the Gson based converters
+ * wrote; blobs that do not start with the format byte are read as that JSON with the
+ * streaming JsonReader, and are rewritten in binary the next time the row is saved.
  */
 public class Converters {
-    private static final Gson gson = new Gson();
+
+    // JSON text never starts with a control character, so this tells the formats apart
+    private static final byte FORMAT_BINARY = 1;
+    private static final int HEADER_BYTES = 5; // Format byte and int count
+    // latitude, longitude, accuracy, timestamp, speed, bearing
+    private static final int LOCATION_UPDATE_BYTES = 8 + 8 + 4 + 8 + 4 + 4;
+    private static final int NULL_STRING = -1;
 
     @TypeConverter
     public static String fromActivityType(ActivityType activityType) {
@@ -34,37 +52,252 @@ public class Converters {
     }
 
     @TypeConverter
-    public static String fromStringSet(Set<String> stringSet) {
-        return stringSet == null ? null : gson.toJson(stringSet);
+    public static byte[] fromStringSet(Set<String> stringSet) {
+        if (stringSet == null) return null;
+        byte[][] encoded = new byte[stringSet.size()][];
+        int size = HEADER_BYTES;
+        int i = 0;
+        for (String value : stringSet) {
+            encoded[i] = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            size += 4 + (encoded[i] == null ? 0 : encoded[i].length);
+            i++;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(FORMAT_BINARY).putInt(encoded.length);
+        for (byte[] value : encoded) {
+            if (value == null) {
+                out.putInt(NULL_STRING);
+            } else {
+                out.putInt(value.length).put(value);
+            }
+        }
+        return out.array();
     }
 
     @TypeConverter
-    public static Set<String> toStringSet(String stringSetString) {
-        if (stringSetString == null) return null;
-        Type setType = new TypeToken<Set<String>>(){}.getType();
-        return gson.fromJson(stringSetString, setType);
+    public static Set<String> toStringSet(byte[] stringSetBytes) {
+        if (stringSetBytes == null) return null;
+        if (!isBinary(stringSetBytes)) return readJsonStringSet(legacyJson(stringSetBytes));
+        try {
+            ByteBuffer in = binaryBody(stringSetBytes);
+            int count = in.getInt();
+            Set<String> result = new LinkedHashSet<>(Math.max(16, count * 2));
+            for (int i = 0; i < count; i++) {
+                int length = in.getInt();
+                if (length == NULL_STRING) {
+                    result.add(null);
+                } else {
+                    result.add(new String(stringSetBytes, in.position(), length, StandardCharsets.UTF_8));
+                    in.position(in.position() + length);
+                }
+            }
+            return result;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed string set blob", e);
+        }
     }
 
+    /**
+     * Null entries carry no fix and are not stored
+     */
     @TypeConverter
-    public static String fromLocationUpdateList(List<LocationUpdate> locationUpdates) {
-        return locationUpdates == null ? null : gson.toJson(locationUpdates);
+    public static byte[] fromLocationUpdateList(List<LocationUpdate> locationUpdates) {
+        if (locationUpdates == null) return null;
+        int count = 0;
+        for (int i = 0, n = locationUpdates.size(); i < n; i++) {
+            if (locationUpdates.get(i) != null) count++;
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + count * LOCATION_UPDATE_BYTES);
+        out.put(FORMAT_BINARY).putInt(count);
+        for (int i = 0, n = locationUpdates.size(); i < n; i++) {
+            LocationUpdate update = locationUpdates.get(i);
+            if (update == null) continue;
+            out.putDouble(update.latitude)
+               .putDouble(update.longitude)
+               .putFloat(update.accuracy)
+               .putLong(update.timestamp)
+               .putFloat(update.speed)
+               .putFloat(update.bearing);
+        }
+        return out.array();
     }
 
     @TypeConverter
-    public static List<LocationUpdate> toLocationUpdateList(String locationUpdatesString) {
-        if (locationUpdatesString == null) return null;
-        Type listType = new TypeToken<List<LocationUpdate>>(){}.getType();
-        return gson.fromJson(locationUpdatesString, listType);
+    public static List<LocationUpdate> toLocationUpdateList(byte[] locationUpdatesBytes) {
+        if (locationUpdatesBytes == null) return null;
+        if (!isBinary(locationUpdatesBytes)) return readJsonLocationUpdates(legacyJson(locationUpdatesBytes));
+        try {
+            ByteBuffer in = binaryBody(locationUpdatesBytes);
+            int count = in.getInt();
+            if (count < 0 || (long) count * LOCATION_UPDATE_BYTES != in.remaining()) {
+                throw new IllegalArgumentException("Expected " + count + " fixes, got " + in.remaining() + " bytes");
+            }
+            List<LocationUpdate> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                LocationUpdate update = new LocationUpdate();
+                update.latitude = in.getDouble();
+                update.longitude = in.getDouble();
+                update.accuracy = in.getFloat();
+                update.timestamp = in.getLong();
+                update.speed = in.getFloat();
+                update.bearing = in.getFloat();
+                result.add(update);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed location update blob", e);
+        }
     }
 
     @TypeConverter
-    public static String fromDoubleArray(double[] doubleArray) {
-        return doubleArray == null ? null : gson.toJson(doubleArray);
+    public static byte[] fromDoubleArray(double[] doubleArray) {
+        if (doubleArray == null) return null;
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + doubleArray.length * 8);
+        out.put(FORMAT_BINARY).putInt(doubleArray.length);
+        out.asDoubleBuffer().put(doubleArray);
+        return out.array();
     }
 
     @TypeConverter
-    public static double[] toDoubleArray(String doubleArrayString) {
-        if (doubleArrayString == null) return null;
-        return gson.fromJson(doubleArrayString, double[].class);
+    public static double[] toDoubleArray(byte[] doubleArrayBytes) {
+        if (doubleArrayBytes == null) return null;
+        try {
+            if (!isBinary(doubleArrayBytes)) {
+                // No table has ever stored a double[], so there is no JSON form to fall back to
+                throw new IllegalArgumentException("Missing format byte");
+            }
+            ByteBuffer in = binaryBody(doubleArrayBytes);
+            int count = in.getInt();
+            if (count < 0 || (long) count * 8 != in.remaining()) {
+                throw new IllegalArgumentException("Expected " + count + " doubles, got " + in.remaining() + " bytes");
+            }
+            double[] result = new double[count];
+            in.asDoubleBuffer().get(result);
+            return result;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed double array blob", e);
+        }
+    }
+
+    private static boolean isBinary(byte[] bytes) {
+        return bytes.length >= HEADER_BYTES && bytes[0] == FORMAT_BINARY;
+    }
+
+    private static ByteBuffer binaryBody(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        in.get(); // Format byte
+        return in;
+    }
+
+    private static String legacyJson(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> readJsonStringSet(String stringSetString) {
+        try (JsonReader reader = newReader(stringSetString)) {
+            if (reader.peek() == JsonToken.NULL) return null;
+            Set<String> result = new LinkedHashSet<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    result.add(null);
+                } else {
+                    result.add(reader.nextString());
+                }
+            }
+            reader.endArray();
+            return result;
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed string set: " + stringSetString, e);
+        }
+    }
+
+    private static List<LocationUpdate> readJsonLocationUpdates(String locationUpdatesString) {
+        try (JsonReader reader = newReader(locationUpdatesString)) {
+            if (reader.peek() == JsonToken.NULL) return null;
+            List<LocationUpdate> result = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    result.add(null);
+                } else {
+                    result.add(readLocationUpdate(reader));
+                }
+            }
+            reader.endArray();
+            return result;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed location update list", e);
+        }
+    }
+
+    private static LocationUpdate readLocationUpdate(JsonReader reader) throws IOException {
+        LocationUpdate update = new LocationUpdate();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                setNaN(update, name);
+                continue;
+            }
+            switch (name) {
+                case "latitude":
+                    update.latitude = reader.nextDouble();
+                    break;
+                case "longitude":
+                    update.longitude = reader.nextDouble();
+                    break;
+                case "accuracy":
+                    update.accuracy = (float) reader.nextDouble();
+                    break;
+                case "timestamp":
+                    update.timestamp = reader.nextLong();
+                    break;
+                case "speed":
+                    update.speed = (float) reader.nextDouble();
+                    break;
+                case "bearing":
+                    update.bearing = (float) reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return update;
+    }
+
+    // A null coordinate or measurement was a NaN or infinity when written
+    private static void setNaN(LocationUpdate update, String name) {
+        switch (name) {
+            case "latitude":
+                update.latitude = Double.NaN;
+                break;
+            case "longitude":
+                update.longitude = Double.NaN;
+                break;
+            case "accuracy":
+                update.accuracy = Float.NaN;
+                break;
+            case "speed":
+                update.speed = Float.NaN;
+                break;
+            case "bearing":
+                update.bearing = Float.NaN;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static JsonReader newReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        // NaN/Infinity were never produced by Gson, but tolerate them on read
+        reader.setLenient(true);
+        return reader;
     }
-}
\ No newline at end of file
+}
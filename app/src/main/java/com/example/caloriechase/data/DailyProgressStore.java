@@ -0,0 +1,473 @@
+package com.example.caloriechase.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-coalescing store for today's step/distance/calorie/treasure totals.
+ *
+ * Updates only touch in-memory atomic counters, so step-sensor ticks are lock-free
+ * and can never interleave into a lost read-modify-write. A background task appends
+ * a small fixed-size snapshot record to {@code daily_progress.log} a few seconds after
+ * the first change, and commits the latest snapshot per day into Room
+ * {@link DailyStats} about once a minute (or on {@link #flush()}), after which the
+ * log is compacted to a single record. Records hold absolute totals, so replaying
+ * the log after a crash is idempotent.
+ */
+public class DailyProgressStore {
+
+    private static final String TAG = "DailyProgressStore";
+
+    private static final String LOG_FILE = "daily_progress.log";
+    private static final long LOG_INTERVAL_MS = 5_000;
+    private static final long COMMIT_INTERVAL_MS = 60_000;
+
+    private static volatile DailyProgressStore instance;
+
+    private final DailyStatsDao dao;
+    private final File logFile;
+    private final ScheduledExecutorService executor;
+    private final Handler mainHandler;
+
+    // Today's totals; distance is kept in millimeters so it can be an atomic long
+    private final AtomicInteger steps = new AtomicInteger();
+    private final AtomicLong distanceMillimeters = new AtomicLong();
+    private final AtomicInteger calories = new AtomicInteger();
+    private final AtomicInteger treasures = new AtomicInteger();
+
+    // Last TYPE_STEP_COUNTER value seen today (steps since boot), -1 until known
+    private final AtomicLong stepCounterReference = new AtomicLong(-1);
+    private final AtomicLong firstCounterBeforeLoad = new AtomicLong(-1);
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean logScheduled = new AtomicBoolean();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final List<Runnable> loadWaiters = new ArrayList<>();
+
+    private final Object dayLock = new Object();
+    private volatile int dayKey;
+    private volatile long dayEndMillis;
+    private volatile boolean loaded;
+    private volatile long lastUpdateMillis;
+    private long lastCommitMillis;
+
+    /**
+     * Immutable view of one day's totals
+     */
+    public static class Snapshot {
+        public final int steps;
+        public final float distanceKm;
+        public final int calories;
+        public final int treasures;
+        public final long lastUpdateMillis;
+
+        Snapshot(int steps, float distanceKm, int calories, int treasures, long lastUpdateMillis) {
+            this.steps = steps;
+            this.distanceKm = distanceKm;
+            this.calories = calories;
+            this.treasures = treasures;
+            this.lastUpdateMillis = lastUpdateMillis;
+        }
+    }
+
+    /**
+     * One log record: absolute totals for a day plus the step counter reference
+     */
+    private static class Record {
+        static final int BYTES = 32;
+
+        final int dayKey;
+        final int steps;
+        final long distanceMillimeters;
+        final int calories;
+        final int treasures;
+        final long stepCounterReference;
+
+        Record(int dayKey, int steps, long distanceMillimeters, int calories, int treasures,
+               long stepCounterReference) {
+            this.dayKey = dayKey;
+            this.steps = steps;
+            this.distanceMillimeters = distanceMillimeters;
+            this.calories = calories;
+            this.treasures = treasures;
+            this.stepCounterReference = stepCounterReference;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(dayKey);
+            out.writeInt(steps);
+            out.writeLong(distanceMillimeters);
+            out.writeInt(calories);
+            out.writeInt(treasures);
+            out.writeLong(stepCounterReference);
+        }
+
+        static Record readFrom(DataInputStream in) throws IOException {
+            return new Record(in.readInt(), in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readLong());
+        }
+    }
+
+    private DailyProgressStore(Context context) {
+        this.dao = TreasureHuntDatabase.getInstance(context).dailyStatsDao();
+        this.logFile = new File(context.getFilesDir(), LOG_FILE);
+        this.executor = Executors.newSingleThreadScheduledExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+
+        startDay(System.currentTimeMillis());
+        executor.execute(this::load);
+    }
+
+    /**
+     * Get singleton instance of DailyProgressStore
+     */
+    public static DailyProgressStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DailyProgressStore.class) {
+                if (instance == null) {
+                    instance = new DailyProgressStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ---- Updates (lock-free) ----
+
+    /**
+     * Add detected steps to today's total
+     */
+    public void addSteps(int count) {
+        if (count <= 0) return;
+        checkDay();
+        steps.addAndGet(count);
+        markDirty();
+    }
+
+    /**
+     * Feed a TYPE_STEP_COUNTER reading (steps since boot). The delta since the previous
+     * reading today - including readings from earlier app runs today - is added to today's
+     * steps. The first reading of a day only sets the reference, since steps counted
+     * since a reading on an earlier day cannot be split between the days.
+     */
+    public void recordStepCounter(long stepsSinceBoot) {
+        checkDay(); // a rollover drops yesterday's reference before it is used
+        long previous = stepCounterReference.getAndSet(stepsSinceBoot);
+        if (previous < 0) {
+            if (!loaded) {
+                // The persisted reference isn't known yet; settle the gap once loading finishes
+                firstCounterBeforeLoad.compareAndSet(-1, stepsSinceBoot);
+            }
+            markDirty();
+            return;
+        }
+        // The counter restarts from zero after a reboot
+        long delta = stepsSinceBoot >= previous ? stepsSinceBoot - previous : stepsSinceBoot;
+        addSteps((int) Math.min(Integer.MAX_VALUE, delta));
+    }
+
+    /**
+     * Add a finished session's totals. Session steps are only added on devices without a
+     * step counter, since the counter already sees every step taken during the session.
+     */
+    public void addSession(int sessionSteps, float sessionDistanceKm, int sessionCalories, int sessionTreasures) {
+        checkDay();
+        if (stepCounterReference.get() < 0 && sessionSteps > 0) {
+            steps.addAndGet(sessionSteps);
+        }
+        distanceMillimeters.addAndGet(Math.round(sessionDistanceKm * 1_000_000.0));
+        calories.addAndGet(sessionCalories);
+        treasures.addAndGet(sessionTreasures);
+        markDirty();
+    }
+
+    /**
+     * Overwrite today's totals
+     */
+    public void setToday(int todaySteps, float todayDistanceKm, int todayCalories, int todayTreasures) {
+        checkDay();
+        steps.set(todaySteps);
+        distanceMillimeters.set(Math.round(todayDistanceKm * 1_000_000.0));
+        calories.set(todayCalories);
+        treasures.set(todayTreasures);
+        markDirty();
+    }
+
+    // ---- Reads ----
+
+    /**
+     * Today's totals as currently known in memory
+     */
+    public Snapshot getToday() {
+        checkDay();
+        return new Snapshot(steps.get(), distanceMillimeters.get() / 1_000_000f, calories.get(), treasures.get(),
+                            lastUpdateMillis);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Run {@code action} on the main thread once persisted totals have been loaded
+     */
+    public void whenLoaded(Runnable action) {
+        synchronized (loadWaiters) {
+            if (!loaded) {
+                loadWaiters.add(action);
+                return;
+            }
+        }
+        mainHandler.post(action);
+    }
+
+    /**
+     * Push everything to Room now, e.g. when the app goes to the background
+     */
+    public void flush() {
+        executor.execute(() -> {
+            appendIfDirty();
+            commit();
+        });
+    }
+
+    // ---- Day handling ----
+
+    private void checkDay() {
+        if (System.currentTimeMillis() >= dayEndMillis) {
+            rollOver();
+        }
+    }
+
+    private void rollOver() {
+        synchronized (dayLock) {
+            long now = System.currentTimeMillis();
+            if (now < dayEndMillis) return;
+
+            // Seal yesterday's totals in the log and start from zero in one step per counter,
+            // so an update racing the rollover lands in exactly one of the two days
+            Record sealed = new Record(dayKey, steps.getAndSet(0), distanceMillimeters.getAndSet(0),
+                                       calories.getAndSet(0), treasures.getAndSet(0),
+                                       stepCounterReference.getAndSet(-1));
+            startDay(now);
+            executor.execute(() -> {
+                append(sealed);
+                commit();
+            });
+        }
+    }
+
+    private void startDay(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        dayKey = dayKeyOf(calendar);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_YEAR, 1);
+        dayEndMillis = calendar.getTimeInMillis();
+    }
+
+    private static int dayKeyOf(Calendar calendar) {
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 +
+               calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * Room stores dates as yyyy-MM-dd
+     */
+    private static String dateOf(int dayKey) {
+        return String.format(Locale.US, "%04d-%02d-%02d", dayKey / 10000, (dayKey / 100) % 100, dayKey % 100);
+    }
+
+    private Record snapshotRecord() {
+        return new Record(dayKey, steps.get(), distanceMillimeters.get(), calories.get(), treasures.get(),
+                          stepCounterReference.get());
+    }
+
+    // ---- Background persistence (executor thread only) ----
+
+    private void markDirty() {
+        lastUpdateMillis = System.currentTimeMillis();
+        dirty.set(true);
+        if (logScheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                logScheduled.set(false);
+                appendIfDirty();
+                scheduleCommit();
+            }, LOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduleCommit() {
+        long due = Math.max(0, lastCommitMillis + COMMIT_INTERVAL_MS - System.currentTimeMillis());
+        if (commitScheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                commitScheduled.set(false);
+                commit();
+            }, due, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void appendIfDirty() {
+        if (loaded && dirty.getAndSet(false)) {
+            append(snapshotRecord());
+        }
+    }
+
+    private void append(Record record) {
+        try (FileOutputStream file = new FileOutputStream(logFile, true);
+             DataOutputStream out = new DataOutputStream(file)) {
+            record.writeTo(out);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to append progress record", e);
+        }
+    }
+
+    /**
+     * Write the newest record per day to Room and compact the log to today's record
+     */
+    private void commit() {
+        if (!loaded) return;
+        lastCommitMillis = System.currentTimeMillis();
+
+        Map<Integer, Record> latest = readLog();
+        if (latest.isEmpty()) return;
+        try {
+            for (Record record : latest.values()) {
+                DailyStats stats = new DailyStats(dateOf(record.dayKey), record.steps,
+                                                  record.distanceMillimeters / 1_000_000f, record.calories);
+                stats.setTreasures(record.treasures);
+                dao.upsertTotals(stats);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to commit daily progress; log kept for replay", e);
+            return;
+        }
+
+        // Keep one record so the step counter reference survives restarts
+        File compacted = new File(logFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(compacted);
+             DataOutputStream out = new DataOutputStream(file)) {
+            snapshotRecord().writeTo(out);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to compact progress log", e);
+            return;
+        }
+        if (!compacted.renameTo(logFile)) {
+            Log.w(TAG, "Failed to replace progress log");
+        }
+    }
+
+    /**
+     * Latest record per day, in log order; a torn trailing record is ignored
+     */
+    private Map<Integer, Record> readLog() {
+        Map<Integer, Record> latest = new LinkedHashMap<>();
+        if (!logFile.exists()) return latest;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            long complete = logFile.length() / Record.BYTES;
+            for (long i = 0; i < complete; i++) {
+                Record record = Record.readFrom(in);
+                latest.remove(record.dayKey);
+                latest.put(record.dayKey, record);
+            }
+        } catch (EOFException e) {
+            // Partial write at the tail; everything before it is intact
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read progress log", e);
+        }
+        return latest;
+    }
+
+    private void load() {
+        Map<Integer, Record> logged = readLog();
+        Record today = logged.get(dayKey);
+
+        int baseSteps = 0, baseCalories = 0, baseTreasures = 0;
+        long baseDistance = 0;
+        if (today != null) {
+            // The log is newer than Room
+            baseSteps = today.steps;
+            baseDistance = today.distanceMillimeters;
+            baseCalories = today.calories;
+            baseTreasures = today.treasures;
+        } else {
+            try {
+                DailyStats stored = dao.getStatsByDate(dateOf(dayKey));
+                if (stored != null) {
+                    baseSteps = stored.getSteps();
+                    baseDistance = Math.round(stored.getDistance() * 1_000_000.0);
+                    baseCalories = stored.getCalories();
+                    baseTreasures = stored.getTreasures();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to load today's stats", e);
+            }
+        }
+
+        // Updates that arrived while loading were counted from zero; add the base under them
+        steps.addAndGet(baseSteps);
+        distanceMillimeters.addAndGet(baseDistance);
+        calories.addAndGet(baseCalories);
+        treasures.addAndGet(baseTreasures);
+
+        // Steps taken today while the app wasn't listening: persisted counter vs first reading
+        // this run. A reference from an earlier day is dropped; the first reading re-seeds it.
+        long persistedReference = today != null ? today.stepCounterReference : -1;
+        long firstReading = firstCounterBeforeLoad.get();
+        if (persistedReference >= 0) {
+            if (firstReading >= 0) {
+                long gap = firstReading >= persistedReference ? firstReading - persistedReference : firstReading;
+                steps.addAndGet((int) Math.min(Integer.MAX_VALUE, gap));
+            } else {
+                stepCounterReference.compareAndSet(-1, persistedReference);
+            }
+        }
+
+        List<Runnable> waiters;
+        synchronized (loadWaiters) {
+            loaded = true;
+            waiters = new ArrayList<>(loadWaiters);
+            loadWaiters.clear();
+        }
+        for (Runnable waiter : waiters) {
+            mainHandler.post(waiter);
+        }
+        Log.d(TAG, "Loaded daily progress: " + steps.get() + " steps");
+
+        // Earlier days may still be sitting in the log after a crash
+        if (!logged.isEmpty()) {
+            commit();
+        }
+        if (dirty.get()) {
+            markDirty();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.caloriechase.data;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
@@ -19,6 +20,8 @@ public class DailyStats {
     private int steps;
     private float distance; // in kilometers
     private int calories;
+    @ColumnInfo(defaultValue = "0")
+    private int treasures;
     
     public DailyStats(String date, int steps, float distance, int calories) {
         this.date = date;
@@ -67,4 +70,12 @@ public class DailyStats {
     public void setCalories(int calories) {
         this.calories = calories;
     }
+    
+    public int getTreasures() {
+        return treasures;
+    }
+    
+    public void setTreasures(int treasures) {
+        this.treasures = treasures;
+    }
 }
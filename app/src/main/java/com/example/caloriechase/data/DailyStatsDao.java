@@ -4,6 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import java.util.List;
@@ -20,6 +21,23 @@ public interface DailyStatsDao {
     @Update
     void update(DailyStats dailyStats);
     
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertIfAbsent(DailyStats dailyStats);
+    
+    @Query("UPDATE daily_stats SET steps = :steps, distance = :distance, calories = :calories, " +
+           "treasures = :treasures WHERE date = :date")
+    int updateTotals(String date, int steps, float distance, int calories, int treasures);
+    
+    /**
+     * Write a day's totals without replacing the row (keeps its id stable)
+     */
+    @Transaction
+    default void upsertTotals(DailyStats dailyStats) {
+        insertIfAbsent(dailyStats);
+        updateTotals(dailyStats.getDate(), dailyStats.getSteps(), dailyStats.getDistance(),
+                     dailyStats.getCalories(), dailyStats.getTreasures());
+    }
+    
     @Query("SELECT * FROM daily_stats WHERE date = :date LIMIT 1")
     DailyStats getStatsByDate(String date);
     
@@ -0,0 +1,30 @@
+package com.example.caloriechase.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import java.util.List;
+
+/**
+ * Data Access Object for the session upload outbox
+ */
+@Dao
+public interface OutboxDao {
+    
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insert(OutboxEntry entry);
+    
+    @Query("SELECT * FROM sync_outbox WHERE nextAttemptAt <= :now ORDER BY createdAt ASC LIMIT :limit")
+    List<OutboxEntry> getDue(long now, int limit);
+    
+    @Query("SELECT COUNT(*) FROM sync_outbox")
+    int getPendingCount();
+    
+    @Query("DELETE FROM sync_outbox WHERE sessionId IN (:sessionIds)")
+    void delete(List<String> sessionIds);
+    
+    @Query("UPDATE sync_outbox SET attempts = attempts + 1, lastError = :error, nextAttemptAt = :nextAttemptAt " +
+           "WHERE sessionId IN (:sessionIds)")
+    void markFailed(List<String> sessionIds, String error, long nextAttemptAt);
+}
@@ -0,0 +1,34 @@
+package com.example.caloriechase.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity representing a finished session waiting to be uploaded to the backend
+ */
+@Entity(tableName = "sync_outbox", indices = {@Index(value = "nextAttemptAt")})
+public class OutboxEntry {
+    @PrimaryKey
+    @NonNull
+    public String sessionId; // also the idempotency key sent to the server
+    
+    public long createdAt;
+    public long nextAttemptAt; // entries are skipped until this time
+    public int attempts;
+    public String lastError;
+
+    public OutboxEntry() {
+        // Default constructor required by Room
+        this.sessionId = "";
+    }
+
+    public static OutboxEntry forSession(String sessionId) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.sessionId = sessionId;
+        entry.createdAt = System.currentTimeMillis();
+        entry.nextAttemptAt = entry.createdAt;
+        return entry;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.caloriechase.data;
+
+import com.example.caloriechase.utils.PolylineDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finalization stage that turns the raw GPS track of a session into what is kept
+ * with the session record.
+ *
+ * Fixes that are inaccurate or imply an impossible speed are dropped; what is left
+ * is kept as the full track, with timestamps. The distance is measured along a
+ * Douglas-Peucker simplification of each recording segment with a small error
+ * bound, so GPS zigzag does not inflate it, and never across a pause. A coarser,
+ * growing bound gives the capped encoded polyline preview that history lists and
+ * summary maps draw by default.
+ */
+public class RouteCompressor {
+
+    static final float MAX_ACCURACY_METERS = 30f;
+    static final float MAX_SPEED_MPS = 12f; // Faster than any run; a jump in the fixes
+    static final double DISTANCE_TOLERANCE_METERS = 5.0; // About GPS noise; smaller keeps zigzag that inflates distance
+    static final double PREVIEW_TOLERANCE_METERS = 10.0;
+    static final int PREVIEW_MAX_POINTS = 250;
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    /**
+     * Output of the stage
+     */
+    public static class Result {
+        public final List<LocationUpdate> track; // Cleaned but not simplified, with timestamps
+        public final String preview; // Encoded polyline, null when there is no usable track
+        public final float distanceKm; // Along the cleaned track, excluding pauses
+        public final int rawPoints;
+
+        Result(List<LocationUpdate> track, String preview, float distanceKm, int rawPoints) {
+            this.track = track;
+            this.preview = preview;
+            this.distanceKm = distanceKm;
+            this.rawPoints = rawPoints;
+        }
+    }
+
+    public static Result compress(List<TrackPoint> raw) {
+        int rawCount = raw != null ? raw.size() : 0;
+
+        // Drop inaccurate fixes and jumps relative to the last kept fix of the same segment;
+        // the gap over a pause is not movement and says nothing about the fix after it
+        List<TrackPoint> clean = new ArrayList<>(rawCount);
+        TrackPoint last = null;
+        for (int i = 0; i < rawCount; i++) {
+            TrackPoint point = raw.get(i);
+            if (point.accuracy > MAX_ACCURACY_METERS) {
+                continue;
+            }
+            if (last != null) {
+                long elapsed = point.timestamp - last.timestamp;
+                if (elapsed <= 0) {
+                    continue;
+                }
+                if (point.segmentStart == last.segmentStart) {
+                    double meters = distanceMeters(last.latitude, last.longitude, point.latitude, point.longitude);
+                    if (meters / (elapsed / 1000.0) > MAX_SPEED_MPS) {
+                        continue;
+                    }
+                }
+            }
+            clean.add(point);
+            last = point;
+        }
+
+        int n = clean.size();
+        if (n < 2) {
+            return new Result(new ArrayList<>(), null, 0f, rawCount);
+        }
+
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        List<LocationUpdate> track = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TrackPoint point = clean.get(i);
+            latitudes[i] = point.latitude;
+            longitudes[i] = point.longitude;
+            track.add(new LocationUpdate(point.latitude, point.longitude, point.accuracy,
+                                         point.timestamp, point.speed, 0f));
+        }
+
+        // Distance: each segment simplified on its own, nothing added between segments
+        double distance = 0;
+        boolean[] keep = new boolean[n];
+        int segmentFrom = 0;
+        for (int i = 1; i <= n; i++) {
+            if (i < n && clean.get(i).segmentStart == clean.get(segmentFrom).segmentStart) {
+                continue;
+            }
+            distance += segmentDistance(latitudes, longitudes, segmentFrom, i, keep);
+            segmentFrom = i;
+        }
+
+        // Preview: coarser bound, doubled until the polyline is small enough
+        PolylineDecoder.PointBuffer preview = new PolylineDecoder.PointBuffer(n);
+        double tolerance = PREVIEW_TOLERANCE_METERS;
+        PolylineDecoder.simplify(latitudes, longitudes, tolerance, preview);
+        while (preview.size() > PREVIEW_MAX_POINTS) {
+            tolerance *= 2;
+            PolylineDecoder.simplify(latitudes, longitudes, tolerance, preview);
+        }
+
+        return new Result(track, PolylineDecoder.encode(preview), (float) (distance / 1000.0), rawCount);
+    }
+
+    /**
+     * Length of points {@code [from, to)} after simplification with the distance tolerance
+     */
+    private static double segmentDistance(double[] latitudes, double[] longitudes, int from, int to,
+                                          boolean[] keep) {
+        int count = to - from;
+        if (count < 2) {
+            return 0;
+        }
+        double[] segmentLatitudes = Arrays.copyOfRange(latitudes, from, to);
+        double[] segmentLongitudes = Arrays.copyOfRange(longitudes, from, to);
+        PolylineDecoder.simplifyIndices(segmentLatitudes, segmentLongitudes, count, DISTANCE_TOLERANCE_METERS, keep);
+        double distance = 0;
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            if (previous >= 0) {
+                distance += distanceMeters(segmentLatitudes[previous], segmentLongitudes[previous],
+                                           segmentLatitudes[i], segmentLongitudes[i]);
+            }
+            previous = i;
+        }
+        return distance;
+    }
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -5,6 +5,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomWarnings;
 import androidx.room.Update;
 import java.util.List;
 
@@ -71,6 +72,23 @@ public interface SessionDao {
     @Query("SELECT * FROM session_records WHERE sessionId = :sessionId")
     SessionRecord getSessionRecord(String sessionId);
     
+    // Every column except the full route, so the GPS track is not decoded; routePoints is left empty
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT sessionId, startLatitude, startLongitude, distanceGoal, activityType, createdTimestamp, " +
+           "startTimestamp, currentSteps, currentDistance, caloriesBurned, collectedTreasures, pausedDuration, " +
+           "endTimestamp, totalDuration, averagePace, totalTreasures, routePreview FROM session_records " +
+           "WHERE sessionId = :sessionId")
+    SessionRecord getSessionStats(String sessionId);
+    
+    // An empty route is a 5 byte blob, or "[]" in rows from before version 9
+    @Query("SELECT (routePoints IS NOT NULL AND length(routePoints) > 5) OR routePreview IS NOT NULL " +
+           "FROM session_records WHERE sessionId = :sessionId")
+    boolean hasSessionRoute(String sessionId);
+    
+    // Raw blob; decode with Converters.toLocationUpdateList
+    @Query("SELECT routePoints FROM session_records WHERE sessionId = :sessionId")
+    byte[] getSessionRouteBlob(String sessionId);
+    
     @Query("SELECT * FROM session_records ORDER BY endTimestamp DESC")
     List<SessionRecord> getAllSessionRecords();
     
@@ -2,7 +2,14 @@ package com.example.caloriechase.data;
 
 import android.content.Context;
 import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+import com.example.caloriechase.sync.SessionSync;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -11,12 +18,39 @@ import java.util.concurrent.Executors;
  */
 public class SessionManager {
     
+    private static final String TAG = "SessionManager";
+    
     private static SessionManager instance;
+    private final Context context;
     private final TreasureHuntDatabase database;
     private final SessionDao sessionDao;
     private final TreasureDao treasureDao;
     private final ExecutorService executorService;
     
+    // Summaries of recently finished sessions, so the summary screen opens without a query
+    private static final int SUMMARY_CACHE_SIZE = 8;
+    private final LruCache<String, SessionSummary> summaryCache = new LruCache<>(SUMMARY_CACHE_SIZE);
+    
+    // Raw track fixes are buffered and written in batches instead of one insert per fix
+    private static final int TRACK_FLUSH_POINTS = 20;
+    private static final long TRACK_FLUSH_INTERVAL_MS = 30000;
+    private final List<TrackPoint> pendingTrackPoints = new ArrayList<>();
+    private final Set<String> finalizingSessionIds = new HashSet<>(); // fixes for these are dropped
+    private long lastTrackFlush = 0;
+    
+    /**
+     * Stats of a finished session without its route
+     */
+    public static class SessionSummary {
+        public final SessionRecord stats; // routePoints is always empty, see getSessionRoute
+        public final boolean hasRoute;
+        
+        public SessionSummary(SessionRecord stats, boolean hasRoute) {
+            this.stats = stats;
+            this.hasRoute = hasRoute;
+        }
+    }
+    
     // Callback interfaces
     public interface SessionCallback<T> {
         void onSuccess(T result);
@@ -29,6 +63,7 @@ public class SessionManager {
     }
     
     private SessionManager(Context context) {
+        this.context = context;
         this.database = TreasureHuntDatabase.getInstance(context);
         this.sessionDao = database.sessionDao();
         this.treasureDao = database.treasureDao();
@@ -248,24 +283,128 @@ public class SessionManager {
                 // Create session record
                 SessionRecord record = SessionRecord.fromActiveSession(activeSession, totalTreasures);
                 
+                // Compress the raw track into the stored route and its preview
+                synchronized (pendingTrackPoints) {
+                    finalizingSessionIds.add(sessionId);
+                }
+                flushTrackPoints();
+                applyCompressedRoute(record, database.trackPointDao().getTrackPoints(sessionId));
+                
                 // Validate the record before persisting
                 if (record.sessionId == null || record.sessionId.isEmpty()) {
                     callback.onError(new IllegalStateException("Generated session record is invalid"));
                     return;
                 }
                 
-                sessionDao.insertSessionRecord(record);
+                // Record and its upload entry are written together so no finished session is missed
+                database.runInTransaction(() -> {
+                    sessionDao.insertSessionRecord(record);
+                    database.outboxDao().insert(OutboxEntry.forSession(record.sessionId));
+                    
+                    // Clean up active session and associated treasures
+                    sessionDao.deleteActiveSession(activeSession);
+                    database.trackPointDao().deleteTrackPoints(record.sessionId);
+                });
+                
+                SessionSync.schedule(context);
                 
-                // Clean up active session and associated treasures
-                sessionDao.deleteActiveSession(activeSession);
+                // The summary screen is opened next; have its data ready
+                summaryCache.put(record.sessionId, new SessionSummary(record.withoutRoute(),
+                        record.routePreview != null
+                                || (record.routePoints != null && !record.routePoints.isEmpty())));
                 
                 callback.onSuccess(record);
             } catch (Exception e) {
                 callback.onError(e);
+            } finally {
+                // From here on late fixes are dropped at flush time, as the active session is gone
+                synchronized (pendingTrackPoints) {
+                    finalizingSessionIds.remove(sessionId);
+                }
             }
         });
     }
     
+    /**
+     * Buffer a raw GPS fix of a running session; it is written with the next batch
+     */
+    public void recordTrackPoint(String sessionId, double latitude, double longitude,
+                                 float accuracy, float speed, long timestamp, long segmentStart) {
+        if (sessionId == null) {
+            return;
+        }
+        boolean flush;
+        synchronized (pendingTrackPoints) {
+            // Late fixes of a session being compressed would never be cleaned up
+            if (finalizingSessionIds.contains(sessionId)) {
+                return;
+            }
+            pendingTrackPoints.add(new TrackPoint(sessionId, latitude, longitude, accuracy, speed,
+                                                  timestamp, segmentStart));
+            long now = SystemClock.elapsedRealtime();
+            flush = pendingTrackPoints.size() >= TRACK_FLUSH_POINTS
+                    || now - lastTrackFlush >= TRACK_FLUSH_INTERVAL_MS;
+            if (flush) {
+                lastTrackFlush = now;
+            }
+        }
+        if (flush) {
+            executorService.execute(this::flushTrackPoints);
+        }
+    }
+    
+    /**
+     * Write buffered fixes; runs on the executor
+     */
+    private void flushTrackPoints() {
+        List<TrackPoint> batch;
+        synchronized (pendingTrackPoints) {
+            if (pendingTrackPoints.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pendingTrackPoints);
+            pendingTrackPoints.clear();
+        }
+        try {
+            // Fixes arriving after their session was finalized would never be cleaned up
+            Set<String> running = new HashSet<>();
+            Set<String> finished = new HashSet<>();
+            List<TrackPoint> live = new ArrayList<>(batch.size());
+            for (TrackPoint point : batch) {
+                if (!running.contains(point.sessionId) && !finished.contains(point.sessionId)) {
+                    (sessionDao.getActiveSession(point.sessionId) != null ? running : finished).add(point.sessionId);
+                }
+                if (running.contains(point.sessionId)) {
+                    live.add(point);
+                }
+            }
+            database.trackPointDao().insertAll(live);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to store " + batch.size() + " track points", e);
+        }
+    }
+    
+    /**
+     * Replace the record's route with the cleaned track; the distance measured along it
+     * replaces the live estimate unless the track has large gaps
+     */
+    private void applyCompressedRoute(SessionRecord record, List<TrackPoint> rawTrack) {
+        RouteCompressor.Result route = RouteCompressor.compress(rawTrack);
+        if (route.track.isEmpty()) {
+            return;
+        }
+        record.routePoints = route.track;
+        record.routePreview = route.preview;
+        
+        // A track far shorter than the live distance is missing fixes (e.g. GPS lost indoors)
+        if (route.distanceKm >= record.currentDistance * 0.5f) {
+            record.currentDistance = route.distanceKm;
+            record.averagePace = record.calculateAveragePace();
+        }
+        Log.d(TAG, "Route cleaned from " + route.rawPoints + " to " + route.track.size()
+                + " points, preview " + route.preview.length() + " chars");
+    }
+    
     /**
      * Mark a treasure as collected
      */
@@ -361,6 +500,45 @@ public class SessionManager {
         });
     }
     
+    /**
+     * Get the stats of one finished session by id, without decoding its route
+     */
+    public void getSessionSummary(String sessionId, SessionCallback<SessionSummary> callback) {
+        SessionSummary cached = summaryCache.get(sessionId);
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+        executorService.execute(() -> {
+            try {
+                SessionRecord stats = sessionDao.getSessionStats(sessionId);
+                if (stats == null) {
+                    callback.onError(new IllegalArgumentException("Session record not found: " + sessionId));
+                    return;
+                }
+                SessionSummary summary = new SessionSummary(stats, sessionDao.hasSessionRoute(sessionId));
+                summaryCache.put(sessionId, summary);
+                callback.onSuccess(summary);
+            } catch (Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+    
+    /**
+     * Load the GPS track of a finished session
+     */
+    public void getSessionRoute(String sessionId, SessionCallback<List<LocationUpdate>> callback) {
+        executorService.execute(() -> {
+            try {
+                List<LocationUpdate> route = Converters.toLocationUpdateList(sessionDao.getSessionRouteBlob(sessionId));
+                callback.onSuccess(route != null ? route : new ArrayList<>());
+            } catch (Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+    
     /**
      * Check if there's an active session
      */
@@ -39,7 +39,8 @@ public class SessionRecord {
     public long totalDuration; // effective duration (excluding paused time)
     public float averagePace; // in minutes per kilometer
     public int totalTreasures; // total treasures that were available
-    public List<LocationUpdate> routePoints; // GPS track of the session
+    public List<LocationUpdate> routePoints; // Cleaned GPS track of the session
+    public String routePreview; // Encoded polyline of the simplified route, for maps and lists
 
     public SessionRecord() {
         // Default constructor required by Room
@@ -78,6 +79,31 @@ public class SessionRecord {
         return record;
     }
 
+    /**
+     * Copy of this record without its full route (the preview is kept), for caching summaries
+     */
+    public SessionRecord withoutRoute() {
+        SessionRecord copy = new SessionRecord();
+        copy.sessionId = sessionId;
+        copy.startLatitude = startLatitude;
+        copy.startLongitude = startLongitude;
+        copy.distanceGoal = distanceGoal;
+        copy.activityType = activityType;
+        copy.createdTimestamp = createdTimestamp;
+        copy.startTimestamp = startTimestamp;
+        copy.currentSteps = currentSteps;
+        copy.currentDistance = currentDistance;
+        copy.caloriesBurned = caloriesBurned;
+        copy.collectedTreasures = collectedTreasures;
+        copy.pausedDuration = pausedDuration;
+        copy.endTimestamp = endTimestamp;
+        copy.totalDuration = totalDuration;
+        copy.averagePace = averagePace;
+        copy.totalTreasures = totalTreasures;
+        copy.routePreview = routePreview;
+        return copy;
+    }
+
     /**
      * Calculate average pace in minutes per kilometer
      */
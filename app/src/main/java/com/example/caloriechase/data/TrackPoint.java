@@ -0,0 +1,38 @@
+package com.example.caloriechase.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity representing one raw GPS fix of a session in progress; compressed into
+ * the session record when the session is finalized
+ */
+@Entity(tableName = "track_points", indices = {@Index(value = {"sessionId", "timestamp"})})
+public class TrackPoint {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    
+    public String sessionId;
+    public double latitude;
+    public double longitude;
+    public float accuracy; // in meters, 0 if unknown
+    public float speed; // in meters per second, 0 if unknown
+    public long timestamp;
+    public long segmentStart; // when this recording segment began; a pause or service restart starts a new one
+
+    public TrackPoint() {
+        // Default constructor required by Room
+    }
+
+    public TrackPoint(String sessionId, double latitude, double longitude, float accuracy, float speed,
+                      long timestamp, long segmentStart) {
+        this.sessionId = sessionId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.timestamp = timestamp;
+        this.segmentStart = segmentStart;
+    }
+}
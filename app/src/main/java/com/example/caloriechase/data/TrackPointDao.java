@@ -0,0 +1,25 @@
+package com.example.caloriechase.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+/**
+ * Data Access Object for the raw GPS track of sessions in progress
+ */
+@Dao
+public interface TrackPointDao {
+    
+    @Insert
+    void insertAll(List<TrackPoint> points);
+    
+    @Query("SELECT * FROM track_points WHERE sessionId = :sessionId ORDER BY timestamp ASC, id ASC")
+    List<TrackPoint> getTrackPoints(String sessionId);
+    
+    @Query("SELECT COUNT(*) FROM track_points WHERE sessionId = :sessionId")
+    int getTrackPointCount(String sessionId);
+    
+    @Query("DELETE FROM track_points WHERE sessionId = :sessionId")
+    void deleteTrackPoints(String sessionId);
+}
@@ -1,5 +1,7 @@
 package com.example.caloriechase.data;
 
+import com.example.caloriechase.routing.PlannedRoute;
+import com.example.caloriechase.routing.StreetGraph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -17,6 +19,13 @@ public class TreasureGenerator {
     private static final double MAX_TREASURE_DISTANCE_FROM_START_METERS = 2500.0; // Maximum distance from start
     private static final int MAX_PLACEMENT_ATTEMPTS = 50; // Maximum attempts to place a treasure
     
+    // Road-snapped placement configuration
+    private static final double START_SNAP_RADIUS_METERS = 300.0; // Start must be this close to a street
+    private static final double SNAP_RADIUS_METERS = 150.0; // Max distance a treasure may move when snapped
+    private static final double STREET_DETOUR_FACTOR = 1.3; // Typical street distance vs straight line
+    private static final double ROUTE_LENGTH_TOLERANCE = 0.1; // Accept loops within 10% of the goal
+    private static final int MAX_ROUTE_FITTING_ITERATIONS = 4;
+    
     // Treasure density configuration (treasures per km)
     private static final double BASE_TREASURE_DENSITY = 3.0; // Base treasures per km
     private static final double MIN_TREASURES = 3; // Minimum treasures regardless of distance
@@ -28,6 +37,25 @@ public class TreasureGenerator {
         this.random = new Random();
     }
     
+    /**
+     * Create a generator whose placements are reproducible: the same seed, start point
+     * and distance goal always produce the same treasure layout
+     */
+    public TreasureGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Stable seed for a session, so a hunt can be regenerated identically later
+     */
+    public static long seedForSession(String sessionId) {
+        // Spread String.hashCode's 32 bits over the full long range (SplitMix64 finalizer)
+        long z = sessionId == null ? 0 : sessionId.hashCode() * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
     /**
      * Generate treasures for a session using ring distribution algorithm
      * 
@@ -43,19 +71,12 @@ public class TreasureGenerator {
         // Calculate optimal number of treasures based on distance goal
         int treasureCount = calculateTreasureDensity(distanceGoalKm);
         
-        // Generate treasures in a ring pattern around the starting point
-        List<TreasureLocation> treasures = new ArrayList<>();
-        
         // Calculate ring radius based on distance goal (roughly half the target distance)
         double ringRadiusMeters = Math.min((distanceGoalKm * 1000.0) / 3.0, MAX_TREASURE_DISTANCE_FROM_START_METERS);
         
-        // Generate treasures in multiple rings for better distribution
-        treasures.addAll(generateRingTreasures(sessionId, startLatitude, startLongitude, 
-                                             ringRadiusMeters * 0.6, treasureCount / 3, TreasureType.COMMON));
-        treasures.addAll(generateRingTreasures(sessionId, startLatitude, startLongitude, 
-                                             ringRadiusMeters * 0.8, treasureCount / 3, TreasureType.RARE));
-        treasures.addAll(generateRingTreasures(sessionId, startLatitude, startLongitude, 
-                                             ringRadiusMeters, treasureCount / 3, TreasureType.EPIC));
+        // Generate treasures in a ring pattern around the starting point
+        List<TreasureLocation> treasures = generateRingLayout(sessionId, startLatitude, startLongitude,
+                                                              ringRadiusMeters, treasureCount);
         
         // Validate treasure accessibility and adjust if needed
         List<TreasureLocation> validatedTreasures = validateTreasureAccessibility(treasures, 
@@ -64,6 +85,136 @@ public class TreasureGenerator {
         return validatedTreasures;
     }
     
+    /**
+     * Generate road-snapped treasures and a walkable loop through them using an offline street graph.
+     * 
+     * Candidates come from the usual ring layout and are snapped to the nearest graph node in the
+     * same connected component as the start, so every treasure is reachable on foot. The loop
+     * start -> treasures (by bearing) -> start is routed over the graph and the ring radius is
+     * rescaled until the loop length is close to the distance goal. No network is used.
+     * 
+     * @param sessionId The session ID to associate treasures with
+     * @param startLatitude Starting point latitude
+     * @param startLongitude Starting point longitude
+     * @param distanceGoalKm Target distance goal in kilometers
+     * @param graph Street graph covering the start
+     * @return The snapped hunt, or null if the start is not near the graph
+     */
+    public RoadSnappedHunt generateRoadSnappedHunt(String sessionId, double startLatitude, double startLongitude,
+                                                   float distanceGoalKm, StreetGraph graph) {
+        if (graph == null || !graph.covers(startLatitude, startLongitude)) {
+            return null;
+        }
+        int startNode = graph.nearestNode(startLatitude, startLongitude, START_SNAP_RADIUS_METERS);
+        if (startNode < 0) {
+            return null;
+        }
+        int component = graph.componentOf(startNode);
+        
+        int treasureCount = calculateTreasureDensity(distanceGoalKm);
+        double goalMeters = distanceGoalKm * 1000.0;
+        // Street loops run longer than the circle through their treasures
+        double ringRadiusMeters = goalMeters / (2.0 * Math.PI * STREET_DETOUR_FACTOR);
+        
+        StreetGraph.NodePath leg = new StreetGraph.NodePath();
+        RoadSnappedHunt best = null;
+        for (int iteration = 0; iteration < MAX_ROUTE_FITTING_ITERATIONS; iteration++) {
+            double radius = Math.min(ringRadiusMeters, MAX_TREASURE_DISTANCE_FROM_START_METERS);
+            List<TreasureLocation> candidates = generateRingLayout(sessionId, startLatitude, startLongitude,
+                                                                   radius, treasureCount);
+            RoadSnappedHunt hunt = snapAndRoute(candidates, graph, startNode, component, leg);
+            if (hunt == null) {
+                break;
+            }
+            
+            double error = Math.abs(hunt.routeLengthMeters - goalMeters);
+            if (best == null || error < Math.abs(best.routeLengthMeters - goalMeters)) {
+                best = hunt;
+            }
+            if (error <= goalMeters * ROUTE_LENGTH_TOLERANCE || hunt.routeLengthMeters <= 0) {
+                break;
+            }
+            // Loop length grows roughly linearly with the ring radius
+            ringRadiusMeters = radius * Math.max(0.3, Math.min(3.0, goalMeters / hunt.routeLengthMeters));
+        }
+        return best;
+    }
+    
+    /**
+     * Snap candidates onto reachable graph nodes and route the loop through them
+     */
+    private RoadSnappedHunt snapAndRoute(List<TreasureLocation> candidates, StreetGraph graph,
+                                         int startNode, int component, StreetGraph.NodePath leg) {
+        double startLat = graph.latitudeOf(startNode);
+        double startLng = graph.longitudeOf(startNode);
+        TreasurePlacementGrid grid = new TreasurePlacementGrid(startLat, startLng,
+                MAX_TREASURE_DISTANCE_FROM_START_METERS + SNAP_RADIUS_METERS, MIN_TREASURE_DISTANCE_METERS);
+        
+        List<TreasureLocation> treasures = new ArrayList<>();
+        List<Integer> nodes = new ArrayList<>();
+        List<Double> bearings = new ArrayList<>();
+        for (TreasureLocation candidate : candidates) {
+            int node = graph.nearestNode(candidate.latitude, candidate.longitude, SNAP_RADIUS_METERS, component);
+            if (node < 0 || node == startNode) {
+                continue;
+            }
+            double x = grid.toX(graph.longitudeOf(node));
+            double y = grid.toY(graph.latitudeOf(node));
+            if (!grid.canPlace(x, y)) {
+                continue;
+            }
+            grid.place(x, y);
+            
+            // Insert in bearing order so the loop sweeps around the start once
+            double bearing = Math.atan2(x, y);
+            int insertAt = 0;
+            while (insertAt < bearings.size() && bearings.get(insertAt) < bearing) {
+                insertAt++;
+            }
+            bearings.add(insertAt, bearing);
+            nodes.add(insertAt, node);
+            treasures.add(insertAt, new TreasureLocation(candidate.treasureId, candidate.sessionId,
+                                                         graph.latitudeOf(node), graph.longitudeOf(node),
+                                                         candidate.type));
+        }
+        if (treasures.isEmpty()) {
+            return null;
+        }
+        
+        PlannedRoute.Builder route = new PlannedRoute.Builder();
+        int previous = startNode;
+        nodes.add(startNode);
+        for (int node : nodes) {
+            double length = graph.shortestPath(previous, node, leg);
+            if (length < 0) {
+                // Same component, so this only happens on a corrupt graph
+                return null;
+            }
+            route.append(graph, leg, length);
+            previous = node;
+        }
+        
+        PlannedRoute loop = route.build(true);
+        return new RoadSnappedHunt(treasures, loop.latitudes, loop.longitudes, loop.lengthMeters);
+    }
+    
+    /**
+     * Generate the three-ring candidate layout (common, rare, epic) around a center point
+     */
+    private List<TreasureLocation> generateRingLayout(String sessionId, double centerLat, double centerLng,
+                                                      double ringRadiusMeters, int treasureCount) {
+        List<TreasureLocation> treasures = new ArrayList<>();
+        
+        // Generate treasures in multiple rings for better distribution
+        treasures.addAll(generateRingTreasures(sessionId, centerLat, centerLng, 
+                                             ringRadiusMeters * 0.6, treasureCount / 3, TreasureType.COMMON));
+        treasures.addAll(generateRingTreasures(sessionId, centerLat, centerLng, 
+                                             ringRadiusMeters * 0.8, treasureCount / 3, TreasureType.RARE));
+        treasures.addAll(generateRingTreasures(sessionId, centerLat, centerLng, 
+                                             ringRadiusMeters, treasureCount / 3, TreasureType.EPIC));
+        return treasures;
+    }
+    
     /**
      * Generate treasures in a circular ring around a center point
      */
@@ -114,18 +265,24 @@ public class TreasureGenerator {
     }
     
     /**
-     * Validate treasure accessibility and ensure reachable locations
+     * Validate treasure accessibility and ensure reachable locations.
+     * Placement is tracked in a local metric grid so each check is constant time.
      */
     private List<TreasureLocation> validateTreasureAccessibility(List<TreasureLocation> treasures,
                                                                double startLat, double startLng) {
         List<TreasureLocation> validatedTreasures = new ArrayList<>();
+        TreasurePlacementGrid grid = new TreasurePlacementGrid(startLat, startLng,
+                MAX_TREASURE_DISTANCE_FROM_START_METERS, MIN_TREASURE_DISTANCE_METERS);
         
         for (TreasureLocation treasure : treasures) {
-            if (isTreasureAccessible(treasure, startLat, startLng, validatedTreasures)) {
+            double x = grid.toX(treasure.longitude);
+            double y = grid.toY(treasure.latitude);
+            if (grid.canPlace(x, y)) {
+                grid.place(x, y);
                 validatedTreasures.add(treasure);
             } else {
                 // Try to relocate inaccessible treasure
-                TreasureLocation relocatedTreasure = relocateTreasure(treasure, startLat, startLng, validatedTreasures);
+                TreasureLocation relocatedTreasure = relocateTreasure(treasure, grid);
                 if (relocatedTreasure != null) {
                     validatedTreasures.add(relocatedTreasure);
                 }
@@ -136,52 +293,38 @@ public class TreasureGenerator {
     }
     
     /**
-     * Check if a treasure location is accessible (not too close to other treasures, within reasonable distance)
-     */
-    private boolean isTreasureAccessible(TreasureLocation treasure, double startLat, double startLng,
-                                       List<TreasureLocation> existingTreasures) {
-        
-        // Check distance from starting point
-        double distanceFromStart = calculateDistance(startLat, startLng, treasure.latitude, treasure.longitude);
-        if (distanceFromStart > MAX_TREASURE_DISTANCE_FROM_START_METERS) {
-            return false;
-        }
-        
-        // Check minimum distance from other treasures
-        for (TreasureLocation existing : existingTreasures) {
-            double distanceBetween = calculateDistance(treasure.latitude, treasure.longitude,
-                                                     existing.latitude, existing.longitude);
-            if (distanceBetween < MIN_TREASURE_DISTANCE_METERS) {
-                return false;
-            }
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Attempt to relocate an inaccessible treasure to a valid location
+     * Attempt to relocate an inaccessible treasure to a valid location.
+     * Candidates alternate between Poisson-disk style samples in the annulus
+     * [d, 2d] around an already placed treasure, which packs treasures tightly
+     * without clumping, and uniform samples over the whole allowed disc.
      */
-    private TreasureLocation relocateTreasure(TreasureLocation originalTreasure, double startLat, double startLng,
-                                            List<TreasureLocation> existingTreasures) {
+    private TreasureLocation relocateTreasure(TreasureLocation originalTreasure, TreasurePlacementGrid grid) {
         
         for (int attempt = 0; attempt < MAX_PLACEMENT_ATTEMPTS; attempt++) {
-            // Generate a new random position within acceptable range
             double angle = random.nextDouble() * 2.0 * Math.PI;
-            double distance = MIN_TREASURE_DISTANCE_METERS + 
-                            random.nextDouble() * (MAX_TREASURE_DISTANCE_FROM_START_METERS - MIN_TREASURE_DISTANCE_METERS);
+            double x;
+            double y;
             
-            double[] newPosition = calculatePositionFromDistance(startLat, startLng, distance, angle);
-            
-            // Create new treasure at this position
-            TreasureLocation newTreasure = new TreasureLocation(originalTreasure.treasureId, 
-                                                              originalTreasure.sessionId,
-                                                              newPosition[0], newPosition[1], 
-                                                              originalTreasure.type);
+            if (grid.size() > 0 && attempt % 2 == 0) {
+                int anchor = random.nextInt(grid.size());
+                double distance = MIN_TREASURE_DISTANCE_METERS * (1.0 + random.nextDouble());
+                x = grid.xAt(anchor) + distance * Math.sin(angle);
+                y = grid.yAt(anchor) + distance * Math.cos(angle);
+            } else {
+                // Generate a new random position within acceptable range
+                double distance = MIN_TREASURE_DISTANCE_METERS + 
+                                random.nextDouble() * (MAX_TREASURE_DISTANCE_FROM_START_METERS - MIN_TREASURE_DISTANCE_METERS);
+                x = distance * Math.sin(angle);
+                y = distance * Math.cos(angle);
+            }
             
             // Check if this new position is accessible
-            if (isTreasureAccessible(newTreasure, startLat, startLng, existingTreasures)) {
-                return newTreasure;
+            if (grid.canPlace(x, y)) {
+                grid.place(x, y);
+                return new TreasureLocation(originalTreasure.treasureId, 
+                                            originalTreasure.sessionId,
+                                            grid.toLatitude(y), grid.toLongitude(x), 
+                                            originalTreasure.type);
             }
         }
         
@@ -210,24 +353,6 @@ public class TreasureGenerator {
         return new double[]{Math.toDegrees(endLatRad), Math.toDegrees(endLngRad)};
     }
     
-    /**
-     * Calculate distance between two geographic points using Haversine formula
-     */
-    private double calculateDistance(double lat1, double lng1, double lat2, double lng2) {
-        double lat1Rad = Math.toRadians(lat1);
-        double lat2Rad = Math.toRadians(lat2);
-        double deltaLatRad = Math.toRadians(lat2 - lat1);
-        double deltaLngRad = Math.toRadians(lng2 - lng1);
-        
-        double a = Math.sin(deltaLatRad / 2) * Math.sin(deltaLatRad / 2) +
-                  Math.cos(lat1Rad) * Math.cos(lat2Rad) *
-                  Math.sin(deltaLngRad / 2) * Math.sin(deltaLngRad / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return EARTH_RADIUS_KM * c * 1000; // Return distance in meters
-    }
-    
     /**
      * Generate treasures using alternative loop/route algorithm (for future enhancement)
      * This method creates treasures along a potential walking route rather than in rings
@@ -249,6 +374,24 @@ public class TreasureGenerator {
         return new TreasureGenerationStats(treasureCount, ringRadius, distanceGoalKm);
     }
     
+    /**
+     * Treasures snapped onto the street graph plus the loop route through them
+     */
+    public static class RoadSnappedHunt {
+        public final List<TreasureLocation> treasures;
+        public final double[] routeLatitudes;
+        public final double[] routeLongitudes;
+        public final double routeLengthMeters;
+        
+        public RoadSnappedHunt(List<TreasureLocation> treasures, double[] routeLatitudes,
+                               double[] routeLongitudes, double routeLengthMeters) {
+            this.treasures = treasures;
+            this.routeLatitudes = routeLatitudes;
+            this.routeLongitudes = routeLongitudes;
+            this.routeLengthMeters = routeLengthMeters;
+        }
+    }
+    
     /**
      * Statistics class for treasure generation information
      */
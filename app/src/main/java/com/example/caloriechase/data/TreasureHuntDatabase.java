@@ -5,6 +5,8 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /**
  * Room database for treasure hunt session data
@@ -15,9 +17,12 @@ import androidx.room.TypeConverters;
         ActiveSession.class,
         SessionRecord.class,
         TreasureLocation.class,
-        DailyStats.class
+        DailyStats.class,
+        CachedResponse.class,
+        OutboxEntry.class,
+        TrackPoint.class
     },
-    version = 3,
+    version = 9,
     exportSchema = false
 )
 @TypeConverters({Converters.class})
@@ -29,6 +34,118 @@ public abstract class TreasureHuntDatabase extends RoomDatabase {
     public abstract SessionDao sessionDao();
     public abstract TreasureDao treasureDao();
     public abstract DailyStatsDao dailyStatsDao();
+    public abstract CachedResponseDao cachedResponseDao();
+    public abstract OutboxDao outboxDao();
+    public abstract TrackPointDao trackPointDao();
+    
+    /**
+     * Version 4 adds the Places/Directions response cache; keeps session history intact
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `api_response_cache` (" +
+                       "`cacheKey` TEXT NOT NULL, `body` TEXT, `createdAt` INTEGER NOT NULL, " +
+                       "`lastAccessedAt` INTEGER NOT NULL, `sizeBytes` INTEGER NOT NULL, " +
+                       "PRIMARY KEY(`cacheKey`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_api_response_cache_lastAccessedAt` " +
+                       "ON `api_response_cache` (`lastAccessedAt`)");
+        }
+    };
+    
+    /**
+     * Version 5 tracks treasures collected per day alongside steps/distance/calories
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `daily_stats` ADD COLUMN `treasures` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    /**
+     * Version 6 adds the outbox of finished sessions waiting for upload
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `sync_outbox` (" +
+                       "`sessionId` TEXT NOT NULL, `createdAt` INTEGER NOT NULL, " +
+                       "`nextAttemptAt` INTEGER NOT NULL, `attempts` INTEGER NOT NULL, " +
+                       "`lastError` TEXT, PRIMARY KEY(`sessionId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_sync_outbox_nextAttemptAt` " +
+                       "ON `sync_outbox` (`nextAttemptAt`)");
+        }
+    };
+    
+    /**
+     * Version 7 records the raw track of sessions in progress and keeps a compact route preview
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `track_points` (" +
+                       "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `sessionId` TEXT, " +
+                       "`latitude` REAL NOT NULL, `longitude` REAL NOT NULL, `accuracy` REAL NOT NULL, " +
+                       "`speed` REAL NOT NULL, `timestamp` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_track_points_sessionId_timestamp` " +
+                       "ON `track_points` (`sessionId`, `timestamp`)");
+            db.execSQL("ALTER TABLE `session_records` ADD COLUMN `routePreview` TEXT");
+        }
+    };
+    
+    /**
+     * Version 8 marks where each raw track segment starts, so pauses are not measured as movement
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `track_points` ADD COLUMN `segmentStart` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    /**
+     * Version 9 stores the treasure-id sets and the route as binary blobs. The tables are
+     * rebuilt with BLOB columns and the existing JSON is copied over as bytes; Converters
+     * still reads it and the row is rewritten in binary the next time it is saved.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `active_sessions_new` (" +
+                       "`sessionId` TEXT NOT NULL, `startLatitude` REAL NOT NULL, " +
+                       "`startLongitude` REAL NOT NULL, `distanceGoal` REAL NOT NULL, `activityType` TEXT, " +
+                       "`createdTimestamp` INTEGER NOT NULL, `startTimestamp` INTEGER NOT NULL, " +
+                       "`currentSteps` INTEGER NOT NULL, `currentDistance` REAL NOT NULL, " +
+                       "`caloriesBurned` INTEGER NOT NULL, `collectedTreasures` BLOB, " +
+                       "`isPaused` INTEGER NOT NULL, `pausedDuration` INTEGER NOT NULL, " +
+                       "`lastPauseTimestamp` INTEGER NOT NULL, PRIMARY KEY(`sessionId`))");
+            db.execSQL("INSERT INTO `active_sessions_new` SELECT `sessionId`, `startLatitude`, " +
+                       "`startLongitude`, `distanceGoal`, `activityType`, `createdTimestamp`, `startTimestamp`, " +
+                       "`currentSteps`, `currentDistance`, `caloriesBurned`, CAST(`collectedTreasures` AS BLOB), " +
+                       "`isPaused`, `pausedDuration`, `lastPauseTimestamp` FROM `active_sessions`");
+            db.execSQL("DROP TABLE `active_sessions`");
+            db.execSQL("ALTER TABLE `active_sessions_new` RENAME TO `active_sessions`");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `session_records_new` (" +
+                       "`sessionId` TEXT NOT NULL, `startLatitude` REAL NOT NULL, " +
+                       "`startLongitude` REAL NOT NULL, `distanceGoal` REAL NOT NULL, `activityType` TEXT, " +
+                       "`createdTimestamp` INTEGER NOT NULL, `startTimestamp` INTEGER NOT NULL, " +
+                       "`currentSteps` INTEGER NOT NULL, `currentDistance` REAL NOT NULL, " +
+                       "`caloriesBurned` INTEGER NOT NULL, `collectedTreasures` BLOB, " +
+                       "`pausedDuration` INTEGER NOT NULL, `endTimestamp` INTEGER NOT NULL, " +
+                       "`totalDuration` INTEGER NOT NULL, `averagePace` REAL NOT NULL, " +
+                       "`totalTreasures` INTEGER NOT NULL, `routePoints` BLOB, `routePreview` TEXT, " +
+                       "PRIMARY KEY(`sessionId`))");
+            db.execSQL("INSERT INTO `session_records_new` SELECT `sessionId`, `startLatitude`, " +
+                       "`startLongitude`, `distanceGoal`, `activityType`, `createdTimestamp`, `startTimestamp`, " +
+                       "`currentSteps`, `currentDistance`, `caloriesBurned`, CAST(`collectedTreasures` AS BLOB), " +
+                       "`pausedDuration`, `endTimestamp`, `totalDuration`, `averagePace`, `totalTreasures`, " +
+                       "CAST(`routePoints` AS BLOB), `routePreview` FROM `session_records`");
+            db.execSQL("DROP TABLE `session_records`");
+            db.execSQL("ALTER TABLE `session_records_new` RENAME TO `session_records`");
+        }
+    };
     
     /**
      * Get database instance using singleton pattern
@@ -42,6 +159,7 @@ public abstract class TreasureHuntDatabase extends RoomDatabase {
                         TreasureHuntDatabase.class,
                         DATABASE_NAME
                     )
+                    .addMigrations(MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9)
                     .fallbackToDestructiveMigration() // For development - remove in production
                     .build();
                 }
@@ -0,0 +1,140 @@
+package com.example.caloriechase.data;
+
+import java.util.Arrays;
+
+/**
+ * Background grid for Poisson-disk style treasure placement.
+ *
+ * Points are projected into a local metric (east/north meters) frame around the
+ * starting point. The cell size is minDistance / sqrt(2), so every cell holds at
+ * most one accepted point and a candidate only has to be compared against the
+ * 5x5 block of cells around it - constant work no matter how many treasures
+ * are already placed.
+ */
+class TreasurePlacementGrid {
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    private final double originLat;
+    private final double originLng;
+    private final double metersPerDegLat;
+    private final double metersPerDegLng;
+
+    private final double maxRadius;
+    private final double maxRadiusSq;
+    private final double minDistanceSq;
+    private final double cellSize;
+    private final int cellsPerSide;
+    private final int[] cells; // index into xs/ys, or -1 when empty
+
+    private double[] xs;
+    private double[] ys;
+    private int size;
+
+    TreasurePlacementGrid(double originLat, double originLng, double maxRadiusMeters, double minDistanceMeters) {
+        this.originLat = originLat;
+        this.originLng = originLng;
+        this.metersPerDegLat = Math.toRadians(1) * EARTH_RADIUS_METERS;
+        this.metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(originLat));
+
+        this.maxRadius = maxRadiusMeters;
+        this.maxRadiusSq = maxRadiusMeters * maxRadiusMeters;
+        this.minDistanceSq = minDistanceMeters * minDistanceMeters;
+        this.cellSize = minDistanceMeters / Math.sqrt(2);
+        this.cellsPerSide = (int) Math.ceil(2 * maxRadiusMeters / cellSize) + 1;
+        this.cells = new int[cellsPerSide * cellsPerSide];
+        Arrays.fill(cells, -1);
+
+        this.xs = new double[16];
+        this.ys = new double[16];
+    }
+
+    /**
+     * East offset in meters of a longitude from the origin
+     */
+    double toX(double longitude) {
+        return (longitude - originLng) * metersPerDegLng;
+    }
+
+    /**
+     * North offset in meters of a latitude from the origin
+     */
+    double toY(double latitude) {
+        return (latitude - originLat) * metersPerDegLat;
+    }
+
+    double toLatitude(double y) {
+        return originLat + y / metersPerDegLat;
+    }
+
+    double toLongitude(double x) {
+        return originLng + x / metersPerDegLng;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double xAt(int index) {
+        return xs[index];
+    }
+
+    double yAt(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Whether a point (local meters) is in range of the start and clear of every placed point
+     */
+    boolean canPlace(double x, double y) {
+        if (x * x + y * y > maxRadiusSq) {
+            return false;
+        }
+        int cx = cellX(x);
+        int cy = cellY(y);
+        if (cx < 0 || cy < 0 || cx >= cellsPerSide || cy >= cellsPerSide) {
+            return false;
+        }
+
+        int minX = Math.max(0, cx - 2);
+        int maxX = Math.min(cellsPerSide - 1, cx + 2);
+        int minY = Math.max(0, cy - 2);
+        int maxY = Math.min(cellsPerSide - 1, cy + 2);
+        for (int gy = minY; gy <= maxY; gy++) {
+            int row = gy * cellsPerSide;
+            for (int gx = minX; gx <= maxX; gx++) {
+                int index = cells[row + gx];
+                if (index >= 0) {
+                    double dx = xs[index] - x;
+                    double dy = ys[index] - y;
+                    if (dx * dx + dy * dy < minDistanceSq) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record an accepted point; callers must check canPlace first
+     */
+    void place(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        cells[cellY(y) * cellsPerSide + cellX(x)] = size;
+        size++;
+    }
+
+    private int cellX(double x) {
+        return (int) Math.floor((x + maxRadius) / cellSize);
+    }
+
+    private int cellY(double y) {
+        return (int) Math.floor((y + maxRadius) / cellSize);
+    }
+}
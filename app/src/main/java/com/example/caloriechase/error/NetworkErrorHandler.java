@@ -234,38 +234,14 @@ public class NetworkErrorHandler {
     }
     
     /**
-     * Retry network operation with exponential backoff
+     * Retry network operation with capped, jittered exponential backoff on the shared scheduler.
+     * The endpoint names its circuit breaker, so unrelated APIs never trip each other.
      */
-    public void retryWithBackoff(NetworkOperation operation, int maxRetries, RetryCallback callback) {
-        retryWithBackoff(operation, maxRetries, 1000, callback); // Start with 1 second delay
-    }
-    
-    private void retryWithBackoff(NetworkOperation operation, int retriesLeft, long delayMs, RetryCallback callback) {
-        if (retriesLeft <= 0) {
-            callback.onMaxRetriesExceeded();
-            return;
-        }
-        
-        if (!isNetworkAvailable()) {
-            callback.onNetworkUnavailable();
-            return;
-        }
-        
-        operation.execute(new NetworkOperation.OperationCallback() {
-            @Override
-            public void onSuccess() {
-                callback.onRetrySuccess();
-            }
-            
-            @Override
-            public void onFailure(Exception error) {
-                // Wait before retrying
-                android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-                handler.postDelayed(() -> {
-                    retryWithBackoff(operation, retriesLeft - 1, delayMs * 2, callback);
-                }, delayMs);
-            }
-        });
+    public RetryScheduler.Cancellable retryWithBackoff(String endpoint, NetworkOperation operation,
+                                                       int maxRetries, RetryCallback callback) {
+        // Same 1 second start as before, now capped at 8 seconds and jittered
+        RetryScheduler.RetryPolicy policy = new RetryScheduler.RetryPolicy(maxRetries, 1000, 8000, 0, false);
+        return RetryScheduler.getInstance(context).execute(endpoint, operation, policy, callback);
     }
     
     /**
@@ -307,5 +283,12 @@ public class NetworkErrorHandler {
         void onRetrySuccess();
         void onMaxRetriesExceeded();
         void onNetworkUnavailable();
+        
+        /**
+         * The endpoint has been failing and is not being called for now
+         */
+        default void onCircuitOpen(String endpoint) {
+            onMaxRetriesExceeded();
+        }
     }
 }
\ No newline at end of file
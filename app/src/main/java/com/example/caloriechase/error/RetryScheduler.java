@@ -0,0 +1,337 @@
+package com.example.caloriechase.error;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared retry scheduler for network operations.
+ *
+ * Retries wait on a background timer (never a main-looper Handler per failure) using
+ * capped exponential backoff with full jitter, so clients that failed together do
+ * not retry together. Each endpoint has a circuit breaker: after repeated failures
+ * the circuit opens and calls fail fast until a cool-down has passed, after which a
+ * single trial call decides whether to close it again. Jobs that find no network -
+ * or only a metered one when their policy asks to wait for unmetered - are parked
+ * and resumed when connectivity changes instead of burning attempts.
+ */
+public class RetryScheduler {
+
+    private static final String TAG = "RetryScheduler";
+
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MS = 30_000;
+    private static final long MAX_CIRCUIT_OPEN_MS = 5 * 60_000;
+
+    private static volatile RetryScheduler instance;
+
+    private final NetworkErrorHandler networkErrorHandler;
+    private final ScheduledExecutorService timer;
+    private final Handler mainHandler;
+    private final Random random = new Random();
+    private final Map<String, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+    private final List<Job> parkedJobs = new ArrayList<>();
+
+    /**
+     * How hard to retry and what network conditions to wait for
+     */
+    public static class RetryPolicy {
+        public final int maxAttempts;
+        public final long baseDelayMs;
+        public final long maxDelayMs;
+        public final long maxOfflineWaitMs; // 0 = report offline immediately
+        public final boolean waitForUnmetered;
+
+        public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs,
+                           long maxOfflineWaitMs, boolean waitForUnmetered) {
+            this.maxAttempts = maxAttempts;
+            this.baseDelayMs = baseDelayMs;
+            this.maxDelayMs = maxDelayMs;
+            this.maxOfflineWaitMs = maxOfflineWaitMs;
+            this.waitForUnmetered = waitForUnmetered;
+        }
+
+        /** A user is waiting: one quick retry, no waiting for connectivity */
+        public static final RetryPolicy INTERACTIVE = new RetryPolicy(2, 500, 2_000, 0, false);
+    }
+
+    /**
+     * Handle for cancelling a scheduled operation
+     */
+    public interface Cancellable {
+        void cancel();
+    }
+
+    private RetryScheduler(Context context) {
+        this.networkErrorHandler = new NetworkErrorHandler(context);
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            try {
+                connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) {
+                        resumeParkedJobs();
+                    }
+
+                    @Override
+                    public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                        resumeParkedJobs();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Without the callback parked jobs are still re-checked on their offline deadline
+                Log.w(TAG, "Could not watch connectivity", e);
+            }
+        }
+    }
+
+    /**
+     * Get singleton instance of RetryScheduler
+     */
+    public static RetryScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (RetryScheduler.class) {
+                if (instance == null) {
+                    instance = new RetryScheduler(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Run an operation with retries. Attempts are started on the main thread and the
+     * callback is delivered on the main thread.
+     *
+     * @param endpoint Circuit breaker key, e.g. "places" or "agent"
+     */
+    public Cancellable execute(String endpoint, NetworkErrorHandler.NetworkOperation operation,
+                               RetryPolicy policy, NetworkErrorHandler.RetryCallback callback) {
+        Job job = new Job(endpoint, operation, policy, callback);
+        mainHandler.post(job::attempt);
+        return job;
+    }
+
+    private CircuitBreaker circuitFor(String endpoint) {
+        return circuits.computeIfAbsent(endpoint, CircuitBreaker::new);
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(cap, base * 2^retry)]
+     */
+    private long backoffDelay(RetryPolicy policy, int retry) {
+        long ceiling = policy.baseDelayMs << Math.min(retry, 20);
+        ceiling = Math.min(policy.maxDelayMs, Math.max(policy.baseDelayMs, ceiling));
+        synchronized (random) {
+            return (long) (random.nextDouble() * ceiling);
+        }
+    }
+
+    private boolean networkUsable(RetryPolicy policy) {
+        return networkErrorHandler.isNetworkAvailable()
+                && !(policy.waitForUnmetered && networkErrorHandler.isNetworkMetered());
+    }
+
+    private void resumeParkedJobs() {
+        List<Job> ready = new ArrayList<>();
+        synchronized (parkedJobs) {
+            for (int i = parkedJobs.size() - 1; i >= 0; i--) {
+                Job job = parkedJobs.get(i);
+                if (networkUsable(job.policy)) {
+                    ready.add(parkedJobs.remove(i));
+                }
+            }
+        }
+        for (Job job : ready) {
+            Log.d(TAG, "Connectivity back, resuming " + job.endpoint);
+            mainHandler.post(job::attempt);
+        }
+    }
+
+    private void park(Job job) {
+        synchronized (parkedJobs) {
+            parkedJobs.add(job);
+        }
+        // Give up if connectivity never comes back in time
+        timer.schedule(() -> {
+            boolean removed;
+            synchronized (parkedJobs) {
+                removed = parkedJobs.remove(job);
+            }
+            if (removed) {
+                mainHandler.post(job::attempt);
+            }
+        }, job.policy.maxOfflineWaitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * One operation working through its attempts
+     */
+    private final class Job implements Cancellable {
+        final String endpoint;
+        final NetworkErrorHandler.NetworkOperation operation;
+        final RetryPolicy policy;
+        final NetworkErrorHandler.RetryCallback callback;
+        final long createdAt = System.currentTimeMillis();
+        int attemptCount = 0;
+        volatile boolean cancelled = false;
+        boolean finished = false;
+
+        Job(String endpoint, NetworkErrorHandler.NetworkOperation operation,
+            RetryPolicy policy, NetworkErrorHandler.RetryCallback callback) {
+            this.endpoint = endpoint;
+            this.operation = operation;
+            this.policy = policy;
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (parkedJobs) {
+                parkedJobs.remove(this);
+            }
+        }
+
+        /**
+         * Runs on the main thread
+         */
+        void attempt() {
+            if (cancelled || finished) return;
+
+            if (!networkUsable(policy)) {
+                boolean offline = !networkErrorHandler.isNetworkAvailable();
+                if (System.currentTimeMillis() - createdAt >= policy.maxOfflineWaitMs) {
+                    finish();
+                    if (offline) {
+                        callback.onNetworkUnavailable();
+                    } else {
+                        callback.onMaxRetriesExceeded();
+                    }
+                } else {
+                    park(this);
+                }
+                return;
+            }
+
+            CircuitBreaker circuit = circuitFor(endpoint);
+            if (!circuit.allowRequest()) {
+                finish();
+                callback.onCircuitOpen(endpoint);
+                return;
+            }
+
+            attemptCount++;
+            operation.execute(new NetworkErrorHandler.NetworkOperation.OperationCallback() {
+                @Override
+                public void onSuccess() {
+                    circuit.recordSuccess();
+                    mainHandler.post(() -> {
+                        if (cancelled || finished) return;
+                        finish();
+                        callback.onRetrySuccess();
+                    });
+                }
+
+                @Override
+                public void onFailure(Exception error) {
+                    if (circuit.recordFailure()) {
+                        Log.w(TAG, "Circuit opened for " + endpoint + " after: " + error.getMessage());
+                    }
+                    mainHandler.post(() -> onAttemptFailed(error));
+                }
+            });
+        }
+
+        private void onAttemptFailed(Exception error) {
+            if (cancelled || finished) return;
+            if (attemptCount >= policy.maxAttempts) {
+                Log.w(TAG, endpoint + " failed after " + attemptCount + " attempts: " + error.getMessage());
+                finish();
+                callback.onMaxRetriesExceeded();
+                return;
+            }
+            long delay = backoffDelay(policy, attemptCount - 1);
+            timer.schedule(() -> mainHandler.post(this::attempt), delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void finish() {
+            finished = true;
+        }
+    }
+
+    /**
+     * Consecutive-failure circuit breaker with a growing cool-down
+     */
+    private static final class CircuitBreaker {
+        final String endpoint;
+        int consecutiveFailures = 0;
+        long openUntil = 0;
+        long openDurationMs = CIRCUIT_OPEN_MS;
+        boolean trialInFlight = false;
+
+        CircuitBreaker(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Closed: always. Open: never. Cool-down over: one trial call at a time.
+         */
+        synchronized boolean allowRequest() {
+            if (openUntil == 0) return true;
+            if (openUntil > System.currentTimeMillis() || trialInFlight) return false;
+            trialInFlight = true;
+            return true;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            openUntil = 0;
+            openDurationMs = CIRCUIT_OPEN_MS;
+            trialInFlight = false;
+        }
+
+        /**
+         * @return True if this failure opened the circuit
+         */
+        synchronized boolean recordFailure() {
+            consecutiveFailures++;
+            if (trialInFlight) {
+                // Trial failed: stay open, and for longer
+                trialInFlight = false;
+                openDurationMs = Math.min(MAX_CIRCUIT_OPEN_MS, openDurationMs * 2);
+                openUntil = System.currentTimeMillis() + openDurationMs;
+                return false;
+            }
+            if (openUntil == 0 && consecutiveFailures >= CIRCUIT_FAILURE_THRESHOLD) {
+                openUntil = System.currentTimeMillis() + openDurationMs;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Error used when a circuit is open, for callers that need an exception
+     */
+    public static IOException circuitOpenError(String endpoint) {
+        return new IOException("Circuit open for " + endpoint);
+    }
+}
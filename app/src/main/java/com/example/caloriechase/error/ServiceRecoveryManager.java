@@ -29,6 +29,7 @@ public class ServiceRecoveryManager {
     private final SessionManager sessionManager;
     private final TrackingServiceManager trackingServiceManager;
     private final ErrorHandler errorHandler;
+    private final TrackingCheckpointJournal checkpointJournal;
     
     public ServiceRecoveryManager(Context context) {
         this.context = context.getApplicationContext();
@@ -36,6 +37,7 @@ public class ServiceRecoveryManager {
         this.sessionManager = SessionManager.getInstance(context);
         this.trackingServiceManager = new TrackingServiceManager(context);
         this.errorHandler = new ErrorHandler(context);
+        this.checkpointJournal = TrackingCheckpointJournal.getInstance(context);
     }
     
     /**
@@ -65,6 +67,27 @@ public class ServiceRecoveryManager {
                 .apply();
     }
     
+    /**
+     * Journal the live tracking counters; cheap enough to call on every step batch and fix
+     */
+    public void saveCheckpoint(TrackingCheckpointJournal.Checkpoint checkpoint) {
+        checkpointJournal.write(checkpoint);
+    }
+    
+    /**
+     * Latest journaled counters for the session, or null if none survived
+     */
+    public TrackingCheckpointJournal.Checkpoint getCheckpoint(String sessionId) {
+        return checkpointJournal.read(sessionId);
+    }
+    
+    /**
+     * Drop the journaled counters (called when the tracked session ends)
+     */
+    public void clearCheckpoint() {
+        checkpointJournal.clear();
+    }
+    
     /**
      * Attempt to recover service after app restart or system restart
      */
@@ -0,0 +1,237 @@
+package com.example.caloriechase.error;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe journal of the live tracking counters.
+ *
+ * The record lives in a small memory-mapped file, so a checkpoint is a few
+ * dozen stores into the page cache and survives the process being killed
+ * without any fsync. Two slots are written alternately, each stamped with a
+ * sequence number and a CRC, so a write torn by a crash leaves the previous
+ * slot intact. The mapping is forced to disk only occasionally, which covers
+ * the rarer case of the device losing power.
+ */
+public class TrackingCheckpointJournal {
+
+    private static final String TAG = "TrackingCheckpoint";
+    private static final String FILE_NAME = "tracking_checkpoint.bin";
+
+    private static final int MAGIC = 0x54434b50; // "TCKP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SLOT_SIZE = 160;
+    private static final int SLOT_COUNT = 2;
+    private static final int MAX_SESSION_ID_BYTES = 64;
+    private static final int PAYLOAD_OFFSET = 16; // magic, version, sequence
+    private static final long FORCE_INTERVAL_MS = 30000;
+
+    private static volatile TrackingCheckpointJournal instance;
+
+    private final File file;
+    private final CRC32 crc = new CRC32();
+    private final byte[] slotBytes = new byte[SLOT_SIZE];
+    private MappedByteBuffer buffer;
+    private long sequence = -1;
+    private long lastForceTime = 0;
+
+    /**
+     * Counters needed to resume a session exactly where it stopped
+     */
+    public static class Checkpoint {
+        public String sessionId;
+        public long savedAt;
+        public boolean paused;
+        public boolean autoPaused; // Paused by the auto-pause detector rather than the user
+        public int sessionSteps;
+        public long initialStepCount = -1; // Raw counter at session start, -1 if unknown
+        public long lastCounterValue = -1; // Raw counter at the last batch, -1 if unknown
+        public float distanceKm;
+        public boolean useStepBasedDistance;
+        public int calories;
+        public long activeDurationMs;
+        public boolean hasFix;
+        public double latitude;
+        public double longitude;
+        public float accuracy;
+        public long fixTime;
+    }
+
+    private TrackingCheckpointJournal(Context context) {
+        this(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    TrackingCheckpointJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get singleton instance of TrackingCheckpointJournal
+     */
+    public static TrackingCheckpointJournal getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TrackingCheckpointJournal.class) {
+                if (instance == null) {
+                    instance = new TrackingCheckpointJournal(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Journal the checkpoint into the older of the two slots
+     */
+    public synchronized void write(Checkpoint checkpoint) {
+        if (checkpoint.sessionId == null || !map()) {
+            return;
+        }
+        if (sequence < 0) {
+            sequence = latestSequence();
+        }
+        sequence++;
+        int slot = (int) (sequence % SLOT_COUNT) * SLOT_SIZE;
+
+        byte[] sessionId = checkpoint.sessionId.getBytes(StandardCharsets.UTF_8);
+        int sessionIdLength = Math.min(sessionId.length, MAX_SESSION_ID_BYTES);
+
+        // Invalidate the slot first so a torn write can never pass the CRC with a stale header
+        buffer.putInt(slot, 0);
+
+        buffer.position(slot + PAYLOAD_OFFSET);
+        buffer.putLong(checkpoint.savedAt);
+        // 0 running, 1 paused by the user, 2 paused by the auto-pause detector
+        buffer.put((byte) (!checkpoint.paused ? 0 : checkpoint.autoPaused ? 2 : 1));
+        buffer.putInt(checkpoint.sessionSteps);
+        buffer.putLong(checkpoint.initialStepCount);
+        buffer.putLong(checkpoint.lastCounterValue);
+        buffer.putFloat(checkpoint.distanceKm);
+        buffer.put((byte) (checkpoint.useStepBasedDistance ? 1 : 0));
+        buffer.putInt(checkpoint.calories);
+        buffer.putLong(checkpoint.activeDurationMs);
+        buffer.put((byte) (checkpoint.hasFix ? 1 : 0));
+        buffer.putDouble(checkpoint.latitude);
+        buffer.putDouble(checkpoint.longitude);
+        buffer.putFloat(checkpoint.accuracy);
+        buffer.putLong(checkpoint.fixTime);
+        buffer.put((byte) sessionIdLength);
+        buffer.put(sessionId, 0, sessionIdLength);
+
+        buffer.putInt(slot + 4, FORMAT_VERSION);
+        buffer.putLong(slot + 8, sequence);
+        buffer.putInt(slot + SLOT_SIZE - 4, checksum(slot));
+        buffer.putInt(slot, MAGIC);
+
+        long now = System.currentTimeMillis();
+        if (now - lastForceTime >= FORCE_INTERVAL_MS) {
+            buffer.force();
+            lastForceTime = now;
+        }
+    }
+
+    /**
+     * Newest intact checkpoint, or null if there is none for the given session
+     */
+    public synchronized Checkpoint read(String sessionId) {
+        if (sessionId == null || !file.exists() || !map()) {
+            return null;
+        }
+        int slot = newestValidSlot();
+        if (slot < 0) {
+            return null;
+        }
+
+        Checkpoint checkpoint = new Checkpoint();
+        buffer.position(slot + PAYLOAD_OFFSET);
+        checkpoint.savedAt = buffer.getLong();
+        byte pauseState = buffer.get();
+        checkpoint.paused = pauseState != 0;
+        checkpoint.autoPaused = pauseState == 2;
+        checkpoint.sessionSteps = buffer.getInt();
+        checkpoint.initialStepCount = buffer.getLong();
+        checkpoint.lastCounterValue = buffer.getLong();
+        checkpoint.distanceKm = buffer.getFloat();
+        checkpoint.useStepBasedDistance = buffer.get() != 0;
+        checkpoint.calories = buffer.getInt();
+        checkpoint.activeDurationMs = buffer.getLong();
+        checkpoint.hasFix = buffer.get() != 0;
+        checkpoint.latitude = buffer.getDouble();
+        checkpoint.longitude = buffer.getDouble();
+        checkpoint.accuracy = buffer.getFloat();
+        checkpoint.fixTime = buffer.getLong();
+        int sessionIdLength = buffer.get() & 0xff;
+        byte[] id = new byte[sessionIdLength];
+        buffer.get(id);
+        checkpoint.sessionId = new String(id, StandardCharsets.UTF_8);
+
+        return sessionId.equals(checkpoint.sessionId) ? checkpoint : null;
+    }
+
+    /**
+     * Drop the journal when a session ends normally
+     */
+    public synchronized void clear() {
+        if (buffer != null) {
+            for (int slot = 0; slot < SLOT_COUNT * SLOT_SIZE; slot += SLOT_SIZE) {
+                buffer.putInt(slot, 0);
+            }
+            buffer.force();
+        }
+        sequence = -1;
+    }
+
+    private boolean map() {
+        if (buffer != null) {
+            return true;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) SLOT_SIZE * SLOT_COUNT);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot map checkpoint journal", e);
+            return false;
+        }
+    }
+
+    private long latestSequence() {
+        int slot = newestValidSlot();
+        return slot < 0 ? 0 : buffer.getLong(slot + 8);
+    }
+
+    private int newestValidSlot() {
+        int newest = -1;
+        long newestSequence = -1;
+        for (int slot = 0; slot < SLOT_COUNT * SLOT_SIZE; slot += SLOT_SIZE) {
+            if (buffer.getInt(slot) != MAGIC || buffer.getInt(slot + 4) != FORMAT_VERSION) {
+                continue;
+            }
+            if (buffer.getInt(slot + SLOT_SIZE - 4) != checksum(slot)) {
+                continue;
+            }
+            long slotSequence = buffer.getLong(slot + 8);
+            if (slotSequence > newestSequence) {
+                newestSequence = slotSequence;
+                newest = slot;
+            }
+        }
+        return newest;
+    }
+
+    private int checksum(int slot) {
+        // Covers version, sequence and payload; the magic is written last as the commit marker
+        buffer.position(slot + 4);
+        buffer.get(slotBytes, 0, SLOT_SIZE - 8);
+        crc.reset();
+        crc.update(slotBytes, 0, SLOT_SIZE - 8);
+        return (int) crc.getValue();
+    }
+}
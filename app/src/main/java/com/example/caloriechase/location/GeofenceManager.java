@@ -4,7 +4,9 @@ import android.Manifest;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.location.Location;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
 import com.google.android.gms.common.api.ApiException;
@@ -12,28 +14,57 @@ import com.google.android.gms.location.Geofence;
 import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingRequest;
 import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.example.caloriechase.data.TreasureLocation;
 import com.example.caloriechase.error.ErrorHandler;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
- * Manages geofences for treasure collection in treasure hunt sessions
+ * Manages geofences for treasure collection in treasure hunt sessions.
+ *
+ * Fences are registered hierarchically (see {@link GeofencePlanner}): the nearest
+ * treasures get their own fence and the rest are covered by a few cluster fences,
+ * and the set is re-registered as the player moves. How often the manual proximity
+ * fallback is still needed is counted across sessions.
  */
 public class GeofenceManager {
     private static final String TAG = "GeofenceManager";
     private static final int GEOFENCE_EXPIRATION_TIME = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
     
+    private static final String PREFS_NAME = "geofence_stats";
+    private static final String KEY_SETUPS = "setups";
+    private static final String KEY_REPLANS = "replans";
+    private static final String KEY_MANUAL_FALLBACKS = "manual_fallbacks";
+    private static final String KEY_LIMIT_EXCEEDED = "limit_exceeded";
+    
+    // Manager whose hunt is running, for cluster and collection events from GeofenceReceiver
+    private static volatile GeofenceManager activeManager;
+    
     private final Context context;
     private final GeofencingClient geofencingClient;
     private final ErrorHandler errorHandler;
+    private final SharedPreferences stats;
     private PendingIntent geofencePendingIntent;
     private boolean manualProximityMode = false;
     
+    // Current hunt
+    private List<TreasureLocation> huntTreasures;
+    private String huntSessionId;
+    private final Set<String> collectedIds = new HashSet<>();
+    private GeofencePlanner.Plan currentPlan;
+    private Set<String> registeredIds = new HashSet<>();
+    private boolean registering = false;
+    
     public GeofenceManager(Context context) {
         this.context = context.getApplicationContext();
         this.geofencingClient = LocationServices.getGeofencingClient(this.context);
         this.errorHandler = new ErrorHandler(this.context);
+        this.stats = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
     
     /**
@@ -43,6 +74,18 @@ public class GeofenceManager {
      * @param callback Callback for success/failure
      */
     public void setupGeofences(List<TreasureLocation> treasures, String sessionId, GeofenceCallback callback) {
+        setupGeofences(treasures, sessionId, null, callback);
+    }
+    
+    /**
+     * Set up geofences for a list of treasure locations around the current position
+     * @param treasures List of treasure locations to create geofences for
+     * @param sessionId Session ID for tracking
+     * @param currentLocation Current position, or null to plan around the treasures until the first fix
+     * @param callback Callback for success/failure
+     */
+    public void setupGeofences(List<TreasureLocation> treasures, String sessionId, Location currentLocation,
+                               GeofenceCallback callback) {
         if (treasures == null || treasures.isEmpty()) {
             Log.w(TAG, "No treasures provided for geofence setup");
             callback.onFailure("No treasures to set up geofences for");
@@ -53,18 +96,28 @@ public class GeofenceManager {
         if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) 
                 != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "Location permission not granted for geofence setup");
+            recordManualFallback(ErrorHandler.GeofenceFailureType.GEOFENCE_PERMISSION_DENIED);
             callback.onFailure("Location permission required for geofence setup");
             return;
         }
         
-        List<Geofence> geofenceList = createGeofenceList(treasures);
-        GeofencingRequest geofencingRequest = createGeofencingRequest(geofenceList);
+        GeofencePlanner.Plan plan;
+        synchronized (this) {
+            huntTreasures = new ArrayList<>(treasures);
+            if (!Objects.equals(sessionId, huntSessionId)) {
+                collectedIds.clear(); // Kept when a failed setup of the same hunt is retried
+            }
+            huntSessionId = sessionId;
+            plan = planAround(currentLocation);
+        }
+        activeManager = this;
+        increment(KEY_SETUPS);
         
-        geofencingClient.addGeofences(geofencingRequest, getGeofencePendingIntent())
+        registerPlan(plan)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Geofences added successfully for session: " + sessionId);
                 manualProximityMode = false;
-                callback.onSuccess(geofenceList.size());
+                callback.onSuccess(plan.getFenceCount());
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Failed to add geofences for session: " + sessionId, e);
@@ -72,12 +125,146 @@ public class GeofenceManager {
             });
     }
     
+    /**
+     * Re-register the fences around the player once they have moved far enough from
+     * where the current set was planned (call this from location updates)
+     */
+    public void onLocationChanged(Location location) {
+        GeofencePlanner.Plan plan;
+        synchronized (this) {
+            if (location == null || currentPlan == null || manualProximityMode || registering
+                    || !currentPlan.isStale(location.getLatitude(), location.getLongitude())) {
+                return;
+            }
+            plan = planAround(location);
+        }
+        replan(plan, "moved");
+    }
+    
+    /**
+     * A cluster fence was entered: bring the treasures around the player into the fine set
+     */
+    static void onClusterEntered(Location triggeringLocation) {
+        GeofenceManager manager = activeManager;
+        if (manager == null || triggeringLocation == null) {
+            return;
+        }
+        GeofencePlanner.Plan plan;
+        synchronized (manager) {
+            if (manager.currentPlan == null || manager.manualProximityMode || manager.registering) {
+                return;
+            }
+            plan = manager.planAround(triggeringLocation);
+        }
+        manager.replan(plan, "cluster entered");
+    }
+    
+    /**
+     * A treasure was collected; it is left out of the next plan
+     */
+    static void onTreasureCollected(String treasureId) {
+        GeofenceManager manager = activeManager;
+        if (manager != null) {
+            synchronized (manager) {
+                manager.collectedIds.add(treasureId);
+            }
+        }
+    }
+    
+    private GeofencePlanner.Plan planAround(Location location) {
+        return GeofencePlanner.plan(huntTreasures, collectedIds,
+                location != null ? location.getLatitude() : Double.NaN,
+                location != null ? location.getLongitude() : Double.NaN);
+    }
+    
+    private void replan(GeofencePlanner.Plan plan, String reason) {
+        synchronized (this) {
+            // Same fences from a new position: only the origin moves, nothing to register
+            if (currentPlan != null && plan.getRequestIds().equals(registeredIds)) {
+                currentPlan = plan;
+                return;
+            }
+        }
+        increment(KEY_REPLANS);
+        Log.d(TAG, "Re-registering geofences (" + reason + "): " + plan.fineTreasures.size()
+                + " treasures, " + plan.clusters.size() + " clusters");
+        String sessionId = huntSessionId;
+        List<TreasureLocation> treasures = huntTreasures;
+        registerPlan(plan)
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Failed to re-register geofences for session: " + sessionId, e);
+                // Manual mode is picked up by TreasureHuntLocationManager on the next fix
+                handleGeofenceFailure(e, treasures, sessionId, new GeofenceCallback() {
+                    @Override
+                    public void onSuccess(int geofenceCount) {
+                        Log.d(TAG, "Treasure detection continues with " + geofenceCount + " treasures");
+                    }
+                    
+                    @Override
+                    public void onFailure(String error) {
+                        Log.w(TAG, "Treasure detection degraded: " + error);
+                    }
+                });
+            });
+    }
+    
+    /**
+     * Add the plan's fences, then remove fences of the previous plan that are no longer in it
+     */
+    private Task<Void> registerPlan(GeofencePlanner.Plan plan) {
+        List<Geofence> geofenceList = createGeofenceList(plan);
+        if (geofenceList.isEmpty()) {
+            synchronized (this) {
+                currentPlan = plan;
+            }
+            return Tasks.forResult(null);
+        }
+        synchronized (this) {
+            registering = true;
+        }
+        GeofencingRequest geofencingRequest = createGeofencingRequest(geofenceList);
+        
+        // Listeners run in the order they were added, so callers see the new plan in place
+        return geofencingClient.addGeofences(geofencingRequest, getGeofencePendingIntent())
+            .addOnSuccessListener(aVoid -> {
+                Set<String> newIds = plan.getRequestIds();
+                List<String> staleIds = new ArrayList<>();
+                synchronized (this) {
+                    for (String id : registeredIds) {
+                        if (!newIds.contains(id)) {
+                            staleIds.add(id);
+                        }
+                    }
+                    registeredIds = newIds;
+                    currentPlan = plan;
+                    registering = false;
+                }
+                if (!staleIds.isEmpty()) {
+                    geofencingClient.removeGeofences(staleIds);
+                }
+            })
+            .addOnFailureListener(e -> {
+                synchronized (this) {
+                    registering = false;
+                }
+            });
+    }
+    
     /**
      * Remove all geofences for a session
      * @param sessionId Session ID to remove geofences for
      * @param callback Callback for success/failure
      */
     public void removeGeofences(String sessionId, GeofenceCallback callback) {
+        synchronized (this) {
+            currentPlan = null;
+            huntTreasures = null;
+            registeredIds = new HashSet<>();
+            collectedIds.clear();
+        }
+        if (activeManager == this) {
+            activeManager = null;
+        }
         if (geofencePendingIntent != null) {
             geofencingClient.removeGeofences(geofencePendingIntent)
                 .addOnSuccessListener(aVoid -> {
@@ -117,12 +304,12 @@ public class GeofenceManager {
     }
     
     /**
-     * Create a list of Geofence objects from treasure locations
+     * Create a list of Geofence objects for the treasures and clusters of a plan
      */
-    private List<Geofence> createGeofenceList(List<TreasureLocation> treasures) {
+    private List<Geofence> createGeofenceList(GeofencePlanner.Plan plan) {
         List<Geofence> geofenceList = new ArrayList<>();
         
-        for (TreasureLocation treasure : treasures) {
+        for (TreasureLocation treasure : plan.fineTreasures) {
             if (!treasure.isCollected) {
                 Geofence geofence = new Geofence.Builder()
                     .setRequestId(treasure.treasureId)
@@ -142,6 +329,15 @@ public class GeofenceManager {
             }
         }
         
+        for (GeofencePlanner.ClusterFence cluster : plan.clusters) {
+            geofenceList.add(new Geofence.Builder()
+                .setRequestId(cluster.requestId)
+                .setCircularRegion(cluster.latitude, cluster.longitude, cluster.radius)
+                .setExpirationDuration(GEOFENCE_EXPIRATION_TIME)
+                .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER)
+                .build());
+        }
+        
         return geofenceList;
     }
     
@@ -186,6 +382,7 @@ public class GeofenceManager {
             public void onContinueWithManualChecking() {
                 Log.i(TAG, "Switching to manual proximity checking for session: " + sessionId);
                 manualProximityMode = true;
+                recordManualFallback(failureType);
                 callback.onSuccess(treasures.size()); // Report success with manual mode
             }
             
@@ -230,6 +427,36 @@ public class GeofenceManager {
         return manualProximityMode;
     }
     
+    /**
+     * Count a switch to manual proximity checking
+     */
+    private void recordManualFallback(ErrorHandler.GeofenceFailureType failureType) {
+        increment(KEY_MANUAL_FALLBACKS);
+        if (failureType == ErrorHandler.GeofenceFailureType.GEOFENCE_LIMIT_EXCEEDED) {
+            increment(KEY_LIMIT_EXCEEDED);
+        }
+        Log.w(TAG, "Manual proximity fallback (" + failureType + "): " + getManualFallbackCount()
+                + " of " + stats.getInt(KEY_SETUPS, 0) + " hunts");
+    }
+    
+    private void increment(String key) {
+        stats.edit().putInt(key, stats.getInt(key, 0) + 1).apply();
+    }
+    
+    /**
+     * @return How often geofencing had to fall back to manual proximity checking
+     */
+    public int getManualFallbackCount() {
+        return stats.getInt(KEY_MANUAL_FALLBACKS, 0);
+    }
+    
+    /**
+     * @return How many of those fallbacks were caused by the geofence limit
+     */
+    public int getLimitExceededCount() {
+        return stats.getInt(KEY_LIMIT_EXCEEDED, 0);
+    }
+    
     /**
      * Manually check proximity to treasures (fallback when geofences fail)
      */
@@ -295,6 +522,15 @@ public class GeofenceManager {
         status.append("Geofence Manager Status:\n");
         status.append("- Manual proximity mode: ").append(manualProximityMode).append("\n");
         status.append("- Pending intent active: ").append(geofencePendingIntent != null).append("\n");
+        GeofencePlanner.Plan plan = currentPlan;
+        if (plan != null) {
+            status.append("- Registered: ").append(plan.fineTreasures.size()).append(" treasures, ")
+                  .append(plan.clusters.size()).append(" clusters\n");
+        }
+        status.append("- Hunts: ").append(stats.getInt(KEY_SETUPS, 0))
+              .append(", re-registrations: ").append(stats.getInt(KEY_REPLANS, 0)).append("\n");
+        status.append("- Manual fallbacks: ").append(getManualFallbackCount())
+              .append(" (limit exceeded: ").append(getLimitExceededCount()).append(")\n");
         
         // Check location permission
         boolean hasLocationPermission = ActivityCompat.checkSelfPermission(context, 
@@ -0,0 +1,213 @@
+package com.example.caloriechase.location;
+
+import com.example.caloriechase.data.TreasureLocation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses which geofences to register for a hunt so long hunts stay within the
+ * platform limit of 100 geofences per app.
+ *
+ * Only the nearest {@link #FINE_FENCE_COUNT} uncollected treasures get their own
+ * fence. The remaining treasures are grouped on a grid and each group gets one
+ * coarse cluster fence covering all of its members. Entering a cluster fence, or
+ * moving half of the way to the edge of the fine ring, means the plan is stale
+ * and should be rebuilt around the new position.
+ */
+public class GeofencePlanner {
+
+    static final int FINE_FENCE_COUNT = 20;
+    static final int MAX_CLUSTER_FENCES = 20; // Fine and cluster fences stay well below the limit of 100
+    static final double CLUSTER_CELL_METERS = 500;
+    static final float MIN_CLUSTER_RADIUS_METERS = 150f; // Smaller fences are unreliable
+    static final float MIN_REPLAN_DISTANCE_METERS = 50f;
+
+    private static final String CLUSTER_ID_PREFIX = "cluster:";
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    /**
+     * Coarse fence around a group of distant treasures
+     */
+    public static class ClusterFence {
+        public final String requestId;
+        public final double latitude;
+        public final double longitude;
+        public final float radius;
+        public final int memberCount;
+
+        ClusterFence(String requestId, double latitude, double longitude, float radius, int memberCount) {
+            this.requestId = requestId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.memberCount = memberCount;
+        }
+    }
+
+    /**
+     * Fences to register for one position
+     */
+    public static class Plan {
+        public final double originLatitude;
+        public final double originLongitude;
+        public final boolean hasOrigin; // False when planned without a fix, around the treasures' centroid
+        public final List<TreasureLocation> fineTreasures;
+        public final List<ClusterFence> clusters;
+        public final float replanDistance; // Meters from the origin after which the plan is stale
+
+        Plan(double originLatitude, double originLongitude, boolean hasOrigin,
+             List<TreasureLocation> fineTreasures, List<ClusterFence> clusters, float replanDistance) {
+            this.originLatitude = originLatitude;
+            this.originLongitude = originLongitude;
+            this.hasOrigin = hasOrigin;
+            this.fineTreasures = fineTreasures;
+            this.clusters = clusters;
+            this.replanDistance = replanDistance;
+        }
+
+        public int getFenceCount() {
+            return fineTreasures.size() + clusters.size();
+        }
+
+        /**
+         * @return True once the position has moved far enough for treasures outside the
+         *         fine ring to be closer than the fenced ones
+         */
+        public boolean isStale(double latitude, double longitude) {
+            if (clusters.isEmpty()) {
+                return false; // Every treasure has its own fence
+            }
+            return !hasOrigin
+                    || distanceMeters(originLatitude, originLongitude, latitude, longitude) >= replanDistance;
+        }
+
+        /**
+         * @return Request ids of all fences in the plan
+         */
+        public Set<String> getRequestIds() {
+            Set<String> ids = new HashSet<>();
+            for (TreasureLocation treasure : fineTreasures) {
+                ids.add(treasure.treasureId);
+            }
+            for (ClusterFence cluster : clusters) {
+                ids.add(cluster.requestId);
+            }
+            return ids;
+        }
+    }
+
+    public static boolean isClusterId(String requestId) {
+        return requestId != null && requestId.startsWith(CLUSTER_ID_PREFIX);
+    }
+
+    /**
+     * Plan fences around a position
+     *
+     * @param collectedIds Treasures known to be collected even if the list is stale
+     * @param latitude Current position, or NaN when there is no fix yet
+     */
+    public static Plan plan(List<TreasureLocation> treasures, Set<String> collectedIds,
+                            double latitude, double longitude) {
+        List<TreasureLocation> open = new ArrayList<>();
+        for (TreasureLocation treasure : treasures) {
+            if (!treasure.isCollected && !collectedIds.contains(treasure.treasureId)) {
+                open.add(treasure);
+            }
+        }
+
+        boolean hasOrigin = !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        if (!hasOrigin && !open.isEmpty()) {
+            double latSum = 0, lngSum = 0;
+            for (TreasureLocation treasure : open) {
+                latSum += treasure.latitude;
+                lngSum += treasure.longitude;
+            }
+            latitude = latSum / open.size();
+            longitude = lngSum / open.size();
+        }
+
+        if (open.size() <= FINE_FENCE_COUNT) {
+            return new Plan(latitude, longitude, hasOrigin, open, new ArrayList<>(), Float.MAX_VALUE);
+        }
+
+        // Nearest treasures first
+        final double originLat = latitude;
+        final double originLng = longitude;
+        Map<TreasureLocation, Double> distances = new LinkedHashMap<>();
+        for (TreasureLocation treasure : open) {
+            distances.put(treasure, distanceMeters(originLat, originLng, treasure.latitude, treasure.longitude));
+        }
+        Collections.sort(open, (a, b) -> Double.compare(distances.get(a), distances.get(b)));
+
+        List<TreasureLocation> fine = new ArrayList<>(open.subList(0, FINE_FENCE_COUNT));
+        List<TreasureLocation> rest = open.subList(FINE_FENCE_COUNT, open.size());
+        double ringRadius = distances.get(fine.get(fine.size() - 1));
+
+        // Coarsen the grid until the groups fit
+        double cellMeters = CLUSTER_CELL_METERS;
+        List<List<TreasureLocation>> groups = group(rest, originLat, originLng, cellMeters);
+        while (groups.size() > MAX_CLUSTER_FENCES) {
+            cellMeters *= 2;
+            groups = group(rest, originLat, originLng, cellMeters);
+        }
+
+        List<ClusterFence> clusters = new ArrayList<>(groups.size());
+        for (List<TreasureLocation> members : groups) {
+            clusters.add(toClusterFence(CLUSTER_ID_PREFIX + clusters.size(), members));
+        }
+
+        // Within half the ring, everything closer than the distance left to the ring is fenced
+        float replanDistance = (float) Math.max(MIN_REPLAN_DISTANCE_METERS, ringRadius / 2);
+        return new Plan(originLat, originLng, hasOrigin, fine, clusters, replanDistance);
+    }
+
+    private static List<List<TreasureLocation>> group(List<TreasureLocation> treasures,
+                                                      double originLat, double originLng, double cellMeters) {
+        double metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+        Map<Long, List<TreasureLocation>> cells = new LinkedHashMap<>();
+        for (TreasureLocation treasure : treasures) {
+            long cellX = (long) Math.floor((treasure.longitude - originLng) * metersPerDegreeLng / cellMeters);
+            long cellY = (long) Math.floor((treasure.latitude - originLat) * METERS_PER_DEGREE / cellMeters);
+            long key = (cellX << 32) ^ (cellY & 0xffffffffL);
+            List<TreasureLocation> cell = cells.get(key);
+            if (cell == null) {
+                cell = new ArrayList<>();
+                cells.put(key, cell);
+            }
+            cell.add(treasure);
+        }
+        return new ArrayList<>(cells.values());
+    }
+
+    private static ClusterFence toClusterFence(String requestId, List<TreasureLocation> members) {
+        double latSum = 0, lngSum = 0;
+        for (TreasureLocation treasure : members) {
+            latSum += treasure.latitude;
+            lngSum += treasure.longitude;
+        }
+        double centerLat = latSum / members.size();
+        double centerLng = lngSum / members.size();
+
+        double radius = MIN_CLUSTER_RADIUS_METERS;
+        for (TreasureLocation treasure : members) {
+            double reach = distanceMeters(centerLat, centerLng, treasure.latitude, treasure.longitude) + treasure.radius;
+            radius = Math.max(radius, reach);
+        }
+        return new ClusterFence(requestId, centerLat, centerLng, (float) radius, members.size());
+    }
+
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -10,6 +10,7 @@ import com.example.caloriechase.data.TreasureHuntDatabase;
 import com.example.caloriechase.data.TreasureDao;
 import com.example.caloriechase.data.TreasureLocation;
 import com.example.caloriechase.data.SessionManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -41,8 +42,25 @@ public class GeofenceReceiver extends BroadcastReceiver {
         // Only handle ENTER transitions (treasure collection)
         if (geofenceTransition == Geofence.GEOFENCE_TRANSITION_ENTER) {
             List<Geofence> triggeringGeofences = geofencingEvent.getTriggeringGeofences();
-            if (triggeringGeofences != null && !triggeringGeofences.isEmpty()) {
-                handleTreasureCollection(context, triggeringGeofences);
+            if (triggeringGeofences == null || triggeringGeofences.isEmpty()) {
+                return;
+            }
+            
+            // Cluster fences only stand in for distant treasures; entering one re-plans the fences
+            List<Geofence> treasureGeofences = new ArrayList<>();
+            boolean clusterEntered = false;
+            for (Geofence geofence : triggeringGeofences) {
+                if (GeofencePlanner.isClusterId(geofence.getRequestId())) {
+                    clusterEntered = true;
+                } else {
+                    treasureGeofences.add(geofence);
+                }
+            }
+            if (clusterEntered) {
+                GeofenceManager.onClusterEntered(geofencingEvent.getTriggeringLocation());
+            }
+            if (!treasureGeofences.isEmpty()) {
+                handleTreasureCollection(context, treasureGeofences);
             }
         } else {
             Log.d(TAG, "Ignoring geofence transition: " + geofenceTransition);
@@ -76,6 +94,7 @@ public class GeofenceReceiver extends BroadcastReceiver {
                         
                         // Notify session manager about treasure collection
                         sessionManager.onTreasureCollected(treasure);
+                        GeofenceManager.onTreasureCollected(treasureId);
                         
                         // Trigger collection animation and feedback
                         triggerCollectionFeedback(context, treasure);
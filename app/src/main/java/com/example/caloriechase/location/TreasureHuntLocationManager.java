@@ -18,6 +18,7 @@ public class TreasureHuntLocationManager {
     private final GeofenceManager geofenceManager;
     private final TreasureCollectionManager treasureCollectionManager;
     private final SessionManager sessionManager;
+    private Location lastLocation;
     
     public TreasureHuntLocationManager(Context context) {
         this.context = context.getApplicationContext();
@@ -35,8 +36,8 @@ public class TreasureHuntLocationManager {
     public void startTreasureHunt(List<TreasureLocation> treasures, String sessionId, TreasureHuntCallback callback) {
         Log.d(TAG, "Starting treasure hunt for session: " + sessionId + " with " + treasures.size() + " treasures");
         
-        // Set up geofences first
-        geofenceManager.setupGeofences(treasures, sessionId, new GeofenceManager.GeofenceCallback() {
+        // Set up geofences first, around the player if a fix has been seen
+        geofenceManager.setupGeofences(treasures, sessionId, lastLocation, new GeofenceManager.GeofenceCallback() {
             @Override
             public void onSuccess(int geofenceCount) {
                 Log.d(TAG, "Geofences set up successfully: " + geofenceCount);
@@ -87,6 +88,14 @@ public class TreasureHuntLocationManager {
      * @param sessionId Active session ID
      */
     public void updateLocation(Location location, String sessionId) {
+        lastLocation = location;
+        
+        // Geofences failed, possibly during a re-registration: check proximity on every fix instead
+        if (geofenceManager.isManualProximityMode() && !treasureCollectionManager.isProximityCheckingEnabled()) {
+            setProximityCheckingEnabled(true);
+        }
+        geofenceManager.onLocationChanged(location);
+        
         // This will only do proximity checking if geofences failed and it's enabled
         treasureCollectionManager.checkProximityForTreasures(location, sessionId);
     }
@@ -0,0 +1,141 @@
+package com.example.caloriechase.location;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a fixed set of treasure positions for "which treasures are within
+ * r meters" lookups.
+ *
+ * Positions are projected once into a local east/north meter frame. Cells are at least
+ * as large as the query radius, so a lookup only reads the 3x3 block of cells around the
+ * player instead of measuring the distance to every treasure. Cells are stored as a
+ * sorted key array with offsets into one index array, so lookups allocate nothing.
+ */
+public class TreasureProximityIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    private final double originLat;
+    private final double originLng;
+    private final double metersPerDegLat;
+    private final double metersPerDegLng;
+    private final double cellSize;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final boolean[] removed;
+    private int activeCount;
+
+    private final long[] cellKeys; // sorted, one per non-empty cell
+    private final int[] cellStarts; // cellStarts[i]..cellStarts[i + 1] index into cellMembers
+    private final int[] cellMembers;
+
+    /**
+     * @param latitudes Treasure latitudes; the array position is the treasure index
+     * @param longitudes Treasure longitudes
+     * @param maxQueryRadiusMeters Largest radius that will be passed to {@link #findWithin}
+     */
+    public TreasureProximityIndex(double[] latitudes, double[] longitudes, float maxQueryRadiusMeters) {
+        int count = Math.min(latitudes.length, longitudes.length);
+        this.originLat = count > 0 ? latitudes[0] : 0;
+        this.originLng = count > 0 ? longitudes[0] : 0;
+        this.metersPerDegLat = Math.toRadians(1) * EARTH_RADIUS_METERS;
+        this.metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(originLat));
+        this.cellSize = Math.max(1.0, maxQueryRadiusMeters);
+
+        xs = new double[count];
+        ys = new double[count];
+        removed = new boolean[count];
+        activeCount = count;
+
+        // Sort treasures by cell key, then collapse runs into cells
+        long[] keyed = new long[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = (longitudes[i] - originLng) * metersPerDegLng;
+            ys[i] = (latitudes[i] - originLat) * metersPerDegLat;
+            keyed[i] = cellKey(cellOf(xs[i]), cellOf(ys[i]));
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyed[a], keyed[b]));
+
+        long[] keys = new long[count];
+        int[] starts = new int[count + 1];
+        cellMembers = new int[count];
+        int cells = 0;
+        for (int i = 0; i < count; i++) {
+            cellMembers[i] = order[i];
+            long key = keyed[order[i]];
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = count;
+        cellKeys = Arrays.copyOf(keys, cells);
+        cellStarts = Arrays.copyOf(starts, cells + 1);
+    }
+
+    /**
+     * Write the indexes of treasures within radiusMeters of the point into out.
+     *
+     * @return Number of indexes written
+     */
+    public int findWithin(double latitude, double longitude, float radiusMeters, int[] out) {
+        if (activeCount == 0) {
+            return 0;
+        }
+        double x = (longitude - originLng) * metersPerDegLng;
+        double y = (latitude - originLat) * metersPerDegLat;
+        double radiusSq = (double) radiusMeters * radiusMeters;
+        int cx = cellOf(x);
+        int cy = cellOf(y);
+
+        int found = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int cell = Arrays.binarySearch(cellKeys, cellKey(cx + dx, cy + dy));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int m = cellStarts[cell]; m < cellStarts[cell + 1]; m++) {
+                    int index = cellMembers[m];
+                    if (removed[index]) {
+                        continue;
+                    }
+                    double ex = xs[index] - x;
+                    double ey = ys[index] - y;
+                    if (ex * ex + ey * ey <= radiusSq && found < out.length) {
+                        out[found++] = index;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Stop returning a treasure, e.g. once it is collected
+     */
+    public void remove(int index) {
+        if (index >= 0 && index < removed.length && !removed[index]) {
+            removed[index] = true;
+            activeCount--;
+        }
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    private int cellOf(double meters) {
+        return (int) Math.floor(meters / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
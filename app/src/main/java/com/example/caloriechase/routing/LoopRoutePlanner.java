@@ -0,0 +1,272 @@
+package com.example.caloriechase.routing;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device route planner over the cached street graph tiles.
+ *
+ * Replaces the Directions round trip for session setup: point-to-point routes are
+ * a single A* search, and loop routes are built from a triangle of waypoints
+ * (start -> A -> B -> start) whose size is rescaled until the routed length is
+ * within tolerance of the target. When no loop fits - dead-end valleys, coastal
+ * starts - an out-and-back route along the same street is used instead.
+ */
+public class LoopRoutePlanner {
+
+    private static final String TAG = "LoopRoutePlanner";
+
+    private static final double START_SNAP_RADIUS_METERS = 300.0;
+    private static final double WAYPOINT_SNAP_RADIUS_METERS = 250.0;
+    private static final double STREET_DETOUR_FACTOR = 1.3; // Typical street distance vs straight line
+    private static final double ROUTE_LENGTH_TOLERANCE = 0.1; // Target is met within 10%
+    private static final double MAX_ACCEPTED_ERROR = 0.25; // Worse than this and the route is rejected
+    private static final int LOOP_BEARINGS = 6;
+    private static final int MAX_FITTING_ITERATIONS = 4;
+
+    private static volatile LoopRoutePlanner instance;
+
+    private final StreetGraphStore graphStore;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+    private final Random random = new Random();
+
+    /**
+     * Route callbacks are always delivered on the main thread
+     */
+    public interface RouteCallback {
+        void onRoute(PlannedRoute route);
+        void onNoRoute(String reason);
+    }
+
+    private LoopRoutePlanner(Context context) {
+        this.graphStore = StreetGraphStore.getInstance(context);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Get singleton instance of LoopRoutePlanner
+     */
+    public static LoopRoutePlanner getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LoopRoutePlanner.class) {
+                if (instance == null) {
+                    instance = new LoopRoutePlanner(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Plan a route from one point to another in the background
+     */
+    public void planToAsync(double fromLat, double fromLng, double toLat, double toLng, RouteCallback callback) {
+        executor.execute(() -> deliver(planTo(fromLat, fromLng, toLat, toLng), callback));
+    }
+
+    /**
+     * Plan a loop (or out-and-back) route of roughly {@code targetMeters} in the background
+     */
+    public void planLoopAsync(double latitude, double longitude, double targetMeters, RouteCallback callback) {
+        executor.execute(() -> deliver(planLoop(latitude, longitude, targetMeters), callback));
+    }
+
+    private void deliver(PlannedRoute route, RouteCallback callback) {
+        if (route != null) {
+            mainHandler.post(() -> callback.onRoute(route));
+        } else {
+            mainHandler.post(() -> callback.onNoRoute("No offline route available"));
+        }
+    }
+
+    /**
+     * Blocking point-to-point route; call off the main thread
+     *
+     * @return The route, or null if no graph covers both points
+     */
+    public PlannedRoute planTo(double fromLat, double fromLng, double toLat, double toLng) {
+        StreetGraph graph = graphStore.getGraphAround(fromLat, fromLng);
+        if (graph == null || !graph.covers(toLat, toLng)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        PlannedRoute route = planTo(graph, fromLat, fromLng, toLat, toLng);
+        if (route != null) {
+            Log.d(TAG, "Planned " + Math.round(route.lengthMeters) + "m route in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+        return route;
+    }
+
+    /**
+     * Blocking loop route; call off the main thread
+     *
+     * @return The route, or null if no graph covers the start or nothing came close to the target
+     */
+    public PlannedRoute planLoop(double latitude, double longitude, double targetMeters) {
+        StreetGraph graph = graphStore.getGraphAround(latitude, longitude);
+        if (graph == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        double bearingOffset;
+        synchronized (random) {
+            bearingOffset = random.nextDouble() * 2.0 * Math.PI;
+        }
+        PlannedRoute route = planLoop(graph, latitude, longitude, targetMeters, bearingOffset);
+        if (route != null) {
+            Log.d(TAG, "Planned " + (route.loop ? "loop" : "out-and-back") + " of " +
+                       Math.round(route.lengthMeters) + "m for " + Math.round(targetMeters) + "m target in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+        return route;
+    }
+
+    static PlannedRoute planTo(StreetGraph graph, double fromLat, double fromLng, double toLat, double toLng) {
+        int from = graph.nearestNode(fromLat, fromLng, START_SNAP_RADIUS_METERS);
+        if (from < 0) {
+            return null;
+        }
+        int to = graph.nearestNode(toLat, toLng, WAYPOINT_SNAP_RADIUS_METERS, graph.componentOf(from));
+        if (to < 0) {
+            return null;
+        }
+        StreetGraph.NodePath path = new StreetGraph.NodePath();
+        double length = graph.shortestPath(from, to, path);
+        if (length < 0) {
+            return null;
+        }
+        return new PlannedRoute.Builder().append(graph, path, length).build(false);
+    }
+
+    static PlannedRoute planLoop(StreetGraph graph, double latitude, double longitude,
+                                 double targetMeters, double bearingOffset) {
+        int start = graph.nearestNode(latitude, longitude, START_SNAP_RADIUS_METERS);
+        if (start < 0 || targetMeters <= 0) {
+            return null;
+        }
+        int component = graph.componentOf(start);
+        StreetGraph.NodePath legA = new StreetGraph.NodePath();
+        StreetGraph.NodePath legB = new StreetGraph.NodePath();
+        StreetGraph.NodePath legC = new StreetGraph.NodePath();
+
+        PlannedRoute best = null;
+        for (int b = 0; b < LOOP_BEARINGS; b++) {
+            double bearing = bearingOffset + 2.0 * Math.PI * b / LOOP_BEARINGS;
+            PlannedRoute loop = fitTriangleLoop(graph, start, component, targetMeters, bearing, legA, legB, legC);
+            best = better(best, loop, targetMeters);
+            if (withinTolerance(best, targetMeters)) {
+                return best;
+            }
+        }
+
+        for (int b = 0; b < LOOP_BEARINGS; b++) {
+            double bearing = bearingOffset + 2.0 * Math.PI * b / LOOP_BEARINGS;
+            PlannedRoute outAndBack = fitOutAndBack(graph, start, component, targetMeters, bearing, legA);
+            best = better(best, outAndBack, targetMeters);
+            if (withinTolerance(best, targetMeters)) {
+                return best;
+            }
+        }
+
+        if (best == null || Math.abs(best.lengthMeters - targetMeters) > targetMeters * MAX_ACCEPTED_ERROR) {
+            return null;
+        }
+        return best;
+    }
+
+    /**
+     * Equilateral triangle start -> A -> B -> start pointing along {@code bearing}
+     */
+    private static PlannedRoute fitTriangleLoop(StreetGraph graph, int start, int component, double targetMeters,
+                                                double bearing, StreetGraph.NodePath legA,
+                                                StreetGraph.NodePath legB, StreetGraph.NodePath legC) {
+        double side = targetMeters / (3.0 * STREET_DETOUR_FACTOR);
+        PlannedRoute best = null;
+        for (int iteration = 0; iteration < MAX_FITTING_ITERATIONS; iteration++) {
+            int a = snapWaypoint(graph, start, component, side, bearing - Math.PI / 6);
+            int b = snapWaypoint(graph, start, component, side, bearing + Math.PI / 6);
+            if (a < 0 || b < 0 || a == b) {
+                return best;
+            }
+            double lengthA = graph.shortestPath(start, a, legA);
+            double lengthB = graph.shortestPath(a, b, legB);
+            double lengthC = graph.shortestPath(b, start, legC);
+            if (lengthA < 0 || lengthB < 0 || lengthC < 0) {
+                return best;
+            }
+
+            PlannedRoute loop = new PlannedRoute.Builder()
+                    .append(graph, legA, lengthA)
+                    .append(graph, legB, lengthB)
+                    .append(graph, legC, lengthC)
+                    .build(true);
+            best = better(best, loop, targetMeters);
+            if (withinTolerance(loop, targetMeters)) {
+                return loop;
+            }
+            side *= clampScale(targetMeters / loop.lengthMeters);
+        }
+        return best;
+    }
+
+    private static PlannedRoute fitOutAndBack(StreetGraph graph, int start, int component, double targetMeters,
+                                              double bearing, StreetGraph.NodePath leg) {
+        double reach = targetMeters / (2.0 * STREET_DETOUR_FACTOR);
+        PlannedRoute best = null;
+        for (int iteration = 0; iteration < MAX_FITTING_ITERATIONS; iteration++) {
+            int turnaround = snapWaypoint(graph, start, component, reach, bearing);
+            if (turnaround < 0) {
+                return best;
+            }
+            double length = graph.shortestPath(start, turnaround, leg);
+            if (length <= 0) {
+                return best;
+            }
+
+            PlannedRoute route = new PlannedRoute.Builder()
+                    .append(graph, leg, length)
+                    .appendReversed(graph, leg, length)
+                    .build(false);
+            best = better(best, route, targetMeters);
+            if (withinTolerance(route, targetMeters)) {
+                return route;
+            }
+            reach *= clampScale(targetMeters / route.lengthMeters);
+        }
+        return best;
+    }
+
+    private static int snapWaypoint(StreetGraph graph, int start, int component,
+                                    double distanceMeters, double bearing) {
+        double startLat = graph.latitudeOf(start);
+        double startLng = graph.longitudeOf(start);
+        double angular = distanceMeters / StreetGraph.EARTH_RADIUS_METERS;
+        double lat = startLat + Math.toDegrees(angular * Math.cos(bearing));
+        double lng = startLng + Math.toDegrees(angular * Math.sin(bearing)) / Math.cos(Math.toRadians(startLat));
+        int node = graph.nearestNode(lat, lng, WAYPOINT_SNAP_RADIUS_METERS, component);
+        return node == start ? -1 : node;
+    }
+
+    private static double clampScale(double scale) {
+        return Math.max(0.3, Math.min(3.0, scale));
+    }
+
+    private static boolean withinTolerance(PlannedRoute route, double targetMeters) {
+        return route != null && Math.abs(route.lengthMeters - targetMeters) <= targetMeters * ROUTE_LENGTH_TOLERANCE;
+    }
+
+    private static PlannedRoute better(PlannedRoute current, PlannedRoute candidate, double targetMeters) {
+        if (candidate == null) return current;
+        if (current == null) return candidate;
+        return Math.abs(candidate.lengthMeters - targetMeters) < Math.abs(current.lengthMeters - targetMeters)
+                ? candidate : current;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.caloriechase.routing;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A route computed over the street graph, kept as primitive coordinate arrays
+ */
+public class PlannedRoute {
+
+    public final double[] latitudes;
+    public final double[] longitudes;
+    public final double lengthMeters;
+    public final boolean loop;
+
+    PlannedRoute(double[] latitudes, double[] longitudes, double lengthMeters, boolean loop) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.lengthMeters = lengthMeters;
+        this.loop = loop;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Materialise the points for map APIs that only accept LatLng
+     */
+    public List<LatLng> toLatLngList() {
+        List<LatLng> points = new ArrayList<>(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            points.add(new LatLng(latitudes[i], longitudes[i]));
+        }
+        return points;
+    }
+
+    /**
+     * Concatenates routed legs into one polyline without repeating the shared junction nodes
+     */
+    public static class Builder {
+        private double[] latitudes = new double[256];
+        private double[] longitudes = new double[256];
+        private int size;
+        private double lengthMeters;
+
+        public double getLengthMeters() {
+            return lengthMeters;
+        }
+
+        public Builder append(StreetGraph graph, StreetGraph.NodePath leg, double legLengthMeters) {
+            return append(graph, leg, legLengthMeters, false);
+        }
+
+        /**
+         * Append a leg walked backwards, e.g. the return half of an out-and-back route
+         */
+        public Builder appendReversed(StreetGraph graph, StreetGraph.NodePath leg, double legLengthMeters) {
+            return append(graph, leg, legLengthMeters, true);
+        }
+
+        private Builder append(StreetGraph graph, StreetGraph.NodePath leg, double legLengthMeters, boolean reversed) {
+            int first = size == 0 ? 0 : 1;
+            int needed = size + leg.size() - first;
+            if (needed > latitudes.length) {
+                int capacity = Math.max(needed, latitudes.length * 2);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            for (int i = first; i < leg.size(); i++) {
+                int node = leg.get(reversed ? leg.size() - 1 - i : i);
+                latitudes[size] = graph.latitudeOf(node);
+                longitudes[size] = graph.longitudeOf(node);
+                size++;
+            }
+            lengthMeters += legLengthMeters;
+            return this;
+        }
+
+        public PlannedRoute build(boolean loop) {
+            return new PlannedRoute(Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size),
+                                    lengthMeters, loop);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.caloriechase.routing;
+
+import java.util.Arrays;
+
+/**
+ * Pedestrian/cycle street graph held entirely in primitive arrays.
+ *
+ * Adjacency is stored in compressed sparse row form: the outgoing edges of node
+ * {@code n} are {@code edgeTarget[edgeStart[n] .. edgeStart[n + 1])} with their
+ * lengths in meters in {@code edgeLength}. Edges are stored in both directions.
+ * A uniform grid over the bounding box gives nearest-node lookups, and connected
+ * components are labelled once so snapping can be restricted to nodes that are
+ * actually reachable from the start.
+ */
+public class StreetGraph {
+
+    static final double EARTH_RADIUS_METERS = 6371000.0;
+    private static final double GRID_CELL_METERS = 100.0;
+
+    final int nodeCount;
+    final double[] latitudes;
+    final double[] longitudes;
+    final int[] edgeStart;
+    final int[] edgeTarget;
+    final float[] edgeLength;
+
+    // Spatial grid: nodes sorted by cell, cellStart indexes into cellNodes
+    private final double minLat;
+    private final double minLng;
+    private final double cellLatDeg;
+    private final double cellLngDeg;
+    private final int gridCols;
+    private final int gridRows;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    private final int[] component;
+
+    // A* scratch state, reused across searches (searches are synchronized)
+    private final double[] gScore;
+    private final int[] cameFrom;
+    private final int[] visitStamp;
+    private final boolean[] closed;
+    private int stamp;
+    private int[] heapNodes = new int[256];
+    private double[] heapKeys = new double[256];
+    private int heapSize;
+
+    StreetGraph(double[] latitudes, double[] longitudes, int[] edgeStart, int[] edgeTarget, float[] edgeLength) {
+        this.nodeCount = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.edgeStart = edgeStart;
+        this.edgeTarget = edgeTarget;
+        this.edgeLength = edgeLength;
+
+        // Bounding box and grid dimensions
+        double minLatitude = Double.MAX_VALUE, maxLatitude = -Double.MAX_VALUE;
+        double minLongitude = Double.MAX_VALUE, maxLongitude = -Double.MAX_VALUE;
+        for (int i = 0; i < nodeCount; i++) {
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+        }
+        if (nodeCount == 0) {
+            minLatitude = maxLatitude = minLongitude = maxLongitude = 0;
+        }
+        double midLat = (minLatitude + maxLatitude) / 2;
+        this.minLat = minLatitude;
+        this.minLng = minLongitude;
+        this.cellLatDeg = Math.toDegrees(GRID_CELL_METERS / EARTH_RADIUS_METERS);
+        this.cellLngDeg = cellLatDeg / Math.max(0.01, Math.cos(Math.toRadians(midLat)));
+        this.gridRows = (int) ((maxLatitude - minLatitude) / cellLatDeg) + 1;
+        this.gridCols = (int) ((maxLongitude - minLongitude) / cellLngDeg) + 1;
+
+        // Counting sort of nodes into cells
+        int cellCount = gridRows * gridCols;
+        this.cellStart = new int[cellCount + 1];
+        int[] nodeCell = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeCell[i] = cellOf(latitudes[i], longitudes[i]);
+            cellStart[nodeCell[i] + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        this.cellNodes = new int[nodeCount];
+        int[] fill = Arrays.copyOf(cellStart, cellCount);
+        for (int i = 0; i < nodeCount; i++) {
+            cellNodes[fill[nodeCell[i]]++] = i;
+        }
+
+        this.component = labelComponents();
+
+        this.gScore = new double[nodeCount];
+        this.cameFrom = new int[nodeCount];
+        this.visitStamp = new int[nodeCount];
+        this.closed = new boolean[nodeCount];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double latitudeOf(int node) {
+        return latitudes[node];
+    }
+
+    public double longitudeOf(int node) {
+        return longitudes[node];
+    }
+
+    public int componentOf(int node) {
+        return component[node];
+    }
+
+    /**
+     * Whether a coordinate lies inside the graph's bounding box
+     */
+    public boolean covers(double latitude, double longitude) {
+        return nodeCount > 0
+                && latitude >= minLat && latitude <= minLat + gridRows * cellLatDeg
+                && longitude >= minLng && longitude <= minLng + gridCols * cellLngDeg;
+    }
+
+    /**
+     * Nearest node to a coordinate within {@code maxMeters}, or -1
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        return nearestNode(latitude, longitude, maxMeters, -1);
+    }
+
+    /**
+     * Nearest node within {@code maxMeters} that belongs to the given component
+     * (-1 for any component), or -1 if there is none
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters, int requiredComponent) {
+        if (nodeCount == 0) return -1;
+
+        int row = (int) Math.floor((latitude - minLat) / cellLatDeg);
+        int col = (int) Math.floor((longitude - minLng) / cellLngDeg);
+        int rings = (int) Math.ceil(maxMeters / GRID_CELL_METERS);
+
+        int best = -1;
+        double bestDist = maxMeters;
+        for (int ring = 0; ring <= rings; ring++) {
+            // Anything found in an earlier ring can't be beaten once rings are further than it
+            if (best >= 0 && (ring - 1) * GRID_CELL_METERS > bestDist) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= gridRows) continue;
+                for (int c = col - ring; c <= col + ring; c++) {
+                    if (c < 0 || c >= gridCols) continue;
+                    // Only the perimeter of the ring is new
+                    if (Math.abs(r - row) != ring && Math.abs(c - col) != ring) continue;
+                    int cell = r * gridCols + c;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int node = cellNodes[k];
+                        if (requiredComponent >= 0 && component[node] != requiredComponent) continue;
+                        double d = distanceMeters(latitude, longitude, latitudes[node], longitudes[node]);
+                        if (d <= bestDist) {
+                            bestDist = d;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A* shortest path between two nodes.
+     *
+     * @param out Receives the node sequence from {@code from} to {@code to}; cleared first
+     * @return Path length in meters, or -1 if {@code to} is unreachable
+     */
+    public synchronized double shortestPath(int from, int to, NodePath out) {
+        out.clear();
+        if (from < 0 || to < 0) return -1;
+        if (from == to) {
+            out.add(from);
+            return 0;
+        }
+
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        heapSize = 0;
+
+        double targetLat = latitudes[to];
+        double targetLng = longitudes[to];
+
+        touch(from);
+        gScore[from] = 0;
+        heapPush(from, heuristic(from, targetLat, targetLng));
+
+        while (heapSize > 0) {
+            int current = heapPop();
+            if (closed[current]) continue;
+            if (current == to) {
+                for (int n = to; n != -1; n = cameFrom[n]) {
+                    out.add(n);
+                }
+                out.reverse();
+                return gScore[to];
+            }
+            closed[current] = true;
+
+            for (int e = edgeStart[current]; e < edgeStart[current + 1]; e++) {
+                int next = edgeTarget[e];
+                boolean seen = visitStamp[next] == stamp;
+                if (seen && closed[next]) continue;
+                double tentative = gScore[current] + edgeLength[e];
+                if (!seen || tentative < gScore[next]) {
+                    if (!seen) touch(next);
+                    gScore[next] = tentative;
+                    cameFrom[next] = current;
+                    heapPush(next, tentative + heuristic(next, targetLat, targetLng));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy out the part of the graph inside a bounding box; edges leaving the box are dropped
+     */
+    StreetGraph extract(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        int[] remap = new int[nodeCount];
+        int kept = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            boolean inside = latitudes[i] >= minLatitude && latitudes[i] <= maxLatitude
+                    && longitudes[i] >= minLongitude && longitudes[i] <= maxLongitude;
+            remap[i] = inside ? kept++ : -1;
+        }
+
+        double[] tileLats = new double[kept];
+        double[] tileLngs = new double[kept];
+        int[] tileStart = new int[kept + 1];
+        int edges = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int index = remap[i];
+            if (index < 0) continue;
+            tileLats[index] = latitudes[i];
+            tileLngs[index] = longitudes[i];
+            for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+                if (remap[edgeTarget[e]] >= 0) edges++;
+            }
+            tileStart[index + 1] = edges;
+        }
+
+        int[] tileTargets = new int[edges];
+        float[] tileLengths = new float[edges];
+        int write = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (remap[i] < 0) continue;
+            for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+                int target = remap[edgeTarget[e]];
+                if (target >= 0) {
+                    tileTargets[write] = target;
+                    tileLengths[write++] = edgeLength[e];
+                }
+            }
+        }
+        return new StreetGraph(tileLats, tileLngs, tileStart, tileTargets, tileLengths);
+    }
+
+    private void touch(int node) {
+        visitStamp[node] = stamp;
+        closed[node] = false;
+        cameFrom[node] = -1;
+    }
+
+    private double heuristic(int node, double targetLat, double targetLng) {
+        // Equirectangular never overestimates the great-circle edge lengths noticeably at city scale
+        return distanceMeters(latitudes[node], longitudes[node], targetLat, targetLng) * 0.999;
+    }
+
+    private void heapPush(int node, double key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) break;
+            heapNodes[i] = heapNodes[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+    }
+
+    private int heapPop() {
+        int top = heapNodes[0];
+        int lastNode = heapNodes[--heapSize];
+        double lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= lastKey) break;
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = lastNode;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+
+    private int cellOf(double latitude, double longitude) {
+        int row = Math.min(gridRows - 1, Math.max(0, (int) ((latitude - minLat) / cellLatDeg)));
+        int col = Math.min(gridCols - 1, Math.max(0, (int) ((longitude - minLng) / cellLngDeg)));
+        return row * gridCols + col;
+    }
+
+    private int[] labelComponents() {
+        int[] labels = new int[nodeCount];
+        Arrays.fill(labels, -1);
+        int[] stack = new int[Math.max(1, nodeCount)];
+        int next = 0;
+        for (int seed = 0; seed < nodeCount; seed++) {
+            if (labels[seed] != -1) continue;
+            int top = 0;
+            stack[top++] = seed;
+            labels[seed] = next;
+            while (top > 0) {
+                int node = stack[--top];
+                for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                    int target = edgeTarget[e];
+                    if (labels[target] == -1) {
+                        labels[target] = next;
+                        stack[top++] = target;
+                    }
+                }
+            }
+            next++;
+        }
+        return labels;
+    }
+
+    /**
+     * Equirectangular distance; accurate to well under a meter over street-scale spans
+     */
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return Math.sqrt(dLat * dLat + dLng * dLng) * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Growable list of node indices describing a path
+     */
+    public static class NodePath {
+        private int[] nodes = new int[64];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int index) {
+            return nodes[index];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        void add(int node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int tmp = nodes[i];
+                nodes[i] = nodes[j];
+                nodes[j] = tmp;
+            }
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.example.caloriechase.routing;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Xml;
+import com.example.caloriechase.BuildConfig;
+import com.example.caloriechase.api.NetworkCore;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Loads the offline street graph used for road-snapped treasure placement and
+ * local route planning.
+ *
+ * The graph lives in {@code filesDir/street_graph/graph.bin}, a compact binary
+ * dump of the primitive arrays that is memory-mapped and bulk-copied on load. If
+ * only an OSM XML extract ({@code extract.osm}) is present it is imported once,
+ * keeping pedestrian/cycle friendly ways, and written back as {@code graph.bin}.
+ *
+ * Session setup only ever needs the few kilometers around the start, so the full
+ * graph is cut into tiles (a ~5.5km cell plus a ~3km margin) that are cached on
+ * disk and in memory; once a tile exists the full graph never has to be loaded.
+ * Without an installed graph a missing tile can be downloaded from an OpenStreetMap
+ * Overpass API ({@code BuildConfig.STREET_GRAPH_URL}) instead. That is off unless the
+ * build sets a URL, since the request reveals roughly where the session starts.
+ * Downloads are spaced out and back off when the server says it is busy, as the
+ * public Overpass instances ask. Callers must still handle null graphs (no data,
+ * offline, or no streets nearby) and fall back to unsnapped placement or the network.
+ */
+public class StreetGraphStore {
+
+    private static final String TAG = "StreetGraphStore";
+
+    private static final String GRAPH_DIR = "street_graph";
+    private static final String GRAPH_FILE = "graph.bin";
+    private static final String OSM_EXTRACT_FILE = "extract.osm";
+    private static final String TILE_DIR = "tiles";
+
+    private static final double TILE_DEGREES = 0.05; // ~5.5km of latitude per tile
+    private static final double TILE_MARGIN_DEGREES = 0.03; // routes may wander ~3km past the cell
+    private static final int MAX_CACHED_TILES = 4;
+    private static final long DOWNLOAD_RETRY_MS = 10 * 60 * 1000L; // after a failed or empty download
+    private static final long MIN_DOWNLOAD_INTERVAL_MS = 60 * 1000L; // between any two downloads
+
+    private static final int MAGIC = 0x43435347; // "CCSG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final double COORDINATE_SCALE = 1E7;
+
+    private static final Set<String> WALKABLE_HIGHWAYS = new HashSet<>(Arrays.asList(
+            "footway", "path", "pedestrian", "living_street", "residential", "service",
+            "track", "cycleway", "steps", "unclassified", "tertiary", "tertiary_link",
+            "secondary", "secondary_link", "primary", "primary_link", "bridleway", "road"
+    ));
+
+    private static volatile StreetGraphStore instance;
+
+    private final File graphDir;
+    private final ExecutorService executor;
+    private final Object loadLock = new Object();
+    private volatile StreetGraph graph;
+    private volatile boolean loadAttempted;
+    private final Map<String, Long> failedDownloads = new HashMap<>(); // guarded by loadLock
+    private long nextDownloadAt; // elapsedRealtime, guarded by loadLock
+
+    private final Map<String, StreetGraph> tiles = new LinkedHashMap<String, StreetGraph>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StreetGraph> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+
+    private StreetGraphStore(Context context) {
+        this.graphDir = new File(context.getFilesDir(), GRAPH_DIR);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Get singleton instance of StreetGraphStore
+     */
+    public static StreetGraphStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (StreetGraphStore.class) {
+                if (instance == null) {
+                    instance = new StreetGraphStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start loading the tile around a point in the background so it is ready by the time it is needed
+     */
+    public void preloadAround(double latitude, double longitude) {
+        executor.execute(() -> getGraphAround(latitude, longitude));
+    }
+
+    /**
+     * Get the cached tile graph covering a point, cutting it from the full graph on first use.
+     * Blocks while loading, so call off the main thread.
+     *
+     * @return The tile, or null if no graph data covers the point
+     */
+    public StreetGraph getGraphAround(double latitude, double longitude) {
+        int row = (int) Math.floor(latitude / TILE_DEGREES);
+        int col = (int) Math.floor(longitude / TILE_DEGREES);
+        String key = row + "_" + col;
+
+        synchronized (tiles) {
+            StreetGraph cached = tiles.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // One loader at a time, so a preload and the setup screen never download the same tile twice
+        synchronized (loadLock) {
+            synchronized (tiles) {
+                StreetGraph cached = tiles.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            StreetGraph tile = loadTile(key, row, col);
+            if (tile != null) {
+                synchronized (tiles) {
+                    tiles.put(key, tile);
+                }
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * Get the street graph, loading it on first use. Blocks while loading, so call
+     * off the main thread.
+     *
+     * @return The graph, or null if no graph data is installed
+     */
+    public StreetGraph getGraph() {
+        if (graph != null || loadAttempted) {
+            return graph;
+        }
+        synchronized (loadLock) {
+            if (graph == null && !loadAttempted) {
+                graph = loadGraph();
+                loadAttempted = true;
+            }
+        }
+        return graph;
+    }
+
+    private StreetGraph loadGraph() {
+        File binary = new File(graphDir, GRAPH_FILE);
+        File extract = new File(graphDir, OSM_EXTRACT_FILE);
+        long start = System.nanoTime();
+        try {
+            StreetGraph loaded;
+            if (binary.exists()) {
+                loaded = readBinary(binary);
+            } else if (extract.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(extract))) {
+                    loaded = importOsm(in);
+                }
+                writeBinary(loaded, binary);
+            } else {
+                Log.d(TAG, "No street graph installed");
+                return null;
+            }
+            Log.d(TAG, "Loaded street graph: " + loaded.getNodeCount() + " nodes, " +
+                       loaded.getEdgeCount() + " edges in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+            return loaded;
+        } catch (IOException | XmlPullParserException | RuntimeException e) {
+            Log.e(TAG, "Failed to load street graph", e);
+            return null;
+        }
+    }
+
+    private StreetGraph loadTile(String key, int row, int col) {
+        File source = new File(graphDir, GRAPH_FILE);
+        File tileFile = new File(new File(graphDir, TILE_DIR), key + ".bin");
+        long start = System.nanoTime();
+
+        // A tile is only valid if it was cut from the current graph
+        if (tileFile.exists() && tileFile.lastModified() >= source.lastModified()) {
+            try {
+                StreetGraph tile = readBinary(tileFile);
+                Log.d(TAG, "Loaded tile " + key + " (" + tile.getNodeCount() + " nodes) in " +
+                           (System.nanoTime() - start) / 1_000_000 + "ms");
+                return tile;
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Discarding unreadable tile " + key, e);
+            }
+        }
+
+        double south = row * TILE_DEGREES - TILE_MARGIN_DEGREES;
+        double north = (row + 1) * TILE_DEGREES + TILE_MARGIN_DEGREES;
+        double west = col * TILE_DEGREES - TILE_MARGIN_DEGREES;
+        double east = (col + 1) * TILE_DEGREES + TILE_MARGIN_DEGREES;
+
+        StreetGraph full = getGraph();
+        if (full == null) {
+            return downloadTile(key, south, north, west, east, tileFile);
+        }
+        StreetGraph tile = full.extract(south, north, west, east);
+        if (tile.getNodeCount() == 0) {
+            return null;
+        }
+        try {
+            writeBinary(tile, tileFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache tile " + key, e);
+        }
+        Log.d(TAG, "Cut tile " + key + " (" + tile.getNodeCount() + " nodes) in " +
+                   (System.nanoTime() - start) / 1_000_000 + "ms");
+        return tile;
+    }
+
+    /**
+     * Fetch the walkable ways of a tile from the Overpass API and cache the tile like one
+     * cut from the full graph. Failures are not retried for a while, so sessions started
+     * offline fall back without waiting on the network every time. Downloads run one at a
+     * time (under loadLock) and at most once a minute; a busy server (429/504) pauses all
+     * downloads for its Retry-After, or the retry delay if it gives none.
+     */
+    private StreetGraph downloadTile(String key, double south, double north, double west, double east,
+                                     File tileFile) {
+        if (BuildConfig.STREET_GRAPH_URL.isEmpty()) {
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        Long failedAt = failedDownloads.get(key);
+        if (failedAt != null && now - failedAt < DOWNLOAD_RETRY_MS) {
+            return null;
+        }
+        if (now < nextDownloadAt) {
+            Log.d(TAG, "Not downloading tile " + key + " yet, rate limited");
+            return null;
+        }
+        nextDownloadAt = now + MIN_DOWNLOAD_INTERVAL_MS;
+
+        long start = System.nanoTime();
+        Request request = new Request.Builder()
+                .url(HttpUrl.get(BuildConfig.STREET_GRAPH_URL).newBuilder()
+                        .addQueryParameter("data", overpassQuery(south, north, west, east))
+                        .build())
+                .header("User-Agent", "CalorieChase/" + BuildConfig.VERSION_NAME)
+                .build();
+        try (Response response = NetworkCore.client().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (response.code() == 429 || response.code() == 504) {
+                nextDownloadAt = SystemClock.elapsedRealtime() + retryAfterMs(response);
+            }
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Overpass answered " + response.code());
+            }
+            StreetGraph tile;
+            try (InputStream in = new BufferedInputStream(body.byteStream())) {
+                tile = importOsm(in).extract(south, north, west, east);
+            }
+            if (tile.getNodeCount() == 0) {
+                Log.d(TAG, "No walkable streets in tile " + key);
+                failedDownloads.put(key, SystemClock.elapsedRealtime());
+                return null;
+            }
+            try {
+                writeBinary(tile, tileFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to cache tile " + key, e);
+            }
+            failedDownloads.remove(key);
+            Log.d(TAG, "Downloaded tile " + key + " (" + tile.getNodeCount() + " nodes) in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+            return tile;
+        } catch (IOException | XmlPullParserException | RuntimeException e) {
+            Log.w(TAG, "Failed to download tile " + key, e);
+            failedDownloads.put(key, SystemClock.elapsedRealtime());
+            return null;
+        }
+    }
+
+    private static long retryAfterMs(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Math.max(MIN_DOWNLOAD_INTERVAL_MS, Long.parseLong(retryAfter.trim()) * 1000L);
+            } catch (NumberFormatException ignored) {
+                // An HTTP date; the default below is long enough
+            }
+        }
+        return DOWNLOAD_RETRY_MS;
+    }
+
+    /**
+     * Overpass QL for the walkable ways in a box and the nodes they use, as OSM XML
+     */
+    static String overpassQuery(double south, double north, double west, double east) {
+        StringBuilder highways = new StringBuilder();
+        for (String highway : WALKABLE_HIGHWAYS) {
+            if (highways.length() > 0) {
+                highways.append('|');
+            }
+            highways.append(highway);
+        }
+        return String.format(Locale.US,
+                "[out:xml][timeout:90];way[\"highway\"~\"^(%s)$\"](%.5f,%.5f,%.5f,%.5f);(._;>;);out body;",
+                highways, south, west, north, east);
+    }
+
+    // ---- Binary format ----
+
+    /**
+     * Layout: magic, version, nodeCount, edgeCount, then int latE7[n], int lngE7[n],
+     * int edgeStart[n + 1], int edgeTarget[m], float edgeLength[m] - all big-endian
+     */
+    static StreetGraph readBinary(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a street graph file");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported street graph version " + version);
+            }
+            int nodeCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            long expected = HEADER_BYTES + 4L * (3L * nodeCount + 1 + 2L * edgeCount);
+            if (nodeCount < 0 || edgeCount < 0 || channel.size() < expected) {
+                throw new IOException("Truncated street graph file");
+            }
+
+            int[] scratch = new int[nodeCount];
+            double[] latitudes = new double[nodeCount];
+            double[] longitudes = new double[nodeCount];
+            readInts(buffer, scratch);
+            for (int i = 0; i < nodeCount; i++) latitudes[i] = scratch[i] / COORDINATE_SCALE;
+            readInts(buffer, scratch);
+            for (int i = 0; i < nodeCount; i++) longitudes[i] = scratch[i] / COORDINATE_SCALE;
+
+            int[] edgeStart = new int[nodeCount + 1];
+            int[] edgeTarget = new int[edgeCount];
+            float[] edgeLength = new float[edgeCount];
+            readInts(buffer, edgeStart);
+            readInts(buffer, edgeTarget);
+            buffer.asFloatBuffer().get(edgeLength);
+
+            return new StreetGraph(latitudes, longitudes, edgeStart, edgeTarget, edgeLength);
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] target) {
+        buffer.asIntBuffer().get(target);
+        buffer.position(buffer.position() + target.length * 4);
+    }
+
+    static void writeBinary(StreetGraph graph, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(graph.nodeCount);
+            out.writeInt(graph.edgeTarget.length);
+            for (double latitude : graph.latitudes) out.writeInt((int) Math.round(latitude * COORDINATE_SCALE));
+            for (double longitude : graph.longitudes) out.writeInt((int) Math.round(longitude * COORDINATE_SCALE));
+            for (int offset : graph.edgeStart) out.writeInt(offset);
+            for (int target : graph.edgeTarget) out.writeInt(target);
+            for (float length : graph.edgeLength) out.writeFloat(length);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot move street graph into place");
+        }
+    }
+
+    // ---- OSM import ----
+
+    /**
+     * Import an OSM XML extract, keeping only walkable/cyclable ways and the nodes they use
+     */
+    static StreetGraph importOsm(InputStream in) throws IOException, XmlPullParserException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(in, null);
+
+        // All nodes, by OSM id (extracts list them in id order, sorted below if not)
+        long[] nodeIds = new long[1024];
+        double[] nodeLats = new double[1024];
+        double[] nodeLngs = new double[1024];
+        int nodeTotal = 0;
+        boolean sorted = true;
+
+        // Walkable segments as pairs of OSM node ids
+        long[] segments = new long[2048];
+        int segmentValues = 0;
+
+        long[] wayRefs = new long[256];
+        int wayRefCount = 0;
+        boolean inWay = false;
+        boolean walkable = false;
+        boolean accessDenied = false;
+
+        int event = parser.getEventType();
+        while (event != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.START_TAG) {
+                String name = parser.getName();
+                if ("node".equals(name)) {
+                    if (nodeTotal == nodeIds.length) {
+                        int capacity = nodeTotal * 2;
+                        nodeIds = Arrays.copyOf(nodeIds, capacity);
+                        nodeLats = Arrays.copyOf(nodeLats, capacity);
+                        nodeLngs = Arrays.copyOf(nodeLngs, capacity);
+                    }
+                    long id = Long.parseLong(parser.getAttributeValue(null, "id"));
+                    if (nodeTotal > 0 && id < nodeIds[nodeTotal - 1]) sorted = false;
+                    nodeIds[nodeTotal] = id;
+                    nodeLats[nodeTotal] = Double.parseDouble(parser.getAttributeValue(null, "lat"));
+                    nodeLngs[nodeTotal] = Double.parseDouble(parser.getAttributeValue(null, "lon"));
+                    nodeTotal++;
+                } else if ("way".equals(name)) {
+                    inWay = true;
+                    walkable = false;
+                    accessDenied = false;
+                    wayRefCount = 0;
+                } else if (inWay && "nd".equals(name)) {
+                    if (wayRefCount == wayRefs.length) wayRefs = Arrays.copyOf(wayRefs, wayRefCount * 2);
+                    wayRefs[wayRefCount++] = Long.parseLong(parser.getAttributeValue(null, "ref"));
+                } else if (inWay && "tag".equals(name)) {
+                    String key = parser.getAttributeValue(null, "k");
+                    String value = parser.getAttributeValue(null, "v");
+                    if ("highway".equals(key)) {
+                        walkable = WALKABLE_HIGHWAYS.contains(value);
+                    } else if (("foot".equals(key) || "access".equals(key))
+                            && ("no".equals(value) || "private".equals(value))) {
+                        accessDenied = true;
+                    }
+                }
+            } else if (event == XmlPullParser.END_TAG && "way".equals(parser.getName())) {
+                if (walkable && !accessDenied) {
+                    int needed = segmentValues + 2 * Math.max(0, wayRefCount - 1);
+                    if (needed > segments.length) segments = Arrays.copyOf(segments, Math.max(needed, segments.length * 2));
+                    for (int i = 1; i < wayRefCount; i++) {
+                        segments[segmentValues++] = wayRefs[i - 1];
+                        segments[segmentValues++] = wayRefs[i];
+                    }
+                }
+                inWay = false;
+            }
+            event = parser.next();
+        }
+
+        if (!sorted) {
+            sortNodes(nodeIds, nodeLats, nodeLngs, nodeTotal);
+        }
+        return buildGraph(nodeIds, nodeLats, nodeLngs, nodeTotal, segments, segmentValues / 2);
+    }
+
+    /**
+     * Compact the used nodes and build symmetric CSR adjacency from id-pair segments
+     */
+    static StreetGraph buildGraph(long[] nodeIds, double[] nodeLats, double[] nodeLngs, int nodeTotal,
+                                  long[] segments, int segmentCount) {
+        // Resolve segment endpoints to positions in the node table, dropping dangling refs
+        int[] from = new int[segmentCount];
+        int[] to = new int[segmentCount];
+        int[] compactIndex = new int[nodeTotal];
+        Arrays.fill(compactIndex, -1);
+        int validSegments = 0;
+        int usedNodes = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            int a = Arrays.binarySearch(nodeIds, 0, nodeTotal, segments[2 * s]);
+            int b = Arrays.binarySearch(nodeIds, 0, nodeTotal, segments[2 * s + 1]);
+            if (a < 0 || b < 0 || a == b) continue;
+            if (compactIndex[a] < 0) compactIndex[a] = usedNodes++;
+            if (compactIndex[b] < 0) compactIndex[b] = usedNodes++;
+            from[validSegments] = compactIndex[a];
+            to[validSegments] = compactIndex[b];
+            validSegments++;
+        }
+
+        double[] latitudes = new double[usedNodes];
+        double[] longitudes = new double[usedNodes];
+        for (int i = 0; i < nodeTotal; i++) {
+            int index = compactIndex[i];
+            if (index >= 0) {
+                latitudes[index] = nodeLats[i];
+                longitudes[index] = nodeLngs[i];
+            }
+        }
+
+        // Every segment becomes two directed edges; pedestrians ignore oneway
+        int[] edgeStart = new int[usedNodes + 1];
+        for (int s = 0; s < validSegments; s++) {
+            edgeStart[from[s] + 1]++;
+            edgeStart[to[s] + 1]++;
+        }
+        for (int n = 0; n < usedNodes; n++) {
+            edgeStart[n + 1] += edgeStart[n];
+        }
+        int[] edgeTarget = new int[2 * validSegments];
+        float[] edgeLength = new float[2 * validSegments];
+        int[] fill = Arrays.copyOf(edgeStart, usedNodes);
+        for (int s = 0; s < validSegments; s++) {
+            int a = from[s];
+            int b = to[s];
+            float length = (float) StreetGraph.distanceMeters(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+            edgeTarget[fill[a]] = b;
+            edgeLength[fill[a]++] = length;
+            edgeTarget[fill[b]] = a;
+            edgeLength[fill[b]++] = length;
+        }
+
+        return new StreetGraph(latitudes, longitudes, edgeStart, edgeTarget, edgeLength);
+    }
+
+    private static void sortNodes(long[] ids, double[] lats, double[] lngs, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+
+        long[] sortedIds = new long[count];
+        double[] sortedLats = new double[count];
+        double[] sortedLngs = new double[count];
+        for (int i = 0; i < count; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedLats[i] = lats[order[i]];
+            sortedLngs[i] = lngs[order[i]];
+        }
+        System.arraycopy(sortedIds, 0, ids, 0, count);
+        System.arraycopy(sortedLats, 0, lats, 0, count);
+        System.arraycopy(sortedLngs, 0, lngs, 0, count);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.caloriechase.sensors;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide owner of the step sensors.
+ *
+ * The step counter (or the step detector when there is no counter) is registered once,
+ * with a max report latency so the sensor hub can batch steps in its hardware FIFO and
+ * wake the application processor once per batch. Events are read on a background
+ * thread, coalesced, and fanned out to subscribers on the main thread in a single
+ * callback per batch together with the current cadence.
+ */
+public class StepSensorHub implements SensorEventListener {
+
+    private static final String TAG = "StepSensorHub";
+
+    /** Latency for screens showing live step counts */
+    public static final int LATENCY_INTERACTIVE_MS = 1000;
+    /** Latency for background tracking; steps are only read on the service update cycle */
+    public static final int LATENCY_BACKGROUND_MS = 10_000;
+    /** Latency while a session is paused; steps are only used to notice movement resuming */
+    public static final int LATENCY_IDLE_MS = 30_000;
+
+    private static final long CADENCE_WINDOW_NANOS = 10_000_000_000L; // 10 seconds
+    private static final int CADENCE_SAMPLES = 64;
+
+    private static volatile StepSensorHub instance;
+
+    /**
+     * Step callbacks are always delivered on the main thread
+     */
+    public interface StepListener {
+        /**
+         * @param stepDelta Steps since the previous callback
+         * @param counterValue Raw step counter value (steps since boot), or -1 when only the detector is available
+         * @param cadence Steps per minute over the last few seconds
+         */
+        void onSteps(int stepDelta, long counterValue, float cadence);
+    }
+
+    private static final class Subscription {
+        final StepListener listener;
+        final int maxLatencyMs;
+
+        Subscription(StepListener listener, int maxLatencyMs) {
+            this.listener = listener;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+    }
+
+    private final SensorManager sensorManager;
+    private final Sensor stepCounterSensor;
+    private final Sensor stepDetectorSensor;
+    private final Handler sensorHandler;
+    private final Handler mainHandler;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Registration state, guarded by this
+    private Sensor registeredSensor;
+    private int registeredLatencyMs = -1;
+
+    // Batch state, guarded by this
+    private long lastCounterValue = -1;
+    private long totalSteps = 0;
+    private int pendingDelta = 0;
+    private boolean dispatchPending = false;
+    private final long[] sampleTimes = new long[CADENCE_SAMPLES];
+    private final long[] sampleSteps = new long[CADENCE_SAMPLES];
+    private int sampleHead = 0;
+    private int sampleCount = 0;
+
+    // Counters
+    private long sensorEvents = 0;
+    private long dispatches = 0;
+
+    private StepSensorHub(Context context) {
+        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        if (sensorManager != null) {
+            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+            stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+        } else {
+            stepCounterSensor = null;
+            stepDetectorSensor = null;
+        }
+        if (stepCounterSensor == null && stepDetectorSensor == null) {
+            Log.w(TAG, "No step sensors available on this device");
+        }
+
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        this.sensorHandler = new Handler(thread.getLooper());
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Get singleton instance of StepSensorHub
+     */
+    public static StepSensorHub getInstance(Context context) {
+        if (instance == null) {
+            synchronized (StepSensorHub.class) {
+                if (instance == null) {
+                    instance = new StepSensorHub(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return True if the device has a step counter or step detector
+     */
+    public boolean hasStepSensor() {
+        return stepCounterSensor != null || stepDetectorSensor != null;
+    }
+
+    /**
+     * @return True if steps come from the step counter (absolute values since boot)
+     */
+    public boolean hasStepCounter() {
+        return stepCounterSensor != null;
+    }
+
+    /**
+     * Start receiving steps. The sensor is registered with the lowest latency any
+     * subscriber asked for; adding the same listener again only updates its latency.
+     */
+    public void subscribe(StepListener listener, int maxLatencyMs) {
+        unsubscribeInternal(listener);
+        subscriptions.add(new Subscription(listener, maxLatencyMs));
+        updateRegistration();
+        // Hand over whatever is still sitting in the FIFO so the new screen starts current
+        flush();
+    }
+
+    /**
+     * Stop receiving steps; the sensor is released when the last subscriber leaves
+     */
+    public void unsubscribe(StepListener listener) {
+        if (unsubscribeInternal(listener)) {
+            updateRegistration();
+        }
+    }
+
+    /**
+     * Ask the sensor to deliver its batched events now
+     */
+    public void flush() {
+        synchronized (this) {
+            if (registeredSensor == null || sensorManager == null) {
+                return;
+            }
+        }
+        sensorManager.flush(this);
+    }
+
+    /**
+     * Current cadence in steps per minute, decaying to zero once steps stop arriving
+     */
+    public synchronized float getCadence() {
+        return cadenceAt(SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * @return Steps seen since the sensor was first registered in this process
+     */
+    public synchronized long getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * @return Average sensor events handed over per subscriber callback
+     */
+    public synchronized float getEventsPerDispatch() {
+        return dispatches == 0 ? 0f : (float) sensorEvents / dispatches;
+    }
+
+    private boolean unsubscribeInternal(StepListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                return subscriptions.remove(subscription);
+            }
+        }
+        return false;
+    }
+
+    private synchronized void updateRegistration() {
+        if (sensorManager == null) {
+            return;
+        }
+        Sensor sensor = stepCounterSensor != null ? stepCounterSensor : stepDetectorSensor;
+        if (sensor == null) {
+            return;
+        }
+
+        if (subscriptions.isEmpty()) {
+            if (registeredSensor != null) {
+                sensorManager.unregisterListener(this);
+                registeredSensor = null;
+                registeredLatencyMs = -1;
+                lastCounterValue = -1;
+                Log.d(TAG, "Step sensor released");
+            }
+            return;
+        }
+
+        int latencyMs = Integer.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            latencyMs = Math.min(latencyMs, subscription.maxLatencyMs);
+        }
+        if (registeredSensor == sensor && registeredLatencyMs == latencyMs) {
+            return;
+        }
+
+        if (registeredSensor != null) {
+            sensorManager.unregisterListener(this);
+        }
+        boolean registered = sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL,
+                latencyMs * 1000, sensorHandler);
+        if (registered) {
+            registeredSensor = sensor;
+            registeredLatencyMs = latencyMs;
+            Log.d(TAG, sensor.getName() + " registered with " + latencyMs + "ms report latency (FIFO " +
+                       sensor.getFifoMaxEventCount() + " events)");
+        } else {
+            registeredSensor = null;
+            registeredLatencyMs = -1;
+            Log.w(TAG, "Failed to register " + sensor.getName());
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        synchronized (this) {
+            sensorEvents++;
+            int delta;
+            long counterValue;
+            if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
+                counterValue = (long) event.values[0];
+                if (lastCounterValue < 0 || counterValue < lastCounterValue) {
+                    // First reading after registration (or a reboot) only sets the baseline
+                    delta = 0;
+                } else {
+                    delta = (int) (counterValue - lastCounterValue);
+                }
+                lastCounterValue = counterValue;
+            } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
+                delta = 1;
+            } else {
+                return;
+            }
+
+            totalSteps += delta;
+            pendingDelta += delta;
+            addSample(event.timestamp, totalSteps);
+
+            // Events of one batch arrive back to back; subscribers get a single main-thread callback for all of them
+            if (dispatchPending) {
+                return;
+            }
+            dispatchPending = true;
+        }
+        mainHandler.post(this::dispatch);
+    }
+
+    private void dispatch() {
+        int delta;
+        long counterValue;
+        float cadence;
+        synchronized (this) {
+            delta = pendingDelta;
+            pendingDelta = 0;
+            dispatchPending = false;
+            counterValue = registeredSensor == stepCounterSensor ? lastCounterValue : -1;
+            cadence = sampleCount > 0 ? cadenceAt(sampleTimes[(sampleHead + CADENCE_SAMPLES - 1) % CADENCE_SAMPLES]) : 0f;
+            dispatches++;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.listener.onSteps(delta, counterValue, cadence);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Step sensors do not report accuracy changes
+    }
+
+    private void addSample(long timestampNanos, long steps) {
+        sampleTimes[sampleHead] = timestampNanos;
+        sampleSteps[sampleHead] = steps;
+        sampleHead = (sampleHead + 1) % CADENCE_SAMPLES;
+        if (sampleCount < CADENCE_SAMPLES) {
+            sampleCount++;
+        }
+    }
+
+    /**
+     * Steps per minute over the window ending at {@code nowNanos}
+     */
+    private float cadenceAt(long nowNanos) {
+        if (sampleCount == 0) {
+            return 0f;
+        }
+        int newest = (sampleHead + CADENCE_SAMPLES - 1) % CADENCE_SAMPLES;
+        if (nowNanos - sampleTimes[newest] > CADENCE_WINDOW_NANOS) {
+            return 0f;
+        }
+        long windowStart = nowNanos - CADENCE_WINDOW_NANOS;
+        int oldest = newest;
+        for (int i = 1; i < sampleCount; i++) {
+            int index = (newest - i + CADENCE_SAMPLES) % CADENCE_SAMPLES;
+            if (sampleTimes[index] < windowStart) {
+                break;
+            }
+            oldest = index;
+        }
+        if (oldest == newest) {
+            return 0f;
+        }
+        long steps = sampleSteps[newest] - sampleSteps[oldest];
+        // Measured up to now rather than to the newest step, so cadence falls off as walking stops
+        long span = Math.max(nowNanos - sampleTimes[oldest], 1_000_000_000L);
+        return steps * 60_000_000_000f / span;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.caloriechase.sync;
+
+import android.content.Context;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules upload of finished sessions queued in the outbox
+ */
+public class SessionSync {
+
+    static final String UNIQUE_WORK_NAME = "session_upload";
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+
+    private SessionSync() {
+    }
+
+    /**
+     * Ask for an upload once the device is online. Repeated calls while an upload is
+     * pending collapse into the same work, so sessions finished offline go out together.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SessionUploadWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        // APPEND_OR_REPLACE: a session finished during a running upload gets its own pass afterwards
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.caloriechase.sync;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.caloriechase.FitnessTracker;
+import com.example.caloriechase.api.AuthTokenStore;
+import com.example.caloriechase.api.BackendResponse;
+import com.example.caloriechase.api.BackendService;
+import com.example.caloriechase.api.RetrofitClient;
+import com.example.caloriechase.data.ActivityType;
+import com.example.caloriechase.data.OutboxDao;
+import com.example.caloriechase.data.OutboxEntry;
+import com.example.caloriechase.data.SessionDao;
+import com.example.caloriechase.data.SessionRecord;
+import com.example.caloriechase.data.TreasureHuntDatabase;
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import retrofit2.Response;
+
+/**
+ * Uploads finished sessions from the outbox to the Activity and Score services.
+ *
+ * Sessions go up in batches as one gzip-compressed request per service. Every item
+ * carries the local session id as its client id, so a batch that reached the server
+ * but whose response was lost is not duplicated when it is sent again. Requests carry
+ * the user's gateway token; without one, or once the gateway refuses it, entries stay
+ * queued until the user signs in again.
+ */
+public class SessionUploadWorker extends Worker {
+
+    private static final String TAG = "SessionUploadWorker";
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_BATCHES_PER_RUN = 10;
+    private static final int POINTS_PER_TREASURE = 100;
+    private static final long REJECTED_RETRY_DELAY_MS = 24 * 60 * 60 * 1000L; // rejected batches wait for a server fix
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final Gson gson = new Gson();
+
+    public SessionUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        TreasureHuntDatabase database = TreasureHuntDatabase.getInstance(getApplicationContext());
+        OutboxDao outboxDao = database.outboxDao();
+        SessionDao sessionDao = database.sessionDao();
+        AuthTokenStore tokens = AuthTokenStore.getInstance(getApplicationContext());
+        if (tokens.getToken() == null) {
+            // Signing in saves a token and schedules the upload again
+            Log.i(TAG, "Not signed in to the backend; " + outboxDao.getPendingCount() + " sessions wait");
+            return Result.success();
+        }
+        BackendService backend = RetrofitClient.backend(getApplicationContext());
+        Long userId = tokens.getUserId();
+
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN && !isStopped(); batch++) {
+            List<OutboxEntry> due = outboxDao.getDue(System.currentTimeMillis(), BATCH_SIZE);
+            if (due.isEmpty()) {
+                return Result.success();
+            }
+
+            List<String> ids = new ArrayList<>(due.size());
+            List<SessionRecord> records = new ArrayList<>(due.size());
+            List<String> orphans = new ArrayList<>();
+            for (OutboxEntry entry : due) {
+                SessionRecord record = sessionDao.getSessionRecord(entry.sessionId);
+                if (record == null) {
+                    orphans.add(entry.sessionId); // deleted locally before it was uploaded
+                } else {
+                    ids.add(entry.sessionId);
+                    records.add(record);
+                }
+            }
+            if (!orphans.isEmpty()) {
+                outboxDao.delete(orphans);
+            }
+            if (records.isEmpty()) {
+                continue;
+            }
+
+            try {
+                upload(backend, records, userId);
+                outboxDao.delete(ids);
+                Log.d(TAG, "Uploaded " + records.size() + " sessions");
+            } catch (AuthException e) {
+                // Not the batch's fault; keep it due and wait for a new token
+                Log.w(TAG, "Backend refused the token (" + e.getMessage() + "); waiting for sign-in");
+                tokens.clear();
+                return Result.success();
+            } catch (RejectedException e) {
+                // Retrying the same payload will not help; park it and carry on with the rest
+                Log.e(TAG, "Backend rejected batch: " + e.getMessage());
+                outboxDao.markFailed(ids, e.getMessage(), System.currentTimeMillis() + REJECTED_RETRY_DELAY_MS);
+            } catch (IOException e) {
+                Log.w(TAG, "Upload failed, will retry: " + e.getMessage());
+                outboxDao.markFailed(ids, e.getMessage(), 0);
+                return Result.retry();
+            }
+        }
+        return outboxDao.getPendingCount() > 0 && !isStopped() ? Result.retry() : Result.success();
+    }
+
+    private void upload(BackendService backend, List<SessionRecord> records, Long userId) throws IOException {
+        List<BackendResponse.Session> sessions = new ArrayList<>(records.size());
+        for (SessionRecord record : records) {
+            sessions.add(toSession(record, userId));
+        }
+        BackendResponse.SessionList sessionResult =
+                checked(backend.uploadSessions(gzipJson(sessions)).execute());
+
+        // Scores reference the server's session ids
+        Map<String, Long> serverIds = new HashMap<>();
+        if (sessionResult.data != null) {
+            for (BackendResponse.Session session : sessionResult.data) {
+                serverIds.put(session.clientId, session.id);
+            }
+        }
+
+        List<BackendResponse.Score> scores = new ArrayList<>(records.size());
+        for (SessionRecord record : records) {
+            Long serverId = serverIds.get(record.sessionId);
+            if (serverId == null) {
+                throw new IOException("No server id returned for session " + record.sessionId);
+            }
+            scores.add(toScore(record, serverId));
+        }
+        checked(backend.uploadScores(gzipJson(scores)).execute());
+    }
+
+    private static <T> T checked(Response<T> response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            return response.body();
+        }
+        if (response.code() == 401 || response.code() == 403) {
+            throw new AuthException("HTTP " + response.code());
+        }
+        if (response.code() >= 400 && response.code() < 500 && response.code() != 408 && response.code() != 429) {
+            throw new RejectedException("HTTP " + response.code());
+        }
+        throw new IOException("HTTP " + response.code());
+    }
+
+    private RequestBody gzipJson(Object payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            gson.toJson(payload, writer);
+        }
+        return RequestBody.create(bytes.toByteArray(), JSON);
+    }
+
+    private static BackendResponse.Session toSession(SessionRecord record, Long userId) {
+        BackendResponse.Session session = new BackendResponse.Session();
+        session.clientId = record.sessionId;
+        session.userId = userId;
+        session.type = record.activityType == ActivityType.RUN ? "RUNNING" : "WALKING";
+        return session;
+    }
+
+    private static BackendResponse.Score toScore(SessionRecord record, long serverSessionId) {
+        int collected = record.collectedTreasures != null ? record.collectedTreasures.size() : 0;
+
+        BackendResponse.Score score = new BackendResponse.Score();
+        score.clientId = record.sessionId;
+        score.sessionId = serverSessionId;
+        score.score = collected * POINTS_PER_TREASURE;
+        score.distanceCovered = Math.round(record.currentDistance * 1000);
+        score.distanceAssigned = Math.round(record.distanceGoal * 1000);
+        score.duration = FitnessTracker.formatDuration(record.totalDuration);
+        score.stepsTaken = record.currentSteps;
+        score.caloriesBurnt = record.caloriesBurned;
+        score.treasuresCollected = collected;
+        score.treasuresAssigned = record.totalTreasures;
+        return score;
+    }
+
+    /**
+     * Client error from the backend; the batch is not retried right away
+     */
+    private static class RejectedException extends IOException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Token missing, expired or not accepted by the gateway
+     */
+    private static class AuthException extends IOException {
+        AuthException(String message) {
+            super(message);
+        }
+    }
+}
@@ -2,16 +2,22 @@ package com.example.caloriechase.utils;
 
 import com.google.android.gms.maps.model.LatLng;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Utility class to decode Google Maps encoded polyline strings
  */
 public class PolylineDecoder {
-    
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    // Ground resolution of a 256px Web Mercator tile at zoom 0 on the equator
+    private static final double METERS_PER_PIXEL_ZOOM_0 = 156543.03392;
+
     /**
      * Decodes an encoded polyline string into a list of LatLng points
-     * 
+     *
      * @param encoded The encoded polyline string from Google Directions API
      * @return List of LatLng points representing the route
      */
@@ -47,4 +53,376 @@ public class PolylineDecoder {
 
         return poly;
     }
+
+    /**
+     * Decodes an encoded polyline into a reusable primitive buffer
+     *
+     * @param encoded The encoded polyline string from Google Directions API
+     * @param out Buffer to fill; previous contents are discarded
+     * @return The same buffer, for chaining
+     */
+    public static PointBuffer decodeInto(String encoded, PointBuffer out) {
+        return decodeInto(encoded, 0, Integer.MAX_VALUE, 0, out);
+    }
+
+    /**
+     * Decodes a sub-range of an encoded polyline into a reusable primitive buffer,
+     * optionally simplifying it in the same pass.
+     *
+     * Points before {@code fromPoint} still have to be walked because the encoding is
+     * delta based, but they are never materialised. When {@code toleranceMeters} is
+     * positive, points closer than half the tolerance to the previously kept point are
+     * dropped while decoding and the result is then Douglas-Peucker simplified in place
+     * with the other half, so the two passes together stay within the tolerance.
+     *
+     * @param encoded The encoded polyline string
+     * @param fromPoint Index of the first point to keep
+     * @param maxPoints Maximum number of points to decode from {@code fromPoint}
+     * @param toleranceMeters Maximum allowed deviation of the simplified line, 0 to keep every point
+     * @param out Buffer to fill; previous contents are discarded
+     * @return The same buffer, for chaining
+     */
+    public static PointBuffer decodeInto(String encoded, int fromPoint, int maxPoints,
+                                         double toleranceMeters, PointBuffer out) {
+        out.clear();
+        if (encoded == null || maxPoints <= 0) {
+            return out;
+        }
+
+        boolean simplify = toleranceMeters > 0;
+        // Each pass may move the line by its own share, so split the budget between them
+        double passTolerance = toleranceMeters / 2;
+        int index = 0, len = encoded.length();
+        int lat = 0, lng = 0;
+        int pointIndex = 0;
+        int decoded = 0;
+        double pendingLat = 0, pendingLng = 0;
+        boolean hasPending = false;
+
+        while (index < len && decoded < maxPoints) {
+            int b, shift = 0, result = 0;
+            do {
+                b = encoded.charAt(index++) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+            lat += ((result & 1) != 0 ? ~(result >> 1) : (result >> 1));
+
+            shift = 0;
+            result = 0;
+            do {
+                b = encoded.charAt(index++) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+            lng += ((result & 1) != 0 ? ~(result >> 1) : (result >> 1));
+
+            if (pointIndex++ < fromPoint) {
+                continue;
+            }
+            decoded++;
+
+            double pointLat = lat / 1E5;
+            double pointLng = lng / 1E5;
+
+            if (simplify && out.size > 0
+                    && distanceMeters(out.latitudes[out.size - 1], out.longitudes[out.size - 1],
+                                      pointLat, pointLng) < passTolerance) {
+                // Radial pre-filter; remember the point so the route still ends where it should
+                pendingLat = pointLat;
+                pendingLng = pointLng;
+                hasPending = true;
+                continue;
+            }
+            out.add(pointLat, pointLng);
+            hasPending = false;
+        }
+
+        if (hasPending) {
+            out.add(pendingLat, pendingLng);
+        }
+        if (simplify) {
+            simplifyInPlace(out, passTolerance);
+        }
+        return out;
+    }
+
+    /**
+     * Copies already decoded points into the buffer and simplifies them with the given tolerance
+     */
+    public static PointBuffer simplify(double[] latitudes, double[] longitudes,
+                                       double toleranceMeters, PointBuffer out) {
+        out.clear();
+        int count = Math.min(latitudes.length, longitudes.length);
+        out.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            out.add(latitudes[i], longitudes[i]);
+        }
+        if (toleranceMeters > 0) {
+            simplifyInPlace(out, toleranceMeters);
+        }
+        return out;
+    }
+
+    /**
+     * Simplification tolerance that keeps the error below one screen pixel at the given zoom
+     *
+     * @param zoom Google Maps zoom level
+     * @param latitude Latitude the route is displayed at
+     * @return Tolerance in meters
+     */
+    public static double toleranceForZoom(float zoom, double latitude) {
+        return METERS_PER_PIXEL_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Marks the points Douglas-Peucker keeps without moving any of them, so callers can
+     * carry per-point data such as timestamps along
+     *
+     * @param count Number of points to consider
+     * @param keep Output flags, at least {@code count} long
+     * @return Number of points kept
+     */
+    public static int simplifyIndices(double[] latitudes, double[] longitudes, int count,
+                                      double toleranceMeters, boolean[] keep) {
+        Arrays.fill(keep, 0, count, count < 3 || toleranceMeters <= 0);
+        if (count < 3 || toleranceMeters <= 0) {
+            return count;
+        }
+        markKept(latitudes, longitudes, count, toleranceMeters, keep, new int[count * 2]);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Encodes points with the Google encoded polyline algorithm (5 decimal places)
+     */
+    public static String encode(PointBuffer points) {
+        StringBuilder encoded = new StringBuilder(points.size * 6);
+        long lastLat = 0, lastLng = 0;
+        for (int i = 0; i < points.size; i++) {
+            long lat = Math.round(points.latitudes[i] * 1e5);
+            long lng = Math.round(points.longitudes[i] * 1e5);
+            encodeValue(lat - lastLat, encoded);
+            encodeValue(lng - lastLng, encoded);
+            lastLat = lat;
+            lastLng = lng;
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Encodes map points with the Google encoded polyline algorithm, e.g. to pass a
+     * route between screens as one compact string
+     */
+    public static String encode(List<LatLng> points) {
+        StringBuilder encoded = new StringBuilder(points.size() * 6);
+        long lastLat = 0, lastLng = 0;
+        for (LatLng point : points) {
+            long lat = Math.round(point.latitude * 1e5);
+            long lng = Math.round(point.longitude * 1e5);
+            encodeValue(lat - lastLat, encoded);
+            encodeValue(lng - lastLng, encoded);
+            lastLat = lat;
+            lastLng = lng;
+        }
+        return encoded.toString();
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long shifted = value < 0 ? ~(value << 1) : value << 1;
+        while (shifted >= 0x20) {
+            out.append((char) ((0x20 | (shifted & 0x1f)) + 63));
+            shifted >>= 5;
+        }
+        out.append((char) (shifted + 63));
+    }
+
+    /**
+     * Iterative Douglas-Peucker over the buffer, compacting kept points to the front
+     */
+    private static void simplifyInPlace(PointBuffer buffer, double toleranceMeters) {
+        int n = buffer.size;
+        if (n < 3) {
+            return;
+        }
+
+        boolean[] keep = buffer.keepScratch(n);
+        markKept(buffer.latitudes, buffer.longitudes, n, toleranceMeters, keep, buffer.stackScratch(n));
+
+        int write = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                buffer.latitudes[write] = buffer.latitudes[i];
+                buffer.longitudes[write] = buffer.longitudes[i];
+                write++;
+            }
+        }
+        buffer.size = write;
+    }
+
+    private static void markKept(double[] latitudes, double[] longitudes, int n, double toleranceMeters,
+                                 boolean[] keep, int[] stack) {
+        // Work in a local equirectangular projection so distances are plain planar math
+        double refLat = Math.toRadians(latitudes[0]);
+        double metersPerDegLat = Math.toRadians(1) * EARTH_RADIUS_METERS;
+        double metersPerDegLng = metersPerDegLat * Math.cos(refLat);
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            double ax = longitudes[first] * metersPerDegLng;
+            double ay = latitudes[first] * metersPerDegLat;
+            double dx = longitudes[last] * metersPerDegLng - ax;
+            double dy = latitudes[last] * metersPerDegLat - ay;
+            double lengthSq = dx * dx + dy * dy;
+
+            double maxDistSq = 0;
+            int maxIndex = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = longitudes[i] * metersPerDegLng - ax;
+                double py = latitudes[i] * metersPerDegLat - ay;
+                double distSq;
+                if (lengthSq == 0) {
+                    distSq = px * px + py * py;
+                } else {
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSq));
+                    double ex = px - t * dx;
+                    double ey = py - t * dy;
+                    distSq = ex * ex + ey * ey;
+                }
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    maxIndex = i;
+                }
+            }
+
+            if (maxIndex >= 0 && maxDistSq > toleranceSq) {
+                keep[maxIndex] = true;
+                stack[top++] = first;
+                stack[top++] = maxIndex;
+                stack[top++] = maxIndex;
+                stack[top++] = last;
+            }
+        }
+    }
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return Math.sqrt(dLat * dLat + dLng * dLng) * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Growable pair of latitude/longitude arrays that can be reused across decodes
+     */
+    public static class PointBuffer {
+        double[] latitudes;
+        double[] longitudes;
+        int size;
+
+        private boolean[] keepScratch;
+        private int[] stackScratch;
+
+        public PointBuffer() {
+            this(64);
+        }
+
+        public PointBuffer(int initialCapacity) {
+            int capacity = Math.max(2, initialCapacity);
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public double latitudeAt(int index) {
+            return latitudes[index];
+        }
+
+        public double longitudeAt(int index) {
+            return longitudes[index];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        /**
+         * Exact-length copy of the latitudes, e.g. for Intent extras
+         */
+        public double[] toLatitudeArray() {
+            return Arrays.copyOf(latitudes, size);
+        }
+
+        /**
+         * Exact-length copy of the longitudes, e.g. for Intent extras
+         */
+        public double[] toLongitudeArray() {
+            return Arrays.copyOf(longitudes, size);
+        }
+
+        /**
+         * Materialise the points for map APIs that only accept LatLng
+         */
+        public List<LatLng> toLatLngList() {
+            List<LatLng> points = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                points.add(new LatLng(latitudes[i], longitudes[i]));
+            }
+            return points;
+        }
+
+        void add(double latitude, double longitude) {
+            if (size == latitudes.length) {
+                ensureCapacity(size * 2);
+            }
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+        }
+
+        boolean[] keepScratch(int n) {
+            if (keepScratch == null || keepScratch.length < n) {
+                keepScratch = new boolean[Math.max(n, latitudes.length)];
+            } else {
+                Arrays.fill(keepScratch, 0, n, false);
+            }
+            return keepScratch;
+        }
+
+        int[] stackScratch(int n) {
+            // Each split pushes two ranges, never more than 2 * n indices deep
+            if (stackScratch == null || stackScratch.length < 2 * n) {
+                stackScratch = new int[2 * Math.max(n, latitudes.length)];
+            }
+            return stackScratch;
+        }
+    }
 }
@@ -0,0 +1,227 @@
+package com.example.caloriechase.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide once-a-second ticker for UI refreshes and periodic checks.
+ *
+ * Every subscriber is ticked on the same whole seconds of the uptime clock, so
+ * screens and the tracking service that refresh at the same time share a single
+ * main-thread wakeup instead of each running its own postDelayed loop at its own
+ * phase. Scheduling never looks at the wall clock, so setting the time back or
+ * forward does not stall or burst the ticks.
+ * Subscribers tied to a {@link LifecycleOwner} are only ticked while it is
+ * started and are dropped when it is destroyed. When no subscriber is active
+ * nothing is scheduled at all. Must be used from the main thread.
+ */
+public class UiTicker {
+
+    private static final long TICK_MS = 1000;
+    private static final long STATS_WINDOW_MS = 60_000;
+    private static final int WAKEUP_SAMPLES = 64; // More than one minute of one-second ticks
+
+    private static volatile UiTicker instance;
+
+    /**
+     * Tick callbacks are always delivered on the main thread
+     */
+    public interface TickListener {
+        /**
+         * @param nowMillis Wall-clock time of the tick
+         */
+        void onTick(long nowMillis);
+    }
+
+    private final class Subscription implements DefaultLifecycleObserver {
+        final TickListener listener;
+        final long periodSeconds;
+        final LifecycleOwner owner;
+        boolean active;
+        long nextDueSecond;
+
+        Subscription(TickListener listener, long periodSeconds, LifecycleOwner owner) {
+            this.listener = listener;
+            this.periodSeconds = periodSeconds;
+            this.owner = owner;
+        }
+
+        @Override
+        public void onStart(@NonNull LifecycleOwner owner) {
+            setActive(this, true);
+        }
+
+        @Override
+        public void onStop(@NonNull LifecycleOwner owner) {
+            setActive(this, false);
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            unsubscribe(listener);
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Runnable tickRunnable = this::tick;
+    private long scheduledSecond = -1;
+
+    // Wakeup history for getWakeupsPerMinute()
+    private final long[] wakeupTimes = new long[WAKEUP_SAMPLES];
+    private int wakeupHead = 0;
+    private long totalWakeups = 0;
+
+    private UiTicker() {
+    }
+
+    /**
+     * Get singleton instance of UiTicker
+     */
+    public static UiTicker getInstance() {
+        if (instance == null) {
+            synchronized (UiTicker.class) {
+                if (instance == null) {
+                    instance = new UiTicker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Tick the listener every period (rounded up to whole seconds) while the owner is
+     * started, starting on the next whole second. Subscribing the same listener again
+     * replaces its previous subscription.
+     */
+    public void subscribe(LifecycleOwner owner, TickListener listener, long periodMs) {
+        Subscription subscription = add(listener, periodMs, owner);
+        // Called back with the current state, which activates the subscription if the owner is started
+        owner.getLifecycle().addObserver(subscription);
+    }
+
+    /**
+     * Tick the listener every period until it unsubscribes, regardless of any screen
+     * being visible (for services)
+     */
+    public void subscribe(TickListener listener, long periodMs) {
+        setActive(add(listener, periodMs, null), true);
+    }
+
+    /**
+     * Stop ticking the listener
+     */
+    public void unsubscribe(TickListener listener) {
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            Subscription subscription = subscriptions.get(i);
+            if (subscription.listener == listener) {
+                subscriptions.remove(i);
+                if (subscription.owner != null) {
+                    subscription.owner.getLifecycle().removeObserver(subscription);
+                }
+            }
+        }
+        reschedule();
+    }
+
+    /**
+     * @return Number of subscribers currently being ticked
+     */
+    public int getActiveCount() {
+        int count = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.active) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Main-thread wakeups caused by the ticker over the last minute
+     */
+    public int getWakeupsPerMinute() {
+        long cutoff = SystemClock.uptimeMillis() - STATS_WINDOW_MS;
+        int count = 0;
+        for (int i = 0; i < Math.min(totalWakeups, WAKEUP_SAMPLES); i++) {
+            if (wakeupTimes[i] > cutoff) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getTotalWakeups() {
+        return totalWakeups;
+    }
+
+    private Subscription add(TickListener listener, long periodMs, LifecycleOwner owner) {
+        unsubscribe(listener);
+        long periodSeconds = Math.max(1, (periodMs + TICK_MS - 1) / TICK_MS);
+        Subscription subscription = new Subscription(listener, periodSeconds, owner);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private void setActive(Subscription subscription, boolean active) {
+        if (subscription.active == active || !subscriptions.contains(subscription)) {
+            return;
+        }
+        subscription.active = active;
+        if (active) {
+            subscription.nextDueSecond = currentSecond() + 1;
+        }
+        reschedule();
+    }
+
+    private void tick() {
+        scheduledSecond = -1;
+        wakeupTimes[wakeupHead] = SystemClock.uptimeMillis();
+        wakeupHead = (wakeupHead + 1) % WAKEUP_SAMPLES;
+        totalWakeups++;
+
+        // Round rather than truncate so a wakeup a few ms early still counts as its second
+        long second = (SystemClock.uptimeMillis() + TICK_MS / 2) / TICK_MS;
+        long now = System.currentTimeMillis();
+        // Iterate over a copy; listeners may subscribe or unsubscribe from onTick
+        for (Subscription subscription : new ArrayList<>(subscriptions)) {
+            if (subscription.active && subscription.nextDueSecond <= second && subscriptions.contains(subscription)) {
+                subscription.nextDueSecond = second + subscription.periodSeconds;
+                subscription.listener.onTick(now);
+            }
+        }
+        reschedule();
+    }
+
+    private void reschedule() {
+        long nextSecond = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.active) {
+                nextSecond = Math.min(nextSecond, subscription.nextDueSecond);
+            }
+        }
+        if (nextSecond == scheduledSecond) {
+            return;
+        }
+        mainHandler.removeCallbacks(tickRunnable);
+        scheduledSecond = -1;
+        if (nextSecond == Long.MAX_VALUE) {
+            return; // Nobody visible is listening
+        }
+        // Handler times are on the uptime clock too; a past time runs right away
+        mainHandler.postAtTime(tickRunnable, nextSecond * TICK_MS);
+        scheduledSecond = nextSecond;
+    }
+
+    private static long currentSecond() {
+        return SystemClock.uptimeMillis() / TICK_MS;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.caloriechase.views;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import com.example.caloriechase.location.TreasureProximityIndex;
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+/**
+ * Owns the live overlays of the gameplay map: the player marker, its collection
+ * circle and the treasure markers.
+ *
+ * Overlays are created once and moved in place on each fix instead of being removed
+ * and added again, camera follow requests are coalesced to at most one animation per
+ * frame, and the walked track is kept in a fixed-size primitive ring. Map objects
+ * added or removed are counted so churn can be checked in the logs.
+ * Must be used on the main thread.
+ */
+public class MapOverlayController {
+
+    private static final String TAG = "MapOverlayController";
+
+    public static final int DEFAULT_TRACK_CAPACITY = 3600; // about 1-2 hours of fixes
+
+    private final GoogleMap map;
+    private final float collectionRadiusMeters;
+    private final int circleStrokeColor;
+    private final int circleFillColor;
+
+    private Marker playerMarker;
+    private Circle playerCircle;
+
+    private Marker[] treasureMarkers = new Marker[0];
+    private TreasureProximityIndex treasureIndex;
+
+    private final TrackBuffer track = new TrackBuffer(DEFAULT_TRACK_CAPACITY);
+
+    // Camera follow, applied on the next frame
+    private boolean cameraFollowPending;
+    private double cameraTargetLat;
+    private double cameraTargetLng;
+    private double lastCameraLat = Double.NaN;
+    private double lastCameraLng = Double.NaN;
+    private final Choreographer.FrameCallback cameraFrameCallback = frameTimeNanos -> applyCameraFollow();
+
+    // Instrumentation
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private long objectsAdded;
+    private long objectsRemoved;
+    private long objectsMoved;
+    private long cameraRequests;
+    private long cameraAnimations;
+
+    public MapOverlayController(GoogleMap map, float collectionRadiusMeters, int circleStrokeColor, int circleFillColor) {
+        this.map = map;
+        this.collectionRadiusMeters = collectionRadiusMeters;
+        this.circleStrokeColor = circleStrokeColor;
+        this.circleFillColor = circleFillColor;
+    }
+
+    /**
+     * Add one marker per treasure and index them for {@link #findTreasuresInRange}
+     */
+    public void setTreasures(double[] latitudes, double[] longitudes, BitmapDescriptor icon) {
+        removeTreasureMarkers();
+        int count = Math.min(latitudes.length, longitudes.length);
+        treasureMarkers = new Marker[count];
+        for (int i = 0; i < count; i++) {
+            treasureMarkers[i] = map.addMarker(new MarkerOptions()
+                    .position(new LatLng(latitudes[i], longitudes[i]))
+                    .title("Treasure " + (i + 1))
+                    .snippet("Walk here to collect!")
+                    .icon(icon));
+            objectsAdded++;
+        }
+        treasureIndex = new TreasureProximityIndex(latitudes, longitudes, collectionRadiusMeters);
+    }
+
+    /**
+     * Remove a collected treasure from the map and from proximity checks
+     */
+    public void removeTreasure(int index) {
+        if (index < 0 || index >= treasureMarkers.length) return;
+        if (treasureMarkers[index] != null) {
+            treasureMarkers[index].remove();
+            treasureMarkers[index] = null;
+            objectsRemoved++;
+        }
+        if (treasureIndex != null) {
+            treasureIndex.remove(index);
+        }
+    }
+
+    /**
+     * Indexes of uncollected treasures within the collection radius of the point
+     *
+     * @return Number of indexes written to out
+     */
+    public int findTreasuresInRange(double latitude, double longitude, int[] out) {
+        if (treasureIndex == null) return 0;
+        return treasureIndex.findWithin(latitude, longitude, collectionRadiusMeters, out);
+    }
+
+    /**
+     * Move the player overlays to a new fix, record it and follow it with the camera
+     */
+    public void updatePlayer(double latitude, double longitude, long timeMillis) {
+        track.add(latitude, longitude, timeMillis);
+        LatLng position = new LatLng(latitude, longitude);
+
+        if (playerMarker == null) {
+            playerMarker = map.addMarker(new MarkerOptions()
+                    .position(position)
+                    .title("You are here")
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE)));
+            playerCircle = map.addCircle(new CircleOptions()
+                    .center(position)
+                    .radius(collectionRadiusMeters)
+                    .strokeColor(circleStrokeColor)
+                    .fillColor(circleFillColor)
+                    .strokeWidth(2f));
+            objectsAdded += 2;
+        } else {
+            playerMarker.setPosition(position);
+            playerCircle.setCenter(position);
+            objectsMoved += 2;
+        }
+
+        followCamera(latitude, longitude);
+    }
+
+    private void followCamera(double latitude, double longitude) {
+        cameraRequests++;
+        cameraTargetLat = latitude;
+        cameraTargetLng = longitude;
+        if (!cameraFollowPending) {
+            cameraFollowPending = true;
+            Choreographer.getInstance().postFrameCallback(cameraFrameCallback);
+        }
+    }
+
+    private void applyCameraFollow() {
+        cameraFollowPending = false;
+        if (cameraTargetLat == lastCameraLat && cameraTargetLng == lastCameraLng) {
+            return;
+        }
+        lastCameraLat = cameraTargetLat;
+        lastCameraLng = cameraTargetLng;
+        cameraAnimations++;
+        map.animateCamera(CameraUpdateFactory.newLatLng(new LatLng(cameraTargetLat, cameraTargetLng)));
+    }
+
+    public TrackBuffer getTrack() {
+        return track;
+    }
+
+    /**
+     * Map objects added or removed per minute since the controller was created
+     */
+    public float getChurnPerMinute() {
+        long elapsed = Math.max(1, SystemClock.elapsedRealtime() - createdAt);
+        return (objectsAdded + objectsRemoved) * 60000f / elapsed;
+    }
+
+    public String getStats() {
+        return String.format(java.util.Locale.US,
+                "added=%d removed=%d moved=%d churn/min=%.1f camera=%d/%d track=%d",
+                objectsAdded, objectsRemoved, objectsMoved, getChurnPerMinute(),
+                cameraAnimations, cameraRequests, track.size());
+    }
+
+    /**
+     * Cancel pending camera work and remove all overlays
+     */
+    public void release() {
+        Choreographer.getInstance().removeFrameCallback(cameraFrameCallback);
+        cameraFollowPending = false;
+        Log.d(TAG, "Overlay stats: " + getStats());
+        removeTreasureMarkers();
+        if (playerMarker != null) {
+            playerMarker.remove();
+            playerCircle.remove();
+            playerMarker = null;
+            playerCircle = null;
+            objectsRemoved += 2;
+        }
+    }
+
+    private void removeTreasureMarkers() {
+        for (int i = 0; i < treasureMarkers.length; i++) {
+            if (treasureMarkers[i] != null) {
+                treasureMarkers[i].remove();
+                treasureMarkers[i] = null;
+                objectsRemoved++;
+            }
+        }
+    }
+
+    /**
+     * Fixed-capacity ring of recent fixes; the oldest fix is overwritten when full
+     */
+    public static class TrackBuffer {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] times;
+        private int start;
+        private int size;
+
+        public TrackBuffer(int capacity) {
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            times = new long[capacity];
+        }
+
+        public void add(double latitude, double longitude, long timeMillis) {
+            int slot = (start + size) % latitudes.length;
+            latitudes[slot] = latitude;
+            longitudes[slot] = longitude;
+            times[slot] = timeMillis;
+            if (size < latitudes.length) {
+                size++;
+            } else {
+                start = (start + 1) % latitudes.length;
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Oldest retained fix is index 0 */
+        public double latitudeAt(int index) {
+            return latitudes[(start + index) % latitudes.length];
+        }
+
+        public double longitudeAt(int index) {
+            return longitudes[(start + index) % longitudes.length];
+        }
+
+        public long timeAt(int index) {
+            return times[(start + index) % times.length];
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.caloriechase.views;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.RectF;
@@ -13,23 +15,56 @@ import androidx.core.content.ContextCompat;
 import com.example.caloriechase.R;
 
 /**
- * Custom view that displays a visual track representation based on distance
+ * Custom view that displays a visual track representation based on distance.
+ *
+ * Everything drawn here is static for a given distance and size, so paints are
+ * built once, geometry is recomputed only when the distance or size changes, and
+ * the rendered track is cached in a bitmap that onDraw simply blits.
  */
 public class TrackVisualizationView extends View {
     
+    private static final int MAX_POLYGON_SIDES = 20;
+    private static final int MAX_TREASURES = 12;
+    
     private Paint trackPaint;
     private Paint progressPaint;
     private Paint markerPaint;
     private Paint textPaint;
     private Paint backgroundPaint;
+    private Paint vertexPaint;
+    private Paint midPaint;
+    private Paint[] treasurePaints;
+    private Paint highlightPaint;
+    private Paint startPaint;
+    private Paint startTextPaint;
+    private Paint distanceTextPaint;
+    private Paint labelPaint;
     
     private float distance = 1.0f; // Default 1km
     private int trackSegments = 10; // Number of segments to show
     private float trackWidth;
     private float trackHeight;
     private Path trackPath;
+    private Path treasurePath;
     private RectF trackBounds;
     
+    // Precomputed geometry, valid for the current distance and size
+    private int polygonSides;
+    private float polygonRadius;
+    private final float[] vertexX = new float[MAX_POLYGON_SIDES];
+    private final float[] vertexY = new float[MAX_POLYGON_SIDES];
+    private final float[] midX = new float[MAX_POLYGON_SIDES];
+    private final float[] midY = new float[MAX_POLYGON_SIDES];
+    private int treasureCount;
+    private final float[] treasureX = new float[MAX_TREASURES];
+    private final float[] treasureY = new float[MAX_TREASURES];
+    private String distanceText = String.format("%.1f km", distance);
+    
+    // Rendered layers, rebuilt only when geometry changes
+    private Bitmap layerCache;
+    private Canvas layerCanvas;
+    private boolean layerCacheDirty = true;
+    
     public TrackVisualizationView(Context context) {
         super(context);
         init();
@@ -71,13 +106,65 @@ public class TrackVisualizationView extends View {
         backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         backgroundPaint.setStyle(Paint.Style.FILL);
         
+        vertexPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        vertexPaint.setColor(ContextCompat.getColor(getContext(), R.color.vibrant_purple));
+        
+        midPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        midPaint.setColor(ContextCompat.getColor(getContext(), R.color.secondary_teal));
+        
+        // Treasure colors vary by index: purple, blue, yellow
+        treasurePaints = new Paint[] {
+            createFillPaint(R.color.vibrant_purple),
+            createFillPaint(R.color.accent_blue),
+            createFillPaint(R.color.vibrant_yellow)
+        };
+        
+        highlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        highlightPaint.setColor(ContextCompat.getColor(getContext(), R.color.white));
+        
+        startPaint = createFillPaint(R.color.vibrant_green);
+        
+        startTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        startTextPaint.setColor(ContextCompat.getColor(getContext(), R.color.text_primary));
+        startTextPaint.setTextSize(20f);
+        startTextPaint.setTextAlign(Paint.Align.CENTER);
+        startTextPaint.setFakeBoldText(true);
+        
+        distanceTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        distanceTextPaint.setColor(ContextCompat.getColor(getContext(), R.color.primary_orange));
+        distanceTextPaint.setTextSize(36f);
+        distanceTextPaint.setTextAlign(Paint.Align.CENTER);
+        distanceTextPaint.setFakeBoldText(true);
+        
+        labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        labelPaint.setColor(ContextCompat.getColor(getContext(), R.color.text_secondary));
+        labelPaint.setTextSize(18f);
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        
         trackPath = new Path();
+        treasurePath = new Path();
         trackBounds = new RectF();
     }
     
+    private Paint createFillPaint(int colorRes) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(ContextCompat.getColor(getContext(), colorRes));
+        paint.setStyle(Paint.Style.FILL);
+        return paint;
+    }
+    
     public void setDistance(float distance) {
+        if (this.distance == distance && !trackPath.isEmpty()) {
+            return;
+        }
         this.distance = distance;
+        this.distanceText = String.format("%.1f km", distance);
         calculateTrackSegments();
+        if (trackWidth > 0 && trackHeight > 0) {
+            // Polygon sides and treasure layout depend on distance
+            createPolygonPath();
+        }
+        layerCacheDirty = true;
         invalidate();
     }
     
@@ -99,7 +186,26 @@ public class TrackVisualizationView extends View {
         super.onSizeChanged(w, h, oldw, oldh);
         trackWidth = w - getPaddingLeft() - getPaddingRight();
         trackHeight = h - getPaddingTop() - getPaddingBottom();
+        if (layerCache != null && (layerCache.getWidth() != w || layerCache.getHeight() != h)) {
+            releaseLayerCache();
+        }
         createTrackPath();
+        layerCacheDirty = true;
+    }
+    
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseLayerCache();
+    }
+    
+    private void releaseLayerCache() {
+        if (layerCache != null) {
+            layerCache.recycle();
+            layerCache = null;
+            layerCanvas = null;
+        }
+        layerCacheDirty = true;
     }
     
     private void createTrackPath() {
@@ -143,29 +249,49 @@ public class TrackVisualizationView extends View {
         
         // Calculate polygon sides based on distance (same logic as map)
         int sides = calculatePolygonSides();
+        polygonSides = sides;
         
         // Calculate radius to fit within bounds
         float radius = Math.min(trackBounds.width(), trackBounds.height()) / 2.2f;
+        polygonRadius = radius;
         
-        // Create polygon vertices
+        // Create polygon vertices and the midpoints between them
         trackPath.reset();
-        boolean firstPoint = true;
         
         for (int i = 0; i < sides; i++) {
             double angle = 2 * Math.PI * i / sides - Math.PI / 2; // Start from top
+            double nextAngle = 2 * Math.PI * (i + 1) / sides - Math.PI / 2;
             
-            float x = centerX + (float) (radius * Math.cos(angle));
-            float y = centerY + (float) (radius * Math.sin(angle));
+            vertexX[i] = centerX + (float) (radius * Math.cos(angle));
+            vertexY[i] = centerY + (float) (radius * Math.sin(angle));
+            midX[i] = centerX + (float) (radius * Math.cos((angle + nextAngle) / 2));
+            midY[i] = centerY + (float) (radius * Math.sin((angle + nextAngle) / 2));
             
-            if (firstPoint) {
-                trackPath.moveTo(x, y);
-                firstPoint = false;
+            if (i == 0) {
+                trackPath.moveTo(vertexX[i], vertexY[i]);
             } else {
-                trackPath.lineTo(x, y);
+                trackPath.lineTo(vertexX[i], vertexY[i]);
             }
         }
         
         trackPath.close();
+        
+        calculateTreasurePositions(centerX, centerY, radius);
+    }
+    
+    private void calculateTreasurePositions(float centerX, float centerY, float radius) {
+        // Calculate number of treasures based on distance (roughly 1 treasure per 0.5km)
+        treasureCount = Math.max(3, Math.min(MAX_TREASURES, (int)(distance * 2)));
+        
+        for (int i = 0; i < treasureCount; i++) {
+            // Use a pseudo-random but consistent angle based on distance and index
+            float angle = (float) (2 * Math.PI * (i + 0.3 * Math.sin(distance * i)) / treasureCount);
+            
+            // Calculate position inside the polygon (40% to 80% of radius)
+            float treasureRadius = radius * (0.4f + 0.4f * (float)Math.sin(i * 0.7));
+            treasureX[i] = centerX + (float) (treasureRadius * Math.cos(angle));
+            treasureY[i] = centerY + (float) (treasureRadius * Math.sin(angle));
+        }
     }
     
     private int calculatePolygonSides() {
@@ -186,6 +312,37 @@ public class TrackVisualizationView extends View {
             return;
         }
         
+        if (layerCacheDirty || layerCache == null) {
+            renderLayerCache();
+        }
+        
+        if (layerCache != null) {
+            canvas.drawBitmap(layerCache, 0f, 0f, null);
+        }
+    }
+    
+    /**
+     * Render all track layers into the cached bitmap, reusing it when the size is unchanged
+     */
+    private void renderLayerCache() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        
+        if (layerCache == null) {
+            layerCache = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            layerCanvas = new Canvas(layerCache);
+        } else {
+            layerCache.eraseColor(Color.TRANSPARENT);
+        }
+        
+        drawLayers(layerCanvas);
+        layerCacheDirty = false;
+    }
+    
+    private void drawLayers(Canvas canvas) {
         // Draw gradient background
         canvas.drawOval(trackBounds, backgroundPaint);
         
@@ -206,71 +363,35 @@ public class TrackVisualizationView extends View {
     }
     
     private void drawDistanceMarkers(Canvas canvas) {
-        float centerX = trackBounds.centerX();
-        float centerY = trackBounds.centerY();
-        float radius = Math.min(trackBounds.width(), trackBounds.height()) / 2.2f;
-        
-        int sides = calculatePolygonSides();
-        
         // Draw markers at polygon vertices and midpoints
-        for (int i = 0; i < sides; i++) {
-            double angle = 2 * Math.PI * i / sides - Math.PI / 2; // Start from top
-            
-            // Calculate position on the polygon
-            float x = centerX + (float) (radius * Math.cos(angle));
-            float y = centerY + (float) (radius * Math.sin(angle));
-            
+        for (int i = 0; i < polygonSides; i++) {
             // Vertex markers (larger)
-            Paint vertexPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            vertexPaint.setColor(ContextCompat.getColor(getContext(), R.color.vibrant_purple));
-            canvas.drawCircle(x, y, 8f, vertexPaint);
+            canvas.drawCircle(vertexX[i], vertexY[i], 8f, vertexPaint);
             
             // Add midpoint markers for longer distances
-            if (distance > 2.0f && i < sides - 1) {
-                double nextAngle = 2 * Math.PI * (i + 1) / sides - Math.PI / 2;
-                float midX = centerX + (float) (radius * Math.cos((angle + nextAngle) / 2));
-                float midY = centerY + (float) (radius * Math.sin((angle + nextAngle) / 2));
-                
-                Paint midPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                midPaint.setColor(ContextCompat.getColor(getContext(), R.color.secondary_teal));
-                canvas.drawCircle(midX, midY, 5f, midPaint);
+            if (distance > 2.0f && i < polygonSides - 1) {
+                canvas.drawCircle(midX[i], midY[i], 5f, midPaint);
             }
         }
     }
     
     private void drawTreasureIndicators(Canvas canvas) {
-        float centerX = trackBounds.centerX();
-        float centerY = trackBounds.centerY();
-        float radius = Math.min(trackBounds.width(), trackBounds.height()) / 2.2f;
-        
-        // Calculate number of treasures based on distance (roughly 1 treasure per 0.5km)
-        int treasureCount = Math.max(3, Math.min(12, (int)(distance * 2)));
-        
-        // Draw treasure indicators at random-ish positions inside polygon
         for (int i = 0; i < treasureCount; i++) {
-            // Use a pseudo-random but consistent angle based on distance and index
-            float angle = (float) (2 * Math.PI * (i + 0.3 * Math.sin(distance * i)) / treasureCount);
-            
-            // Calculate position inside the polygon (40% to 80% of radius)
-            float treasureRadius = radius * (0.4f + 0.4f * (float)Math.sin(i * 0.7));
-            float x = centerX + (float) (treasureRadius * Math.cos(angle));
-            float y = centerY + (float) (treasureRadius * Math.sin(angle));
-            
-            // Draw treasure icon (simple diamond shape)
-            Paint treasurePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            float x = treasureX[i];
+            float y = treasureY[i];
             
             // Vary treasure colors based on position
+            Paint treasurePaint;
             if (i % 6 == 0) {
-                treasurePaint.setColor(ContextCompat.getColor(getContext(), R.color.vibrant_purple));
+                treasurePaint = treasurePaints[0];
             } else if (i % 3 == 0) {
-                treasurePaint.setColor(ContextCompat.getColor(getContext(), R.color.accent_blue));
+                treasurePaint = treasurePaints[1];
             } else {
-                treasurePaint.setColor(ContextCompat.getColor(getContext(), R.color.vibrant_yellow));
+                treasurePaint = treasurePaints[2];
             }
-            treasurePaint.setStyle(Paint.Style.FILL);
             
             // Draw diamond shape
-            Path treasurePath = new Path();
+            treasurePath.reset();
             treasurePath.moveTo(x, y - 6f); // Top
             treasurePath.lineTo(x + 6f, y); // Right
             treasurePath.lineTo(x, y + 6f); // Bottom
@@ -280,35 +401,19 @@ public class TrackVisualizationView extends View {
             canvas.drawPath(treasurePath, treasurePaint);
             
             // Add small highlight
-            Paint highlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            highlightPaint.setColor(ContextCompat.getColor(getContext(), R.color.white));
             canvas.drawCircle(x - 2f, y - 2f, 1.5f, highlightPaint);
         }
     }
     
     private void drawStartFinishLine(Canvas canvas) {
-        float centerX = trackBounds.centerX();
-        float centerY = trackBounds.centerY();
-        float radius = Math.min(trackBounds.width(), trackBounds.height()) / 2.2f;
-        
         // Start/finish at the top vertex of polygon (angle = -π/2)
-        float startX = centerX;
-        float startY = centerY - radius;
+        float startX = trackBounds.centerX();
+        float startY = trackBounds.centerY() - polygonRadius;
         
         // Draw start/finish marker
-        Paint startPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        startPaint.setColor(ContextCompat.getColor(getContext(), R.color.vibrant_green));
-        startPaint.setStyle(Paint.Style.FILL);
-        
         canvas.drawCircle(startX, startY, 12f, startPaint);
         
         // Draw "START" text
-        Paint startTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        startTextPaint.setColor(ContextCompat.getColor(getContext(), R.color.text_primary));
-        startTextPaint.setTextSize(20f);
-        startTextPaint.setTextAlign(Paint.Align.CENTER);
-        startTextPaint.setFakeBoldText(true);
-        
         canvas.drawText("START", startX, startY - 20f, startTextPaint);
     }
     
@@ -317,21 +422,9 @@ public class TrackVisualizationView extends View {
         float centerY = trackBounds.centerY();
         
         // Draw distance text
-        Paint distanceTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        distanceTextPaint.setColor(ContextCompat.getColor(getContext(), R.color.primary_orange));
-        distanceTextPaint.setTextSize(36f);
-        distanceTextPaint.setTextAlign(Paint.Align.CENTER);
-        distanceTextPaint.setFakeBoldText(true);
-        
-        String distanceText = String.format("%.1f km", distance);
         canvas.drawText(distanceText, centerX, centerY - 10f, distanceTextPaint);
         
         // Draw "TRACK" label
-        Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        labelPaint.setColor(ContextCompat.getColor(getContext(), R.color.text_secondary));
-        labelPaint.setTextSize(18f);
-        labelPaint.setTextAlign(Paint.Align.CENTER);
-        
         canvas.drawText("TRACK", centerX, centerY + 20f, labelPaint);
     }
     
@@ -0,0 +1,109 @@
+package com.example.caloriechase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AutoPauseDetectorTest {
+
+    private AutoPauseDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new AutoPauseDetector();
+    }
+
+    /**
+     * Evaluate once a second from {@code fromMs} up to and including {@code toMs}
+     *
+     * @return Time of the first non-NONE decision, or -1
+     */
+    private long evaluateEverySecond(long fromMs, long toMs, float cadence, boolean paused) {
+        for (long t = fromMs; t <= toMs; t += 1000) {
+            if (detector.evaluate(t, cadence, paused) != AutoPauseDetector.Decision.NONE) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void pausesAfterAMinuteWithoutSteps() {
+        assertEquals(AutoPauseDetector.PAUSE_AFTER_MS, evaluateEverySecond(0, 120_000, 0f, false));
+    }
+
+    @Test
+    public void briefStopDoesNotPause() {
+        assertEquals(-1, evaluateEverySecond(0, 40_000, 0f, false));
+        assertEquals(-1, evaluateEverySecond(41_000, 45_000, 160f, false));
+        // The still timer restarts after the steps
+        assertEquals(46_000 + AutoPauseDetector.PAUSE_AFTER_MS, evaluateEverySecond(46_000, 200_000, 0f, false));
+    }
+
+    @Test
+    public void freshSpeedKeepsSessionRunningWithoutSteps() {
+        for (long t = 0; t <= 120_000; t += 1000) {
+            detector.onSpeed(4f, 5f, t); // Cycling: no cadence, steady speed
+            assertEquals(AutoPauseDetector.Decision.NONE, detector.evaluate(t, 0f, false));
+        }
+    }
+
+    @Test
+    public void staleSpeedIsNoEvidenceOfMovement() {
+        detector.onSpeed(4f, 5f, 0);
+        // Fixes stop when standing still; the pause comes a minute after the speed goes stale
+        long pausedAt = evaluateEverySecond(1000, 200_000, 0f, false);
+        assertTrue(pausedAt > AutoPauseDetector.PAUSE_AFTER_MS);
+        assertTrue(pausedAt <= 16_000 + AutoPauseDetector.PAUSE_AFTER_MS);
+    }
+
+    @Test
+    public void inaccurateFixesAreIgnored() {
+        for (long t = 0; t <= 120_000; t += 1000) {
+            detector.onSpeed(4f, 100f, t);
+            if (detector.evaluate(t, 0f, false) == AutoPauseDetector.Decision.PAUSE) {
+                return;
+            }
+        }
+        fail("Inaccurate fixes kept the session running");
+    }
+
+    @Test
+    public void resumesAfterSustainedSteps() {
+        assertEquals(-1, evaluateEverySecond(0, 2_000, 120f, true));
+        assertTrue(detector.isMovementPending());
+        assertEquals(AutoPauseDetector.Decision.RESUME, detector.evaluate(3_000, 120f, true));
+    }
+
+    @Test
+    public void singleMovingFixDoesNotResume() {
+        detector.onSpeed(3f, 5f, 0);
+        assertEquals(-1, evaluateEverySecond(0, 10_000, 0f, true));
+        assertFalse(detector.isMovementPending());
+    }
+
+    @Test
+    public void consecutiveMovingFixesResume() {
+        detector.onSpeed(3f, 5f, 0);
+        detector.onSpeed(3f, 5f, 1_000);
+        assertEquals(AutoPauseDetector.Decision.NONE, detector.evaluate(1_000, 0f, true));
+        assertEquals(AutoPauseDetector.Decision.RESUME, detector.evaluate(4_000, 0f, true));
+    }
+
+    @Test
+    public void movingFixesFarApartAreNotConsecutive() {
+        detector.onSpeed(3f, 5f, 0);
+        detector.onSpeed(3f, 5f, 20_000);
+        assertEquals(-1, evaluateEverySecond(20_000, 30_000, 0f, true));
+    }
+
+    @Test
+    public void resetForgetsPendingMovement() {
+        detector.evaluate(0, 120f, true);
+        assertTrue(detector.isMovementPending());
+        detector.reset();
+        assertFalse(detector.isMovementPending());
+        assertEquals(AutoPauseDetector.Decision.NONE, detector.evaluate(3_000, 120f, true));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.caloriechase;
+
+import com.example.caloriechase.data.ActivityType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Profile-derived calorie and stride values, checked against hand-computed references
+ */
+public class CalorieEngineTest {
+
+    // Reference: male, 30 years, 70 kg, 175 cm. Mifflin-St Jeor BMR = 1648.75 kcal/day,
+    // which is 1648.75 / 1440 / 5.0 * 1000 / 70 = 3.271 ml O2/kg/min at rest
+    private static UserDataManager.UserData referenceMale() {
+        return new UserDataManager.UserData(30, 175f, 70f, "cm", "kg", "Male", false);
+    }
+
+    @Test
+    public void referenceProfile_scalesWeightByRestingRate() {
+        CalorieEngine.Profile profile = new CalorieEngine.Profile(referenceMale());
+
+        double expected = 70 * (1648.75 / 1440.0 / 5.0 * 1000.0 / 70) / 3.5; // 65.42
+        assertEquals(expected, profile.kcalPerMetHour, 0.01);
+    }
+
+    @Test
+    public void higherRestingRate_burnsMorePerMet() {
+        UserDataManager.UserData young = new UserDataManager.UserData(20, 175f, 70f, "cm", "kg", "Male", false);
+        UserDataManager.UserData old = new UserDataManager.UserData(60, 175f, 70f, "cm", "kg", "Male", false);
+
+        assertTrue(new CalorieEngine.Profile(young).kcalPerMetHour
+                > new CalorieEngine.Profile(old).kcalPerMetHour);
+    }
+
+    @Test
+    public void incompleteProfile_usesPlainWeight() {
+        UserDataManager.UserData noAge = new UserDataManager.UserData(0, 175f, 80f, "cm", "kg", "Male", false);
+
+        assertEquals(80.0, new CalorieEngine.Profile(noAge).kcalPerMetHour, 1e-9);
+    }
+
+    @Test
+    public void missingWeight_fallsBackToDefault() {
+        UserDataManager.UserData empty = new UserDataManager.UserData(0, 0f, 0f, "cm", "kg", null, false);
+        CalorieEngine.Profile profile = new CalorieEngine.Profile(empty);
+
+        assertEquals(70.0, profile.kcalPerMetHour, 1e-9);
+        assertEquals(170f * 0.43f / 100f, profile.strideMeters, 1e-6f);
+    }
+
+    @Test
+    public void imperialProfile_matchesMetric() {
+        UserDataManager.UserData imperial = new UserDataManager.UserData(
+                30, 175f / 2.54f, 70f / 0.453592f, "in", "lb", "Male", true);
+        CalorieEngine.Profile metric = new CalorieEngine.Profile(referenceMale());
+        CalorieEngine.Profile converted = new CalorieEngine.Profile(imperial);
+
+        assertEquals(metric.kcalPerMetHour, converted.kcalPerMetHour, 0.01);
+        assertEquals(metric.strideMeters, converted.strideMeters, 1e-4f);
+    }
+
+    @Test
+    public void stride_adjustsForSexAndAge() {
+        UserDataManager.UserData female = new UserDataManager.UserData(30, 175f, 70f, "cm", "kg", "Female", false);
+        UserDataManager.UserData senior = new UserDataManager.UserData(70, 175f, 70f, "cm", "kg", "Female", false);
+
+        assertEquals(175f * 0.43f * 1.05f / 100f, new CalorieEngine.Profile(referenceMale()).strideMeters, 1e-6f);
+        assertEquals(175f * 0.43f / 100f, new CalorieEngine.Profile(female).strideMeters, 1e-6f);
+        assertEquals(175f * 0.43f * 0.90f / 100f, new CalorieEngine.Profile(senior).strideMeters, 1e-6f);
+    }
+
+    @Test
+    public void met_interpolatesBetweenCurvePoints() {
+        assertEquals(3.5, CalorieEngine.getMet(ActivityType.WALK, 4.8), 1e-6);
+        assertEquals(3.9, CalorieEngine.getMet(ActivityType.WALK, 5.2), 1e-3);
+        assertEquals(23.0, CalorieEngine.getMet(ActivityType.RUN, 40.0), 1e-6); // Held past the end
+        assertEquals(1.3, CalorieEngine.getMet(ActivityType.RUN, -1.0), 1e-6);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.caloriechase.api;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Offline load run of the agent client against {@link FakeAgentInterceptor}.
+ *
+ * Drives {@code find_places} and {@code plan_route} through {@link ApiService}
+ * from several threads at once, on a Retrofit set up like {@link RetrofitClient}'s
+ * but with the fake as its only interceptor, and reports the cost of setting the
+ * client up, the end-to-end latency per call and the share of it spent parsing
+ * {@link AgentResponse} bodies.
+ */
+public class AgentLoadHarness {
+
+    private static final String BASE_URL = "http://10.0.2.2:8080/"; // never reached; the fake answers
+    private static final int PARSE_WARMUP = 200;
+
+    /**
+     * Result of one run, times in microseconds
+     */
+    public static class Report {
+        public final int requests;
+        public final int concurrency;
+        public final int failures;
+        public final long setupMicros; // Retrofit, service proxy and first call
+        public final long p50Micros;
+        public final long p95Micros;
+        public final long maxMicros;
+        public final double requestsPerSecond;
+        public final double parseMicros; // Gson conversion of one find_places body
+
+        Report(int requests, int concurrency, int failures, long setupMicros, long[] latencies,
+               double requestsPerSecond, double parseMicros) {
+            this.requests = requests;
+            this.concurrency = concurrency;
+            this.failures = failures;
+            this.setupMicros = setupMicros;
+            Arrays.sort(latencies);
+            this.p50Micros = percentile(latencies, 0.50);
+            this.p95Micros = percentile(latencies, 0.95);
+            this.maxMicros = latencies.length > 0 ? latencies[latencies.length - 1] : 0;
+            this.requestsPerSecond = requestsPerSecond;
+            this.parseMicros = parseMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d requests x%d: setup %d us, p50 %d us, p95 %d us, max %d us, %.0f req/s, "
+                            + "parse %.1f us, %d failures",
+                    requests, concurrency, setupMicros, p50Micros, p95Micros, maxMicros,
+                    requestsPerSecond, parseMicros, failures);
+        }
+    }
+
+    /**
+     * @param concurrency Calls in flight at once
+     * @param requests Total calls, alternating find_places and plan_route
+     * @param fake Fake agent to answer them
+     */
+    public static Report run(int concurrency, int requests, FakeAgentInterceptor fake) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long setupStart = System.nanoTime();
+            ApiService api = new Retrofit.Builder()
+                    .baseUrl(BASE_URL)
+                    .addConverterFactory(GsonConverterFactory.create())
+                    .client(new OkHttpClient.Builder().addInterceptor(fake).build())
+                    .build()
+                    .create(ApiService.class);
+            boolean setupOk = call(api, 0);
+            long setupMicros = (System.nanoTime() - setupStart) / 1000;
+
+            long[] latencies = new long[requests];
+            AtomicInteger failures = new AtomicInteger(setupOk ? 0 : 1);
+            CountDownLatch done = new CountDownLatch(requests);
+            long runStart = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                final int index = i;
+                executor.execute(() -> {
+                    long start = System.nanoTime();
+                    if (!call(api, index)) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[index] = (System.nanoTime() - start) / 1000;
+                    done.countDown();
+                });
+            }
+            done.await();
+            double seconds = (System.nanoTime() - runStart) / 1e9;
+
+            return new Report(requests, concurrency, failures.get(), setupMicros, latencies,
+                    requests / seconds, measureParse(fake, Math.max(requests, PARSE_WARMUP)));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * One call with a position varied by index, so the fake's answers differ
+     */
+    private static boolean call(ApiService api, int index) {
+        double lat = 37.7749 + (index % 100) * 0.001;
+        double lng = -122.4194 + (index / 100) * 0.001;
+        try {
+            if (index % 2 == 0) {
+                Response<AgentResponse.Root> response = api.findPlaces(lat, lng, "park", 2.0).execute();
+                AgentResponse.Root root = response.body();
+                return response.isSuccessful() && root != null && root.content != null && !root.content.isEmpty();
+            } else {
+                Response<AgentResponse.Route> response = api.planRoute(lat, lng, "jog", 3000).execute();
+                AgentResponse.Route route = response.body();
+                return response.isSuccessful() && route != null && route.polyline != null;
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Average Gson conversion time of a find_places body, after warming up
+     */
+    private static double measureParse(FakeAgentInterceptor fake, int iterations) {
+        Gson gson = new Gson();
+        HttpUrl url = HttpUrl.get("http://localhost/find_places?lat=37.7749&lng=-122.4194&keyword=park&distance_km=2.0");
+        String body = gson.toJson(fake.findPlaces(url));
+        for (int i = 0; i < PARSE_WARMUP; i++) {
+            gson.fromJson(body, AgentResponse.Root.class);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            gson.fromJson(body, AgentResponse.Root.class);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
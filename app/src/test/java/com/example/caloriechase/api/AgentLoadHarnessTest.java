@@ -0,0 +1,80 @@
+package com.example.caloriechase.api;
+
+import com.example.caloriechase.utils.PolylineDecoder;
+import com.google.gson.Gson;
+import okhttp3.HttpUrl;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Offline agent client runs against {@link FakeAgentInterceptor}
+ */
+public class AgentLoadHarnessTest {
+
+    private static final HttpUrl PLACES_URL =
+            HttpUrl.get("http://localhost/find_places?lat=37.7749&lng=-122.4194&keyword=park&distance_km=2.0");
+    private static final HttpUrl ROUTE_URL =
+            HttpUrl.get("http://localhost/plan_route?start_lat=37.7749&start_lng=-122.4194&mode=jog&distance_m=3000");
+
+    @Test
+    public void fake_answersSameQueryIdentically() {
+        Gson gson = new Gson();
+        FakeAgentInterceptor fake = new FakeAgentInterceptor(0, 8);
+
+        assertEquals(gson.toJson(fake.findPlaces(PLACES_URL)), gson.toJson(fake.findPlaces(PLACES_URL)));
+        assertEquals(gson.toJson(fake.planRoute(ROUTE_URL)), gson.toJson(fake.planRoute(ROUTE_URL)));
+    }
+
+    @Test
+    public void fake_placesStayWithinDistance() {
+        AgentResponse.Root root = new FakeAgentInterceptor(0, 8).findPlaces(PLACES_URL);
+
+        assertEquals("success", root.status);
+        assertEquals(8, root.content.get(0).json.size());
+        for (AgentResponse.Json place : root.content.get(0).json) {
+            double dLat = (place.lat - 37.7749) * 111320.0;
+            double dLng = (place.lng + 122.4194) * 111320.0 * Math.cos(Math.toRadians(37.7749));
+            assertTrue(place.name, Math.hypot(dLat, dLng) <= 2000 * 1.01);
+        }
+    }
+
+    @Test
+    public void fake_routeHasRequestedLengthAndPace() {
+        AgentResponse.Route route = new FakeAgentInterceptor(0, 8).planRoute(ROUTE_URL);
+
+        PolylineDecoder.PointBuffer points = PolylineDecoder.decodeInto(route.polyline,
+                new PolylineDecoder.PointBuffer(16));
+        double meters = 0;
+        for (int i = 1; i < points.size(); i++) {
+            double dLat = (points.latitudeAt(i) - points.latitudeAt(i - 1)) * 111320.0;
+            double dLng = (points.longitudeAt(i) - points.longitudeAt(i - 1)) * 111320.0
+                    * Math.cos(Math.toRadians(points.latitudeAt(i)));
+            meters += Math.hypot(dLat, dLng);
+        }
+        assertEquals(3000, meters, 30); // Polyline rounding to 1e-5 degrees
+        assertEquals(22.5, route.est_duration, 1e-9); // 7.5 min/km jog
+        assertEquals("synthetic", route.source);
+    }
+
+    @Test
+    public void harness_runsConcurrentCallsWithoutFailures() throws InterruptedException {
+        AgentLoadHarness.Report report = AgentLoadHarness.run(4, 200, new FakeAgentInterceptor(0, 8));
+        System.out.println("AgentLoadHarness: " + report);
+
+        assertEquals(200, report.requests);
+        assertEquals(0, report.failures);
+        assertTrue(report.p50Micros <= report.p95Micros);
+        assertTrue(report.p95Micros <= report.maxMicros);
+        assertTrue(report.requestsPerSecond > 0);
+        assertTrue(report.parseMicros > 0);
+    }
+
+    @Test
+    public void harness_latencyIncludesSimulatedAgentDelay() throws InterruptedException {
+        AgentLoadHarness.Report report = AgentLoadHarness.run(4, 20, new FakeAgentInterceptor(20, 8));
+
+        assertEquals(0, report.failures);
+        assertTrue(report.p50Micros >= 20_000);
+    }
+}
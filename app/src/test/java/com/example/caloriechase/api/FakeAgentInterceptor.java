@@ -0,0 +1,180 @@
+package com.example.caloriechase.api;
+
+import com.example.caloriechase.utils.PolylineDecoder;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Local stand-in for the LocoAgent endpoints, for working and measuring offline.
+ *
+ * Answers {@code find_places} and {@code plan_route} in the agent's response
+ * shapes without touching the network. Places and routes are synthesized from
+ * a seed derived from the query, so the same request always gets the same
+ * answer and repeated runs are comparable. An optional delay simulates the
+ * agent's model latency. Other paths are passed through unchanged. Add it as an
+ * interceptor of the OkHttpClient behind {@link ApiService}, as
+ * {@link AgentLoadHarness} does.
+ */
+public class FakeAgentInterceptor implements Interceptor {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final int ROUTE_POINTS_PER_KM = 40;
+    private static final String[] PLACE_KINDS = {"Park", "Cafe", "Museum", "Lake", "Plaza", "Garden", "Library", "Market"};
+    private static final String[] STREETS = {"Main St", "Oak Ave", "River Rd", "Hill St", "Park Ln", "Station Rd"};
+
+    private final Gson gson = new Gson();
+    private final long delayMs;
+    private final int placesPerResponse;
+
+    /**
+     * @param delayMs Simulated agent latency per request, 0 for none
+     * @param placesPerResponse Number of places in a find_places answer
+     */
+    public FakeAgentInterceptor(long delayMs, int placesPerResponse) {
+        this.delayMs = delayMs;
+        this.placesPerResponse = placesPerResponse;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        HttpUrl url = chain.request().url();
+        String path = url.encodedPath();
+        Object body;
+        if (path.endsWith("/find_places")) {
+            body = findPlaces(url);
+        } else if (path.endsWith("/plan_route")) {
+            body = planRoute(url);
+        } else {
+            return chain.proceed(chain.request());
+        }
+
+        if (delayMs > 0) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while simulating agent latency", e);
+            }
+        }
+
+        return new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(gson.toJson(body), JSON))
+                .build();
+    }
+
+    /**
+     * Places scattered within distance_km of the query position
+     */
+    AgentResponse.Root findPlaces(HttpUrl url) {
+        double lat = doubleParam(url, "lat", 0);
+        double lng = doubleParam(url, "lng", 0);
+        String keyword = url.queryParameter("keyword");
+        double distanceKm = doubleParam(url, "distance_km", 1);
+        Random random = new Random(seed(url));
+
+        AgentResponse response = new AgentResponse();
+        AgentResponse.Content content = response.new Content();
+        content.json = new ArrayList<>(placesPerResponse);
+        for (int i = 0; i < placesPerResponse; i++) {
+            double meters = distanceKm * 1000 * Math.sqrt(random.nextDouble());
+            double[] point = offset(lat, lng, meters, random.nextDouble() * 2 * Math.PI);
+
+            AgentResponse.Json place = response.new Json();
+            String kind = PLACE_KINDS[random.nextInt(PLACE_KINDS.length)];
+            place.name = (keyword != null && !keyword.isEmpty() ? capitalize(keyword) + " " : "") + kind + " " + (i + 1);
+            place.lat = point[0];
+            place.lng = point[1];
+            place.address = (1 + random.nextInt(200)) + " " + STREETS[random.nextInt(STREETS.length)];
+            content.json.add(place);
+        }
+
+        AgentResponse.Root root = response.new Root();
+        root.status = "success";
+        root.content = new ArrayList<>();
+        root.content.add(content);
+        return root;
+    }
+
+    /**
+     * Wandering one-way route of roughly distance_m, like the agent's synthetic fallback
+     */
+    AgentResponse.Route planRoute(HttpUrl url) {
+        double lat = doubleParam(url, "start_lat", 0);
+        double lng = doubleParam(url, "start_lng", 0);
+        String mode = url.queryParameter("mode");
+        double distanceMeters = doubleParam(url, "distance_m", 1000);
+        Random random = new Random(seed(url));
+
+        int segments = Math.max(2, (int) (distanceMeters / 1000 * ROUTE_POINTS_PER_KM));
+        double segmentMeters = distanceMeters / segments;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        double[] latitudes = new double[segments + 1];
+        double[] longitudes = new double[segments + 1];
+        latitudes[0] = lat;
+        longitudes[0] = lng;
+        for (int i = 1; i <= segments; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.6;
+            double[] point = offset(latitudes[i - 1], longitudes[i - 1], segmentMeters, heading);
+            latitudes[i] = point[0];
+            longitudes[i] = point[1];
+        }
+        PolylineDecoder.PointBuffer points = PolylineDecoder.simplify(latitudes, longitudes, 0,
+                new PolylineDecoder.PointBuffer(segments + 1));
+
+        AgentResponse.Route route = new AgentResponse.Route();
+        route.polyline = PolylineDecoder.encode(points);
+        route.est_duration = Math.round(paceMinutesPerKm(mode) * distanceMeters / 1000 * 100) / 100.0;
+        route.dest = new AgentResponse.Dest();
+        route.dest.lat = latitudes[segments];
+        route.dest.lng = longitudes[segments];
+        route.source = "synthetic";
+        return route;
+    }
+
+    // Same paces as the agent's plan_route tool
+    private static double paceMinutesPerKm(String mode) {
+        if ("run".equals(mode)) return 5.5;
+        if ("jog".equals(mode)) return 7.5;
+        return 13.5;
+    }
+
+    private static long seed(HttpUrl url) {
+        String query = url.encodedQuery();
+        return (url.encodedPath() + "?" + (query != null ? query : "")).hashCode();
+    }
+
+    private static double[] offset(double lat, double lng, double meters, double bearing) {
+        double dLat = meters * Math.cos(bearing) / METERS_PER_DEGREE;
+        double dLng = meters * Math.sin(bearing) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        return new double[] {lat + dLat, lng + dLng};
+    }
+
+    private static double doubleParam(HttpUrl url, String name, double fallback) {
+        String value = url.queryParameter(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.caloriechase.data;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Converters must round-trip the binary form, and keep reading the JSON the Gson based
+ * converters wrote into rows from before database version 9
+ */
+public class ConvertersTest {
+
+    static final Gson GSON = new Gson();
+
+    private static Set<String> specialStrings() {
+        return new LinkedHashSet<>(Arrays.asList(
+                "plain", "quote\"backslash\\", "tab\tnew\nline\rfeed\f\b", "\u0001\u001f",
+                "<b>a & b = 'c'</b>", "line\u2028para\u2029", "café 🏃", ""));
+    }
+
+    static List<LocationUpdate> track(int size) {
+        List<LocationUpdate> updates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            updates.add(new LocationUpdate(51.5 + i * 1e-5, -0.12 - i * 1e-5, 4.5f + i % 7,
+                                           1_700_000_000_000L + i * 1000L, 2.75f, i % 360));
+        }
+        return updates;
+    }
+
+    static byte[] legacy(Object value) {
+        return GSON.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertSameUpdates(List<LocationUpdate> expected, List<LocationUpdate> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LocationUpdate e = expected.get(i);
+            LocationUpdate a = actual.get(i);
+            assertEquals(e.latitude, a.latitude, 0.0);
+            assertEquals(e.longitude, a.longitude, 0.0);
+            assertEquals(e.accuracy, a.accuracy, 0f);
+            assertEquals(e.timestamp, a.timestamp);
+            assertEquals(e.speed, a.speed, 0f);
+            assertEquals(e.bearing, a.bearing, 0f);
+        }
+    }
+
+    @Test
+    public void stringSet_roundTripsInOrder() {
+        Set<String> strings = specialStrings();
+        strings.add(null);
+        Set<String> read = Converters.toStringSet(Converters.fromStringSet(strings));
+        assertEquals(new ArrayList<>(strings), new ArrayList<>(read));
+    }
+
+    @Test
+    public void stringSet_readsGsonOutput() {
+        Set<String> strings = specialStrings();
+        assertEquals(strings, Converters.toStringSet(legacy(strings)));
+    }
+
+    @Test
+    public void locationUpdateList_roundTripsAndIsCompact() {
+        List<LocationUpdate> updates = track(50);
+        byte[] blob = Converters.fromLocationUpdateList(updates);
+        assertEquals(5 + 50 * 36, blob.length);
+        assertTrue(blob.length * 3 < legacy(updates).length);
+        assertSameUpdates(updates, Converters.toLocationUpdateList(blob));
+    }
+
+    @Test
+    public void locationUpdateList_readsGsonOutput() {
+        List<LocationUpdate> updates = track(50);
+        assertSameUpdates(updates, Converters.toLocationUpdateList(legacy(updates)));
+    }
+
+    @Test
+    public void locationUpdateList_skipsNullEntries() {
+        List<LocationUpdate> updates = track(3);
+        updates.add(1, null);
+        List<LocationUpdate> read = Converters.toLocationUpdateList(Converters.fromLocationUpdateList(updates));
+        assertSameUpdates(track(3), read);
+    }
+
+    @Test
+    public void emptyRoute_isTheFiveByteHeader() {
+        // SessionDao.hasSessionRoute treats a route of 5 bytes or fewer as empty
+        assertEquals(5, Converters.fromLocationUpdateList(new ArrayList<>()).length);
+        assertTrue(Converters.toLocationUpdateList(Converters.fromLocationUpdateList(new ArrayList<>())).isEmpty());
+        assertTrue(Converters.toLocationUpdateList(legacy(new ArrayList<>())).isEmpty());
+    }
+
+    @Test
+    public void doubleArray_roundTripsExactly() {
+        double[] values = {0.0, -0.0, 1.5, -273.15, 1e-9, 6.02e23, Double.MIN_VALUE, Double.MAX_VALUE};
+        assertArrayEquals(values, Converters.toDoubleArray(Converters.fromDoubleArray(values)), 0.0);
+    }
+
+    @Test
+    public void nonFiniteValues_surviveBinaryAndLegacyNullsReadAsNaN() {
+        double[] read = Converters.toDoubleArray(Converters.fromDoubleArray(
+                new double[]{1.0, Double.NaN, Double.POSITIVE_INFINITY}));
+        assertEquals(1.0, read[0], 0.0);
+        assertTrue(Double.isNaN(read[1]));
+        assertEquals(Double.POSITIVE_INFINITY, read[2], 0.0);
+
+        LocationUpdate update = new LocationUpdate(51.5, -0.12, 5f, 1000L, Float.NaN, Float.NEGATIVE_INFINITY);
+        LocationUpdate binary = Converters.toLocationUpdateList(
+                Converters.fromLocationUpdateList(Arrays.asList(update))).get(0);
+        assertTrue(Float.isNaN(binary.speed));
+        assertEquals(Float.NEGATIVE_INFINITY, binary.bearing, 0f);
+
+        // The hand-written JSON writer stored non-finite values as null
+        String json = "[{\"latitude\":51.5,\"longitude\":-0.12,\"accuracy\":5.0,\"timestamp\":1000,"
+                + "\"speed\":null,\"bearing\":null}]";
+        LocationUpdate legacy = Converters.toLocationUpdateList(json.getBytes(StandardCharsets.UTF_8)).get(0);
+        assertEquals(51.5, legacy.latitude, 0.0);
+        assertTrue(Float.isNaN(legacy.speed));
+        assertTrue(Float.isNaN(legacy.bearing));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedBlob_isRejected() {
+        byte[] blob = Converters.fromLocationUpdateList(track(2));
+        Converters.toLocationUpdateList(Arrays.copyOf(blob, blob.length - 1));
+    }
+
+    @Test
+    public void nulls_roundTrip() {
+        assertNull(Converters.fromStringSet(null));
+        assertNull(Converters.toStringSet(null));
+        assertNull(Converters.fromLocationUpdateList(null));
+        assertNull(Converters.toLocationUpdateList(null));
+        assertNull(Converters.fromDoubleArray(null));
+        assertNull(Converters.toDoubleArray(null));
+        assertNull(Converters.toStringSet("null".getBytes(StandardCharsets.UTF_8)));
+    }
+}
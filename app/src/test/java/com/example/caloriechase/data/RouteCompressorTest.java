@@ -0,0 +1,116 @@
+package com.example.caloriechase.data;
+
+import com.example.caloriechase.utils.PolylineDecoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteCompressorTest {
+
+    private static final double METERS_PER_DEGREE = 111195.0; // On a 6371 km sphere
+
+    /**
+     * One fix per second heading north at 3 m/s, weaving east and west by the given amplitude
+     */
+    static List<TrackPoint> run(int seconds, double wiggleMeters) {
+        List<TrackPoint> points = new ArrayList<>(seconds);
+        for (int i = 0; i < seconds; i++) {
+            double north = i * 3.0;
+            double east = wiggleMeters * Math.sin(i * 2 * Math.PI / 60);
+            points.add(new TrackPoint("s", north / METERS_PER_DEGREE, east / METERS_PER_DEGREE,
+                                      5f, 3f, 1_000_000L + i * 1000L, 1_000_000L));
+        }
+        return points;
+    }
+
+    @Test
+    public void emptyTrack_hasNoPreview() {
+        RouteCompressor.Result result = RouteCompressor.compress(new ArrayList<>());
+        assertTrue(result.track.isEmpty());
+        assertNull(result.preview);
+        assertEquals(0f, result.distanceKm, 0f);
+        assertEquals(0, result.rawPoints);
+
+        assertEquals(0, RouteCompressor.compress(null).rawPoints);
+    }
+
+    @Test
+    public void straightLine_keepsEveryFix() {
+        RouteCompressor.Result result = RouteCompressor.compress(run(100, 0));
+        assertEquals(100, result.track.size());
+        assertEquals(100, result.rawPoints);
+        assertEquals(0.297, result.distanceKm, 0.001); // 99 steps of 3 m
+        assertEquals(1_000_000L, result.track.get(0).timestamp);
+        assertEquals(1_099_000L, result.track.get(99).timestamp);
+        assertEquals(2, PolylineDecoder.decode(result.preview).size());
+    }
+
+    @Test
+    public void inaccurateFixesAreDropped() {
+        List<TrackPoint> points = run(10, 0);
+        points.get(5).accuracy = RouteCompressor.MAX_ACCURACY_METERS + 1;
+        points.get(5).longitude = 0.01; // Would bend the line if kept
+        RouteCompressor.Result result = RouteCompressor.compress(points);
+        assertEquals(9, result.track.size());
+        assertEquals(0.027, result.distanceKm, 0.001);
+    }
+
+    @Test
+    public void jumpsAndRepeatedTimestampsAreDropped() {
+        List<TrackPoint> points = run(10, 0);
+        points.get(4).latitude += 500 / METERS_PER_DEGREE; // 500 m in one second
+        points.get(6).timestamp = points.get(5).timestamp;
+        RouteCompressor.Result result = RouteCompressor.compress(points);
+        assertEquals(8, result.track.size());
+        assertEquals(0.027, result.distanceKm, 0.001);
+    }
+
+    @Test
+    public void pauseGap_isNotMeasuredAndDoesNotFilterTheResumeFix() {
+        List<TrackPoint> points = run(10, 0);
+        // Resumed ten minutes later, 400 m further north: slow over the pause, but never walked while tracked
+        long resumedAt = points.get(9).timestamp + 600_000L;
+        for (int i = 0; i < 10; i++) {
+            double north = 27 + 400 + i * 3.0;
+            points.add(new TrackPoint("s", north / METERS_PER_DEGREE, 0, 5f, 3f,
+                                      resumedAt + i * 1000L, resumedAt));
+        }
+        RouteCompressor.Result result = RouteCompressor.compress(points);
+        assertEquals(20, result.track.size());
+        assertEquals(0.054, result.distanceKm, 0.001); // Two stretches of 27 m
+    }
+
+    @Test
+    public void jumpRightAfterResume_isKeptAsTheSegmentStart() {
+        List<TrackPoint> points = run(10, 0);
+        // Resumed one second later but 100 m away: an impossible speed within a segment
+        long resumedAt = points.get(9).timestamp + 1000L;
+        for (int i = 0; i < 5; i++) {
+            double north = 27 + 100 + i * 3.0;
+            points.add(new TrackPoint("s", north / METERS_PER_DEGREE, 0, 5f, 3f,
+                                      resumedAt + i * 1000L, resumedAt));
+        }
+        RouteCompressor.Result result = RouteCompressor.compress(points);
+        assertEquals(15, result.track.size());
+        assertEquals(0.039, result.distanceKm, 0.001);
+    }
+
+    @Test
+    public void weaveIsMeasuredWithinTolerance() {
+        RouteCompressor.Result result = RouteCompressor.compress(run(600, 20));
+        assertEquals(600, result.track.size());
+        // Raw length is about 2.1 km; simplification may only shorten it a little
+        assertTrue(result.distanceKm > 1.9f && result.distanceKm < 2.2f);
+    }
+
+    @Test
+    public void preview_isCappedAndDecodes() {
+        RouteCompressor.Result result = RouteCompressor.compress(run(7200, 40));
+        List<?> preview = PolylineDecoder.decode(result.preview);
+        assertTrue(preview.size() >= 2);
+        assertTrue(preview.size() <= RouteCompressor.PREVIEW_MAX_POINTS);
+    }
+}
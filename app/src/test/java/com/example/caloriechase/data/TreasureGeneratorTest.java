@@ -0,0 +1,59 @@
+package com.example.caloriechase.data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TreasureGeneratorTest {
+
+    static final double START_LAT = 51.5;
+    static final double START_LNG = -0.12;
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * 6371000.0 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    @Test
+    public void sameSeedGivesSameLayout() {
+        long seed = TreasureGenerator.seedForSession("session-1");
+        List<TreasureLocation> first = new TreasureGenerator(seed).generateTreasureRing("session-1", START_LAT, START_LNG, 5f);
+        List<TreasureLocation> second = new TreasureGenerator(seed).generateTreasureRing("session-1", START_LAT, START_LNG, 5f);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).latitude, second.get(i).latitude, 0.0);
+            assertEquals(first.get(i).longitude, second.get(i).longitude, 0.0);
+            assertEquals(first.get(i).type, second.get(i).type);
+        }
+    }
+
+    @Test
+    public void seedForSession_isStableAndSpread() {
+        assertEquals(TreasureGenerator.seedForSession("a"), TreasureGenerator.seedForSession("a"));
+        assertNotEquals(TreasureGenerator.seedForSession("a"), TreasureGenerator.seedForSession("b"));
+        assertEquals(TreasureGenerator.seedForSession(null), TreasureGenerator.seedForSession(null));
+    }
+
+    @Test
+    public void treasuresAreSpacedAndInRange() {
+        for (long seed = 0; seed < 200; seed++) {
+            List<TreasureLocation> treasures = new TreasureGenerator(seed)
+                    .generateTreasureRing("s", START_LAT, START_LNG, 5f);
+            assertFalse(treasures.isEmpty());
+            for (int i = 0; i < treasures.size(); i++) {
+                TreasureLocation a = treasures.get(i);
+                assertTrue(distanceMeters(START_LAT, START_LNG, a.latitude, a.longitude) <= 2501);
+                for (int j = i + 1; j < treasures.size(); j++) {
+                    TreasureLocation b = treasures.get(j);
+                    assertTrue(distanceMeters(a.latitude, a.longitude, b.latitude, b.longitude) >= 99);
+                }
+            }
+        }
+    }
+}
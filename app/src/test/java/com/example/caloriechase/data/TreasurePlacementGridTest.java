@@ -0,0 +1,69 @@
+package com.example.caloriechase.data;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TreasurePlacementGridTest {
+
+    private static final double MAX_RADIUS = 2500;
+    private static final double MIN_DISTANCE = 100;
+
+    private static TreasurePlacementGrid grid() {
+        return new TreasurePlacementGrid(51.5, -0.12, MAX_RADIUS, MIN_DISTANCE);
+    }
+
+    @Test
+    public void projectionRoundTrips() {
+        TreasurePlacementGrid grid = grid();
+        assertEquals(0, grid.toX(-0.12), 1e-9);
+        assertEquals(0, grid.toY(51.5), 1e-9);
+        assertEquals(51.51, grid.toLatitude(grid.toY(51.51)), 1e-12);
+        assertEquals(-0.13, grid.toLongitude(grid.toX(-0.13)), 1e-12);
+        // One degree of latitude is about 111 km on a 6371 km sphere
+        assertEquals(111_195, grid.toY(52.5), 1);
+    }
+
+    @Test
+    public void rejectsPointsOutsideTheRadius() {
+        TreasurePlacementGrid grid = grid();
+        assertTrue(grid.canPlace(0, MAX_RADIUS - 1));
+        assertFalse(grid.canPlace(0, MAX_RADIUS + 1));
+        assertFalse(grid.canPlace(MAX_RADIUS, MAX_RADIUS));
+    }
+
+    @Test
+    public void enforcesMinimumSpacing() {
+        TreasurePlacementGrid grid = grid();
+        grid.place(0, 0);
+        assertFalse(grid.canPlace(MIN_DISTANCE - 1, 0));
+        assertFalse(grid.canPlace(70, 70)); // 99 m diagonally, two cells away
+        assertTrue(grid.canPlace(MIN_DISTANCE, 0));
+        assertTrue(grid.canPlace(71, 71));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    public void matchesBruteForceChecks() {
+        TreasurePlacementGrid grid = grid();
+        Random random = new Random(31);
+        for (int i = 0; i < 20_000; i++) {
+            double x = (random.nextDouble() * 2 - 1) * (MAX_RADIUS + 100);
+            double y = (random.nextDouble() * 2 - 1) * (MAX_RADIUS + 100);
+
+            boolean expected = x * x + y * y <= MAX_RADIUS * MAX_RADIUS;
+            for (int j = 0; j < grid.size() && expected; j++) {
+                double dx = grid.xAt(j) - x;
+                double dy = grid.yAt(j) - y;
+                expected = dx * dx + dy * dy >= MIN_DISTANCE * MIN_DISTANCE;
+            }
+            assertEquals(expected, grid.canPlace(x, y));
+            if (expected) {
+                grid.place(x, y);
+            }
+        }
+        assertTrue(grid.size() > 100);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.caloriechase.error;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class TrackingCheckpointJournalTest {
+
+    private static final int SLOT_SIZE = 160;
+    static final String SESSION = "3f2b1c9e-8d4a-4f6b-9c1e-2a7d5e8f0b13";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "tracking_checkpoint.bin");
+    }
+
+    static TrackingCheckpointJournal.Checkpoint checkpoint(String sessionId, int steps) {
+        TrackingCheckpointJournal.Checkpoint checkpoint = new TrackingCheckpointJournal.Checkpoint();
+        checkpoint.sessionId = sessionId;
+        checkpoint.savedAt = 1_700_000_000_123L;
+        checkpoint.paused = true;
+        checkpoint.sessionSteps = steps;
+        checkpoint.initialStepCount = 123_456_789_012L;
+        checkpoint.lastCounterValue = -1;
+        checkpoint.distanceKm = 4.25f;
+        checkpoint.useStepBasedDistance = true;
+        checkpoint.calories = 321;
+        checkpoint.activeDurationMs = 1_800_000L;
+        checkpoint.hasFix = true;
+        checkpoint.latitude = 51.50072919;
+        checkpoint.longitude = -0.12462059;
+        checkpoint.accuracy = 7.5f;
+        checkpoint.fixTime = 1_700_000_000_000L;
+        return checkpoint;
+    }
+
+    private void corrupt(long offset) throws Exception {
+        // The mapping shares the page cache, so the journal sees this write
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xff);
+        }
+    }
+
+    @Test
+    public void everyFieldRoundTrips() {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        TrackingCheckpointJournal.Checkpoint written = checkpoint(SESSION, 4321);
+        journal.write(written);
+
+        TrackingCheckpointJournal.Checkpoint read = new TrackingCheckpointJournal(file).read(SESSION);
+        assertNotNull(read);
+        assertEquals(written.sessionId, read.sessionId);
+        assertEquals(written.savedAt, read.savedAt);
+        assertEquals(written.paused, read.paused);
+        assertEquals(written.autoPaused, read.autoPaused);
+        assertEquals(written.sessionSteps, read.sessionSteps);
+        assertEquals(written.initialStepCount, read.initialStepCount);
+        assertEquals(written.lastCounterValue, read.lastCounterValue);
+        assertEquals(written.distanceKm, read.distanceKm, 0f);
+        assertEquals(written.useStepBasedDistance, read.useStepBasedDistance);
+        assertEquals(written.calories, read.calories);
+        assertEquals(written.activeDurationMs, read.activeDurationMs);
+        assertEquals(written.hasFix, read.hasFix);
+        assertEquals(written.latitude, read.latitude, 0.0);
+        assertEquals(written.longitude, read.longitude, 0.0);
+        assertEquals(written.accuracy, read.accuracy, 0f);
+        assertEquals(written.fixTime, read.fixTime);
+    }
+
+    @Test
+    public void autoPauseRoundTrips() {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        TrackingCheckpointJournal.Checkpoint written = checkpoint(SESSION, 1);
+        written.autoPaused = true;
+        journal.write(written);
+
+        TrackingCheckpointJournal.Checkpoint read = new TrackingCheckpointJournal(file).read(SESSION);
+        assertTrue(read.paused);
+        assertTrue(read.autoPaused);
+
+        written.paused = false;
+        journal.write(written);
+        read = new TrackingCheckpointJournal(file).read(SESSION);
+        assertFalse(read.paused);
+        assertFalse(read.autoPaused);
+    }
+
+    @Test
+    public void fileHoldsTwoFixedSizeSlots() {
+        new TrackingCheckpointJournal(file).write(checkpoint(SESSION, 1));
+        assertEquals(2 * SLOT_SIZE, file.length());
+    }
+
+    @Test
+    public void longestSessionIdFitsBeforeTheChecksum() {
+        String longest = new String(new char[64]).replace('\0', 'x');
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        journal.write(checkpoint(longest, 1));
+        TrackingCheckpointJournal.Checkpoint read = new TrackingCheckpointJournal(file).read(longest);
+        assertNotNull(read);
+        assertEquals(longest, read.sessionId);
+        assertEquals(1_700_000_000_000L, read.fixTime);
+    }
+
+    @Test
+    public void newestCheckpointWins() {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        journal.write(checkpoint(SESSION, 1));
+        journal.write(checkpoint(SESSION, 2));
+        journal.write(checkpoint(SESSION, 3));
+        assertEquals(3, new TrackingCheckpointJournal(file).read(SESSION).sessionSteps);
+    }
+
+    @Test
+    public void reopenedJournalContinuesTheSequence() {
+        new TrackingCheckpointJournal(file).write(checkpoint(SESSION, 1));
+        new TrackingCheckpointJournal(file).write(checkpoint(SESSION, 2));
+        assertEquals(2, new TrackingCheckpointJournal(file).read(SESSION).sessionSteps);
+    }
+
+    @Test
+    public void tornSlotFallsBackToThePreviousCheckpoint() throws Exception {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        journal.write(checkpoint(SESSION, 1));
+        journal.write(checkpoint(SESSION, 2));
+        corrupt(slotOf(2) + 40); // Inside the payload, so only the CRC can catch it
+        assertEquals(1, new TrackingCheckpointJournal(file).read(SESSION).sessionSteps);
+    }
+
+    @Test
+    public void slotWithoutMagicIsIgnored() throws Exception {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        journal.write(checkpoint(SESSION, 1));
+        journal.write(checkpoint(SESSION, 2));
+        corrupt(slotOf(2)); // The magic is the commit marker
+        assertEquals(1, new TrackingCheckpointJournal(file).read(SESSION).sessionSteps);
+    }
+
+    @Test
+    public void otherSessionReadsNothing() {
+        new TrackingCheckpointJournal(file).write(checkpoint(SESSION, 1));
+        assertNull(new TrackingCheckpointJournal(file).read("another-session"));
+        assertNull(new TrackingCheckpointJournal(file).read(null));
+    }
+
+    @Test
+    public void clearDropsBothSlots() {
+        TrackingCheckpointJournal journal = new TrackingCheckpointJournal(file);
+        journal.write(checkpoint(SESSION, 1));
+        journal.write(checkpoint(SESSION, 2));
+        journal.clear();
+        assertNull(journal.read(SESSION));
+        assertNull(new TrackingCheckpointJournal(file).read(SESSION));
+    }
+
+    /**
+     * Offset of the slot holding the checkpoint with the given step count
+     */
+    private int slotOf(int steps) throws Exception {
+        // sessionSteps sits after magic, version, sequence (16), savedAt (8) and paused (1)
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int slot = 0; slot < 2 * SLOT_SIZE; slot += SLOT_SIZE) {
+                raf.seek(slot + 25);
+                if (raf.readInt() == steps) {
+                    return slot;
+                }
+            }
+        }
+        fail("No slot holds " + steps + " steps");
+        return -1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.caloriechase.location;
+
+import com.example.caloriechase.data.TreasureLocation;
+import com.example.caloriechase.data.TreasureType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class GeofencePlannerTest {
+
+    static final double ORIGIN_LAT = 51.5;
+    static final double ORIGIN_LNG = -0.12;
+    private static final double METERS_PER_DEGREE = 111320.0;
+
+    /**
+     * Treasures scattered uniformly over a square of the given size around the origin
+     */
+    static List<TreasureLocation> scatter(int count, double spanMeters, long seed) {
+        Random random = new Random(seed);
+        TreasureType[] types = TreasureType.values();
+        double metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(Math.toRadians(ORIGIN_LAT));
+        List<TreasureLocation> treasures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double north = (random.nextDouble() - 0.5) * spanMeters;
+            double east = (random.nextDouble() - 0.5) * spanMeters;
+            treasures.add(new TreasureLocation("t" + i, "s", ORIGIN_LAT + north / METERS_PER_DEGREE,
+                                               ORIGIN_LNG + east / metersPerDegreeLng, types[i % types.length]));
+        }
+        return treasures;
+    }
+
+    private static double distanceFromOrigin(TreasureLocation treasure) {
+        return GeofencePlanner.distanceMeters(ORIGIN_LAT, ORIGIN_LNG, treasure.latitude, treasure.longitude);
+    }
+
+    @Test
+    public void smallHunt_fencesEveryTreasure() {
+        List<TreasureLocation> treasures = scatter(GeofencePlanner.FINE_FENCE_COUNT, 3000, 1);
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(treasures, Collections.emptySet(), ORIGIN_LAT, ORIGIN_LNG);
+        assertEquals(GeofencePlanner.FINE_FENCE_COUNT, plan.fineTreasures.size());
+        assertTrue(plan.clusters.isEmpty());
+        assertFalse(plan.isStale(ORIGIN_LAT + 1, ORIGIN_LNG + 1));
+    }
+
+    @Test
+    public void collectedTreasuresAreNotFenced() {
+        List<TreasureLocation> treasures = scatter(10, 3000, 2);
+        treasures.get(0).isCollected = true;
+        Set<String> collectedIds = Collections.singleton(treasures.get(1).treasureId);
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(treasures, collectedIds, ORIGIN_LAT, ORIGIN_LNG);
+        assertEquals(8, plan.fineTreasures.size());
+        assertFalse(plan.getRequestIds().contains("t0"));
+        assertFalse(plan.getRequestIds().contains("t1"));
+    }
+
+    @Test
+    public void largeHunt_staysWithinThePlatformLimit() {
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(scatter(1000, 20_000, 3), Collections.emptySet(),
+                                                         ORIGIN_LAT, ORIGIN_LNG);
+        assertEquals(GeofencePlanner.FINE_FENCE_COUNT, plan.fineTreasures.size());
+        assertTrue(plan.clusters.size() <= GeofencePlanner.MAX_CLUSTER_FENCES);
+        assertTrue(plan.getFenceCount() < 100);
+        assertEquals(plan.getFenceCount(), plan.getRequestIds().size());
+    }
+
+    @Test
+    public void fineFencesAreTheNearestTreasures() {
+        List<TreasureLocation> treasures = scatter(200, 10_000, 4);
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(treasures, Collections.emptySet(), ORIGIN_LAT, ORIGIN_LNG);
+
+        double ring = 0;
+        for (TreasureLocation fine : plan.fineTreasures) {
+            ring = Math.max(ring, distanceFromOrigin(fine));
+        }
+        Set<String> fineIds = new HashSet<>();
+        for (TreasureLocation fine : plan.fineTreasures) {
+            fineIds.add(fine.treasureId);
+        }
+        for (TreasureLocation treasure : treasures) {
+            if (!fineIds.contains(treasure.treasureId)) {
+                assertTrue(distanceFromOrigin(treasure) >= ring);
+            }
+        }
+        assertEquals(Math.max(GeofencePlanner.MIN_REPLAN_DISTANCE_METERS, ring / 2), plan.replanDistance, 0.01);
+    }
+
+    @Test
+    public void clusterFencesCoverTheirMembers() {
+        List<TreasureLocation> treasures = scatter(300, 10_000, 5);
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(treasures, Collections.emptySet(), ORIGIN_LAT, ORIGIN_LNG);
+
+        int clustered = 0;
+        for (GeofencePlanner.ClusterFence cluster : plan.clusters) {
+            assertTrue(GeofencePlanner.isClusterId(cluster.requestId));
+            assertTrue(cluster.radius >= GeofencePlanner.MIN_CLUSTER_RADIUS_METERS);
+            clustered += cluster.memberCount;
+        }
+        assertEquals(treasures.size() - GeofencePlanner.FINE_FENCE_COUNT, clustered);
+
+        // Every treasure outside the fine ring lies inside at least one cluster fence
+        Set<String> fineIds = plan.getRequestIds();
+        for (TreasureLocation treasure : treasures) {
+            if (fineIds.contains(treasure.treasureId)) {
+                continue;
+            }
+            boolean covered = false;
+            for (GeofencePlanner.ClusterFence cluster : plan.clusters) {
+                double distance = GeofencePlanner.distanceMeters(cluster.latitude, cluster.longitude,
+                                                                 treasure.latitude, treasure.longitude);
+                covered |= distance + treasure.radius <= cluster.radius + 0.01;
+            }
+            assertTrue(treasure.treasureId + " is outside every cluster fence", covered);
+        }
+    }
+
+    @Test
+    public void planGoesStaleHalfwayToTheRing() {
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(scatter(200, 10_000, 6), Collections.emptySet(),
+                                                         ORIGIN_LAT, ORIGIN_LNG);
+        double step = plan.replanDistance / METERS_PER_DEGREE;
+        assertFalse(plan.isStale(ORIGIN_LAT, ORIGIN_LNG));
+        assertFalse(plan.isStale(ORIGIN_LAT + step * 0.9, ORIGIN_LNG));
+        assertTrue(plan.isStale(ORIGIN_LAT + step * 1.1, ORIGIN_LNG));
+    }
+
+    @Test
+    public void planWithoutFix_isCentredOnTheTreasuresAndStale() {
+        GeofencePlanner.Plan plan = GeofencePlanner.plan(scatter(200, 10_000, 7), Collections.emptySet(),
+                                                         Double.NaN, Double.NaN);
+        assertFalse(plan.hasOrigin);
+        assertEquals(ORIGIN_LAT, plan.originLatitude, 0.01);
+        assertEquals(ORIGIN_LNG, plan.originLongitude, 0.01);
+        assertTrue(plan.isStale(plan.originLatitude, plan.originLongitude));
+    }
+}
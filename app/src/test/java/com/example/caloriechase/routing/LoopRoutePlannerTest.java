@@ -0,0 +1,111 @@
+package com.example.caloriechase.routing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LoopRoutePlannerTest {
+
+    static final double ORIGIN_LAT = 51.5;
+    static final double ORIGIN_LNG = -0.12;
+    private static final double SPACING_METERS = 100;
+
+    static double latitudeOf(int row) {
+        return ORIGIN_LAT + Math.toDegrees(row * SPACING_METERS / StreetGraph.EARTH_RADIUS_METERS);
+    }
+
+    static double longitudeOf(int col) {
+        return ORIGIN_LNG + Math.toDegrees(col * SPACING_METERS / StreetGraph.EARTH_RADIUS_METERS)
+                / Math.cos(Math.toRadians(ORIGIN_LAT));
+    }
+
+    /**
+     * Manhattan street grid with blocks of {@link #SPACING_METERS}
+     */
+    static StreetGraph grid(int rows, int cols) {
+        int nodes = rows * cols;
+        double[] lats = new double[nodes];
+        double[] lngs = new double[nodes];
+        int[] start = new int[nodes + 1];
+        int[] targets = new int[nodes * 4];
+        float[] lengths = new float[nodes * 4];
+        int edges = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int node = r * cols + c;
+                lats[node] = latitudeOf(r);
+                lngs[node] = longitudeOf(c);
+                int[][] neighbours = {{r - 1, c}, {r + 1, c}, {r, c - 1}, {r, c + 1}};
+                for (int[] n : neighbours) {
+                    if (n[0] >= 0 && n[0] < rows && n[1] >= 0 && n[1] < cols) {
+                        targets[edges] = n[0] * cols + n[1];
+                        lengths[edges++] = (float) SPACING_METERS;
+                    }
+                }
+                start[node + 1] = edges;
+            }
+        }
+        return new StreetGraph(lats, lngs, start, Arrays.copyOf(targets, edges),
+                               Arrays.copyOf(lengths, edges));
+    }
+
+    @Test
+    public void shortestPath_isManhattanDistanceOnAGrid() {
+        StreetGraph graph = grid(20, 20);
+        StreetGraph.NodePath path = new StreetGraph.NodePath();
+        double length = graph.shortestPath(0, 19 * 20 + 9, path);
+        assertEquals((19 + 9) * SPACING_METERS, length, 0.01);
+        assertEquals(19 + 9 + 1, path.size());
+        assertEquals(0, path.get(0));
+        assertEquals(19 * 20 + 9, path.get(path.size() - 1));
+    }
+
+    @Test
+    public void nearestNode_respectsRadiusAndComponent() {
+        StreetGraph graph = grid(10, 10);
+        assertEquals(3 * 10 + 4, graph.nearestNode(latitudeOf(3) + 1e-5, longitudeOf(4), 50));
+        assertEquals(-1, graph.nearestNode(latitudeOf(30), longitudeOf(30), 300));
+        assertEquals(-1, graph.nearestNode(latitudeOf(3), longitudeOf(4), 50, graph.componentOf(0) + 1));
+    }
+
+    @Test
+    public void planTo_followsTheStreets() {
+        StreetGraph graph = grid(30, 30);
+        PlannedRoute route = LoopRoutePlanner.planTo(graph, latitudeOf(0), longitudeOf(0),
+                                                     latitudeOf(10), longitudeOf(20));
+        assertNotNull(route);
+        assertFalse(route.loop);
+        assertEquals(30 * SPACING_METERS, route.lengthMeters, 0.01);
+        assertEquals(latitudeOf(10), route.latitudes[route.size() - 1], 1e-9);
+    }
+
+    @Test
+    public void planTo_returnsNullFarFromTheGraph() {
+        StreetGraph graph = grid(10, 10);
+        assertNull(LoopRoutePlanner.planTo(graph, latitudeOf(-20), longitudeOf(0), latitudeOf(5), longitudeOf(5)));
+    }
+
+    @Test
+    public void planLoop_meetsTheTargetOnAGrid() {
+        StreetGraph graph = grid(60, 60);
+        for (double bearing = 0; bearing < 2 * Math.PI; bearing += 0.7) {
+            PlannedRoute route = LoopRoutePlanner.planLoop(graph, latitudeOf(30), longitudeOf(30), 5000, bearing);
+            assertNotNull(route);
+            assertTrue(route.loop);
+            assertEquals(5000, route.lengthMeters, 500);
+            assertEquals(route.latitudes[0], route.latitudes[route.size() - 1], 1e-9);
+            assertEquals(route.longitudes[0], route.longitudes[route.size() - 1], 1e-9);
+        }
+    }
+
+    @Test
+    public void planLoop_fallsBackToOutAndBackOnASingleStreet() {
+        StreetGraph street = grid(1, 60);
+        PlannedRoute route = LoopRoutePlanner.planLoop(street, latitudeOf(0), longitudeOf(5), 4000, Math.PI / 2);
+        assertNotNull(route);
+        assertFalse(route.loop);
+        assertEquals(4000, route.lengthMeters, 400);
+    }
+}
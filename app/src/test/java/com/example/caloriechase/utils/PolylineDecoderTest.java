@@ -0,0 +1,179 @@
+package com.example.caloriechase.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolylineDecoderTest {
+
+    // Example from the Google encoded polyline documentation
+    private static final String GOOGLE_EXAMPLE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+    static PolylineDecoder.PointBuffer wigglyRoute(int size) {
+        PolylineDecoder.PointBuffer route = new PolylineDecoder.PointBuffer(size);
+        for (int i = 0; i < size; i++) {
+            route.add(51.5 + i * 1e-4, -0.12 + Math.sin(i / 10.0) * 1e-3);
+        }
+        return route;
+    }
+
+    @Test
+    public void decodeInto_decodesDocumentationExample() {
+        PolylineDecoder.PointBuffer points = PolylineDecoder.decodeInto(GOOGLE_EXAMPLE, new PolylineDecoder.PointBuffer());
+        assertEquals(3, points.size());
+        assertEquals(38.5, points.latitudeAt(0), 1e-9);
+        assertEquals(-120.2, points.longitudeAt(0), 1e-9);
+        assertEquals(40.7, points.latitudeAt(1), 1e-9);
+        assertEquals(-120.95, points.longitudeAt(1), 1e-9);
+        assertEquals(43.252, points.latitudeAt(2), 1e-9);
+        assertEquals(-126.453, points.longitudeAt(2), 1e-9);
+    }
+
+    @Test
+    public void decodeInto_matchesDecode() {
+        String encoded = PolylineDecoder.encode(wigglyRoute(500));
+        List<LatLng> expected = PolylineDecoder.decode(encoded);
+        PolylineDecoder.PointBuffer actual = PolylineDecoder.decodeInto(encoded, new PolylineDecoder.PointBuffer(2));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).latitude, actual.latitudeAt(i), 0.0);
+            assertEquals(expected.get(i).longitude, actual.longitudeAt(i), 0.0);
+        }
+    }
+
+    @Test
+    public void decodeInto_discardsPreviousContents() {
+        PolylineDecoder.PointBuffer buffer = PolylineDecoder.decodeInto(PolylineDecoder.encode(wigglyRoute(50)),
+                                                                        new PolylineDecoder.PointBuffer());
+        PolylineDecoder.decodeInto(GOOGLE_EXAMPLE, buffer);
+        assertEquals(3, buffer.size());
+        PolylineDecoder.decodeInto(null, buffer);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void decodeInto_windowDecodesOnlyTheRequestedRange() {
+        PolylineDecoder.PointBuffer route = wigglyRoute(100);
+        String encoded = PolylineDecoder.encode(route);
+        PolylineDecoder.PointBuffer window = PolylineDecoder.decodeInto(encoded, 40, 10, 0, new PolylineDecoder.PointBuffer());
+        assertEquals(10, window.size());
+        List<LatLng> all = PolylineDecoder.decode(encoded);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(all.get(40 + i).latitude, window.latitudeAt(i), 0.0);
+            assertEquals(all.get(40 + i).longitude, window.longitudeAt(i), 0.0);
+        }
+
+        assertTrue(PolylineDecoder.decodeInto(encoded, 100, 10, 0, window).isEmpty());
+        assertTrue(PolylineDecoder.decodeInto(encoded, 0, 0, 0, window).isEmpty());
+    }
+
+    @Test
+    public void decodeInto_simplifiesWhileDecodingAndKeepsTheEndpoints() {
+        PolylineDecoder.PointBuffer route = wigglyRoute(500);
+        String encoded = PolylineDecoder.encode(route);
+        double tolerance = 20.0;
+        PolylineDecoder.PointBuffer onePass = PolylineDecoder.decodeInto(encoded, 0, Integer.MAX_VALUE, tolerance,
+                                                                         new PolylineDecoder.PointBuffer());
+        assertTrue(onePass.size() > 2);
+        assertTrue(onePass.size() < 100);
+
+        List<LatLng> all = PolylineDecoder.decode(encoded);
+        assertEquals(all.get(0).latitude, onePass.latitudeAt(0), 0.0);
+        assertEquals(all.get(all.size() - 1).latitude, onePass.latitudeAt(onePass.size() - 1), 0.0);
+        assertEquals(all.get(all.size() - 1).longitude, onePass.longitudeAt(onePass.size() - 1), 0.0);
+    }
+
+    @Test
+    public void decodeInto_simplifiedLineStaysWithinTheTolerance() {
+        // A bump just under the tolerance with a point just under the tolerance past it: the
+        // radial filter drops the outer point, then Douglas-Peucker drops the bump itself
+        double tolerance = 20.0;
+        double metersToDegrees = 1 / 111195.0;
+        PolylineDecoder.PointBuffer route = new PolylineDecoder.PointBuffer();
+        route.add(0, 0);
+        route.add(0.95 * tolerance * metersToDegrees, 500 * metersToDegrees);
+        route.add(1.9 * tolerance * metersToDegrees, 500 * metersToDegrees);
+        route.add(0, 1000 * metersToDegrees);
+        String encoded = PolylineDecoder.encode(route);
+
+        for (String polyline : new String[] {encoded, PolylineDecoder.encode(wigglyRoute(2000))}) {
+            PolylineDecoder.PointBuffer simplified = PolylineDecoder.decodeInto(
+                    polyline, 0, Integer.MAX_VALUE, tolerance, new PolylineDecoder.PointBuffer());
+            for (LatLng point : PolylineDecoder.decode(polyline)) {
+                assertTrue(distanceToLineMeters(point, simplified) <= tolerance + 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void encodeLatLngs_matchesEncodeBuffer() {
+        PolylineDecoder.PointBuffer route = wigglyRoute(200);
+        assertEquals(PolylineDecoder.encode(route), PolylineDecoder.encode(route.toLatLngList()));
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        assertEquals(GOOGLE_EXAMPLE, PolylineDecoder.encode(
+                PolylineDecoder.decodeInto(GOOGLE_EXAMPLE, new PolylineDecoder.PointBuffer())));
+    }
+
+    @Test
+    public void simplify_dropsCollinearPointsAndKeepsCorners() {
+        double[] lats = {0, 0, 0, 0, 0.001, 0.002};
+        double[] lngs = {0, 0.001, 0.002, 0.003, 0.003, 0.003};
+        PolylineDecoder.PointBuffer out = PolylineDecoder.simplify(lats, lngs, 1.0, new PolylineDecoder.PointBuffer());
+        assertEquals(3, out.size());
+        assertEquals(0.003, out.longitudeAt(1), 0.0);
+        assertEquals(0.0, out.latitudeAt(1), 0.0);
+        assertEquals(0.002, out.latitudeAt(2), 0.0);
+    }
+
+    @Test
+    public void simplify_zeroToleranceKeepsEveryPoint() {
+        PolylineDecoder.PointBuffer route = wigglyRoute(100);
+        PolylineDecoder.PointBuffer out = PolylineDecoder.simplify(route.toLatitudeArray(), route.toLongitudeArray(),
+                                                                   0, new PolylineDecoder.PointBuffer());
+        assertEquals(100, out.size());
+    }
+
+    @Test
+    public void simplifyIndices_keepsEndpointsAndCountsKeptPoints() {
+        double[] lats = {0, 0, 0, 0.001, 0};
+        double[] lngs = {0, 0.001, 0.002, 0.003, 0.004};
+        boolean[] keep = new boolean[lats.length];
+        int kept = PolylineDecoder.simplifyIndices(lats, lngs, lats.length, 5.0, keep);
+        assertArrayEquals(new boolean[]{true, false, true, true, true}, keep);
+        assertEquals(4, kept);
+    }
+
+    @Test
+    public void toleranceForZoom_isOnePixelAndHalvesPerZoomLevel() {
+        assertEquals(156543.03392, PolylineDecoder.toleranceForZoom(0, 0), 1e-6);
+        double z15 = PolylineDecoder.toleranceForZoom(15, 0);
+        assertEquals(z15 / 2, PolylineDecoder.toleranceForZoom(16, 0), 1e-9);
+        assertEquals(z15 / 2, PolylineDecoder.toleranceForZoom(15, 60), 1e-9);
+    }
+
+    /**
+     * Shortest distance from a point to the line, on a local flat projection around the point
+     */
+    private static double distanceToLineMeters(LatLng point, PolylineDecoder.PointBuffer line) {
+        double metersPerDegree = 6371000.0 * Math.PI / 180;
+        double cosLat = Math.cos(Math.toRadians(point.latitude));
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i + 1 < line.size(); i++) {
+            double ax = (line.longitudeAt(i) - point.longitude) * cosLat * metersPerDegree;
+            double ay = (line.latitudeAt(i) - point.latitude) * metersPerDegree;
+            double bx = (line.longitudeAt(i + 1) - point.longitude) * cosLat * metersPerDegree;
+            double by = (line.latitudeAt(i + 1) - point.latitude) * metersPerDegree;
+            double dx = bx - ax, dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+            best = Math.min(best, Math.hypot(ax + t * dx, ay + t * dy));
+        }
+        return best;
+    }
+}